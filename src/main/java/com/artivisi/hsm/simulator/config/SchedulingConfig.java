@@ -0,0 +1,14 @@
+package com.artivisi.hsm.simulator.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class to enable Spring's scheduled task execution.
+ * Used by background maintenance jobs such as partition retention.
+ * The scheduler pool size is set by spring.task.scheduling.pool.size.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
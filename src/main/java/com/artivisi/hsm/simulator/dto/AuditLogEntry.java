@@ -0,0 +1,32 @@
+package com.artivisi.hsm.simulator.dto;
+
+import com.artivisi.hsm.simulator.entity.CeremonyAuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One ceremony audit entry with its position and hash in the audit chain
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogEntry {
+
+    private long sequenceNumber;
+    private UUID ceremonyId;
+    private String eventType;
+    private CeremonyAuditLog.EventCategory eventCategory;
+    private String eventDescription;
+    private CeremonyAuditLog.ActorType actorType;
+    private String actorName;
+    private CeremonyAuditLog.EventStatus eventStatus;
+    private CeremonyAuditLog.EventSeverity eventSeverity;
+    private LocalDateTime createdAt;
+    private String entryHash;
+}
@@ -0,0 +1,24 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress snapshot emitted while bulk-initializing terminal keys for a bank
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkInitProgress {
+
+    private String bankCode;
+    private int terminalsTotal;
+    private int terminalsProcessed;
+    private int keysCreated;
+    private long elapsedMs;
+    private double keysPerSecond;
+    private boolean done;
+}
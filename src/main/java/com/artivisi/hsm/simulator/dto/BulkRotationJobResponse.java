@@ -0,0 +1,37 @@
+package com.artivisi.hsm.simulator.dto;
+
+import com.artivisi.hsm.simulator.entity.BulkRotationJob;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Progress snapshot of a bank-wide terminal key rotation job
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRotationJobResponse {
+
+    private UUID jobId;
+    private String bankCode;
+    private String keyTypes;
+    private KeyRotationHistory.RotationType rotationType;
+    private Integer gracePeriodHours;
+    private BulkRotationJob.JobStatus status;
+    private int terminalsTotal;
+    private int terminalsProcessed;
+    private int terminalsSkipped;
+    private int rotationsCreated;
+    private String lastTerminalId;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private String errorMessage;
+}
@@ -0,0 +1,41 @@
+package com.artivisi.hsm.simulator.dto;
+
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for rotating the terminal keys of every active terminal of a bank
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRotationRequest {
+
+    /**
+     * Terminal key types to rotate (TPK, TSK); both when empty
+     */
+    private List<String> keyTypes;
+
+    /**
+     * Type of rotation applied to every created rotation
+     */
+    @Builder.Default
+    private KeyRotationHistory.RotationType rotationType = KeyRotationHistory.RotationType.SCHEDULED;
+
+    /**
+     * Reason for rotation
+     */
+    private String reason;
+
+    /**
+     * Hours terminals have to install their new key before undelivered participants are failed
+     */
+    @Builder.Default
+    private Integer gracePeriodHours = 24;
+}
@@ -0,0 +1,45 @@
+package com.artivisi.hsm.simulator.dto;
+
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Key metadata for the hierarchy view (never carries key material).
+ * Children are filled in only for the levels that were requested.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyHierarchyNode {
+
+    private UUID id;
+    private String masterKeyId;
+    private KeyType keyType;
+    private MasterKey.KeyStatus status;
+    private UUID parentKeyId;
+    private UUID rotatedFromKeyId;
+    private long childCount;
+    private List<KeyHierarchyNode> children;
+    private boolean moreChildren;
+
+    /**
+     * Constructor used by the JPQL constructor expression in MasterKeyRepository
+     */
+    public KeyHierarchyNode(UUID id, String masterKeyId, KeyType keyType, MasterKey.KeyStatus status,
+                            UUID parentKeyId, UUID rotatedFromKeyId) {
+        this.id = id;
+        this.masterKeyId = masterKeyId;
+        this.keyType = keyType;
+        this.status = status;
+        this.parentKeyId = parentKeyId;
+        this.rotatedFromKeyId = rotatedFromKeyId;
+    }
+}
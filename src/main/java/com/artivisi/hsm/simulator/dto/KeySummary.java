@@ -0,0 +1,28 @@
+package com.artivisi.hsm.simulator.dto;
+
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Key metadata for dropdowns and lookups (never carries key material).
+ * Load the full MasterKey only when a cryptographic operation needs the key bytes.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeySummary {
+
+    private UUID id;
+    private String masterKeyId;
+    private KeyType keyType;
+    private MasterKey.KeyStatus status;
+    private UUID idBank;
+    private UUID idTerminal;
+}
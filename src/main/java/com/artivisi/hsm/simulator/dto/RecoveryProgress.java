@@ -0,0 +1,23 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress snapshot emitted while decrypting the shares of an offline recovery
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecoveryProgress {
+
+    private String shareId;         // Share decrypted by this step, null for the final snapshot
+    private int shareIndex;
+    private int sharesTotal;
+    private int sharesDecrypted;
+    private long elapsedMs;
+    private boolean done;
+}
@@ -0,0 +1,22 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One read of the rotation event feed, oldest first
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RotationEventPage {
+
+    private List<RotationFeedEvent> events;
+    private String nextCursor;
+    private boolean hasMore;
+}
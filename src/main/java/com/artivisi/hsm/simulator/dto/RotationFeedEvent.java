@@ -0,0 +1,29 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One entry of the rotation event feed; resume the feed after it with its cursor
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RotationFeedEvent {
+
+    private String cursor;
+    private Long eventId;
+    private String eventType;
+    private UUID rotationId;
+    private String rotationIdString;
+    private String terminalId;
+    private String actor;
+    private String details;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,29 @@
+package com.artivisi.hsm.simulator.dto;
+
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+
+/**
+ * Participant counts per update status for one rotation
+ */
+public record RotationProgress(long pending, long delivered, long confirmed, long failed, long skipped) {
+
+    public static RotationProgress of(long[] counts) {
+        return new RotationProgress(
+                counts[RotationParticipant.UpdateStatus.PENDING.ordinal()],
+                counts[RotationParticipant.UpdateStatus.DELIVERED.ordinal()],
+                counts[RotationParticipant.UpdateStatus.CONFIRMED.ordinal()],
+                counts[RotationParticipant.UpdateStatus.FAILED.ordinal()],
+                counts[RotationParticipant.UpdateStatus.SKIPPED.ordinal()]);
+    }
+
+    public long total() {
+        return pending + delivered + confirmed + failed + skipped;
+    }
+
+    /**
+     * Participants that still have to install the new key
+     */
+    public long outstanding() {
+        return pending + delivered;
+    }
+}
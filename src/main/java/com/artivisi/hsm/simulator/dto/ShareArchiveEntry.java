@@ -0,0 +1,24 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One share file of a ceremony share archive
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShareArchiveEntry {
+
+    private String file;
+    private String shareId;
+    private int shareIndex;
+    private String custodianLabel;
+    private String shareVerificationHash;   // Hash of the share value, as printed in the file
+    private String sha256;                  // SHA-256 of the file bytes, hex
+    private long size;
+}
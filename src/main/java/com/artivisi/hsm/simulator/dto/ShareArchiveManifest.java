@@ -0,0 +1,31 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * manifest.json of a ceremony share archive. Each entry carries the SHA-256 of its share file,
+ * so an import can check every file before parsing or decrypting it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShareArchiveManifest {
+
+    private int formatVersion;
+    private String ceremonyId;
+    private String ceremonyName;
+    private String masterKeyId;
+    private String masterKeyFingerprint;
+    private int threshold;
+    private int totalShares;
+    private String hashAlgorithm;
+    private LocalDateTime generatedAt;
+    private List<ShareArchiveEntry> shares;
+}
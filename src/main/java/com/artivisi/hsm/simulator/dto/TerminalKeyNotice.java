@@ -0,0 +1,26 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Pushed to a subscribed terminal when a rotation involving it is waiting for key pickup
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TerminalKeyNotice {
+
+    private UUID rotationId;
+    private String rotationIdString;
+    private String keyType;
+    private String newKeyId;
+    private LocalDateTime rotationStartedAt;
+    private String message;
+}
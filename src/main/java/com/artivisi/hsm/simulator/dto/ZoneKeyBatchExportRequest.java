@@ -0,0 +1,24 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request to export a set of zone keys to a partner bank in one ZMK-wrapped bundle
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZoneKeyBatchExportRequest {
+
+    private UUID zmkId;                  // ZMK shared with the partner
+    private String destinationBankCode;  // Partner bank
+    private List<UUID> keyIds;           // ZPK/ZSK keys to export
+    private String exchangeType;         // INITIAL (default), RENEWAL, EMERGENCY, ROTATION
+}
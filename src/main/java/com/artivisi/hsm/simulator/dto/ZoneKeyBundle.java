@@ -0,0 +1,31 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Zone key export bundle. Keys are wrapped under a KEK derived once per bundle from the shared ZMK,
+ * and the bundle is signed with an HMAC key derived alongside it, so only a holder of the ZMK can
+ * open or forge it. The partner finds its copy of the ZMK by zmkChecksum.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZoneKeyBundle {
+
+    private int formatVersion;
+    private String bundleId;
+    private String sourceBankCode;
+    private String destinationBankCode;
+    private String zmkChecksum;
+    private String exchangeType;
+    private LocalDateTime createdAt;
+    private List<ZoneKeyBundleEntry> keys;
+    private String signature;            // HMAC-SHA256 over the bundle content, hex
+}
@@ -0,0 +1,24 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One key of a zone key export bundle
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZoneKeyBundleEntry {
+
+    private String exchangeId;
+    private String masterKeyId;
+    private String keyType;
+    private String algorithm;
+    private Integer keySize;
+    private String wrappedKey;           // IV + AES-GCM ciphertext under the bundle KEK, hex
+    private String keyCheckValue;
+}
@@ -0,0 +1,24 @@
+package com.artivisi.hsm.simulator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of importing a zone key bundle
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZoneKeyImportResponse {
+
+    private String bundleId;
+    private int imported;
+    private int skipped;                 // Keys already present on this instance
+    private List<String> importedKeyIds;
+    private String message;
+}
@@ -0,0 +1,110 @@
+package com.artivisi.hsm.simulator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Entity representing a bank-wide terminal key rotation job.
+ * Terminals are processed in terminal_id order; the cursor advances with each committed chunk.
+ */
+@Entity
+@Table(name = "bulk_rotation_jobs", indexes = {
+    @Index(name = "idx_bulk_rotation_job_bank_status", columnList = "id_bank, status")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRotationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_bank", nullable = false, foreignKey = @ForeignKey(name = "fk_bulk_rotation_job_bank"))
+    private Bank bank;
+
+    @Column(name = "key_types", nullable = false, length = 50)
+    private String keyTypes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rotation_type", nullable = false, length = 50)
+    private KeyRotationHistory.RotationType rotationType;
+
+    @Column(name = "rotation_reason", nullable = false, columnDefinition = "TEXT")
+    private String rotationReason;
+
+    @Column(name = "grace_period_hours", nullable = false)
+    @Builder.Default
+    private Integer gracePeriodHours = 24;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column(name = "terminals_total", nullable = false)
+    @Builder.Default
+    private Integer terminalsTotal = 0;
+
+    @Column(name = "terminals_processed", nullable = false)
+    @Builder.Default
+    private Integer terminalsProcessed = 0;
+
+    @Column(name = "terminals_skipped", nullable = false)
+    @Builder.Default
+    private Integer terminalsSkipped = 0;
+
+    @Column(name = "rotations_created", nullable = false)
+    @Builder.Default
+    private Integer rotationsCreated = 0;
+
+    @Column(name = "last_terminal_id", length = 50)
+    private String lastTerminalId;
+
+    @Column(name = "initiated_by", nullable = false, length = 100)
+    private String initiatedBy;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public List<KeyType> keyTypeList() {
+        return Arrays.stream(keyTypes.split(",")).map(KeyType::valueOf).toList();
+    }
+
+    public enum JobStatus {
+        QUEUED,            // Waiting for a job worker
+        RUNNING,           // Creating rotations chunk by chunk
+        INTERRUPTED,       // Application stopped while running; resumable
+        CANCELLED,         // Stopped on request; resumable
+        COMPLETED,         // All terminals processed
+        FAILED             // Chunk failed; resumable after the cause is fixed
+    }
+}
@@ -16,16 +16,18 @@ import java.util.UUID;
 
 /**
  * Entity providing comprehensive audit trail for all ceremony activities.
+ * Entries are written by {@code CeremonyAuditService} and hash-chained in sequence order.
  */
 @Entity
 @Table(name = "ceremony_audit_logs", indexes = {
-    @Index(name = "idx_audit_ceremony", columnList = "id_key_ceremony"),
-    @Index(name = "idx_audit_event_type", columnList = "event_type"),
+    @Index(name = "idx_audit_sequence", columnList = "sequence_number", unique = true),
+    @Index(name = "idx_audit_ceremony_sequence", columnList = "id_key_ceremony, sequence_number DESC"),
+    @Index(name = "idx_audit_event_type_sequence", columnList = "event_type, sequence_number DESC"),
+    @Index(name = "idx_audit_event_severity_sequence", columnList = "event_severity, sequence_number DESC"),
     @Index(name = "idx_audit_event_category", columnList = "event_category"),
     @Index(name = "idx_audit_created_at", columnList = "created_at"),
     @Index(name = "idx_audit_actor", columnList = "actor_id"),
-    @Index(name = "idx_audit_event_status", columnList = "event_status"),
-    @Index(name = "idx_audit_event_severity", columnList = "event_severity")
+    @Index(name = "idx_audit_event_status", columnList = "event_status")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -103,6 +105,15 @@ public class CeremonyAuditLog {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "sequence_number", nullable = false, updatable = false)
+    private Long sequenceNumber;
+
+    @Column(name = "previous_hash", length = 64, updatable = false)
+    private String previousHash;
+
+    @Column(name = "entry_hash", length = 64, updatable = false)
+    private String entryHash;
+
     public enum EventCategory {
         CEREMONY, CONTRIBUTION, KEY_GENERATION, DISTRIBUTION, SECURITY, SYSTEM
     }
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -73,6 +74,18 @@ public class CeremonyCustodian {
     @Column(name = "share_sent_at")
     private LocalDateTime shareSentAt;
 
+    // Status read model, copied from the contribution and the key share (V13)
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "passphrase_strength", length = 20)
+    private PassphraseContribution.PassphraseStrength passphraseStrength;
+
+    @Column(name = "passphrase_entropy_score", precision = 3, scale = 1)
+    private BigDecimal passphraseEntropyScore;
+
+    @Column(name = "share_id", length = 50)
+    private String shareId;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
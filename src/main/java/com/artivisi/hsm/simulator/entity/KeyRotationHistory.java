@@ -32,6 +32,10 @@ public class KeyRotationHistory {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "rotation_id", nullable = false, unique = true, length = 50)
     private String rotationId;
 
@@ -68,6 +72,13 @@ public class KeyRotationHistory {
     @Builder.Default
     private RotationStatus rotationStatus = RotationStatus.IN_PROGRESS;
 
+    @Column(name = "grace_period_ends_at")
+    private LocalDateTime gracePeriodEndsAt;
+
+    @Column(name = "auto_complete", nullable = false)
+    @Builder.Default
+    private Boolean autoComplete = true;
+
     @Column(name = "affected_terminals_count")
     @Builder.Default
     private Integer affectedTerminalsCount = 0;
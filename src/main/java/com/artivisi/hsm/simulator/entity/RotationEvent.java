@@ -0,0 +1,64 @@
+package com.artivisi.hsm.simulator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Entity representing one entry of the append-only rotation event log.
+ * Rows are only inserted, in the transaction of the change they record.
+ * The writing transaction ID (txid) is filled in by the database and read only by the event feed.
+ */
+@Entity
+@Table(name = "rotation_events", indexes = {
+    @Index(name = "idx_rotation_event_rotation", columnList = "id_rotation")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RotationEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rotation_event_seq")
+    @SequenceGenerator(name = "rotation_event_seq", sequenceName = "rotation_events_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "id_rotation", nullable = false, updatable = false)
+    private UUID idRotation;
+
+    @Column(name = "rotation_id", nullable = false, updatable = false, length = 50)
+    private String rotationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, updatable = false, length = 20)
+    private EventType eventType;
+
+    @Column(name = "terminal_id", updatable = false, length = 50)
+    private String terminalId;
+
+    @Column(updatable = false, length = 100)
+    private String actor;
+
+    @Column(updatable = false, columnDefinition = "TEXT")
+    private String details;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public enum EventType {
+        INITIATED,      // Rotation created with its participants
+        DELIVERED,      // New key delivered to a terminal
+        CONFIRMED,      // Terminal confirmed installation of the new key
+        FAILED,         // Participant failed (checksum mismatch, grace period expired)
+        EXPIRED,        // Grace period ended with participants outstanding
+        COMPLETED,      // Rotation completed; old key retired
+        ROLLED_BACK     // Rotation rolled back; new key revoked
+    }
+}
@@ -18,8 +18,8 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "rotation_participants", indexes = {
-    @Index(name = "idx_rotation_participant_rotation", columnList = "id_rotation"),
-    @Index(name = "idx_rotation_participant_terminal", columnList = "id_terminal"),
+    @Index(name = "idx_rotation_participant_rotation_terminal", columnList = "id_rotation, id_terminal"),
+    @Index(name = "idx_rotation_participant_terminal_status", columnList = "id_terminal, update_status"),
     @Index(name = "idx_rotation_participant_bank", columnList = "id_bank"),
     @Index(name = "idx_rotation_participant_status", columnList = "update_status")
 })
@@ -34,6 +34,10 @@ public class RotationParticipant {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_rotation", nullable = false, foreignKey = @ForeignKey(name = "fk_rotation_participant_rotation"))
     private KeyRotationHistory rotation;
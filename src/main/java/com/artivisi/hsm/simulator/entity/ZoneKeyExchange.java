@@ -20,7 +20,8 @@ import java.util.UUID;
     @Index(name = "idx_zone_exchanges_destination", columnList = "id_destination_bank"),
     @Index(name = "idx_zone_exchanges_zmk", columnList = "id_zmk"),
     @Index(name = "idx_zone_exchanges_status", columnList = "exchange_status"),
-    @Index(name = "idx_zone_exchanges_initiated_at", columnList = "initiated_at")
+    @Index(name = "idx_zone_exchanges_initiated_at", columnList = "initiated_at"),
+    @Index(name = "idx_zone_exchanges_bundle", columnList = "bundle_id")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -63,6 +64,9 @@ public class ZoneKeyExchange {
     @Column(name = "transport_key_fingerprint")
     private String transportKeyFingerprint;
 
+    @Column(name = "bundle_id", length = 50)
+    private String bundleId;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "exchange_status", nullable = false, length = 50)
     @Builder.Default
@@ -1,6 +1,7 @@
 package com.artivisi.hsm.simulator.repository;
 
 import com.artivisi.hsm.simulator.entity.Bank;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -26,6 +27,9 @@ public interface BankRepository extends JpaRepository<Bank, UUID> {
     @Query("SELECT COUNT(b) FROM Bank b WHERE b.bankType = :bankType AND b.status = 'ACTIVE'")
     long countActiveBanksByType(Bank.BankType bankType);
 
+    @Query("SELECT b.id FROM Bank b WHERE b.status = 'ACTIVE' ORDER BY b.bankCode")
+    List<UUID> findActiveBankIds(Pageable limit);
+
     boolean existsByBankCode(String bankCode);
 
     List<Bank> findByCountryCode(String countryCode);
@@ -0,0 +1,30 @@
+package com.artivisi.hsm.simulator.repository;
+
+import com.artivisi.hsm.simulator.entity.BulkRotationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface BulkRotationJobRepository extends JpaRepository<BulkRotationJob, UUID> {
+
+    @Query("SELECT j FROM BulkRotationJob j JOIN FETCH j.bank WHERE j.id = :id")
+    Optional<BulkRotationJob> findWithBankById(@Param("id") UUID id);
+
+    @Query("SELECT j FROM BulkRotationJob j JOIN FETCH j.bank ORDER BY j.createdAt DESC")
+    List<BulkRotationJob> findAllWithBank();
+
+    @Query("SELECT COUNT(j) > 0 FROM BulkRotationJob j WHERE j.bank.id = :bankId " +
+           "AND j.status IN ('QUEUED', 'RUNNING')")
+    boolean existsActiveForBank(@Param("bankId") UUID bankId);
+
+    @Modifying
+    @Query("UPDATE BulkRotationJob j SET j.status = 'INTERRUPTED' WHERE j.status IN ('QUEUED', 'RUNNING')")
+    int markActiveAsInterrupted();
+}
@@ -1,57 +1,46 @@
 package com.artivisi.hsm.simulator.repository;
 
 import com.artivisi.hsm.simulator.entity.CeremonyAuditLog;
-import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Audit entries are written only by CeremonyAuditService.
+ * Listings are keyset pages on sequence_number, newest first: pass Long.MAX_VALUE as {@code before}
+ * for the first page and the last sequence number seen for the next one.
+ */
 @Repository
 public interface CeremonyAuditLogRepository extends JpaRepository<CeremonyAuditLog, UUID> {
 
-    List<CeremonyAuditLog> findByKeyCeremony(KeyCeremony keyCeremony);
-
-    List<CeremonyAuditLog> findByKeyCeremonyId(UUID keyCeremonyId);
-
-    List<CeremonyAuditLog> findByEventType(String eventType);
-
-    List<CeremonyAuditLog> findByEventCategory(String eventCategory);
-
-    List<CeremonyAuditLog> findByEventStatus(String eventStatus);
-
-    List<CeremonyAuditLog> findByEventSeverity(String eventSeverity);
-
-    List<CeremonyAuditLog> findByActorId(String actorId);
+    @Query("SELECT c FROM CeremonyAuditLog c WHERE c.sequenceNumber < :before ORDER BY c.sequenceNumber DESC")
+    List<CeremonyAuditLog> findPageBefore(@Param("before") long before, Pageable limit);
 
     @Query("SELECT c FROM CeremonyAuditLog c WHERE c.keyCeremony.id = :ceremonyId " +
-           "AND c.createdAt BETWEEN :startDate AND :endDate " +
-           "ORDER BY c.createdAt DESC")
-    List<CeremonyAuditLog> findByCeremonyAndDateRange(
-        @Param("ceremonyId") UUID ceremonyId,
-        @Param("startDate") LocalDateTime startDate,
-        @Param("endDate") LocalDateTime endDate);
+           "AND c.sequenceNumber < :before ORDER BY c.sequenceNumber DESC")
+    List<CeremonyAuditLog> findCeremonyPageBefore(@Param("ceremonyId") UUID ceremonyId,
+                                                  @Param("before") long before, Pageable limit);
 
-    @Query("SELECT c FROM CeremonyAuditLog c WHERE c.eventSeverity IN :severities " +
-           "ORDER BY c.createdAt DESC")
-    List<CeremonyAuditLog> findBySeverities(@Param("severities") List<String> severities);
+    @Query("SELECT c FROM CeremonyAuditLog c WHERE c.eventType = :eventType " +
+           "AND c.sequenceNumber < :before ORDER BY c.sequenceNumber DESC")
+    List<CeremonyAuditLog> findEventTypePageBefore(@Param("eventType") String eventType,
+                                                   @Param("before") long before, Pageable limit);
 
-    @Query("SELECT c FROM CeremonyAuditLog c WHERE c.keyCeremony.id = :ceremonyId " +
-           "AND c.eventCategory = :category " +
-           "ORDER BY c.createdAt DESC")
-    List<CeremonyAuditLog> findByCeremonyAndCategory(
-        @Param("ceremonyId") UUID ceremonyId,
-        @Param("category") String category);
+    @Query("SELECT c FROM CeremonyAuditLog c WHERE c.eventSeverity IN :severities " +
+           "AND c.sequenceNumber < :before ORDER BY c.sequenceNumber DESC")
+    List<CeremonyAuditLog> findSeverityPageBefore(@Param("severities") List<CeremonyAuditLog.EventSeverity> severities,
+                                                  @Param("before") long before, Pageable limit);
 
     @Query("SELECT COUNT(c) FROM CeremonyAuditLog c WHERE c.keyCeremony.id = :ceremonyId " +
            "AND c.eventStatus = :status")
     long countByCeremonyAndStatus(
         @Param("ceremonyId") UUID ceremonyId,
-        @Param("status") String status);
+        @Param("status") CeremonyAuditLog.EventStatus status);
 
     @Query("SELECT c.eventCategory, COUNT(c) FROM CeremonyAuditLog c " +
            "WHERE c.keyCeremony.id = :ceremonyId GROUP BY c.eventCategory")
@@ -24,6 +24,14 @@ public interface CeremonyCustodianRepository extends JpaRepository<CeremonyCusto
     @Query("SELECT cc FROM CeremonyCustodian cc WHERE cc.keyCeremony.id = ?1")
     List<CeremonyCustodian> findByKeyCeremonyId(UUID keyCeremonyId);
 
+    /**
+     * Custodians of a ceremony with the ceremony and custodian fetched, in custodian order.
+     * Everything the ceremony status shows, in one query.
+     */
+    @Query("SELECT cc FROM CeremonyCustodian cc JOIN FETCH cc.keyCeremony JOIN FETCH cc.keyCustodian " +
+           "WHERE cc.keyCeremony.id = ?1 ORDER BY cc.custodianOrder")
+    List<CeremonyCustodian> findStatusRows(UUID keyCeremonyId);
+
     @Query("SELECT cc FROM CeremonyCustodian cc WHERE cc.keyCeremony.id = ?1 AND cc.contributionStatus = ?2")
     List<CeremonyCustodian> findByKeyCeremonyIdAndContributionStatus(UUID keyCeremonyId, CeremonyCustodian.ContributionStatus contributionStatus);
 
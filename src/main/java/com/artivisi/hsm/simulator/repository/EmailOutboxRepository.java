@@ -0,0 +1,13 @@
+package com.artivisi.hsm.simulator.repository;
+
+import com.artivisi.hsm.simulator.entity.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Outgoing email queue. Due messages are claimed by
+ * {@link com.artivisi.hsm.simulator.service.EmailOutboxService} with SKIP LOCKED.
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+}
@@ -4,8 +4,12 @@ import com.artivisi.hsm.simulator.entity.GeneratedMac;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,4 +21,17 @@ public interface GeneratedMacRepository extends JpaRepository<GeneratedMac, UUID
     long countByStatus(GeneratedMac.MacStatus status);
 
     Optional<GeneratedMac> findByMessageAndMacKey_Id(String message, UUID macKeyId);
+
+    // Keyset pagination on (generatedAt, id), newest first
+    @Query("SELECT m FROM GeneratedMac m ORDER BY m.generatedAt DESC, m.id DESC")
+    List<GeneratedMac> findKeysetFirstPage(Pageable limit);
+
+    // generatedAt <= cursor is the index range; the OR drops rows tied with the cursor that come before it
+    @Query("SELECT m FROM GeneratedMac m WHERE m.generatedAt <= :generatedAt " +
+           "AND (m.generatedAt < :generatedAt OR m.id < :id) ORDER BY m.generatedAt DESC, m.id DESC")
+    List<GeneratedMac> findKeysetPageAfter(@Param("generatedAt") LocalDateTime generatedAt,
+                                           @Param("id") UUID id, Pageable limit);
+
+    @Query("SELECT m.status, COUNT(m) FROM GeneratedMac m GROUP BY m.status")
+    List<Object[]> countGroupedByStatus();
 }
@@ -4,8 +4,12 @@ import com.artivisi.hsm.simulator.entity.GeneratedPin;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,4 +23,17 @@ public interface GeneratedPinRepository extends JpaRepository<GeneratedPin, UUID
     long countByStatus(GeneratedPin.PinStatus status);
 
     boolean existsByAccountNumber(String accountNumber);
+
+    // Keyset pagination on (generatedAt, id), newest first
+    @Query("SELECT p FROM GeneratedPin p ORDER BY p.generatedAt DESC, p.id DESC")
+    List<GeneratedPin> findKeysetFirstPage(Pageable limit);
+
+    // Leading generatedAt bound gives the keyset index a seek start; the OR only breaks ties
+    @Query("SELECT p FROM GeneratedPin p WHERE p.generatedAt <= :generatedAt " +
+           "AND (p.generatedAt < :generatedAt OR p.id < :id) ORDER BY p.generatedAt DESC, p.id DESC")
+    List<GeneratedPin> findKeysetPageAfter(@Param("generatedAt") LocalDateTime generatedAt,
+                                           @Param("id") UUID id, Pageable limit);
+
+    @Query("SELECT p.status, COUNT(p) FROM GeneratedPin p GROUP BY p.status")
+    List<Object[]> countGroupedByStatus();
 }
@@ -2,12 +2,15 @@ package com.artivisi.hsm.simulator.repository;
 
 import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
 import com.artivisi.hsm.simulator.entity.MasterKey;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,6 +31,12 @@ public interface KeyRotationHistoryRepository extends JpaRepository<KeyRotationH
     @Query("SELECT k FROM KeyRotationHistory k WHERE k.oldKey.id = :keyId OR k.newKey.id = :keyId")
     List<KeyRotationHistory> findRotationHistoryByKey(@Param("keyId") UUID keyId);
 
+    // Dual-key window lookup; served by idx_rotation_history_old_key / idx_rotation_history_new_key
+    @Query("SELECT k FROM KeyRotationHistory k JOIN FETCH k.oldKey JOIN FETCH k.newKey " +
+           "WHERE (k.oldKey.id = :keyId OR k.newKey.id = :keyId) AND k.rotationStatus = 'IN_PROGRESS' " +
+           "ORDER BY k.rotationStartedAt DESC")
+    List<KeyRotationHistory> findInProgressByKeyWithKeys(@Param("keyId") UUID keyId, Pageable limit);
+
     @Query("SELECT k FROM KeyRotationHistory k WHERE k.rotationStatus = :status " +
            "AND k.rotationStartedAt < :before")
     List<KeyRotationHistory> findByStatusAndStartedBefore(
@@ -48,6 +57,49 @@ public interface KeyRotationHistoryRepository extends JpaRepository<KeyRotationH
 
     boolean existsByRotationId(String rotationId);
 
+    // Grace period deadlines; expired non-auto-complete rotations only while participants are still outstanding
+    @Query("SELECT k.id, k.gracePeriodEndsAt FROM KeyRotationHistory k WHERE k.rotationStatus = 'IN_PROGRESS' " +
+           "AND k.gracePeriodEndsAt <= :until AND (k.autoComplete = true OR EXISTS (" +
+           "SELECT p.id FROM RotationParticipant p WHERE p.rotation = k AND p.updateStatus IN ('PENDING', 'DELIVERED')))")
+    List<Object[]> findGracePeriodDeadlines(@Param("until") LocalDateTime until);
+
+    @Query("SELECT k.id FROM KeyRotationHistory k WHERE k.id IN :ids AND k.rotationStatus = 'IN_PROGRESS' " +
+           "AND k.gracePeriodEndsAt <= :now")
+    List<UUID> findGracePeriodExpiredIds(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now);
+
+    // Rotation ID, rotation ID string and auto-complete flag, for the event log
+    @Query("SELECT k.id, k.rotationId, k.autoComplete FROM KeyRotationHistory k WHERE k.id IN :ids")
+    List<Object[]> findEventHeaders(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE KeyRotationHistory k SET k.rotationStatus = :status, k.rotationCompletedAt = :now, " +
+           "k.rotationApprovedBy = :approvedBy, k.version = k.version + 1 " +
+           "WHERE k.id IN :ids AND k.autoComplete = true AND k.rotationStatus = 'IN_PROGRESS'")
+    int completeAutoCompleteRotations(@Param("ids") Collection<UUID> ids,
+                                      @Param("status") KeyRotationHistory.RotationStatus status,
+                                      @Param("now") LocalDateTime now,
+                                      @Param("approvedBy") String approvedBy);
+
+    // Exactly one caller wins; the others see 0 rows once the winner commits.
+    // The database, not the progress counters, decides that no participant is still outstanding.
+    @Modifying
+    @Query("UPDATE KeyRotationHistory k SET k.rotationStatus = :status, k.rotationCompletedAt = :now, " +
+           "k.rotationApprovedBy = :approvedBy, k.version = k.version + 1 " +
+           "WHERE k.id = :id AND k.rotationStatus = 'IN_PROGRESS' " +
+           "AND NOT EXISTS (SELECT p.id FROM RotationParticipant p WHERE p.rotation.id = k.id " +
+           "AND p.updateStatus IN ('PENDING', 'DELIVERED'))")
+    int completeIfInProgress(@Param("id") UUID id,
+                             @Param("status") KeyRotationHistory.RotationStatus status,
+                             @Param("now") LocalDateTime now,
+                             @Param("approvedBy") String approvedBy);
+
+    @Query("SELECT k.id FROM KeyRotationHistory k WHERE k.rotationStatus = 'IN_PROGRESS' AND k.id IN :ids")
+    List<UUID> findInProgressIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT k.oldKey.id FROM KeyRotationHistory k WHERE k.rotationStatus = 'IN_PROGRESS' " +
+           "AND k.oldKey.id IN :keyIds")
+    List<UUID> findOldKeyIdsInProgress(@Param("keyIds") Collection<UUID> keyIds);
+
     @Query("SELECT COUNT(k) FROM KeyRotationHistory k WHERE k.rotationStatus = :status")
     long countByStatus(@Param("status") KeyRotationHistory.RotationStatus status);
 
@@ -21,6 +21,10 @@ public interface KeyShareRepository extends JpaRepository<KeyShare, UUID> {
 
     List<KeyShare> findByMasterKeyId(UUID masterKeyId);
 
+    @Query("SELECT k FROM KeyShare k JOIN FETCH k.ceremonyCustodian cc JOIN FETCH cc.keyCustodian " +
+           "WHERE k.masterKey.id = :masterKeyId ORDER BY k.shareIndex")
+    List<KeyShare> findByMasterKeyIdWithCustodians(@Param("masterKeyId") UUID masterKeyId);
+
     List<KeyShare> findByCeremonyCustodian(CeremonyCustodian ceremonyCustodian);
 
     List<KeyShare> findByCeremonyCustodianId(UUID ceremonyCustodianId);
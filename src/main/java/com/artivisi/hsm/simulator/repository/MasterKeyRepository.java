@@ -1,11 +1,19 @@
 package com.artivisi.hsm.simulator.repository;
 
+import com.artivisi.hsm.simulator.dto.KeyHierarchyNode;
+import com.artivisi.hsm.simulator.dto.KeySummary;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,6 +25,8 @@ public interface MasterKeyRepository extends JpaRepository<MasterKey, UUID> {
 
     Optional<MasterKey> findByKeyFingerprint(String keyFingerprint);
 
+    List<MasterKey> findByKeyTypeAndStatusAndKeyChecksum(KeyType keyType, MasterKey.KeyStatus status, String keyChecksum);
+
     Optional<MasterKey> findByKeyCeremonyId(UUID keyCeremonyId);
 
     List<MasterKey> findByStatus(MasterKey.KeyStatus status);
@@ -39,4 +49,113 @@ public interface MasterKeyRepository extends JpaRepository<MasterKey, UUID> {
     long countByStatus(MasterKey.KeyStatus status);
 
     long countByGenerationMethod(String generationMethod);
-}
\ No newline at end of file
+
+    @Query("SELECT m.status, COUNT(m) FROM MasterKey m GROUP BY m.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT m.generationMethod, COUNT(m) FROM MasterKey m GROUP BY m.generationMethod")
+    List<Object[]> countGroupedByGenerationMethod();
+
+    // Keyset pagination on (generatedAt, id), newest first
+    @Query("SELECT m FROM MasterKey m ORDER BY m.generatedAt DESC, m.id DESC")
+    List<MasterKey> findKeysetFirstPage(Pageable limit);
+
+    // The leading generatedAt <= bound lets the (generated_at, id) index seek to the cursor
+    @Query("SELECT m FROM MasterKey m WHERE m.generatedAt <= :generatedAt " +
+           "AND (m.generatedAt < :generatedAt OR m.id < :id) ORDER BY m.generatedAt DESC, m.id DESC")
+    List<MasterKey> findKeysetPageAfter(@Param("generatedAt") LocalDateTime generatedAt,
+                                        @Param("id") UUID id, Pageable limit);
+
+    List<MasterKey> findByIdBankAndKeyTypeIn(UUID idBank, Collection<KeyType> keyTypes);
+
+    @Query("SELECT m.id, m.expiresAt FROM MasterKey m WHERE m.status = 'ACTIVE' AND m.expiresAt <= :until")
+    List<Object[]> findActiveExpiryDeadlines(@Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE MasterKey m SET m.status = :status WHERE m.id IN :ids AND m.status = 'ACTIVE' " +
+           "AND m.expiresAt <= :cutoff")
+    int expireKeys(@Param("ids") Collection<UUID> ids, @Param("status") MasterKey.KeyStatus status,
+                   @Param("cutoff") LocalDateTime cutoff);
+
+    // Old keys of auto-complete rotations, same effect as completing each rotation
+    @Modifying
+    @Query("UPDATE MasterKey m SET m.status = :status, m.revokedAt = :now, m.revocationReason = :reason " +
+           "WHERE m.status = 'ACTIVE' AND m.id IN (SELECT k.oldKey.id FROM KeyRotationHistory k " +
+           "WHERE k.id IN :rotationIds AND k.autoComplete = true AND k.rotationStatus = 'IN_PROGRESS')")
+    int retireOldKeysOfAutoCompleteRotations(@Param("rotationIds") Collection<UUID> rotationIds,
+                                             @Param("status") MasterKey.KeyStatus status,
+                                             @Param("now") LocalDateTime now,
+                                             @Param("reason") String reason);
+
+    @Query("SELECT m FROM MasterKey m WHERE m.status = 'ACTIVE' AND m.keyType IN :keyTypes " +
+           "AND m.idTerminal IN :terminalIds ORDER BY m.generatedAt DESC")
+    List<MasterKey> findActiveTerminalKeys(@Param("terminalIds") Collection<UUID> terminalIds,
+                                           @Param("keyTypes") Collection<KeyType> keyTypes);
+
+    // Key metadata for pickers and lookups (no key material)
+    String KEY_SUMMARY = "new com.artivisi.hsm.simulator.dto.KeySummary(" +
+            "m.id, m.masterKeyId, m.keyType, m.status, m.idBank, m.idTerminal)";
+
+    @Query("SELECT " + KEY_SUMMARY + " FROM MasterKey m WHERE m.id = :id")
+    Optional<KeySummary> findSummaryById(@Param("id") UUID id);
+
+    @Query("SELECT " + KEY_SUMMARY + " FROM MasterKey m WHERE m.status = :status AND m.keyType IN :keyTypes " +
+           "ORDER BY m.keyType, m.masterKeyId")
+    List<KeySummary> findSummariesByStatusAndKeyTypes(@Param("status") MasterKey.KeyStatus status,
+                                                      @Param("keyTypes") Collection<KeyType> keyTypes);
+
+    @Query("SELECT " + KEY_SUMMARY + " FROM MasterKey m WHERE m.status = :status AND m.keyType = :keyType " +
+           "ORDER BY m.generatedAt DESC")
+    List<KeySummary> findSummariesByStatusAndKeyType(@Param("status") MasterKey.KeyStatus status,
+                                                     @Param("keyType") KeyType keyType, Pageable limit);
+
+    default Optional<KeySummary> findFirstActiveSummary(KeyType keyType) {
+        return findSummariesByStatusAndKeyType(MasterKey.KeyStatus.ACTIVE, keyType, PageRequest.of(0, 1))
+                .stream().findFirst();
+    }
+
+    @Query("SELECT " + KEY_SUMMARY + " FROM MasterKey m WHERE m.idBank = :bankId OR m.idTerminal IN :terminalIds")
+    List<KeySummary> findSummariesByBankOrTerminals(@Param("bankId") UUID bankId,
+                                                    @Param("terminalIds") Collection<UUID> terminalIds);
+
+    @Query("SELECT " + KEY_SUMMARY + " FROM MasterKey m")
+    List<KeySummary> findAllSummaries();
+
+    // Hierarchy metadata (no key material)
+    String HIERARCHY_NODE = "new com.artivisi.hsm.simulator.dto.KeyHierarchyNode(" +
+            "m.id, m.masterKeyId, m.keyType, m.status, m.parentKeyId, m.rotatedFromKeyId)";
+
+    @Query("SELECT " + HIERARCHY_NODE + " FROM MasterKey m")
+    List<KeyHierarchyNode> findAllHierarchyNodes();
+
+    @Query("SELECT " + HIERARCHY_NODE + " FROM MasterKey m WHERE m.id = :id")
+    Optional<KeyHierarchyNode> findHierarchyNode(@Param("id") UUID id);
+
+    // Keys whose parent no longer exists are roots too
+    @Query("SELECT " + HIERARCHY_NODE + " FROM MasterKey m WHERE m.parentKeyId IS NULL " +
+           "OR NOT EXISTS (SELECT p.id FROM MasterKey p WHERE p.id = m.parentKeyId) " +
+           "ORDER BY m.keyType, m.masterKeyId")
+    List<KeyHierarchyNode> findRootHierarchyNodes(Pageable limit);
+
+    @Query("SELECT " + HIERARCHY_NODE + " FROM MasterKey m WHERE m.parentKeyId = :parentId " +
+           "ORDER BY m.keyType, m.masterKeyId")
+    List<KeyHierarchyNode> findChildHierarchyNodes(@Param("parentId") UUID parentId, Pageable limit);
+
+    /**
+     * One hierarchy level: the first {@code perParent} children of each parent, at most {@code total} rows.
+     * Rows come ordered by rank within their parent, so a total cap cuts every parent's list evenly.
+     * Columns: id, master_key_id, key_type, status, parent_key_id, rotated_from_key_id.
+     */
+    @Query(value = "SELECT id, master_key_id, key_type, status, parent_key_id, rotated_from_key_id FROM (" +
+                   "SELECT m.id, m.master_key_id, m.key_type, m.status, m.parent_key_id, m.rotated_from_key_id, " +
+                   "row_number() OVER (PARTITION BY m.parent_key_id ORDER BY m.key_type, m.master_key_id) AS sibling_rank " +
+                   "FROM master_keys m WHERE m.parent_key_id IN (:parentIds)) ranked " +
+                   "WHERE sibling_rank <= :perParent ORDER BY sibling_rank, parent_key_id LIMIT :total",
+           nativeQuery = true)
+    List<Object[]> findChildHierarchyRows(@Param("parentIds") Collection<UUID> parentIds,
+                                          @Param("perParent") int perParent,
+                                          @Param("total") int total);
+
+    @Query("SELECT m.parentKeyId, COUNT(m) FROM MasterKey m WHERE m.parentKeyId IN :parentIds GROUP BY m.parentKeyId")
+    List<Object[]> countChildrenByParent(@Param("parentIds") Collection<UUID> parentIds);
+}
@@ -21,6 +21,9 @@ public interface PassphraseContributionRepository extends JpaRepository<Passphra
 
     Optional<PassphraseContribution> findByCeremonyCustodianId(UUID ceremonyCustodianId);
 
+    @Query("SELECT p FROM PassphraseContribution p JOIN FETCH p.ceremonyCustodian cc WHERE cc.keyCeremony.id = :ceremonyId")
+    List<PassphraseContribution> findByKeyCeremonyId(@Param("ceremonyId") UUID ceremonyId);
+
     List<PassphraseContribution> findByPassphraseStrength(String passphraseStrength);
 
     @Query("SELECT p FROM PassphraseContribution p WHERE p.passphraseEntropyScore >= :minScore")
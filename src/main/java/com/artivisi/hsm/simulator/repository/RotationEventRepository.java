@@ -0,0 +1,13 @@
+package com.artivisi.hsm.simulator.repository;
+
+import com.artivisi.hsm.simulator.entity.RotationEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Append-only rotation event log. Reads for the event feed go through
+ * {@link com.artivisi.hsm.simulator.service.RotationEventService}, which needs the transaction ID column.
+ */
+@Repository
+public interface RotationEventRepository extends JpaRepository<RotationEvent, Long> {
+}
@@ -2,10 +2,17 @@ package com.artivisi.hsm.simulator.repository;
 
 import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
 import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -24,4 +31,70 @@ public interface RotationParticipantRepository extends JpaRepository<RotationPar
     );
 
     List<RotationParticipant> findByTerminal_Id(UUID terminalId);
+
+    @Query("SELECT p.updateStatus, COUNT(p) FROM RotationParticipant p WHERE p.rotation.id = :rotationId " +
+           "GROUP BY p.updateStatus")
+    List<Object[]> countGroupedByStatus(@Param("rotationId") UUID rotationId);
+
+    @Query("SELECT p.rotation.id, p.updateStatus, COUNT(p) FROM RotationParticipant p " +
+           "WHERE p.rotation.rotationStatus = 'IN_PROGRESS' GROUP BY p.rotation.id, p.updateStatus")
+    List<Object[]> countGroupedByRotationAndStatusInProgress();
+
+    // Served by idx_rotation_participant_rotation_terminal (id_rotation, id_terminal)
+    Optional<RotationParticipant> findFirstByRotation_IdAndTerminal_Id(UUID rotationId, UUID terminalId);
+
+    // In-progress rotations where the terminal's participation is in one of the statuses, newest first
+    @Query("SELECT p.rotation FROM RotationParticipant p " +
+           "WHERE p.terminal.id = :terminalId " +
+           "AND p.rotation.rotationStatus = 'IN_PROGRESS' AND p.updateStatus IN :statuses " +
+           "ORDER BY p.rotation.rotationStartedAt DESC")
+    List<KeyRotationHistory> findInProgressRotationsForTerminal(@Param("terminalId") UUID terminalId,
+                                                                @Param("statuses") Collection<RotationParticipant.UpdateStatus> statuses,
+                                                                Pageable limit);
+
+    // ===== Conditional status transitions: apply only if the status is still the one read =====
+
+    @Query("SELECT p.updateStatus FROM RotationParticipant p WHERE p.id = :id")
+    Optional<RotationParticipant.UpdateStatus> findUpdateStatus(@Param("id") UUID id);
+
+    @Modifying
+    @Query("UPDATE RotationParticipant p SET p.updateStatus = :status, p.newKeyDeliveredAt = :now, " +
+           "p.lastDeliveryAttempt = :now, p.deliveryAttempts = COALESCE(p.deliveryAttempts, 0) + 1, " +
+           "p.updatedAt = :now, p.version = p.version + 1 WHERE p.id = :id AND p.updateStatus = :from")
+    int markDelivered(@Param("id") UUID id,
+                      @Param("from") RotationParticipant.UpdateStatus from,
+                      @Param("status") RotationParticipant.UpdateStatus status,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RotationParticipant p SET p.updateStatus = :status, p.updateConfirmedAt = :now, " +
+           "p.updateConfirmedBy = :confirmedBy, p.updatedAt = :now, p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.updateStatus = :from")
+    int markConfirmed(@Param("id") UUID id,
+                      @Param("from") RotationParticipant.UpdateStatus from,
+                      @Param("status") RotationParticipant.UpdateStatus status,
+                      @Param("confirmedBy") String confirmedBy,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RotationParticipant p SET p.updateStatus = :status, p.failureReason = :reason, " +
+           "p.updatedAt = :now, p.version = p.version + 1 WHERE p.id = :id AND p.updateStatus = :from")
+    int markFailed(@Param("id") UUID id,
+                   @Param("from") RotationParticipant.UpdateStatus from,
+                   @Param("status") RotationParticipant.UpdateStatus status,
+                   @Param("reason") String reason,
+                   @Param("now") LocalDateTime now);
+
+    // Rotation ID, rotation ID string and terminal ID of participants still outstanding
+    @Query("SELECT r.id, r.rotationId, t.terminalId FROM RotationParticipant p JOIN p.rotation r LEFT JOIN p.terminal t " +
+           "WHERE r.id IN :rotationIds AND p.updateStatus IN ('PENDING', 'DELIVERED')")
+    List<Object[]> findOutstandingTerminals(@Param("rotationIds") Collection<UUID> rotationIds);
+
+    @Modifying
+    @Query("UPDATE RotationParticipant p SET p.updateStatus = :status, p.failureReason = :reason, p.updatedAt = :now, " +
+           "p.version = p.version + 1 WHERE p.rotation.id IN :rotationIds AND p.updateStatus IN ('PENDING', 'DELIVERED')")
+    int failOutstanding(@Param("rotationIds") Collection<UUID> rotationIds,
+                        @Param("status") RotationParticipant.UpdateStatus status,
+                        @Param("reason") String reason,
+                        @Param("now") LocalDateTime now);
 }
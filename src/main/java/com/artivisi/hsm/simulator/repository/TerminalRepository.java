@@ -2,6 +2,7 @@ package com.artivisi.hsm.simulator.repository;
 
 import com.artivisi.hsm.simulator.entity.Terminal;
 import com.artivisi.hsm.simulator.entity.Bank;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -28,6 +29,12 @@ public interface TerminalRepository extends JpaRepository<Terminal, UUID> {
 
     List<Terminal> findByTerminalTypeAndStatus(Terminal.TerminalType terminalType, Terminal.TerminalStatus status);
 
+    // Keyset page of active terminals, bank fetched so rows can be used outside the session
+    @Query("SELECT t FROM Terminal t JOIN FETCH t.bank WHERE t.bank.id = :bankId AND t.status = 'ACTIVE' " +
+           "AND t.terminalId > :afterTerminalId ORDER BY t.terminalId")
+    List<Terminal> findActiveByBankAfter(@Param("bankId") UUID bankId,
+                                         @Param("afterTerminalId") String afterTerminalId, Pageable limit);
+
     @Query("SELECT COUNT(t) FROM Terminal t WHERE t.bank.id = :bankId AND t.status = 'ACTIVE'")
     long countActiveTerminalsByBank(@Param("bankId") UUID bankId);
 
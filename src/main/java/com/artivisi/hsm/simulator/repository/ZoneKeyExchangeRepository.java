@@ -48,6 +48,8 @@ public interface ZoneKeyExchangeRepository extends JpaRepository<ZoneKeyExchange
 
     boolean existsByExchangeId(String exchangeId);
 
+    List<ZoneKeyExchange> findByBundleId(String bundleId);
+
     @Query("SELECT COUNT(z) FROM ZoneKeyExchange z WHERE z.exchangeStatus = :status")
     long countByStatus(@Param("status") ZoneKeyExchange.ExchangeStatus status);
 }
@@ -0,0 +1,183 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.BulkInitProgress;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.Terminal;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Bulk TPK/TSK creation for banks with many terminals.
+ * PBKDF2 derivation runs in parallel on a dedicated fork-join pool while the previous
+ * chunk is written with batched inserts, so CPU and database work overlap.
+ * Streamed initializations get their own thread from a small pool that rejects
+ * requests beyond its size instead of queueing them.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BulkKeyInitializationService {
+
+    private final KeyOperationService keyOperationService;
+    private final MasterKeyRepository masterKeyRepository;
+    private final EntityManager entityManager;
+
+    @Value("${hsm.bulk-init.parallelism:0}")
+    private int parallelism;
+
+    @Value("${hsm.bulk-init.batch-size:500}")
+    private int batchSize;
+
+    @Value("${hsm.bulk-init.max-concurrent-streams:1}")
+    private int maxConcurrentStreams = 1;
+
+    private ForkJoinPool derivationPool;
+
+    private ThreadPoolExecutor streamPool;
+
+    @PostConstruct
+    void startPool() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        derivationPool = new ForkJoinPool(threads);
+        int streams = Math.max(1, maxConcurrentStreams);
+        streamPool = new ThreadPoolExecutor(streams, streams, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                Thread.ofPlatform().name("key-init-stream-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Bulk key derivation pool started with {} threads, {} concurrent streamed runs", threads, streams);
+    }
+
+    @PreDestroy
+    void stopPool() {
+        streamPool.shutdownNow();
+        derivationPool.shutdownNow();
+    }
+
+    /**
+     * Runs a streamed key initialization in the background
+     *
+     * @throws InitializationUnavailableException when the configured number of runs is already in progress
+     */
+    public Future<?> runInBackground(Runnable initialization) {
+        try {
+            return streamPool.submit(initialization);
+        } catch (RejectedExecutionException e) {
+            log.warn("Key initialization busy ({} runs in progress); rejecting request", streamPool.getActiveCount());
+            throw new InitializationUnavailableException("Key initialization is already running; please try again later");
+        }
+    }
+
+    /**
+     * Derive and persist TPK and TSK for every terminal, reporting progress after each chunk.
+     * Joins the caller's transaction; persisted keys are detached after each flush to keep
+     * the persistence context small.
+     *
+     * @return master key IDs of the created keys, in terminal order
+     */
+    @Transactional
+    public List<String> createTerminalKeys(String bankCode, MasterKey tmk, List<Terminal> terminals,
+                                           Consumer<BulkInitProgress> progressListener) {
+        if (tmk.getKeyType() != KeyType.TMK) {
+            throw new IllegalArgumentException("Parent key must be TMK, got: " + tmk.getKeyType());
+        }
+
+        int chunkSize = Math.max(1, batchSize / 2); // two keys per terminal
+        List<List<Terminal>> chunks = new ArrayList<>();
+        for (int i = 0; i < terminals.size(); i += chunkSize) {
+            chunks.add(terminals.subList(i, Math.min(i + chunkSize, terminals.size())));
+        }
+
+        log.info("Bulk creating terminal keys for {}: {} terminals in {} chunks",
+                bankCode, terminals.size(), chunks.size());
+
+        long start = System.nanoTime();
+        List<String> createdKeyIds = new ArrayList<>(terminals.size() * 2);
+        int terminalsProcessed = 0;
+
+        CompletableFuture<List<MasterKey>> pending = chunks.isEmpty() ? null : deriveAsync(tmk, chunks.get(0));
+        for (int i = 0; i < chunks.size(); i++) {
+            List<MasterKey> keys = pending.join();
+            // Start deriving the next chunk while this one is written
+            pending = i + 1 < chunks.size() ? deriveAsync(tmk, chunks.get(i + 1)) : null;
+
+            masterKeyRepository.saveAll(keys);
+            entityManager.flush();
+            keys.forEach(entityManager::detach);
+
+            keys.forEach(key -> createdKeyIds.add(key.getMasterKeyId()));
+            terminalsProcessed += chunks.get(i).size();
+            progressListener.accept(progress(bankCode, terminals.size(), terminalsProcessed,
+                    createdKeyIds.size(), start, false));
+        }
+
+        BulkInitProgress summary = progress(bankCode, terminals.size(), terminalsProcessed,
+                createdKeyIds.size(), start, true);
+        progressListener.accept(summary);
+        log.info("Bulk created {} terminal keys for {} in {} ms ({} keys/s)",
+                summary.getKeysCreated(), bankCode, summary.getElapsedMs(),
+                String.format("%.1f", summary.getKeysPerSecond()));
+
+        return createdKeyIds;
+    }
+
+    /**
+     * Derive TPK and TSK for the given terminals in parallel without persisting them
+     */
+    public List<MasterKey> deriveTerminalKeys(MasterKey tmk, List<Terminal> terminals) {
+        return derivationPool.submit(() -> derive(tmk, terminals)).join();
+    }
+
+    private CompletableFuture<List<MasterKey>> deriveAsync(MasterKey tmk, List<Terminal> chunk) {
+        return CompletableFuture.supplyAsync(() -> derive(tmk, chunk), derivationPool);
+    }
+
+    // A parallel stream started from a worker thread runs on that worker's pool
+    private List<MasterKey> derive(MasterKey tmk, List<Terminal> terminals) {
+        return terminals.parallelStream()
+                .flatMap(terminal -> Stream.of(
+                        keyOperationService.buildDerivedTerminalKey(tmk, terminal, KeyType.TPK),
+                        keyOperationService.buildDerivedTerminalKey(tmk, terminal, KeyType.TSK)))
+                .toList();
+    }
+
+    private BulkInitProgress progress(String bankCode, int total, int processed, int keys, long start, boolean done) {
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return BulkInitProgress.builder()
+                .bankCode(bankCode)
+                .terminalsTotal(total)
+                .terminalsProcessed(processed)
+                .keysCreated(keys)
+                .elapsedMs(elapsedMs)
+                .keysPerSecond(elapsedMs == 0 ? 0 : keys * 1000.0 / elapsedMs)
+                .done(done)
+                .build();
+    }
+
+    /**
+     * Thrown when a streamed initialization is requested while the pool is full
+     */
+    public static class InitializationUnavailableException extends IllegalStateException {
+        public InitializationUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
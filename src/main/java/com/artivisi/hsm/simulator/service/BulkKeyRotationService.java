@@ -0,0 +1,419 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.BulkRotationJobResponse;
+import com.artivisi.hsm.simulator.dto.BulkRotationRequest;
+import com.artivisi.hsm.simulator.entity.*;
+import com.artivisi.hsm.simulator.repository.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bank-wide TPK/TSK rotation as a background job.
+ * Terminals are walked in terminal_id order in chunks; each chunk derives the replacement keys on a
+ * bounded pool and then inserts new keys, rotation records and participants in one batched
+ * transaction together with the job cursor, so a cancelled or interrupted job resumes after the
+ * last committed terminal.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BulkKeyRotationService {
+
+    private static final Set<KeyType> TERMINAL_KEY_TYPES = EnumSet.of(KeyType.TPK, KeyType.TSK);
+    private static final Set<BulkRotationJob.JobStatus> RESUMABLE = EnumSet.of(
+            BulkRotationJob.JobStatus.INTERRUPTED,
+            BulkRotationJob.JobStatus.CANCELLED,
+            BulkRotationJob.JobStatus.FAILED);
+
+    private final BulkRotationJobRepository jobRepository;
+    private final BankRepository bankRepository;
+    private final TerminalRepository terminalRepository;
+    private final MasterKeyRepository masterKeyRepository;
+    private final KeyRotationHistoryRepository rotationHistoryRepository;
+    private final RotationParticipantRepository participantRepository;
+    private final KeyOperationService keyOperationService;
+    private final RotationProgressService rotationProgressService;
+    private final TerminalKeyPushService terminalKeyPushService;
+    private final RotationExpiryService rotationExpiryService;
+    private final RotationKeyResolver rotationKeyResolver;
+    private final RotationEventService rotationEventService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${hsm.rotation.bulk.chunk-size:250}")
+    private int chunkSize;
+
+    @Value("${hsm.rotation.bulk.parallelism:0}")
+    private int parallelism;
+
+    @Value("${hsm.rotation.bulk.max-concurrent-jobs:1}")
+    private int maxConcurrentJobs;
+
+    private final Set<UUID> cancelRequested = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService jobExecutor;
+    private ForkJoinPool derivationPool;
+
+    @PostConstruct
+    void startPools() {
+        // Leave cores for live PIN/MAC traffic unless configured otherwise
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        derivationPool = new ForkJoinPool(threads);
+        jobExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs),
+                Thread.ofPlatform().name("bulk-rotation-", 0).daemon(true).factory());
+        log.info("Bulk rotation started with {} derivation threads, {} concurrent jobs", threads, maxConcurrentJobs);
+    }
+
+    @PreDestroy
+    void stopPools() {
+        jobExecutor.shutdownNow();
+        derivationPool.shutdownNow();
+    }
+
+    /**
+     * Jobs left QUEUED or RUNNING by a previous instance are marked INTERRUPTED so they can be resumed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        Integer interrupted = transactionTemplate.execute(status -> jobRepository.markActiveAsInterrupted());
+        if (interrupted != null && interrupted > 0) {
+            log.warn("{} bulk rotation jobs were interrupted by a restart and can be resumed", interrupted);
+        }
+    }
+
+    /**
+     * Create and queue a rotation job for all active terminals of a bank
+     */
+    public BulkRotationJobResponse startJob(String bankCode, BulkRotationRequest request, String initiatedBy) {
+        Bank bank = bankRepository.findByBankCode(bankCode)
+                .orElseThrow(() -> new IllegalArgumentException("Bank not found: " + bankCode));
+
+        List<KeyType> keyTypes = parseKeyTypes(request.getKeyTypes());
+        if (request.getGracePeriodHours() != null && request.getGracePeriodHours() < 1) {
+            throw new IllegalArgumentException("Grace period must be at least 1 hour");
+        }
+        if (jobRepository.existsActiveForBank(bank.getId())) {
+            throw new IllegalStateException("A bulk rotation job is already running for bank: " + bankCode);
+        }
+
+        BulkRotationJob job = saveActiveJob(bankCode, BulkRotationJob.builder()
+                .bank(bank)
+                .keyTypes(keyTypes.stream().map(Enum::name).collect(Collectors.joining(",")))
+                .rotationType(request.getRotationType() != null
+                        ? request.getRotationType()
+                        : KeyRotationHistory.RotationType.SCHEDULED)
+                .rotationReason(request.getReason() != null && !request.getReason().isBlank()
+                        ? request.getReason()
+                        : "Bulk terminal key rotation for " + bankCode)
+                .gracePeriodHours(request.getGracePeriodHours() != null ? request.getGracePeriodHours() : 24)
+                .terminalsTotal((int) terminalRepository.countActiveTerminalsByBank(bank.getId()))
+                .initiatedBy(initiatedBy)
+                .build());
+
+        log.info("Bulk rotation job {} queued for bank {}: {} terminals, key types {}",
+                job.getId(), bankCode, job.getTerminalsTotal(), job.getKeyTypes());
+
+        jobExecutor.execute(() -> runJob(job.getId()));
+        return toResponse(job, bank);
+    }
+
+    public BulkRotationJobResponse getJob(UUID jobId) {
+        BulkRotationJob job = jobRepository.findWithBankById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Bulk rotation job not found: " + jobId));
+        return toResponse(job, job.getBank());
+    }
+
+    public List<BulkRotationJobResponse> listJobs() {
+        return jobRepository.findAllWithBank().stream()
+                .map(job -> toResponse(job, job.getBank()))
+                .toList();
+    }
+
+    /**
+     * Stop a job after its current chunk. Rotations created so far stay in progress.
+     */
+    public BulkRotationJobResponse cancelJob(UUID jobId) {
+        BulkRotationJob job = jobRepository.findWithBankById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Bulk rotation job not found: " + jobId));
+
+        switch (job.getStatus()) {
+            case QUEUED -> {
+                job.setStatus(BulkRotationJob.JobStatus.CANCELLED);
+                job.setCompletedAt(LocalDateTime.now());
+                jobRepository.save(job);
+            }
+            case RUNNING -> cancelRequested.add(jobId);
+            default -> throw new IllegalStateException("Job is not queued or running: " + job.getStatus());
+        }
+
+        log.info("Cancellation requested for bulk rotation job {}", jobId);
+        return toResponse(job, job.getBank());
+    }
+
+    /**
+     * Continue a cancelled, failed or interrupted job after its last committed terminal
+     */
+    public BulkRotationJobResponse resumeJob(UUID jobId) {
+        BulkRotationJob job = jobRepository.findWithBankById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Bulk rotation job not found: " + jobId));
+
+        if (!RESUMABLE.contains(job.getStatus())) {
+            throw new IllegalStateException("Job cannot be resumed from status: " + job.getStatus());
+        }
+        if (jobRepository.existsActiveForBank(job.getBank().getId())) {
+            throw new IllegalStateException("A bulk rotation job is already running for bank: "
+                    + job.getBank().getBankCode());
+        }
+
+        job.setStatus(BulkRotationJob.JobStatus.QUEUED);
+        job.setCompletedAt(null);
+        job.setErrorMessage(null);
+        saveActiveJob(job.getBank().getBankCode(), job);
+
+        log.info("Bulk rotation job {} resumed after terminal {}", jobId, job.getLastTerminalId());
+        jobExecutor.execute(() -> runJob(jobId));
+        return toResponse(job, job.getBank());
+    }
+
+    /**
+     * Save a QUEUED job; uq_bulk_rotation_job_active_bank rejects it if a concurrent request
+     * queued another job for the bank after the existence check
+     */
+    private BulkRotationJob saveActiveJob(String bankCode, BulkRotationJob job) {
+        try {
+            return jobRepository.saveAndFlush(job);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("A bulk rotation job is already running for bank: " + bankCode, e);
+        }
+    }
+
+    // ===== Job Worker =====
+
+    private void runJob(UUID jobId) {
+        BulkRotationJob job = transactionTemplate.execute(status -> {
+            BulkRotationJob queued = jobRepository.findById(jobId).orElse(null);
+            if (queued == null || queued.getStatus() != BulkRotationJob.JobStatus.QUEUED) {
+                return null; // Cancelled while waiting
+            }
+            queued.setStatus(BulkRotationJob.JobStatus.RUNNING);
+            if (queued.getStartedAt() == null) {
+                queued.setStartedAt(LocalDateTime.now());
+            }
+            return jobRepository.save(queued);
+        });
+        if (job == null) {
+            return;
+        }
+
+        UUID bankId = job.getBank().getId();
+        List<KeyType> keyTypes = job.keyTypeList();
+        String cursor = job.getLastTerminalId() != null ? job.getLastTerminalId() : "";
+        long start = System.nanoTime();
+        int rotations = 0;
+
+        try {
+            while (true) {
+                if (cancelRequested.remove(jobId)) {
+                    finish(jobId, BulkRotationJob.JobStatus.CANCELLED, null);
+                    log.info("Bulk rotation job {} cancelled after terminal {}", jobId, cursor);
+                    return;
+                }
+
+                List<Terminal> terminals = terminalRepository.findActiveByBankAfter(
+                        bankId, cursor, PageRequest.of(0, chunkSize));
+                if (terminals.isEmpty()) {
+                    break;
+                }
+
+                rotations += processChunk(job, terminals, keyTypes);
+                cursor = terminals.get(terminals.size() - 1).getTerminalId();
+            }
+
+            finish(jobId, BulkRotationJob.JobStatus.COMPLETED, null);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            log.info("Bulk rotation job {} completed: {} rotations created in {} ms", jobId, rotations, elapsedMs);
+        } catch (Exception e) {
+            log.error("Bulk rotation job {} failed after terminal {}", jobId, cursor, e);
+            finish(jobId, BulkRotationJob.JobStatus.FAILED, e.getMessage());
+        } finally {
+            cancelRequested.remove(jobId);
+        }
+    }
+
+    /**
+     * Rotate the active keys of one chunk of terminals
+     *
+     * @return number of rotations created
+     */
+    private int processChunk(BulkRotationJob job, List<Terminal> terminals, List<KeyType> keyTypes) {
+        Map<UUID, Terminal> terminalsById = terminals.stream()
+                .collect(Collectors.toMap(Terminal::getId, Function.identity()));
+
+        // Latest active key per (terminal, type); keys already being rotated are left alone
+        Map<String, MasterKey> latest = new LinkedHashMap<>();
+        for (MasterKey key : masterKeyRepository.findActiveTerminalKeys(terminalsById.keySet(), keyTypes)) {
+            latest.putIfAbsent(key.getIdTerminal() + ":" + key.getKeyType(), key);
+        }
+        Set<UUID> inProgress = latest.isEmpty() ? Set.of() : new HashSet<>(rotationHistoryRepository
+                .findOldKeyIdsInProgress(latest.values().stream().map(MasterKey::getId).toList()));
+
+        Set<UUID> parentIds = latest.values().stream()
+                .map(MasterKey::getParentKeyId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, MasterKey> parents = masterKeyRepository.findAllById(parentIds).stream()
+                .filter(parent -> parent.getKeyType() == KeyType.TMK)
+                .collect(Collectors.toMap(MasterKey::getId, Function.identity()));
+
+        List<MasterKey> oldKeys = latest.values().stream()
+                .filter(key -> !inProgress.contains(key.getId()))
+                .filter(key -> parents.containsKey(key.getParentKeyId()))
+                .toList();
+
+        // CPU-bound derivation outside the write transaction, on the bounded pool
+        List<MasterKey> newKeys = derivationPool.submit(() -> oldKeys.parallelStream()
+                .map(old -> keyOperationService.buildDerivedTerminalKey(
+                        parents.get(old.getParentKeyId()), terminalsById.get(old.getIdTerminal()), old.getKeyType()))
+                .toList()).join();
+
+        Set<UUID> rotatedTerminals = oldKeys.stream().map(MasterKey::getIdTerminal).collect(Collectors.toSet());
+        int skipped = terminals.size() - rotatedTerminals.size();
+        String lastTerminalId = terminals.get(terminals.size() - 1).getTerminalId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<KeyRotationHistory> rotations = new ArrayList<>(oldKeys.size());
+            List<RotationParticipant> participants = new ArrayList<>(oldKeys.size());
+            Map<String, KeyRotationHistory> pushes = new HashMap<>();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime gracePeriodEndsAt = now.plusHours(job.getGracePeriodHours());
+
+            for (int i = 0; i < oldKeys.size(); i++) {
+                MasterKey oldKey = oldKeys.get(i);
+                MasterKey newKey = newKeys.get(i);
+                newKey.setRotatedFromKeyId(oldKey.getId());
+
+                KeyRotationHistory rotation = KeyRotationHistory.builder()
+                        .rotationId(generateRotationId(oldKey.getKeyType()))
+                        .oldKey(oldKey)
+                        .newKey(newKey)
+                        .rotationType(job.getRotationType())
+                        .rotationReason(job.getRotationReason())
+                        .rotationInitiatedBy(job.getInitiatedBy())
+                        .rotationStatus(KeyRotationHistory.RotationStatus.IN_PROGRESS)
+                        .rotationStartedAt(now)
+                        .gracePeriodEndsAt(gracePeriodEndsAt)
+                        .affectedTerminalsCount(1)
+                        .build();
+                rotations.add(rotation);
+
+                Terminal terminal = terminalsById.get(oldKey.getIdTerminal());
+                participants.add(RotationParticipant.builder()
+                        .rotation(rotation)
+                        .terminal(terminal)
+                        .participantType(RotationParticipant.ParticipantType.TERMINAL)
+                        .updateStatus(RotationParticipant.UpdateStatus.PENDING)
+                        .build());
+                // One notice per terminal is enough; it fetches each pending rotation in turn
+                pushes.putIfAbsent(terminal.getTerminalId(), rotation);
+            }
+
+            masterKeyRepository.saveAll(newKeys);
+            rotationHistoryRepository.saveAll(rotations);
+            participantRepository.saveAll(participants);
+            rotationEventService.rotationsInitiated(rotations, job.getInitiatedBy(), "Bulk rotation job " + job.getId());
+            rotations.forEach(rotation -> rotationProgressService.participantsAdded(
+                    rotation.getId(), RotationParticipant.UpdateStatus.PENDING, 1));
+            terminalKeyPushService.rotationsStarted(pushes);
+            rotationExpiryService.scheduleRotations(
+                    rotations.stream().map(KeyRotationHistory::getId).toList(), gracePeriodEndsAt);
+            rotationKeyResolver.rotationsStarted(oldKeys.stream().map(MasterKey::getId).toList());
+
+            // Cursor moves in the same transaction as the rows it covers
+            BulkRotationJob current = jobRepository.findById(job.getId())
+                    .orElseThrow(() -> new IllegalStateException("Bulk rotation job not found: " + job.getId()));
+            current.setTerminalsProcessed(current.getTerminalsProcessed() + terminals.size());
+            current.setTerminalsSkipped(current.getTerminalsSkipped() + skipped);
+            current.setRotationsCreated(current.getRotationsCreated() + rotations.size());
+            current.setLastTerminalId(lastTerminalId);
+            jobRepository.save(current);
+        });
+
+        log.debug("Bulk rotation job {}: {} rotations for {} terminals up to {}",
+                job.getId(), newKeys.size(), terminals.size(), lastTerminalId);
+        return newKeys.size();
+    }
+
+    private void finish(UUID jobId, BulkRotationJob.JobStatus status, String errorMessage) {
+        transactionTemplate.executeWithoutResult(tx -> jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(status);
+            job.setErrorMessage(errorMessage);
+            job.setCompletedAt(LocalDateTime.now());
+            jobRepository.save(job);
+        }));
+    }
+
+    // ===== Helper Methods =====
+
+    private List<KeyType> parseKeyTypes(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return List.of(KeyType.TPK, KeyType.TSK);
+        }
+        List<KeyType> keyTypes = new ArrayList<>();
+        for (String value : requested) {
+            KeyType keyType = KeyType.valueOf(value.trim().toUpperCase());
+            if (!TERMINAL_KEY_TYPES.contains(keyType)) {
+                throw new IllegalArgumentException("Bulk rotation supports TPK or TSK keys, not: " + keyType);
+            }
+            if (!keyTypes.contains(keyType)) {
+                keyTypes.add(keyType);
+            }
+        }
+        return keyTypes;
+    }
+
+    /**
+     * Rotation ID with a 64-bit suffix; a bank-wide job creates tens of thousands at once
+     */
+    private String generateRotationId(KeyType keyType) {
+        return String.format("ROT-%s-%s",
+                keyType.toString(),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase());
+    }
+
+    private BulkRotationJobResponse toResponse(BulkRotationJob job, Bank bank) {
+        return BulkRotationJobResponse.builder()
+                .jobId(job.getId())
+                .bankCode(bank.getBankCode())
+                .keyTypes(job.getKeyTypes())
+                .rotationType(job.getRotationType())
+                .gracePeriodHours(job.getGracePeriodHours())
+                .status(job.getStatus())
+                .terminalsTotal(job.getTerminalsTotal())
+                .terminalsProcessed(job.getTerminalsProcessed())
+                .terminalsSkipped(job.getTerminalsSkipped())
+                .rotationsCreated(job.getRotationsCreated())
+                .lastTerminalId(job.getLastTerminalId())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .completedAt(job.getCompletedAt())
+                .errorMessage(job.getErrorMessage())
+                .build();
+    }
+}
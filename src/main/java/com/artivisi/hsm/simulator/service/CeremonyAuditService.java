@@ -0,0 +1,597 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.AuditLogEntry;
+import com.artivisi.hsm.simulator.dto.KeysetPage;
+import com.artivisi.hsm.simulator.entity.CeremonyAuditLog;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.repository.CeremonyAuditLogRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Ceremony audit trail writer and reader.
+ * Entries are queued in a bounded in-memory ring buffer once the caller's transaction commits and
+ * written in batches by a scheduled flush, so ceremonies never wait on audit inserts. Each batch
+ * extends a SHA-256 hash chain: an entry's hash covers its content, its sequence number and the
+ * previous entry's hash, so altering, removing or reordering a stored entry breaks the chain.
+ * Entries are checked against the column constraints and their metadata serialized when appended,
+ * so a bad entry fails its caller instead of the flush. A batch the database still rejects is split
+ * until the rejected entry is alone; that entry goes to the dead-letter log and the rest are written.
+ * Listings are keyset pages on sequence_number and never load more than one page.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CeremonyAuditService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /** previous_hash of the first chained entry */
+    static final String GENESIS_HASH = "0".repeat(64);
+
+    private static final int VERIFY_PAGE_SIZE = 1000;
+
+    // Advisory lock serializing chain extension across instances
+    private static final long CHAIN_LOCK_KEY = 0x4155444954L;
+
+    private static final String COLUMNS =
+            "id, id_key_ceremony, event_type, event_category, event_description, actor_type, actor_id, actor_name, " +
+            "target_entity_type, target_entity_id, event_status, event_severity, ip_address, user_agent, " +
+            "request_id, session_id, event_metadata, error_message, stack_trace, created_at, " +
+            "sequence_number, previous_hash, entry_hash";
+
+    private static final String INSERT_SQL = "INSERT INTO ceremony_audit_logs (" + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?, ?, ?, ?)";
+
+    private static final String HEAD_SQL =
+            "SELECT sequence_number, entry_hash FROM ceremony_audit_logs ORDER BY sequence_number DESC LIMIT 1";
+
+    // Entries the database rejected, as JSON lines that can be replayed once the cause is fixed
+    private static final Logger DEAD_LETTER_LOG = LoggerFactory.getLogger("audit.dead-letter");
+
+    // VARCHAR column limits of ceremony_audit_logs
+    private static final int EVENT_TYPE_LENGTH = 100;
+    private static final int ACTOR_ID_LENGTH = 100;
+    private static final int ACTOR_NAME_LENGTH = 255;
+    private static final int TARGET_ENTITY_TYPE_LENGTH = 50;
+    private static final int TARGET_ENTITY_ID_LENGTH = 100;
+    private static final int IP_ADDRESS_LENGTH = 45;
+    private static final int REQUEST_ID_LENGTH = 100;
+    private static final int SESSION_ID_LENGTH = 100;
+
+    private static final String CHAIN_PAGE_SQL = "SELECT " + COLUMNS + " FROM ceremony_audit_logs " +
+            "WHERE sequence_number > ? ORDER BY sequence_number LIMIT ?";
+
+    private final CeremonyAuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${hsm.audit.buffer-size:4096}")
+    private int bufferSize;
+
+    @Value("${hsm.audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${hsm.audit.offer-timeout-ms:5000}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<QueuedEntry> buffer;
+    private TransactionTemplate writeTransaction;
+
+    // Drained from the buffer but not yet written; retried first on the next flush
+    private final List<QueuedEntry> pending = new ArrayList<>();
+
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        // Flushes may run from an afterCommit callback, where the caller's transaction is already committed
+        writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        int written = flush();
+        if (!buffer.isEmpty() || !pending.isEmpty()) {
+            log.error("{} audit entries could not be written before shutdown", buffer.size() + pending.size());
+        } else if (written > 0) {
+            log.info("Flushed {} audit entries on shutdown", written);
+        }
+    }
+
+    // ===== WRITE =====
+
+    /**
+     * Queue an audit entry; it is buffered when the current transaction commits and dropped if it rolls back.
+     *
+     * @throws IllegalArgumentException if the entry could not be stored: a required field is missing,
+     *         a value is too long for its column or the metadata is not serializable
+     */
+    public void append(CeremonyAuditLog entry) {
+        if (entry.getId() == null) {
+            entry.setId(UUID.randomUUID());
+        }
+        // Stored with microsecond precision; the hash must see the same value that is read back
+        LocalDateTime createdAt = entry.getCreatedAt() != null ? entry.getCreatedAt() : LocalDateTime.now();
+        entry.setCreatedAt(createdAt.truncatedTo(ChronoUnit.MICROS));
+        validate(entry);
+        QueuedEntry queued = new QueuedEntry(entry, metadataJson(entry.getEventMetadata()));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(queued);
+                }
+            });
+        } else {
+            enqueue(queued);
+        }
+    }
+
+    private static void validate(CeremonyAuditLog entry) {
+        required(entry.getEventType(), "eventType");
+        required(entry.getEventCategory(), "eventCategory");
+        required(entry.getEventDescription(), "eventDescription");
+        required(entry.getEventStatus(), "eventStatus");
+        required(entry.getEventSeverity(), "eventSeverity");
+        maxLength(entry.getEventType(), EVENT_TYPE_LENGTH, "eventType");
+        maxLength(entry.getActorId(), ACTOR_ID_LENGTH, "actorId");
+        maxLength(entry.getActorName(), ACTOR_NAME_LENGTH, "actorName");
+        maxLength(entry.getTargetEntityType(), TARGET_ENTITY_TYPE_LENGTH, "targetEntityType");
+        maxLength(entry.getTargetEntityId(), TARGET_ENTITY_ID_LENGTH, "targetEntityId");
+        maxLength(entry.getIpAddress(), IP_ADDRESS_LENGTH, "ipAddress");
+        maxLength(entry.getRequestId(), REQUEST_ID_LENGTH, "requestId");
+        maxLength(entry.getSessionId(), SESSION_ID_LENGTH, "sessionId");
+    }
+
+    private static void required(Object value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Audit entry " + field + " is required");
+        }
+    }
+
+    private static void maxLength(String value, int length, String field) {
+        if (value != null && value.length() > length) {
+            throw new IllegalArgumentException("Audit entry " + field + " exceeds " + length + " characters");
+        }
+    }
+
+    private void enqueue(QueuedEntry queued) {
+        CeremonyAuditLog entry = queued.entry();
+        if (buffer.offer(queued)) {
+            return;
+        }
+        // Buffer full: write on the caller's thread rather than drop the entry
+        flush();
+        try {
+            if (buffer.offer(queued, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.error("Audit buffer full, entry not recorded: {} {} - {}", entry.getEventType(),
+                ceremonyId(entry), entry.getEventDescription());
+    }
+
+    /**
+     * Write buffered entries in batches, one transaction per batch; returns the number written.
+     * While the database is unavailable the entries stay pending and are retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${hsm.audit.flush-interval-ms:500}")
+    public synchronized int flush() {
+        int written = 0;
+        while (true) {
+            if (pending.isEmpty()) {
+                buffer.drainTo(pending, batchSize);
+            }
+            if (pending.isEmpty()) {
+                return written;
+            }
+            int size = pending.size();
+            while (!pending.isEmpty()) {
+                // Handled entries are removed from the front of pending, so nothing is written twice
+                List<QueuedEntry> batch = pending.subList(0, Math.min(size, pending.size()));
+                try {
+                    writeTransaction.executeWithoutResult(status -> writeBatch(batch));
+                    written += batch.size();
+                } catch (RuntimeException e) {
+                    if (isUnavailable(e)) {
+                        log.error("Failed to write {} audit entries, retrying on next flush: {}", pending.size(), e.getMessage());
+                        return written;
+                    }
+                    if (batch.size() > 1) {
+                        // Rejected for its content: narrow down to the entry the database refuses
+                        size = batch.size() / 2;
+                        continue;
+                    }
+                    deadLetter(batch.get(0), e);
+                }
+                batch.clear();
+                size = pending.size();
+            }
+        }
+    }
+
+    // The database or its connection pool is down, as opposed to rejecting the data
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private void deadLetter(QueuedEntry queued, RuntimeException cause) {
+        CeremonyAuditLog entry = queued.entry();
+        deadLettered.incrementAndGet();
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("id", entry.getId());
+        line.put("ceremonyId", ceremonyId(entry));
+        line.put("eventType", entry.getEventType());
+        line.put("eventCategory", name(entry.getEventCategory()));
+        line.put("eventDescription", entry.getEventDescription());
+        line.put("actorType", name(entry.getActorType()));
+        line.put("actorId", entry.getActorId());
+        line.put("actorName", entry.getActorName());
+        line.put("targetEntityType", entry.getTargetEntityType());
+        line.put("targetEntityId", entry.getTargetEntityId());
+        line.put("eventStatus", name(entry.getEventStatus()));
+        line.put("eventSeverity", name(entry.getEventSeverity()));
+        line.put("eventMetadata", queued.metadataJson());
+        line.put("errorMessage", entry.getErrorMessage());
+        line.put("createdAt", entry.getCreatedAt().toString());
+        line.put("rejectedBecause", cause.getMessage());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException e) {
+            json = line.toString();
+        }
+        DEAD_LETTER_LOG.error(json);
+        log.error("Audit entry {} rejected by the database and moved to the dead-letter log: {}",
+                entry.getId(), cause.getMessage());
+    }
+
+    /**
+     * Number of entries moved to the dead-letter log since startup
+     */
+    public long getDeadLetterCount() {
+        return deadLettered.get();
+    }
+
+    private void writeBatch(List<QueuedEntry> batch) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", CHAIN_LOCK_KEY);
+
+        List<Map<String, Object>> head = jdbcTemplate.queryForList(HEAD_SQL);
+        long sequence = head.isEmpty() ? 0 : ((Number) head.get(0).get("sequence_number")).longValue();
+        String previous = head.isEmpty() || head.get(0).get("entry_hash") == null
+                ? GENESIS_HASH
+                : (String) head.get(0).get("entry_hash");
+
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (QueuedEntry queued : batch) {
+            CeremonyAuditLog entry = queued.entry();
+            entry.setSequenceNumber(++sequence);
+            entry.setPreviousHash(previous);
+            entry.setEntryHash(chainHash(entry, queued.metadataJson()));
+            previous = entry.getEntryHash();
+            rows.add(new Object[]{
+                    entry.getId(), ceremonyId(entry), entry.getEventType(), name(entry.getEventCategory()),
+                    entry.getEventDescription(), name(entry.getActorType()), entry.getActorId(), entry.getActorName(),
+                    entry.getTargetEntityType(), entry.getTargetEntityId(), name(entry.getEventStatus()),
+                    name(entry.getEventSeverity()), entry.getIpAddress(), entry.getUserAgent(),
+                    entry.getRequestId(), entry.getSessionId(), queued.metadataJson(),
+                    entry.getErrorMessage(), entry.getStackTrace(), Timestamp.valueOf(entry.getCreatedAt()),
+                    entry.getSequenceNumber(), entry.getPreviousHash(), entry.getEntryHash()
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        log.debug("Wrote {} audit entries up to sequence {}", batch.size(), sequence);
+    }
+
+    // ===== READ =====
+
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditLogEntry> findEntries(String cursor, int size) {
+        return page(cursor, size, auditLogRepository::findPageBefore);
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditLogEntry> findCeremonyEntries(UUID ceremonyId, String cursor, int size) {
+        return page(cursor, size, (before, limit) -> auditLogRepository.findCeremonyPageBefore(ceremonyId, before, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditLogEntry> findByEventType(String eventType, String cursor, int size) {
+        return page(cursor, size, (before, limit) -> auditLogRepository.findEventTypePageBefore(eventType, before, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditLogEntry> findBySeverities(List<CeremonyAuditLog.EventSeverity> severities,
+                                                      String cursor, int size) {
+        return page(cursor, size, (before, limit) -> auditLogRepository.findSeverityPageBefore(severities, before, limit));
+    }
+
+    // The cursor is the sequence number of the last entry on the previous page
+    private KeysetPage<AuditLogEntry> page(String cursor, int size,
+                                           BiFunction<Long, Pageable, List<CeremonyAuditLog>> query) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long before;
+        try {
+            before = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<CeremonyAuditLog> rows = query.apply(before, PageRequest.of(0, size + 1));
+        boolean hasNext = rows.size() > size;
+        List<AuditLogEntry> content = (hasNext ? rows.subList(0, size) : rows).stream()
+                .map(CeremonyAuditService::toEntry)
+                .toList();
+
+        return KeysetPage.<AuditLogEntry>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? String.valueOf(content.get(content.size() - 1).getSequenceNumber()) : null)
+                .first(before == Long.MAX_VALUE)
+                .build();
+    }
+
+    private static AuditLogEntry toEntry(CeremonyAuditLog entry) {
+        return AuditLogEntry.builder()
+                .sequenceNumber(entry.getSequenceNumber())
+                .ceremonyId(ceremonyId(entry))
+                .eventType(entry.getEventType())
+                .eventCategory(entry.getEventCategory())
+                .eventDescription(entry.getEventDescription())
+                .actorType(entry.getActorType())
+                .actorName(entry.getActorName())
+                .eventStatus(entry.getEventStatus())
+                .eventSeverity(entry.getEventSeverity())
+                .createdAt(entry.getCreatedAt())
+                .entryHash(entry.getEntryHash())
+                .build();
+    }
+
+    // ===== VERIFY =====
+
+    /**
+     * Walk the whole chain in sequence order, a page at a time, and report the first broken entry.
+     * Entries written before the chain existed (no hash) are skipped until the first chained entry.
+     */
+    public ChainVerification verifyChain() {
+        long after = 0;
+        String previous = null;
+        long checked = 0;
+        while (true) {
+            List<CeremonyAuditLog> page = jdbcTemplate.query(CHAIN_PAGE_SQL, this::mapRow, after, VERIFY_PAGE_SIZE);
+            for (CeremonyAuditLog entry : page) {
+                long expectedSequence = after + 1;
+                after = entry.getSequenceNumber();
+                if (entry.getEntryHash() == null) {
+                    if (previous == null) {
+                        continue;
+                    }
+                    return broken(entry, checked, "entry is not hashed");
+                }
+                if (previous != null && entry.getSequenceNumber() != expectedSequence) {
+                    return broken(entry, checked, "entries before it are missing");
+                }
+                if (!(previous != null ? previous : GENESIS_HASH).equals(entry.getPreviousHash())) {
+                    return broken(entry, checked, "previous hash does not match the preceding entry");
+                }
+                if (!chainHash(entry).equals(entry.getEntryHash())) {
+                    return broken(entry, checked, "content does not match its hash");
+                }
+                previous = entry.getEntryHash();
+                checked++;
+            }
+            if (page.size() < VERIFY_PAGE_SIZE) {
+                return ChainVerification.builder()
+                        .valid(true)
+                        .entriesChecked(checked)
+                        .lastSequence(after)
+                        .headHash(previous)
+                        .build();
+            }
+        }
+    }
+
+    private static ChainVerification broken(CeremonyAuditLog entry, long checked, String reason) {
+        log.warn("Audit chain broken at sequence {}: {}", entry.getSequenceNumber(), reason);
+        return ChainVerification.builder()
+                .valid(false)
+                .entriesChecked(checked)
+                .lastSequence(entry.getSequenceNumber())
+                .brokenAtSequence(entry.getSequenceNumber())
+                .reason(reason)
+                .build();
+    }
+
+    private CeremonyAuditLog mapRow(ResultSet rs, int rowNum) throws SQLException {
+        UUID ceremonyId = rs.getObject("id_key_ceremony", UUID.class);
+        String metadata = rs.getString("event_metadata");
+        return CeremonyAuditLog.builder()
+                .id(rs.getObject("id", UUID.class))
+                .keyCeremony(ceremonyId != null ? KeyCeremony.builder().id(ceremonyId).build() : null)
+                .eventType(rs.getString("event_type"))
+                .eventCategory(enumValue(CeremonyAuditLog.EventCategory.class, rs.getString("event_category")))
+                .eventDescription(rs.getString("event_description"))
+                .actorType(enumValue(CeremonyAuditLog.ActorType.class, rs.getString("actor_type")))
+                .actorId(rs.getString("actor_id"))
+                .actorName(rs.getString("actor_name"))
+                .targetEntityType(rs.getString("target_entity_type"))
+                .targetEntityId(rs.getString("target_entity_id"))
+                .eventStatus(enumValue(CeremonyAuditLog.EventStatus.class, rs.getString("event_status")))
+                .eventSeverity(enumValue(CeremonyAuditLog.EventSeverity.class, rs.getString("event_severity")))
+                .ipAddress(rs.getString("ip_address"))
+                .userAgent(rs.getString("user_agent"))
+                .requestId(rs.getString("request_id"))
+                .sessionId(rs.getString("session_id"))
+                .eventMetadata(metadata != null ? parseMetadata(metadata) : null)
+                .errorMessage(rs.getString("error_message"))
+                .stackTrace(rs.getString("stack_trace"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .sequenceNumber(rs.getLong("sequence_number"))
+                .previousHash(rs.getString("previous_hash"))
+                .entryHash(rs.getString("entry_hash"))
+                .build();
+    }
+
+    // ===== HASHING =====
+
+    /**
+     * SHA-256 over the previous hash, the sequence number and every stored field, each length-prefixed
+     */
+    String chainHash(CeremonyAuditLog entry) {
+        return chainHash(entry, metadataJson(entry.getEventMetadata()));
+    }
+
+    private String chainHash(CeremonyAuditLog entry, String metadataJson) {
+        MessageDigest digest = sha256();
+        update(digest, entry.getPreviousHash());
+        update(digest, String.valueOf(entry.getSequenceNumber()));
+        update(digest, entry.getId().toString());
+        UUID ceremonyId = ceremonyId(entry);
+        update(digest, ceremonyId != null ? ceremonyId.toString() : null);
+        update(digest, entry.getEventType());
+        update(digest, name(entry.getEventCategory()));
+        update(digest, entry.getEventDescription());
+        update(digest, name(entry.getActorType()));
+        update(digest, entry.getActorId());
+        update(digest, entry.getActorName());
+        update(digest, entry.getTargetEntityType());
+        update(digest, entry.getTargetEntityId());
+        update(digest, name(entry.getEventStatus()));
+        update(digest, name(entry.getEventSeverity()));
+        update(digest, entry.getIpAddress());
+        update(digest, entry.getUserAgent());
+        update(digest, entry.getRequestId());
+        update(digest, entry.getSessionId());
+        update(digest, metadataJson);
+        update(digest, entry.getErrorMessage());
+        update(digest, entry.getStackTrace());
+        update(digest, entry.getCreatedAt().toString());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // A null field hashes differently from an empty one
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(new byte[]{-1, -1, -1, -1});
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+                (byte) (bytes.length >>> 8), (byte) bytes.length});
+        digest.update(bytes);
+    }
+
+    // jsonb does not keep key order, so metadata is hashed with sorted keys
+    private String metadataJson(Map<String, Object> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Audit metadata is not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored audit metadata is not valid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static UUID ceremonyId(CeremonyAuditLog entry) {
+        return entry.getKeyCeremony() != null ? entry.getKeyCeremony().getId() : null;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value) {
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // An appended entry with its metadata serialized once, as inserted and hashed
+    private record QueuedEntry(CeremonyAuditLog entry, String metadataJson) {
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class ChainVerification {
+        private boolean valid;
+        private long entriesChecked;
+        private long lastSequence;
+        private String headHash;
+        private Long brokenAtSequence;
+        private String reason;
+    }
+}
@@ -3,20 +3,32 @@ package com.artivisi.hsm.simulator.service;
 import com.artivisi.hsm.simulator.entity.*;
 import com.artivisi.hsm.simulator.repository.*;
 import com.artivisi.hsm.simulator.util.CryptoUtils;
+import com.artivisi.hsm.simulator.util.Gf256Shamir;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing key ceremony lifecycle including creation, contribution tracking,
  * and master key generation orchestration.
+ * Share keys are derived on a bounded pool, one PBKDF2 run per custodian, while the custodians'
+ * passphrases are verified as one batch on the passphrase service's Argon2 executor.
  */
 @Service
 @Slf4j
@@ -29,12 +41,32 @@ public class CeremonyService {
     private final PassphraseContributionRepository contributionRepository;
     private final MasterKeyRepository masterKeyRepository;
     private final KeyShareRepository shareRepository;
-    private final CeremonyAuditLogRepository auditLogRepository;
 
     private final PassphraseService passphraseService;
     private final KeyGenerationService keyGenerationService;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final CeremonyStatusService ceremonyStatusService;
+    private final CeremonyAuditService ceremonyAuditService;
+    private final CeremonyStatisticsService ceremonyStatisticsService;
     private final TemplateService templateService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${hsm.ceremony.share-encryption-parallelism:0}")
+    private int shareEncryptionParallelism;
+
+    private ExecutorService shareEncryptionPool;
+
+    @PostConstruct
+    void startPool() {
+        int threads = shareEncryptionParallelism > 0 ? shareEncryptionParallelism : Runtime.getRuntime().availableProcessors();
+        shareEncryptionPool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("share-encrypt-", 0).daemon().factory());
+        log.info("Share encryption pool started with {} threads", threads);
+    }
+
+    @PreDestroy
+    void stopPool() {
+        shareEncryptionPool.shutdownNow();
+    }
 
     /**
      * Creates a new key ceremony with selected custodians.
@@ -108,6 +140,7 @@ public class CeremonyService {
         // Update ceremony status to AWAITING_CONTRIBUTIONS
         ceremony.setStatus(KeyCeremony.CeremonyStatus.AWAITING_CONTRIBUTIONS);
         ceremonyRepository.save(ceremony);
+        ceremonyStatisticsService.ceremonyCreated(ceremony.getId());
 
         // Create audit log
         createAuditLog(ceremony, "CEREMONY_CREATED", "Ceremony created with " + custodians.size() + " custodians", request.getCreatedBy());
@@ -118,11 +151,34 @@ public class CeremonyService {
 
     /**
      * Submits a custodian's passphrase contribution.
+     * Argon2 hashing runs between two short transactions, so a submission waiting for the
+     * hashing executor holds no database connection.
      */
-    @Transactional
     public PassphraseContribution submitContribution(String token, ContributionSubmissionRequest request) {
         log.info("Processing contribution for token: {}", token.substring(0, 8) + "...");
 
+        transactionTemplate.executeWithoutResult(status -> findOpenContribution(token));
+
+        // Validate passphrase strength
+        PassphraseService.PassphraseValidationResult validation =
+                passphraseService.validatePassphrase(request.getPassphrase());
+
+        if (!validation.isValid()) {
+            throw new IllegalArgumentException("Passphrase validation failed: " + validation.getErrorMessage());
+        }
+
+        // Hash passphrase
+        String passphraseHash = passphraseService.hashPassphrase(request.getPassphrase());
+        String contributionFingerprint = passphraseService.generateContributionFingerprint(passphraseHash);
+
+        return transactionTemplate.execute(status ->
+                recordContribution(token, request, validation, passphraseHash, contributionFingerprint));
+    }
+
+    /**
+     * Custodian of the token, if the ceremony still accepts their contribution
+     */
+    private CeremonyCustodian findOpenContribution(String token) {
         // Find ceremony custodian by token
         CeremonyCustodian ceremonyCustodian = ceremonyCustodianRepository.findByContributionToken(token)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid or expired contribution token"));
@@ -145,17 +201,15 @@ public class CeremonyService {
             throw new IllegalStateException("Contribution deadline has passed");
         }
 
-        // Validate passphrase strength
-        PassphraseService.PassphraseValidationResult validation =
-                passphraseService.validatePassphrase(request.getPassphrase());
-
-        if (!validation.isValid()) {
-            throw new IllegalArgumentException("Passphrase validation failed: " + validation.getErrorMessage());
-        }
+        return ceremonyCustodian;
+    }
 
-        // Hash passphrase
-        String passphraseHash = passphraseService.hashPassphrase(request.getPassphrase());
-        String contributionFingerprint = passphraseService.generateContributionFingerprint(passphraseHash);
+    private PassphraseContribution recordContribution(String token, ContributionSubmissionRequest request,
+                                                      PassphraseService.PassphraseValidationResult validation,
+                                                      String passphraseHash, String contributionFingerprint) {
+        // Checked again: the ceremony may have moved on while the passphrase was hashed
+        CeremonyCustodian ceremonyCustodian = findOpenContribution(token);
+        KeyCeremony ceremony = ceremonyCustodian.getKeyCeremony();
 
         // Create contribution record
         PassphraseContribution contribution = PassphraseContribution.builder()
@@ -175,7 +229,9 @@ public class CeremonyService {
         // Update ceremony custodian status
         ceremonyCustodian.setContributionStatus(CeremonyCustodian.ContributionStatus.CONTRIBUTED);
         ceremonyCustodian.setContributedAt(LocalDateTime.now());
+        ceremonyStatusService.contributionRecorded(ceremonyCustodian, contribution);
         ceremonyCustodianRepository.save(ceremonyCustodian);
+        ceremonyStatisticsService.contributionRecorded(ceremony.getId(), ceremonyCustodian.getContributedAt());
 
         // Check if threshold met
         long contributionsCount = ceremonyCustodianRepository.countByKeyCeremonyAndContributionStatus(
@@ -225,132 +281,143 @@ public class CeremonyService {
         // Update status
         ceremony.setStatus(KeyCeremony.CeremonyStatus.GENERATING_KEY);
         ceremonyRepository.save(ceremony);
+        ceremonyStatusService.ceremonyChanged(ceremonyId);
 
         try {
-            // Get all passphrase contributions
-            List<CeremonyCustodian> ceremonyCustodians = ceremonyCustodianRepository
-                    .findByKeyCeremonyAndContributionStatus(ceremony, CeremonyCustodian.ContributionStatus.CONTRIBUTED);
+            // Get all passphrase contributions in one query, keyed by ceremony custodian
+            Map<UUID, PassphraseContribution> contributions = contributionRepository.findByKeyCeremonyId(ceremonyId)
+                    .stream()
+                    .collect(Collectors.toMap(c -> c.getCeremonyCustodian().getId(), c -> c));
+
+            List<CeremonyCustodian> ceremonyCustodians = ceremonyCustodianRepository.findStatusRows(ceremonyId);
 
             List<String> passphraseHashes = ceremonyCustodians.stream()
-                    .map(cc -> contributionRepository.findByCeremonyCustodian(cc))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
+                    .filter(cc -> cc.getContributionStatus() == CeremonyCustodian.ContributionStatus.CONTRIBUTED)
+                    .map(cc -> contributions.get(cc.getId()))
+                    .filter(Objects::nonNull)
                     .map(PassphraseContribution::getPassphraseHash)
                     .collect(Collectors.toList());
 
-            // Generate salt
-            byte[] salt = keyGenerationService.generateSalt();
-
-            // Derive master key
-            KeyGenerationService.MasterKeyResult keyResult = keyGenerationService.deriveMasterKey(
-                    passphraseHashes, salt, ceremony.getKeySize() == 256 ? 100000 : 50000);
-
-            // Create MasterKey entity
-            String masterKeyId = generateMasterKeyId(ceremony);
-            MasterKey masterKey = MasterKey.builder()
-                    .masterKeyId(masterKeyId)
-                    .keyCeremony(ceremony)
-                    .keyType(KeyType.LMK)
-                    .algorithm(ceremony.getAlgorithm())
-                    .keySize(ceremony.getKeySize())
-                    .keyData(keyResult.getKeyData()) // Plaintext key material for educational purposes
-                    .keyFingerprint(keyResult.getFingerprint())
-                    .keyChecksum(keyResult.getChecksum())
-                    .combinedEntropyHash(keyResult.getCombinedEntropyHash())
-                    .generationMethod("PBKDF2")
-                    .kdfIterations(100000)
-                    .kdfSalt(CryptoUtils.bytesToHexLowercase(salt))
-                    .status(MasterKey.KeyStatus.ACTIVE)
-                    .activatedAt(LocalDateTime.now())
-                    .build();
-
-            masterKey = masterKeyRepository.save(masterKey);
-
-            // Generate Shamir shares
-            List<KeyGenerationService.ShamirShare> shamirShares = keyGenerationService.createShamirShares(
-                    keyResult.getKeyData(),
-                    ceremony.getNumberOfCustodians(),
-                    ceremony.getThreshold()
-            );
-
-            // Create KeyShare entities for each custodian
-            int shareIndex = 0;
-            for (CeremonyCustodian ceremonyCustodian : ceremonyCustodianRepository
-                    .findByKeyCeremony(ceremony)) {
-
-                KeyGenerationService.ShamirShare shamirShare = shamirShares.get(shareIndex);
-
-                // Get custodian's passphrase for encrypting their share
-                String custodianEmail = ceremonyCustodian.getKeyCustodian().getEmail();
-                String passphrase = custodianPassphrases.get(custodianEmail);
-
-                if (passphrase == null) {
-                    throw new IllegalArgumentException("Missing passphrase for custodian: " + custodianEmail);
-                }
-
-                // Verify passphrase matches original contribution
-                PassphraseContribution contribution = contributionRepository.findByCeremonyCustodian(ceremonyCustodian)
-                        .orElseThrow(() -> new IllegalStateException("Contribution not found for custodian"));
-
-                if (!passphraseService.verifyPassphrase(passphrase, contribution.getPassphraseHash())) {
-                    throw new IllegalArgumentException("Invalid passphrase for custodian: " + custodianEmail);
+            // Derive each custodian's share key on the pool while the passphrases are verified on
+            // the Argon2 executor and the master key is derived on this thread
+            List<CustodianPassphrase> passphrases = custodianPassphrases(ceremonyCustodians, contributions, custodianPassphrases);
+            List<Future<ShareKey>> shareKeys = submitShareKeys(passphrases);
+            List<KeyShare> keyShares = new ArrayList<>(ceremonyCustodians.size());
+            KeyGenerationService.MasterKeyResult keyResult;
+            MasterKey masterKey;
+            try {
+                // Verify passphrases match the original contributions
+                int mismatch = passphraseService.verifyPassphrases(
+                        passphrases.stream().map(CustodianPassphrase::passphrase).toList(),
+                        passphrases.stream().map(CustodianPassphrase::passphraseHash).toList());
+                if (mismatch >= 0) {
+                    throw new IllegalArgumentException("Invalid passphrase for custodian: " + passphrases.get(mismatch).email());
                 }
 
-                // Generate random salt for this share
-                byte[] shareSalt = keyGenerationService.generateSalt();
-
-                // Derive encryption key from passphrase + salt
-                byte[] encryptionKey = deriveEncryptionKeyFromPassphrase(passphrase, shareSalt);
-
-                // Encrypt the share
-                byte[] encryptedShareData = keyGenerationService.encryptShare(shamirShare, encryptionKey);
-
-                // Prepend salt to encrypted data for offline recovery
-                // Format: [32-byte salt][encrypted share data]
-                byte[] shareDataWithSalt = new byte[shareSalt.length + encryptedShareData.length];
-                System.arraycopy(shareSalt, 0, shareDataWithSalt, 0, shareSalt.length);
-                System.arraycopy(encryptedShareData, 0, shareDataWithSalt, shareSalt.length, encryptedShareData.length);
-
-                // Calculate verification hash
-                String verificationHash = keyGenerationService.generateShareVerificationHash(shareDataWithSalt);
-
-                String shareId = generateShareId(ceremony, ceremonyCustodian);
-
-                KeyShare keyShare = KeyShare.builder()
-                        .shareId(shareId)
-                        .masterKey(masterKey)
-                        .ceremonyCustodian(ceremonyCustodian)
-                        .shareIndex(shamirShare.getShareIndex())
-                        .shareDataEncrypted(shareDataWithSalt)  // Store with salt prepended
-                        .shareVerificationHash(verificationHash)
-                        .polynomialDegree(ceremony.getThreshold() - 1)
-                        .primeModulus(shamirShare.getPrime().toString(16))
-                        .distributionMethod(KeyShare.DistributionMethod.EMAIL)
-                        .usedInRestoration(false)
+                // Generate salt
+                byte[] salt = keyGenerationService.generateSalt();
+
+                // Derive master key
+                keyResult = keyGenerationService.deriveMasterKey(
+                        passphraseHashes, salt, ceremony.getKeySize() == 256 ? 100000 : 50000);
+
+                // Create MasterKey entity
+                masterKey = MasterKey.builder()
+                        .masterKeyId(generateMasterKeyId(ceremony))
+                        .keyCeremony(ceremony)
+                        .keyType(KeyType.LMK)
+                        .algorithm(ceremony.getAlgorithm())
+                        .keySize(ceremony.getKeySize())
+                        .keyData(keyResult.getKeyData()) // Plaintext key material for educational purposes
+                        .keyFingerprint(keyResult.getFingerprint())
+                        .keyChecksum(keyResult.getChecksum())
+                        .combinedEntropyHash(keyResult.getCombinedEntropyHash())
+                        .generationMethod("PBKDF2")
+                        .kdfIterations(100000)
+                        .kdfSalt(CryptoUtils.bytesToHexLowercase(salt))
+                        .status(MasterKey.KeyStatus.ACTIVE)
+                        .activatedAt(LocalDateTime.now())
                         .build();
 
-                shareRepository.save(keyShare);
-                shareIndex++;
+                masterKey = masterKeyRepository.save(masterKey);
+
+                // Generate Shamir shares
+                List<KeyGenerationService.ShamirShare> shamirShares = keyGenerationService.createShamirShares(
+                        keyResult.getKeyData(),
+                        ceremony.getNumberOfCustodians(),
+                        ceremony.getThreshold()
+                );
+
+                // Create KeyShare entities for each custodian; encryption itself is a single GCM pass
+                for (int shareIndex = 0; shareIndex < ceremonyCustodians.size(); shareIndex++) {
+                    CeremonyCustodian ceremonyCustodian = ceremonyCustodians.get(shareIndex);
+                    KeyGenerationService.ShamirShare shamirShare = shamirShares.get(shareIndex);
+                    ShareKey shareKey = awaitShareKey(shareKeys.get(shareIndex));
+
+                    // Encrypt the share
+                    byte[] encryptedShareData = keyGenerationService.encryptShare(shamirShare, shareKey.key());
+
+                    // Prepend salt to encrypted data for offline recovery
+                    // Format: [32-byte salt][encrypted share data]
+                    byte[] shareSalt = shareKey.salt();
+                    byte[] shareDataWithSalt = new byte[shareSalt.length + encryptedShareData.length];
+                    System.arraycopy(shareSalt, 0, shareDataWithSalt, 0, shareSalt.length);
+                    System.arraycopy(encryptedShareData, 0, shareDataWithSalt, shareSalt.length, encryptedShareData.length);
+
+                    // Calculate verification hash
+                    String verificationHash = keyGenerationService.generateShareVerificationHash(shareDataWithSalt);
+
+                    KeyShare keyShare = KeyShare.builder()
+                            .shareId(generateShareId(ceremony, ceremonyCustodian))
+                            .masterKey(masterKey)
+                            .ceremonyCustodian(ceremonyCustodian)
+                            .shareIndex(shamirShare.getShareIndex())
+                            .shareDataEncrypted(shareDataWithSalt)  // Store with salt prepended
+                            .shareVerificationHash(verificationHash)
+                            .polynomialDegree(ceremony.getThreshold() - 1)
+                            .primeModulus(shamirShare.getEngine() == KeyGenerationService.ShamirEngine.GF256
+                                    ? Gf256Shamir.FIELD
+                                    : shamirShare.getPrime().toString(16))
+                            .distributionMethod(KeyShare.DistributionMethod.EMAIL)
+                            .usedInRestoration(false)
+                            .build();
+
+                    keyShares.add(keyShare);
+                    ceremonyStatusService.shareGenerated(ceremonyCustodian, keyShare);
+                }
+            } finally {
+                // No-op for completed tasks; stops the rest when generation failed part way
+                shareKeys.forEach(future -> future.cancel(true));
             }
 
+            // One JDBC batch for the shares and one for the custodians' status columns
+            shareRepository.saveAll(keyShares);
+            ceremonyCustodianRepository.saveAll(ceremonyCustodians);
+
             // Update ceremony status
             ceremony.setStatus(KeyCeremony.CeremonyStatus.COMPLETED);
             ceremony.setCompletedAt(LocalDateTime.now());
             ceremony.setLastModifiedBy(initiatedBy);
             ceremonyRepository.save(ceremony);
+            ceremonyStatisticsService.keyGenerated(ceremonyId, keyShares.size(), ceremony.getCompletedAt());
 
             // Create audit log
             createAuditLog(ceremony, "KEY_GENERATED",
                     String.format("Master key generated successfully. Fingerprint: %s", keyResult.getFingerprint()),
                     initiatedBy);
 
-            log.info("Master key generated successfully: {}", masterKeyId);
+            log.info("Master key generated successfully: {}", masterKey.getMasterKeyId());
             return masterKey;
 
         } catch (Exception e) {
             log.error("Error generating master key", e);
             ceremony.setStatus(KeyCeremony.CeremonyStatus.PARTIAL_CONTRIBUTIONS);
             ceremonyRepository.save(ceremony);
+            ceremonyStatusService.ceremonyChanged(ceremonyId);
+            if (e instanceof PassphraseService.HashingUnavailableException busy) {
+                // Passed through so the caller can answer 503 and the ceremony can be retried
+                throw busy;
+            }
             throw new RuntimeException("Failed to generate master key: " + e.getMessage(), e);
         }
     }
@@ -359,42 +426,7 @@ public class CeremonyService {
      * Gets ceremony status and contribution progress.
      */
     public CeremonyStatusResponse getCeremonyStatus(UUID ceremonyId) {
-        KeyCeremony ceremony = ceremonyRepository.findById(ceremonyId)
-                .orElseThrow(() -> new IllegalArgumentException("Ceremony not found"));
-
-        List<CeremonyCustodian> ceremonyCustodians = ceremonyCustodianRepository.findByKeyCeremony(ceremony);
-
-        long contributedCount = ceremonyCustodians.stream()
-                .filter(cc -> cc.getContributionStatus() == CeremonyCustodian.ContributionStatus.CONTRIBUTED)
-                .count();
-
-        boolean thresholdMet = contributedCount >= ceremony.getThreshold();
-
-        List<CustodianStatusInfo> custodianStatuses = ceremonyCustodians.stream()
-                .map(cc -> {
-                    PassphraseContribution contribution = contributionRepository.findByCeremonyCustodian(cc).orElse(null);
-                    return CustodianStatusInfo.builder()
-                            .custodianName(cc.getKeyCustodian().getFullName())
-                            .custodianLabel(cc.getCustodianLabel())
-                            .custodianEmail(cc.getKeyCustodian().getEmail())
-                            .contributionStatus(cc.getContributionStatus())
-                            .contributedAt(cc.getContributedAt())
-                            .contributionToken(cc.getContributionToken())
-                            .contributionLink(cc.getContributionLink())
-                            .passphraseStrength(contribution != null ? contribution.getPassphraseStrength() : null)
-                            .entropyScore(contribution != null ? contribution.getPassphraseEntropyScore() : null)
-                            .build();
-                })
-                .collect(Collectors.toList());
-
-        return CeremonyStatusResponse.builder()
-                .ceremony(ceremony)
-                .contributedCount(contributedCount)
-                .requiredCount(ceremony.getThreshold())
-                .totalCustodians(ceremony.getNumberOfCustodians())
-                .thresholdMet(thresholdMet)
-                .custodianStatuses(custodianStatuses)
-                .build();
+        return ceremonyStatusService.getStatus(ceremonyId);
     }
 
     /**
@@ -455,7 +487,7 @@ public class CeremonyService {
                 .eventStatus(CeremonyAuditLog.EventStatus.SUCCESS)
                 .eventSeverity(CeremonyAuditLog.EventSeverity.INFO)
                 .build();
-        auditLogRepository.save(auditLog);
+        ceremonyAuditService.append(auditLog);
     }
 
     private String generateCeremonyId() {
@@ -511,7 +543,64 @@ public class CeremonyService {
     }
 
     /**
-     * Sends invitation email to custodian with contribution link
+     * Pairs each custodian, in custodian order, with the passphrase given for them and the hash of
+     * their contribution. Missing passphrases and contributions are rejected before any work starts.
+     */
+    private List<CustodianPassphrase> custodianPassphrases(List<CeremonyCustodian> ceremonyCustodians,
+                                                           Map<UUID, PassphraseContribution> contributions,
+                                                           Map<String, String> custodianPassphrases) {
+        List<CustodianPassphrase> passphrases = new ArrayList<>(ceremonyCustodians.size());
+        for (CeremonyCustodian ceremonyCustodian : ceremonyCustodians) {
+            // Get custodian's passphrase for encrypting their share
+            String custodianEmail = ceremonyCustodian.getKeyCustodian().getEmail();
+            String passphrase = custodianPassphrases.get(custodianEmail);
+            if (passphrase == null) {
+                throw new IllegalArgumentException("Missing passphrase for custodian: " + custodianEmail);
+            }
+
+            PassphraseContribution contribution = contributions.get(ceremonyCustodian.getId());
+            if (contribution == null) {
+                throw new IllegalStateException("Contribution not found for custodian");
+            }
+            passphrases.add(new CustodianPassphrase(custodianEmail, passphrase, contribution.getPassphraseHash()));
+        }
+        return passphrases;
+    }
+
+    /**
+     * Submits one PBKDF2 share key derivation per custodian, in custodian order. The tasks are
+     * CPU-only; Argon2 verification stays on the passphrase service's own memory-bounded executor.
+     */
+    private List<Future<ShareKey>> submitShareKeys(List<CustodianPassphrase> passphrases) {
+        return passphrases.stream()
+                .map(custodian -> shareEncryptionPool.submit(() -> {
+                    // Derive encryption key from passphrase + a random salt for this share
+                    byte[] shareSalt = keyGenerationService.generateSalt();
+                    return new ShareKey(shareSalt, deriveEncryptionKeyFromPassphrase(custodian.passphrase(), shareSalt));
+                }))
+                .toList();
+    }
+
+    private ShareKey awaitShareKey(Future<ShareKey> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        } catch (InterruptedException | CancellationException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Share encryption interrupted", e);
+        }
+    }
+
+    private record CustodianPassphrase(String email, String passphrase, String passphraseHash) {
+    }
+
+    // Salt stored in front of the encrypted share, and the key derived from the custodian's passphrase with it
+    private record ShareKey(byte[] salt, byte[] key) {
+    }
+
+    /**
+     * Queues invitation email to custodian with contribution link
      */
     private void sendInvitationEmail(CeremonyCustodian ceremonyCustodian, KeyCeremony ceremony) {
         String custodianName = ceremonyCustodian.getKeyCustodian().getFullName();
@@ -519,7 +608,7 @@ public class CeremonyService {
         String custodianLabel = ceremonyCustodian.getCustodianLabel();
         String contributionLink = ceremonyCustodian.getContributionLink();
 
-        log.info("Sending invitation email to {} ({})", custodianName, custodianEmail);
+        log.info("Queueing invitation email to {} ({})", custodianName, custodianEmail);
 
         String htmlContent = buildInvitationEmailHtml(
                 custodianName,
@@ -532,27 +621,13 @@ public class CeremonyService {
                 ceremony.getNumberOfCustodians()
         );
 
-        try {
-            emailService.sendHtmlEmail(
-                    custodianEmail,
-                    "HSM Key Ceremony Invitation - " + ceremony.getCeremonyName(),
-                    htmlContent
-            );
-
-            // Update invitation sent timestamp
-            ceremonyCustodian.setInvitationSentAt(LocalDateTime.now());
-            ceremonyCustodianRepository.save(ceremonyCustodian);
-
-            if (emailService.isEmailEnabled()) {
-                log.info("Invitation email sent successfully to {}", custodianEmail);
-            } else {
-                log.info("Email sending disabled - simulated invitation to {}", custodianEmail);
-            }
-
-        } catch (Exception e) {
-            log.error("Failed to send invitation email to {}: {}", custodianEmail, e.getMessage(), e);
-            // Don't fail ceremony creation if email fails
-        }
+        // Delivered by the outbox after this transaction commits; invitationSentAt is set on delivery
+        emailOutboxService.enqueueInvitation(
+                ceremonyCustodian.getId(),
+                custodianEmail,
+                "HSM Key Ceremony Invitation - " + ceremony.getCeremonyName(),
+                htmlContent
+        );
     }
 
     /**
@@ -613,6 +688,7 @@ public class CeremonyService {
         private int requiredCount;
         private int totalCustodians;
         private boolean thresholdMet;
+        private long sharesDistributed;
         private List<CustodianStatusInfo> custodianStatuses;
     }
 
@@ -628,6 +704,8 @@ public class CeremonyService {
         private String contributionLink;
         private PassphraseContribution.PassphraseStrength passphraseStrength;
         private BigDecimal entropyScore;
+        private String shareId;
+        private LocalDateTime shareSentAt;
     }
 
     @lombok.Data
@@ -0,0 +1,416 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * In-memory ceremony statistics.
+ * Per-ceremony counters and the running totals and averages across all ceremonies are adjusted as
+ * ceremony events commit, so the dashboard reads them without touching the database. Changed
+ * ceremonies are written to ceremony_statistics as periodic snapshots, which are loaded back on
+ * startup. A ceremony not yet in memory (created on another instance, or before startup finished)
+ * is loaded from its custodians with one query the first time one of its events arrives.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CeremonyStatisticsService {
+
+    private static final String SOURCE_SQL =
+            "SELECT kc.number_of_custodians, kc.started_at, kc.completed_at, " +
+            "COUNT(cc.id) FILTER (WHERE cc.contribution_status = 'CONTRIBUTED') AS contributions, " +
+            "COUNT(cc.share_id) AS shares_generated, " +
+            "COUNT(cc.share_sent_at) AS shares_distributed, " +
+            "SUM(EXTRACT(EPOCH FROM (cc.contributed_at - kc.started_at)) / 60) " +
+            "    FILTER (WHERE cc.contribution_status = 'CONTRIBUTED') AS contribution_minutes, " +
+            "GREATEST(kc.started_at, kc.completed_at, MAX(cc.contributed_at), MAX(cc.share_sent_at)) AS last_activity_at " +
+            "FROM key_ceremonies kc LEFT JOIN ceremony_custodians cc ON cc.id_key_ceremony = kc.id " +
+            "WHERE kc.id = ? GROUP BY kc.id";
+
+    private static final String SNAPSHOTS_SQL =
+            "SELECT s.id_key_ceremony, s.total_custodians, s.contributions_received, s.shares_generated, " +
+            "s.shares_distributed, s.average_contribution_time_minutes, s.total_duration_minutes, " +
+            "s.last_activity_at, kc.started_at " +
+            "FROM ceremony_statistics s JOIN key_ceremonies kc ON kc.id = s.id_key_ceremony";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO ceremony_statistics (id_key_ceremony, total_custodians, contributions_received, " +
+            "contributions_pending, shares_generated, shares_distributed, average_contribution_time_minutes, " +
+            "total_duration_minutes, ceremony_completion_percentage, last_activity_at, last_updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id_key_ceremony) DO UPDATE SET " +
+            "total_custodians = EXCLUDED.total_custodians, " +
+            "contributions_received = EXCLUDED.contributions_received, " +
+            "contributions_pending = EXCLUDED.contributions_pending, " +
+            "shares_generated = EXCLUDED.shares_generated, " +
+            "shares_distributed = EXCLUDED.shares_distributed, " +
+            "average_contribution_time_minutes = EXCLUDED.average_contribution_time_minutes, " +
+            "total_duration_minutes = EXCLUDED.total_duration_minutes, " +
+            "ceremony_completion_percentage = EXCLUDED.ceremony_completion_percentage, " +
+            "last_activity_at = EXCLUDED.last_activity_at, " +
+            "last_updated_at = EXCLUDED.last_updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // All state below is guarded by this service's monitor
+    private final Map<UUID, CeremonyCounters> ceremonies = new HashMap<>();
+    private final Set<UUID> dirty = new LinkedHashSet<>();
+    private final Totals totals = new Totals();
+    private LocalDateTime lastSnapshotAt;
+
+    // ===== EVENTS =====
+
+    /**
+     * A ceremony was created; its counters are loaded once the creating transaction commits
+     */
+    public void ceremonyCreated(UUID ceremonyId) {
+        afterCommit(() -> apply(ceremonyId, c -> {
+        }));
+    }
+
+    public void contributionRecorded(UUID ceremonyId, LocalDateTime contributedAt) {
+        afterCommit(() -> apply(ceremonyId, c -> {
+            c.contributions++;
+            c.contributionMinutes += minutesBetween(c.startedAt, contributedAt);
+            c.touch(contributedAt);
+        }));
+    }
+
+    public void keyGenerated(UUID ceremonyId, int sharesGenerated, LocalDateTime completedAt) {
+        afterCommit(() -> apply(ceremonyId, c -> {
+            c.sharesGenerated = sharesGenerated;
+            c.sharesDistributed = 0;
+            c.durationMinutes = (int) Math.round(minutesBetween(c.startedAt, completedAt));
+            c.touch(completedAt);
+        }));
+    }
+
+    public void shareDistributed(KeyShare share) {
+        UUID ceremonyId = share.getCeremonyCustodian().getKeyCeremony().getId();
+        LocalDateTime distributedAt = share.getDistributedAt();
+        afterCommit(() -> apply(ceremonyId, c -> {
+            c.sharesDistributed = Math.min(c.sharesDistributed + 1, c.sharesGenerated);
+            c.touch(distributedAt);
+        }));
+    }
+
+    // ===== READ =====
+
+    /**
+     * Totals and averages across all ceremonies, from memory
+     */
+    public synchronized StatisticsSummary getSummary() {
+        return StatisticsSummary.builder()
+                .totalCeremonies(ceremonies.size())
+                .completedCeremonies(totals.completedCeremonies)
+                .totalContributions(totals.contributions)
+                .totalSharesGenerated(totals.sharesGenerated)
+                .totalSharesDistributed(totals.sharesDistributed)
+                .averageCompletionPercentage(ceremonies.isEmpty() ? BigDecimal.ZERO
+                        : BigDecimal.valueOf(totals.completionSum / ceremonies.size()).setScale(2, RoundingMode.HALF_UP))
+                .averageContributionTimeMinutes(totals.contributionTimeCount == 0 ? null
+                        : totals.contributionTimeSum / totals.contributionTimeCount)
+                .averageCeremonyDurationMinutes(totals.completedCeremonies == 0 ? null
+                        : (double) totals.durationSum / totals.completedCeremonies)
+                .lastSnapshotAt(lastSnapshotAt)
+                .build();
+    }
+
+    /**
+     * Statistics of one ceremony, from memory when it has been seen since startup
+     */
+    public synchronized CeremonyStatisticsInfo getCeremonyStatistics(UUID ceremonyId) {
+        CeremonyCounters counters = ceremonies.get(ceremonyId);
+        if (counters == null) {
+            counters = loadFromSource(ceremonyId);
+            add(ceremonyId, counters);
+        }
+        return CeremonyStatisticsInfo.builder()
+                .ceremonyId(ceremonyId)
+                .totalCustodians(counters.totalCustodians)
+                .contributionsReceived(counters.contributions)
+                .contributionsPending(counters.pending())
+                .sharesGenerated(counters.sharesGenerated)
+                .sharesDistributed(counters.sharesDistributed)
+                .averageContributionTimeMinutes(counters.averageContributionMinutes())
+                .totalDurationMinutes(counters.durationMinutes)
+                .completionPercentage(counters.completionPercentage())
+                .lastActivityAt(counters.lastActivityAt)
+                .build();
+    }
+
+    // ===== SNAPSHOTS =====
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshots() {
+        try {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(SNAPSHOTS_SQL);
+            int loaded = 0;
+            synchronized (this) {
+                for (Map<String, Object> row : rows) {
+                    UUID ceremonyId = (UUID) row.get("id_key_ceremony");
+                    // Events that arrived before loading already read the current state
+                    if (!ceremonies.containsKey(ceremonyId)) {
+                        add(ceremonyId, fromSnapshot(row));
+                        loaded++;
+                    }
+                }
+            }
+            log.info("Ceremony statistics loaded for {} ceremonies", loaded);
+        } catch (Exception e) {
+            log.warn("Failed to load ceremony statistics snapshots: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write the ceremonies changed since the last snapshot; returns the number written
+     */
+    @Scheduled(fixedDelayString = "${hsm.ceremony.statistics.snapshot-interval-ms:60000}",
+               initialDelayString = "${hsm.ceremony.statistics.snapshot-interval-ms:60000}")
+    public int snapshot() {
+        List<UUID> changed;
+        List<Object[]> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (this) {
+            changed = new ArrayList<>(dirty);
+            dirty.clear();
+            for (UUID ceremonyId : changed) {
+                CeremonyCounters c = ceremonies.get(ceremonyId);
+                Integer averageMinutes = c.averageContributionMinutes() != null
+                        ? (int) Math.round(c.averageContributionMinutes()) : null;
+                rows.add(new Object[]{
+                        ceremonyId, c.totalCustodians, c.contributions, c.pending(), c.sharesGenerated,
+                        c.sharesDistributed, averageMinutes, c.durationMinutes, c.completionPercentage(),
+                        c.lastActivityAt != null ? Timestamp.valueOf(c.lastActivityAt) : null, Timestamp.valueOf(now)
+                });
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty.addAll(changed);
+            }
+            log.warn("Failed to write ceremony statistics snapshot for {} ceremonies: {}", changed.size(), e.getMessage());
+            return 0;
+        }
+        synchronized (this) {
+            lastSnapshotAt = now;
+        }
+        log.debug("Ceremony statistics snapshot written for {} ceremonies", rows.size());
+        return rows.size();
+    }
+
+    @PreDestroy
+    void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    // ===== INTERNALS =====
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Totals move by the difference between the ceremony's old and new counters, never by a rescan
+    private synchronized void apply(UUID ceremonyId, Consumer<CeremonyCounters> change) {
+        try {
+            CeremonyCounters counters = ceremonies.get(ceremonyId);
+            if (counters == null) {
+                // Read after commit, so the event is already included
+                add(ceremonyId, loadFromSource(ceremonyId));
+            } else {
+                totals.apply(counters, -1);
+                change.accept(counters);
+                totals.apply(counters, 1);
+            }
+            dirty.add(ceremonyId);
+        } catch (Exception e) {
+            log.warn("Failed to update statistics of ceremony {}: {}", ceremonyId, e.getMessage());
+        }
+    }
+
+    private void add(UUID ceremonyId, CeremonyCounters counters) {
+        ceremonies.put(ceremonyId, counters);
+        totals.apply(counters, 1);
+    }
+
+    private CeremonyCounters loadFromSource(UUID ceremonyId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SOURCE_SQL, ceremonyId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Ceremony not found");
+        }
+        Map<String, Object> row = rows.get(0);
+        CeremonyCounters c = new CeremonyCounters();
+        c.totalCustodians = intValue(row.get("number_of_custodians"));
+        c.startedAt = dateTime(row.get("started_at"));
+        c.contributions = intValue(row.get("contributions"));
+        c.sharesGenerated = intValue(row.get("shares_generated"));
+        c.sharesDistributed = intValue(row.get("shares_distributed"));
+        c.contributionMinutes = row.get("contribution_minutes") != null
+                ? ((Number) row.get("contribution_minutes")).doubleValue() : 0;
+        LocalDateTime completedAt = dateTime(row.get("completed_at"));
+        c.durationMinutes = completedAt != null ? (int) Math.round(minutesBetween(c.startedAt, completedAt)) : null;
+        c.lastActivityAt = dateTime(row.get("last_activity_at"));
+        return c;
+    }
+
+    private static CeremonyCounters fromSnapshot(Map<String, Object> row) {
+        CeremonyCounters c = new CeremonyCounters();
+        c.totalCustodians = intValue(row.get("total_custodians"));
+        c.startedAt = dateTime(row.get("started_at"));
+        c.contributions = intValue(row.get("contributions_received"));
+        c.sharesGenerated = intValue(row.get("shares_generated"));
+        c.sharesDistributed = intValue(row.get("shares_distributed"));
+        // Snapshots keep the rounded average only
+        Object averageMinutes = row.get("average_contribution_time_minutes");
+        c.contributionMinutes = averageMinutes != null ? ((Number) averageMinutes).doubleValue() * c.contributions : 0;
+        Object duration = row.get("total_duration_minutes");
+        c.durationMinutes = duration != null ? intValue(duration) : null;
+        c.lastActivityAt = dateTime(row.get("last_activity_at"));
+        return c;
+    }
+
+    private static double minutesBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(from, to).toSeconds() / 60.0);
+    }
+
+    private static int intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private static LocalDateTime dateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static final class CeremonyCounters {
+        int totalCustodians;
+        int contributions;
+        int sharesGenerated;
+        int sharesDistributed;
+        double contributionMinutes;
+        Integer durationMinutes;
+        LocalDateTime startedAt;
+        LocalDateTime lastActivityAt;
+
+        int pending() {
+            return Math.max(totalCustodians - contributions, 0);
+        }
+
+        Double averageContributionMinutes() {
+            return contributions > 0 ? contributionMinutes / contributions : null;
+        }
+
+        BigDecimal completionPercentage() {
+            if (totalCustodians == 0) {
+                return BigDecimal.ZERO.setScale(2);
+            }
+            double percentage = Math.min(100.0, contributions * 100.0 / totalCustodians);
+            return BigDecimal.valueOf(percentage).setScale(2, RoundingMode.HALF_UP);
+        }
+
+        void touch(LocalDateTime at) {
+            if (at != null && (lastActivityAt == null || at.isAfter(lastActivityAt))) {
+                lastActivityAt = at;
+            }
+        }
+    }
+
+    // Sums behind the summary averages; sign is +1 to add a ceremony's counters and -1 to remove them
+    private static final class Totals {
+        long contributions;
+        long sharesGenerated;
+        long sharesDistributed;
+        long completedCeremonies;
+        long durationSum;
+        double completionSum;
+        double contributionTimeSum;
+        long contributionTimeCount;
+
+        void apply(CeremonyCounters c, int sign) {
+            contributions += sign * (long) c.contributions;
+            sharesGenerated += sign * (long) c.sharesGenerated;
+            sharesDistributed += sign * (long) c.sharesDistributed;
+            completionSum += sign * c.completionPercentage().doubleValue();
+            if (c.durationMinutes != null) {
+                completedCeremonies += sign;
+                durationSum += sign * (long) c.durationMinutes;
+            }
+            Double average = c.averageContributionMinutes();
+            if (average != null) {
+                contributionTimeSum += sign * average;
+                contributionTimeCount += sign;
+            }
+        }
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class StatisticsSummary {
+        private long totalCeremonies;
+        private long completedCeremonies;
+        private long totalContributions;
+        private long totalSharesGenerated;
+        private long totalSharesDistributed;
+        private BigDecimal averageCompletionPercentage;
+        private Double averageContributionTimeMinutes;
+        private Double averageCeremonyDurationMinutes;
+        private LocalDateTime lastSnapshotAt;
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class CeremonyStatisticsInfo {
+        private UUID ceremonyId;
+        private int totalCustodians;
+        private int contributionsReceived;
+        private int contributionsPending;
+        private int sharesGenerated;
+        private int sharesDistributed;
+        private Double averageContributionTimeMinutes;
+        private Integer totalDurationMinutes;
+        private BigDecimal completionPercentage;
+        private LocalDateTime lastActivityAt;
+    }
+}
@@ -0,0 +1,152 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.CeremonyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import com.artivisi.hsm.simulator.entity.PassphraseContribution;
+import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.KeyCeremonyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ceremony status read model.
+ * Contribution strength, share ID and share distribution time are copied onto each ceremony custodian
+ * as the events happen, so a ceremony's status is one fetch-join query over its custodians however
+ * many there are. Built statuses are cached per ceremony, evicted when a local change commits and
+ * expired after a short TTL to pick up changes made by other instances.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CeremonyStatusService {
+
+    private final KeyCeremonyRepository ceremonyRepository;
+    private final CeremonyCustodianRepository ceremonyCustodianRepository;
+
+    @Value("${hsm.ceremony.status.cache-ttl-ms:10000}")
+    private long cacheTtlMs;
+
+    @Value("${hsm.ceremony.status.cache-max-entries:1000}")
+    private int cacheMaxEntries;
+
+    private final Map<UUID, CachedStatus> cache = new ConcurrentHashMap<>();
+
+    private record CachedStatus(CeremonyService.CeremonyStatusResponse status, long loadedAt) {
+    }
+
+    // ===== READ =====
+
+    /**
+     * Ceremony status and contribution progress, from the cache or one query
+     */
+    @Transactional(readOnly = true)
+    public CeremonyService.CeremonyStatusResponse getStatus(UUID ceremonyId) {
+        long now = System.currentTimeMillis();
+        CachedStatus cached = cache.get(ceremonyId);
+        if (cached != null && now - cached.loadedAt() < cacheTtlMs) {
+            return cached.status();
+        }
+
+        CeremonyService.CeremonyStatusResponse status = load(ceremonyId);
+        if (cache.size() >= cacheMaxEntries) {
+            cache.clear();
+        }
+        cache.put(ceremonyId, new CachedStatus(status, now));
+        return status;
+    }
+
+    private CeremonyService.CeremonyStatusResponse load(UUID ceremonyId) {
+        List<CeremonyCustodian> rows = ceremonyCustodianRepository.findStatusRows(ceremonyId);
+        KeyCeremony ceremony = rows.isEmpty()
+                ? ceremonyRepository.findById(ceremonyId).orElseThrow(() -> new IllegalArgumentException("Ceremony not found"))
+                : rows.get(0).getKeyCeremony();
+
+        long contributedCount = rows.stream()
+                .filter(cc -> cc.getContributionStatus() == CeremonyCustodian.ContributionStatus.CONTRIBUTED)
+                .count();
+        long sharesDistributed = rows.stream().filter(cc -> cc.getShareSentAt() != null).count();
+
+        List<CeremonyService.CustodianStatusInfo> custodianStatuses = rows.stream()
+                .map(cc -> CeremonyService.CustodianStatusInfo.builder()
+                        .custodianName(cc.getKeyCustodian().getFullName())
+                        .custodianLabel(cc.getCustodianLabel())
+                        .custodianEmail(cc.getKeyCustodian().getEmail())
+                        .contributionStatus(cc.getContributionStatus())
+                        .contributedAt(cc.getContributedAt())
+                        .contributionToken(cc.getContributionToken())
+                        .contributionLink(cc.getContributionLink())
+                        .passphraseStrength(cc.getPassphraseStrength())
+                        .entropyScore(cc.getPassphraseEntropyScore())
+                        .shareId(cc.getShareId())
+                        .shareSentAt(cc.getShareSentAt())
+                        .build())
+                .toList();
+
+        return CeremonyService.CeremonyStatusResponse.builder()
+                .ceremony(ceremony)
+                .contributedCount(contributedCount)
+                .requiredCount(ceremony.getThreshold())
+                .totalCustodians(ceremony.getNumberOfCustodians())
+                .thresholdMet(contributedCount >= ceremony.getThreshold())
+                .sharesDistributed(sharesDistributed)
+                .custodianStatuses(custodianStatuses)
+                .build();
+    }
+
+    // ===== EVENTS =====
+
+    /**
+     * Copy the contribution onto its custodian; call in the transaction that saves both
+     */
+    public void contributionRecorded(CeremonyCustodian ceremonyCustodian, PassphraseContribution contribution) {
+        ceremonyCustodian.setPassphraseStrength(contribution.getPassphraseStrength());
+        ceremonyCustodian.setPassphraseEntropyScore(contribution.getPassphraseEntropyScore());
+        ceremonyChanged(ceremonyCustodian.getKeyCeremony().getId());
+    }
+
+    /**
+     * Record the share generated for a custodian; call before the custodian is saved
+     */
+    public void shareGenerated(CeremonyCustodian ceremonyCustodian, KeyShare share) {
+        ceremonyCustodian.setShareId(share.getShareId());
+        ceremonyCustodian.setShareSentAt(null);
+        ceremonyChanged(ceremonyCustodian.getKeyCeremony().getId());
+    }
+
+    /**
+     * Record that a share reached its custodian and save the custodian
+     */
+    public void shareDistributed(KeyShare share) {
+        CeremonyCustodian ceremonyCustodian = share.getCeremonyCustodian();
+        ceremonyCustodian.setShareSentAt(share.getDistributedAt());
+        ceremonyCustodianRepository.save(ceremonyCustodian);
+        ceremonyChanged(ceremonyCustodian.getKeyCeremony().getId());
+    }
+
+    /**
+     * Drop the cached status now and again once the current transaction commits,
+     * so a read racing the commit cannot keep the old status cached
+     */
+    public void ceremonyChanged(UUID ceremonyId) {
+        cache.remove(ceremonyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.remove(ceremonyId);
+                }
+            });
+        }
+    }
+}
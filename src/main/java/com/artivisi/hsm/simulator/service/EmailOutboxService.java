@@ -0,0 +1,235 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.EmailOutbox;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.EmailOutboxRepository;
+import com.artivisi.hsm.simulator.repository.KeyShareRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox for custodian emails.
+ * Callers enqueue inside their own transaction, so an email exists exactly when the change that
+ * produced it commits, and no transaction waits on SMTP. A scheduled sender claims due messages in
+ * batches, delivers them outside any transaction and retries failures with exponential backoff;
+ * messages that still fail after the maximum number of attempts are dead-lettered.
+ * Sending runs on a dedicated thread, a bounded number of batches per run, so a slow SMTP server
+ * does not hold up the shared scheduler.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EmailOutboxService {
+
+    // Claiming pushes next_attempt_at past the lease, so other senders skip the message while it is in flight
+    // and pick it up again if this sender dies before recording the outcome
+    private static final String CLAIM_SQL =
+            "UPDATE email_outbox SET next_attempt_at = ?, attempts = attempts + 1 " +
+            "WHERE id IN (SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+
+    private final EmailOutboxRepository outboxRepository;
+    private final CeremonyCustodianRepository ceremonyCustodianRepository;
+    private final KeyShareRepository shareRepository;
+    private final CeremonyStatusService ceremonyStatusService;
+    private final CeremonyStatisticsService ceremonyStatisticsService;
+    private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${hsm.email.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${hsm.email.outbox.base-delay-ms:5000}")
+    private long baseDelayMs;
+
+    @Value("${hsm.email.outbox.max-delay-ms:3600000}")
+    private long maxDelayMs;
+
+    @Value("${hsm.email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${hsm.email.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${hsm.email.outbox.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    private ThreadPoolExecutor senderExecutor;
+
+    @PostConstruct
+    void startSender() {
+        // One sender thread and no queue: a tick that finds the previous run still sending is dropped
+        senderExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                Thread.ofPlatform().name("email-outbox").daemon().factory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void stopSender() {
+        senderExecutor.shutdownNow();
+    }
+
+    // ===== ENQUEUE =====
+
+    /**
+     * Queue a ceremony invitation; the custodian's invitationSentAt is set once it is delivered
+     */
+    @Transactional
+    public EmailOutbox enqueueInvitation(UUID ceremonyCustodianId, String recipient, String subject, String htmlBody) {
+        return enqueue(EmailOutbox.MessageType.INVITATION, ceremonyCustodianId, recipient, subject, htmlBody, null, null);
+    }
+
+    /**
+     * Queue a key share email; the share is marked distributed by EMAIL once it is delivered
+     */
+    @Transactional
+    public EmailOutbox enqueueKeyShare(UUID shareId, String recipient, String subject, String htmlBody,
+                                       String attachmentName, byte[] attachmentContent) {
+        return enqueue(EmailOutbox.MessageType.KEY_SHARE, shareId, recipient, subject, htmlBody,
+                attachmentName, attachmentContent);
+    }
+
+    private EmailOutbox enqueue(EmailOutbox.MessageType type, UUID referenceId, String recipient, String subject,
+                                String htmlBody, String attachmentName, byte[] attachmentContent) {
+        EmailOutbox message = outboxRepository.save(EmailOutbox.builder()
+                .messageType(type)
+                .referenceId(referenceId)
+                .recipient(recipient)
+                .subject(subject)
+                .htmlBody(htmlBody)
+                .attachmentName(attachmentName)
+                .attachmentContent(attachmentContent)
+                .build());
+        log.info("Queued {} email {} to {}", type, message.getId(), recipient);
+        return message;
+    }
+
+    // ===== SENDER =====
+
+    /**
+     * Hand a drain run to the sender thread unless the previous run is still sending
+     */
+    @Scheduled(fixedDelayString = "${hsm.email.outbox.poll-interval-ms:2000}")
+    public void drain() {
+        senderExecutor.execute(this::drainBatches);
+    }
+
+    /**
+     * Deliver due messages a batch at a time, up to the per-run batch limit
+     */
+    void drainBatches() {
+        try {
+            List<Long> claimed;
+            int batches = 0;
+            do {
+                claimed = claimBatch();
+                claimed.forEach(this::deliver);
+            } while (claimed.size() == batchSize && ++batches < maxBatchesPerRun);
+        } catch (Exception e) {
+            log.error("Email outbox drain failed: {}", e.getMessage(), e);
+        }
+    }
+
+    List<Long> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.queryForList(CLAIM_SQL, Long.class,
+                Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000)), Timestamp.valueOf(now), batchSize);
+    }
+
+    /**
+     * Send one claimed message and record the outcome
+     */
+    void deliver(Long id) {
+        EmailOutbox message = outboxRepository.findById(id).orElse(null);
+        if (message == null || message.getStatus() != EmailOutbox.Status.PENDING) {
+            return;
+        }
+
+        try {
+            if (message.getAttachmentContent() != null) {
+                emailService.sendHtmlEmailWithAttachment(message.getRecipient(), message.getSubject(),
+                        message.getHtmlBody(), message.getAttachmentName(), message.getAttachmentContent());
+            } else {
+                emailService.sendHtmlEmail(message.getRecipient(), message.getSubject(), message.getHtmlBody());
+            }
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> recordFailure(id, e.getMessage()));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> recordSent(id));
+    }
+
+    private void recordSent(Long id) {
+        EmailOutbox message = outboxRepository.findById(id).orElseThrow();
+        LocalDateTime now = LocalDateTime.now();
+        message.setStatus(EmailOutbox.Status.SENT);
+        message.setSentAt(now);
+        message.setLastError(null);
+        // Share files are not kept once delivered
+        message.setAttachmentContent(null);
+        outboxRepository.save(message);
+
+        if (message.getReferenceId() != null) {
+            switch (message.getMessageType()) {
+                case INVITATION -> ceremonyCustodianRepository.findById(message.getReferenceId()).ifPresent(cc -> {
+                    cc.setInvitationSentAt(now);
+                    ceremonyCustodianRepository.save(cc);
+                });
+                case KEY_SHARE -> shareRepository.findById(message.getReferenceId()).ifPresent(share -> {
+                    share.setDistributedAt(now);
+                    share.setDistributionMethod(KeyShare.DistributionMethod.EMAIL);
+                    shareRepository.save(share);
+                    ceremonyStatusService.shareDistributed(share);
+                    ceremonyStatisticsService.shareDistributed(share);
+                });
+            }
+        }
+        log.info("{} email {} sent to {} after {} attempt(s)", message.getMessageType(), id,
+                message.getRecipient(), message.getAttempts());
+    }
+
+    private void recordFailure(Long id, String error) {
+        EmailOutbox message = outboxRepository.findById(id).orElseThrow();
+        message.setLastError(error);
+        if (message.getAttempts() >= maxAttempts) {
+            message.setStatus(EmailOutbox.Status.DEAD);
+            // A dead share email is re-sent by distributing the share again, not from this row
+            message.setAttachmentContent(null);
+            log.error("{} email {} to {} dead after {} attempts: {}", message.getMessageType(), id,
+                    message.getRecipient(), message.getAttempts(), error);
+        } else {
+            long delayMs = backoffMs(message.getAttempts());
+            message.setNextAttemptAt(LocalDateTime.now().plusNanos(delayMs * 1_000_000));
+            log.warn("{} email {} to {} failed (attempt {}/{}), retrying in {} ms: {}", message.getMessageType(), id,
+                    message.getRecipient(), message.getAttempts(), maxAttempts, delayMs, error);
+        }
+        outboxRepository.save(message);
+    }
+
+    /**
+     * Delay before the next attempt: base, 2x base, 4x base, ... capped at the maximum
+     */
+    long backoffMs(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(maxDelayMs, baseDelayMs << doublings);
+    }
+}
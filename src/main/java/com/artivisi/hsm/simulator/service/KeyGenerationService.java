@@ -2,7 +2,10 @@ package com.artivisi.hsm.simulator.service;
 
 import com.artivisi.hsm.simulator.config.CryptoConstants;
 import com.artivisi.hsm.simulator.util.CryptoUtils;
+import com.artivisi.hsm.simulator.util.Gf256Shamir;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
@@ -28,8 +31,14 @@ import java.util.List;
 @Slf4j
 public class KeyGenerationService {
 
+    // Marks the GF(256) share serialization; the prime-field format starts with the share index
+    private static final int GF256_SHARE_MAGIC = 0x47463031; // "GF01"
+
     private final SecureRandom secureRandom;
 
+    @Value("${hsm.shamir.engine:PRIME_FIELD}")
+    private ShamirEngine shamirEngine = ShamirEngine.PRIME_FIELD;
+
     public KeyGenerationService() {
         this.secureRandom = new SecureRandom();
     }
@@ -109,7 +118,7 @@ public class KeyGenerationService {
     }
 
     /**
-     * Creates Shamir Secret Shares from a secret (master key).
+     * Creates Shamir Secret Shares from a secret (master key) with the configured engine.
      *
      * @param secret The secret to split (master key bytes)
      * @param numShares Total number of shares to generate (n)
@@ -117,7 +126,16 @@ public class KeyGenerationService {
      * @return List of shares
      */
     public List<ShamirShare> createShamirShares(byte[] secret, int numShares, int threshold) {
-        log.info("Creating Shamir shares: {} total, {} threshold", numShares, threshold);
+        return createShamirShares(secret, numShares, threshold, shamirEngine);
+    }
+
+    /**
+     * Creates Shamir Secret Shares with the given engine.
+     * PRIME_FIELD splits the secret as one number below the secp256k1 prime;
+     * GF256 splits byte-wise and accepts secrets of any length.
+     */
+    public List<ShamirShare> createShamirShares(byte[] secret, int numShares, int threshold, ShamirEngine engine) {
+        log.info("Creating Shamir shares: {} total, {} threshold, {} engine", numShares, threshold, engine);
 
         if (threshold > numShares) {
             throw new IllegalArgumentException("Threshold cannot exceed number of shares");
@@ -127,6 +145,10 @@ public class KeyGenerationService {
             throw new IllegalArgumentException("Threshold must be at least 2");
         }
 
+        if (engine == ShamirEngine.GF256) {
+            return createGf256Shares(secret, numShares, threshold);
+        }
+
         try {
             // Use a large prime number for the finite field
             // For 256-bit keys, we need a prime larger than 2^256
@@ -191,6 +213,14 @@ public class KeyGenerationService {
                     String.format("Insufficient shares: need %d, got %d", threshold, shares.size()));
         }
 
+        ShamirEngine engine = shares.get(0).getEngine();
+        if (shares.stream().anyMatch(s -> s.getEngine() != engine)) {
+            throw new IllegalArgumentException("Shares were created by different Shamir engines");
+        }
+        if (engine == ShamirEngine.GF256) {
+            return reconstructGf256Secret(shares);
+        }
+
         BigInteger prime = shares.get(0).getPrime();
 
         try {
@@ -320,6 +350,40 @@ public class KeyGenerationService {
 
     // ===== Private Helper Methods =====
 
+    private List<ShamirShare> createGf256Shares(byte[] secret, int numShares, int threshold) {
+        if (secret.length == 0) {
+            throw new IllegalArgumentException("Secret must not be empty");
+        }
+        byte[][] shareData = Gf256Shamir.split(secret, numShares, threshold, secureRandom);
+
+        List<ShamirShare> shares = new ArrayList<>(numShares);
+        for (int x = 1; x <= numShares; x++) {
+            shares.add(ShamirShare.builder()
+                    .shareIndex(x)
+                    .xValue(BigInteger.valueOf(x))
+                    .shareData(shareData[x - 1])
+                    .threshold(threshold)
+                    .engine(ShamirEngine.GF256)
+                    .build());
+        }
+
+        log.info("Successfully created {} GF(256) Shamir shares of {} bytes", shares.size(), secret.length);
+        return shares;
+    }
+
+    private byte[] reconstructGf256Secret(List<ShamirShare> shares) {
+        int[] xs = new int[shares.size()];
+        byte[][] ys = new byte[shares.size()][];
+        for (int i = 0; i < shares.size(); i++) {
+            xs[i] = shares.get(i).getShareIndex();
+            ys[i] = shares.get(i).getShareData();
+        }
+        byte[] secret = Gf256Shamir.combine(xs, ys);
+
+        log.info("Successfully reconstructed {}-byte secret from {} GF(256) shares", secret.length, shares.size());
+        return secret;
+    }
+
     private BigInteger evaluatePolynomial(List<BigInteger> coefficients, BigInteger x, BigInteger prime) {
         BigInteger result = BigInteger.ZERO;
         BigInteger xPower = BigInteger.ONE;
@@ -356,6 +420,18 @@ public class KeyGenerationService {
     }
 
     private byte[] serializeShare(ShamirShare share) {
+        if (share.getEngine() == ShamirEngine.GF256) {
+            // GF(256) serialization: magic (4 bytes) + shareIndex (4) + threshold (4) + length (4) + share bytes
+            byte[] shareData = share.getShareData();
+            byte[] result = new byte[16 + shareData.length];
+            writeInt(result, 0, GF256_SHARE_MAGIC);
+            writeInt(result, 4, share.getShareIndex());
+            writeInt(result, 8, share.getThreshold());
+            writeInt(result, 12, shareData.length);
+            System.arraycopy(shareData, 0, result, 16, shareData.length);
+            return result;
+        }
+
         // Simple serialization: shareIndex (4 bytes) + yValue bytes + prime bytes
         byte[] yBytes = share.getYValue().toByteArray();
         byte[] primeBytes = share.getPrime().toByteArray();
@@ -395,6 +471,23 @@ public class KeyGenerationService {
     }
 
     private ShamirShare deserializeShare(byte[] data) {
+        if (data.length >= 16 && readInt(data, 0) == GF256_SHARE_MAGIC) {
+            int shareIndex = readInt(data, 4);
+            int length = readInt(data, 12);
+            // copyOfRange would zero-pad a short share instead of failing
+            if (length < 0 || length > data.length - 16) {
+                throw new IllegalArgumentException(String.format(
+                        "GF256 share header declares %d bytes but only %d follow", length, data.length - 16));
+            }
+            return ShamirShare.builder()
+                    .shareIndex(shareIndex)
+                    .xValue(BigInteger.valueOf(shareIndex))
+                    .threshold(readInt(data, 8))
+                    .shareData(Arrays.copyOfRange(data, 16, 16 + length))
+                    .engine(ShamirEngine.GF256)
+                    .build();
+        }
+
         int offset = 0;
 
         // Share index
@@ -436,6 +529,20 @@ public class KeyGenerationService {
                 .build();
     }
 
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >> 24);
+        data[offset + 1] = (byte) (value >> 16);
+        data[offset + 2] = (byte) (value >> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) |
+               ((data[offset + 1] & 0xFF) << 16) |
+               ((data[offset + 2] & 0xFF) << 8) |
+               (data[offset + 3] & 0xFF);
+    }
+
 
     // ===== Result Classes =====
 
@@ -453,8 +560,20 @@ public class KeyGenerationService {
     public static class ShamirShare {
         private int shareIndex;
         private BigInteger xValue;
-        private BigInteger yValue;
-        private BigInteger prime;
+        private BigInteger yValue;      // PRIME_FIELD only
+        private BigInteger prime;       // PRIME_FIELD only
+        private byte[] shareData;       // GF256 only, same length as the secret
         private int threshold;
+        @Builder.Default
+        private ShamirEngine engine = ShamirEngine.PRIME_FIELD;
+    }
+
+    /**
+     * Shamir arithmetic: PRIME_FIELD is the original BigInteger engine over the secp256k1 prime,
+     * still used to read existing share files; GF256 is the byte-wise engine over GF(2^8).
+     */
+    public enum ShamirEngine {
+        PRIME_FIELD,
+        GF256
     }
 }
@@ -0,0 +1,201 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.KeyHierarchyNode;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Key hierarchy queries over key metadata only.
+ * Summaries use a parent→children index built in one pass; the UI API loads one level
+ * (or a bounded subtree) at a time using the parent_key_id index. A key whose parent no
+ * longer exists is treated as a root.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class KeyHierarchyService {
+
+    public static final int MAX_CHILDREN_PER_NODE = 500;
+    public static final int MAX_SUBTREE_DEPTH = 3;
+    public static final int MAX_SUBTREE_NODES = 2000;
+
+    private final MasterKeyRepository masterKeyRepository;
+
+    /**
+     * Parent→children index over all keys, built in O(n)
+     */
+    public HierarchyIndex buildIndex() {
+        return new HierarchyIndex(masterKeyRepository.findAllHierarchyNodes());
+    }
+
+    /**
+     * Summary used by key initialization: counts by type and "child → parent" relations
+     */
+    public Map<String, Object> buildSummary() {
+        HierarchyIndex index = buildIndex();
+
+        Map<KeyType, Long> keysByType = new EnumMap<>(KeyType.class);
+        List<String> parentChildRelations = new ArrayList<>();
+        for (KeyHierarchyNode node : index.nodes()) {
+            keysByType.merge(node.getKeyType(), 1L, Long::sum);
+            if (node.getParentKeyId() != null) {
+                KeyHierarchyNode parent = index.get(node.getParentKeyId());
+                parentChildRelations.add(node.getMasterKeyId() + " → "
+                        + (parent != null ? parent.getMasterKeyId() : "UNKNOWN"));
+            }
+        }
+
+        Map<String, Object> hierarchy = new HashMap<>();
+        hierarchy.put("totalKeys", index.size());
+        hierarchy.put("keysByType", keysByType);
+        hierarchy.put("parentChildRelations", parentChildRelations);
+        return hierarchy;
+    }
+
+    /**
+     * Top-level keys (no parent), one page at a time
+     */
+    public List<KeyHierarchyNode> findRoots(int page, int size) {
+        List<KeyHierarchyNode> roots = masterKeyRepository.findRootHierarchyNodes(limit(page, size));
+        fillChildCounts(roots);
+        return roots;
+    }
+
+    /**
+     * Direct children of a key, one page at a time
+     */
+    public List<KeyHierarchyNode> findChildren(UUID parentId, int page, int size) {
+        List<KeyHierarchyNode> children = masterKeyRepository.findChildHierarchyNodes(parentId, limit(page, size));
+        fillChildCounts(children);
+        return children;
+    }
+
+    /**
+     * One subtree rooted at the key, expanded to the given depth with at most {@link #MAX_SUBTREE_NODES}
+     * nodes; deeper levels and children beyond the cap are left for lazy loading.
+     * Each level costs one query for the children and one for their child counts.
+     */
+    public KeyHierarchyNode findSubtree(UUID keyId, int depth, int childrenPerNode) {
+        if (depth < 0 || depth > MAX_SUBTREE_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 0 and " + MAX_SUBTREE_DEPTH);
+        }
+        limit(0, childrenPerNode);
+        KeyHierarchyNode root = masterKeyRepository.findHierarchyNode(keyId)
+                .orElseThrow(() -> new IllegalArgumentException("Key not found: " + keyId));
+        fillChildCounts(List.of(root));
+
+        List<KeyHierarchyNode> level = List.of(root);
+        int budget = MAX_SUBTREE_NODES - 1;
+        for (int d = 0; d < depth && budget > 0; d++) {
+            Map<UUID, KeyHierarchyNode> parents = new LinkedHashMap<>();
+            level.stream().filter(node -> node.getChildCount() > 0).forEach(node -> parents.put(node.getId(), node));
+            if (parents.isEmpty()) {
+                break;
+            }
+            List<KeyHierarchyNode> children = masterKeyRepository
+                    .findChildHierarchyRows(parents.keySet(), childrenPerNode, budget).stream()
+                    .map(KeyHierarchyService::toNode)
+                    .toList();
+            Map<UUID, List<KeyHierarchyNode>> byParent = new HashMap<>();
+            for (KeyHierarchyNode child : children) {
+                byParent.computeIfAbsent(child.getParentKeyId(), k -> new ArrayList<>()).add(child);
+            }
+            byParent.forEach((parentId, loaded) -> {
+                KeyHierarchyNode parent = parents.get(parentId);
+                parent.setChildren(loaded);
+                parent.setMoreChildren(parent.getChildCount() > loaded.size());
+            });
+            fillChildCounts(children);
+            budget -= children.size();
+            level = children;
+        }
+        return root;
+    }
+
+    private static KeyHierarchyNode toNode(Object[] row) {
+        return new KeyHierarchyNode((UUID) row[0], (String) row[1], KeyType.valueOf((String) row[2]),
+                MasterKey.KeyStatus.valueOf((String) row[3]), (UUID) row[4], (UUID) row[5]);
+    }
+
+    private void fillChildCounts(List<KeyHierarchyNode> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        Map<UUID, KeyHierarchyNode> byId = new HashMap<>();
+        nodes.forEach(node -> byId.put(node.getId(), node));
+        for (Object[] row : masterKeyRepository.countChildrenByParent(byId.keySet())) {
+            byId.get((UUID) row[0]).setChildCount(((Number) row[1]).longValue());
+        }
+    }
+
+    private PageRequest limit(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_CHILDREN_PER_NODE) {
+            throw new IllegalArgumentException("Page must be >= 0 and size between 1 and " + MAX_CHILDREN_PER_NODE);
+        }
+        return PageRequest.of(page, size);
+    }
+
+    /**
+     * In-memory hierarchy index: id → node and parent id → children
+     */
+    public static class HierarchyIndex {
+
+        private final List<KeyHierarchyNode> nodes;
+        private final Map<UUID, KeyHierarchyNode> byId;
+        private final Map<UUID, List<KeyHierarchyNode>> childrenByParent;
+        private final List<KeyHierarchyNode> roots = new ArrayList<>();
+
+        HierarchyIndex(List<KeyHierarchyNode> nodes) {
+            this.nodes = nodes;
+            byId = HashMap.newHashMap(nodes.size());
+            childrenByParent = new HashMap<>();
+            for (KeyHierarchyNode node : nodes) {
+                byId.put(node.getId(), node);
+            }
+            for (KeyHierarchyNode node : nodes) {
+                UUID parentId = node.getParentKeyId();
+                if (parentId != null && byId.containsKey(parentId)) {
+                    childrenByParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(node);
+                } else {
+                    roots.add(node);
+                }
+            }
+            childrenByParent.forEach((parentId, children) -> byId.get(parentId).setChildCount(children.size()));
+        }
+
+        public KeyHierarchyNode get(UUID id) {
+            return byId.get(id);
+        }
+
+        public List<KeyHierarchyNode> childrenOf(UUID id) {
+            return childrenByParent.getOrDefault(id, List.of());
+        }
+
+        public List<KeyHierarchyNode> roots() {
+            return roots;
+        }
+
+        public List<KeyHierarchyNode> nodes() {
+            return nodes;
+        }
+
+        public int size() {
+            return byId.size();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.artivisi.hsm.simulator.service;
 
+import com.artivisi.hsm.simulator.dto.BulkInitProgress;
+import com.artivisi.hsm.simulator.dto.KeySummary;
 import com.artivisi.hsm.simulator.entity.Bank;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
@@ -20,6 +22,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +38,9 @@ public class KeyInitializationService {
     private final BankRepository bankRepository;
     private final TerminalRepository terminalRepository;
     private final KeyOperationService keyOperationService;
+    private final BulkKeyInitializationService bulkKeyInitializationService;
+    private final KeyHierarchyService keyHierarchyService;
+    private final ListingCounterService listingCounterService;
     private final SecureRandom secureRandom = new SecureRandom();
 
     /**
@@ -48,6 +54,16 @@ public class KeyInitializationService {
      */
     @Transactional
     public Map<String, Object> initializeAllKeys(boolean clearExisting, Integer keySize, String bankCode, String shareZoneKeysWith) {
+        return initializeAllKeys(clearExisting, keySize, bankCode, shareZoneKeysWith, progress -> { });
+    }
+
+    /**
+     * Same as {@link #initializeAllKeys(boolean, Integer, String, String)}, reporting terminal key
+     * progress to the listener after every batch
+     */
+    @Transactional
+    public Map<String, Object> initializeAllKeys(boolean clearExisting, Integer keySize, String bankCode,
+                                                 String shareZoneKeysWith, Consumer<BulkInitProgress> progressListener) {
         log.info("========================================");
         log.info("KEY INITIALIZATION - COMPLETE KEY SET");
         log.info("========================================");
@@ -105,12 +121,8 @@ public class KeyInitializationService {
                 Bank sourceBank = bankRepository.findByBankCode(shareZoneKeysWith)
                         .orElseThrow(() -> new RuntimeException("Source bank not found for zone key sharing: " + shareZoneKeysWith));
 
-                List<MasterKey> zoneKeys = masterKeyRepository.findAll().stream()
-                        .filter(key -> key.getIdBank() != null && key.getIdBank().equals(sourceBank.getId()))
-                        .filter(key -> key.getKeyType() == KeyType.ZMK ||
-                                     key.getKeyType() == KeyType.ZPK ||
-                                     key.getKeyType() == KeyType.ZSK)
-                        .collect(Collectors.toList());
+                List<MasterKey> zoneKeys = masterKeyRepository.findByIdBankAndKeyTypeIn(
+                        sourceBank.getId(), List.of(KeyType.ZMK, KeyType.ZPK, KeyType.ZSK));
 
                 for (MasterKey key : zoneKeys) {
                     sourceZoneKeys.put(key.getKeyType(), key);
@@ -152,19 +164,12 @@ public class KeyInitializationService {
                 keysForBank.add(zmk.getMasterKeyId());
                 createdKeys.add(zmk.getMasterKeyId());
 
-                // Create child keys for terminals (TPK, TSK)
+                // Create child keys for terminals (TPK, TSK) - derived in parallel, inserted in batches
                 List<Terminal> terminals = terminalRepository.findByBank(bank);
-                for (Terminal terminal : terminals) {
-                    // TPK (Terminal PIN Key) - child of TMK
-                    MasterKey tpk = createTPK(tmk, terminal, keySize);
-                    keysForBank.add(tpk.getMasterKeyId());
-                    createdKeys.add(tpk.getMasterKeyId());
-
-                    // TSK (Terminal Security Key) - child of TMK
-                    MasterKey tsk = createTSK(tmk, terminal, keySize);
-                    keysForBank.add(tsk.getMasterKeyId());
-                    createdKeys.add(tsk.getMasterKeyId());
-                }
+                List<String> terminalKeyIds = bulkKeyInitializationService.createTerminalKeys(
+                        bank.getBankCode(), tmk, terminals, progressListener);
+                keysForBank.addAll(terminalKeyIds);
+                createdKeys.addAll(terminalKeyIds);
 
                 // Create zone keys for inter-bank communication
                 // ZPK (Zone PIN Key) - child of ZMK - or copy from source
@@ -204,7 +209,7 @@ public class KeyInitializationService {
             result.put("banksConfigured", banks.size());
             result.put("createdKeys", createdKeys);
             result.put("keysByBank", bankKeys);
-            result.put("keyHierarchy", buildKeyHierarchySummary());
+            result.put("keyHierarchy", keyHierarchyService.buildSummary());
 
             return result;
 
@@ -228,26 +233,16 @@ public class KeyInitializationService {
                 .map(Terminal::getId)
                 .collect(Collectors.toList());
 
-        // Find and delete all keys associated with this bank
-        List<MasterKey> bankKeys = masterKeyRepository.findAll().stream()
-                .filter(key -> {
-                    // Keys directly linked to the bank
-                    if (key.getIdBank() != null && key.getIdBank().equals(bank.getId())) {
-                        return true;
-                    }
-                    // Keys linked to terminals of this bank
-                    if (key.getIdTerminal() != null && terminalIds.contains(key.getIdTerminal())) {
-                        return true;
-                    }
-                    return false;
-                })
-                .collect(Collectors.toList());
+        // Find and delete all keys linked to this bank or its terminals, without loading key material
+        List<KeySummary> bankKeys = masterKeyRepository.findSummariesByBankOrTerminals(bank.getId(), terminalIds);
 
-        for (MasterKey key : bankKeys) {
+        for (KeySummary key : bankKeys) {
             log.info("Deleting key: {} ({})", key.getMasterKeyId(), key.getKeyType());
             clearedKeys.add(key.getMasterKeyId());
-            masterKeyRepository.delete(key);
         }
+        masterKeyRepository.deleteAllByIdInBatch(bankKeys.stream().map(KeySummary::getId).toList());
+        // Batch deletes bypass Hibernate events
+        listingCounterService.reconcile();
 
         return clearedKeys;
     }
@@ -258,14 +253,15 @@ public class KeyInitializationService {
     private List<String> clearAllKeys() {
         List<String> clearedKeys = new ArrayList<>();
 
-        List<MasterKey> allKeys = masterKeyRepository.findAll();
-        for (MasterKey key : allKeys) {
+        List<KeySummary> allKeys = masterKeyRepository.findAllSummaries();
+        for (KeySummary key : allKeys) {
             log.info("Deleting key: {} ({})", key.getMasterKeyId(), key.getKeyType());
             clearedKeys.add(key.getMasterKeyId());
         }
 
-        // Delete all at once for efficiency
-        masterKeyRepository.deleteAll();
+        // Single DELETE statement instead of loading and removing every entity
+        masterKeyRepository.deleteAllInBatch();
+        listingCounterService.reconcile();
 
         return clearedKeys;
     }
@@ -348,34 +344,6 @@ public class KeyInitializationService {
         return masterKeyRepository.save(key);
     }
 
-    /**
-     * Create TPK (Terminal PIN Key) - child of TMK using PBKDF2 derivation
-     */
-    private MasterKey createTPK(MasterKey tmk, Terminal terminal, Integer keySize) {
-        log.debug("Creating TPK for terminal {} using PBKDF2 derivation from TMK {}",
-                  terminal.getTerminalId(), tmk.getMasterKeyId());
-
-        return keyOperationService.generateTPK(
-            tmk.getId(),
-            terminal.getId(),
-            "Auto-generated during key initialization"
-        );
-    }
-
-    /**
-     * Create TSK (Terminal Security Key) - child of TMK using PBKDF2 derivation
-     */
-    private MasterKey createTSK(MasterKey tmk, Terminal terminal, Integer keySize) {
-        log.debug("Creating TSK for terminal {} using PBKDF2 derivation from TMK {}",
-                  terminal.getTerminalId(), tmk.getMasterKeyId());
-
-        return keyOperationService.generateTSK(
-            tmk.getId(),
-            terminal.getId(),
-            "Auto-generated during key initialization"
-        );
-    }
-
     /**
      * Create ZPK (Zone PIN Key) - child of ZMK using PBKDF2 derivation
      */
@@ -404,39 +372,6 @@ public class KeyInitializationService {
         );
     }
 
-    /**
-     * Build key hierarchy summary
-     */
-    private Map<String, Object> buildKeyHierarchySummary() {
-        Map<String, Object> hierarchy = new HashMap<>();
-
-        List<MasterKey> allKeys = masterKeyRepository.findAll();
-
-        // Count by type
-        Map<KeyType, Long> keysByType = allKeys.stream()
-                .collect(Collectors.groupingBy(MasterKey::getKeyType, Collectors.counting()));
-
-        hierarchy.put("totalKeys", allKeys.size());
-        hierarchy.put("keysByType", keysByType);
-
-        // Parent-child relationships
-        List<String> parentChildRelations = allKeys.stream()
-                .filter(key -> key.getParentKeyId() != null)
-                .map(key -> {
-                    String parentKeyId = allKeys.stream()
-                            .filter(parent -> parent.getId().equals(key.getParentKeyId()))
-                            .map(MasterKey::getMasterKeyId)
-                            .findFirst()
-                            .orElse("UNKNOWN");
-                    return key.getMasterKeyId() + " → " + parentKeyId;
-                })
-                .collect(Collectors.toList());
-
-        hierarchy.put("parentChildRelations", parentChildRelations);
-
-        return hierarchy;
-    }
-
     /**
      * Copy zone key from source bank to target bank (for shared HSM setup)
      */
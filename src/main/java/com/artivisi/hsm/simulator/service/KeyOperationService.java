@@ -83,27 +83,7 @@ public class KeyOperationService {
             throw new IllegalArgumentException("Parent key must be TMK, got: " + tmk.getKeyType());
         }
 
-        byte[] keyData = deriveKeyFromParent(tmk.getKeyData(), "TPK", terminal.getTerminalId());
-        String masterKeyId = generateKeyId("TPK", terminal.getTerminalId());
-
-        MasterKey tpk = MasterKey.builder()
-                .masterKeyId(masterKeyId)
-                .parentKeyId(tmk.getId())
-                .idBank(terminal.getBank().getId())
-                .idTerminal(terminal.getId())
-                .keyType(KeyType.TPK)
-                .algorithm("AES")
-                .keySize(tmk.getKeySize())
-                .keyData(keyData)
-                .keyFingerprint(generateFingerprint(keyData))
-                .keyChecksum(generateChecksum(keyData))
-                .combinedEntropyHash(generateEntropyHash(keyData))
-                .generationMethod("DERIVED")
-                .kdfIterations(100000)
-                .kdfSalt(terminal.getTerminalId())
-                .status(MasterKey.KeyStatus.ACTIVE)
-                .activatedAt(LocalDateTime.now())
-                .build();
+        MasterKey tpk = buildDerivedTerminalKey(tmk, terminal, KeyType.TPK);
 
         return masterKeyRepository.save(tpk);
     }
@@ -125,15 +105,34 @@ public class KeyOperationService {
             throw new IllegalArgumentException("Parent key must be TMK, got: " + tmk.getKeyType());
         }
 
-        byte[] keyData = deriveKeyFromParent(tmk.getKeyData(), "TSK", terminal.getTerminalId());
-        String masterKeyId = generateKeyId("TSK", terminal.getTerminalId());
+        MasterKey tsk = buildDerivedTerminalKey(tmk, terminal, KeyType.TSK);
 
-        MasterKey tsk = MasterKey.builder()
+        return masterKeyRepository.save(tsk);
+    }
+
+    /**
+     * Build (without saving) a TPK or TSK derived from the TMK for a terminal.
+     * The salt is the terminal ID plus a random nonce, so every call (including each rotation)
+     * yields a new key; the salt is kept in kdfSalt so the key can be re-derived from the TMK.
+     * Pure computation with no repository access, so it is safe to call from parallel workers.
+     */
+    public MasterKey buildDerivedTerminalKey(MasterKey tmk, Terminal terminal, KeyType keyType) {
+        if (keyType != KeyType.TPK && keyType != KeyType.TSK) {
+            throw new IllegalArgumentException("Terminal key type must be TPK or TSK, got: " + keyType);
+        }
+
+        byte[] nonce = new byte[16];
+        secureRandom.nextBytes(nonce);
+        String kdfSalt = terminal.getTerminalId() + ":" + CryptoUtils.bytesToHex(nonce);
+        byte[] keyData = deriveKeyFromParent(tmk.getKeyData(), keyType.name(), kdfSalt);
+        String masterKeyId = generateKeyId(keyType.name(), terminal.getTerminalId());
+
+        return MasterKey.builder()
                 .masterKeyId(masterKeyId)
                 .parentKeyId(tmk.getId())
                 .idBank(terminal.getBank().getId())
                 .idTerminal(terminal.getId())
-                .keyType(KeyType.TSK)
+                .keyType(keyType)
                 .algorithm("AES")
                 .keySize(tmk.getKeySize())
                 .keyData(keyData)
@@ -142,12 +141,10 @@ public class KeyOperationService {
                 .combinedEntropyHash(generateEntropyHash(keyData))
                 .generationMethod("DERIVED")
                 .kdfIterations(100000)
-                .kdfSalt(terminal.getTerminalId())
+                .kdfSalt(kdfSalt)
                 .status(MasterKey.KeyStatus.ACTIVE)
                 .activatedAt(LocalDateTime.now())
                 .build();
-
-        return masterKeyRepository.save(tsk);
     }
 
     /**
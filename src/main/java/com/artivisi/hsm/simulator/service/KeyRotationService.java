@@ -1,22 +1,24 @@
 package com.artivisi.hsm.simulator.service;
 
-import com.artivisi.hsm.simulator.config.CryptoConstants;
 import com.artivisi.hsm.simulator.dto.*;
 import com.artivisi.hsm.simulator.entity.*;
 import com.artivisi.hsm.simulator.repository.*;
-import com.artivisi.hsm.simulator.util.CryptoUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.ToIntFunction;
 
 /**
  * Service for managing cryptographic key rotation with participant tracking.
@@ -27,13 +29,22 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class KeyRotationService {
 
+    private static final int TRANSITION_ATTEMPTS = 3;
+    private static final String AUTO_COMPLETE_ACTOR = "SYSTEM:AUTO_COMPLETE";
+
     private final MasterKeyRepository masterKeyRepository;
     private final KeyRotationHistoryRepository rotationHistoryRepository;
     private final RotationParticipantRepository participantRepository;
     private final TerminalRepository terminalRepository;
     private final BankRepository bankRepository;
     private final KeyOperationService keyOperationService;
-    private final SecureRandom secureRandom = new SecureRandom();
+    private final RotationProgressService rotationProgressService;
+    private final TerminalKeyPushService terminalKeyPushService;
+    private final RotationDeliveryCache rotationDeliveryCache;
+    private final RotationExpiryService rotationExpiryService;
+    private final RotationKeyResolver rotationKeyResolver;
+    private final RotationEventService rotationEventService;
+    private final PlatformTransactionManager transactionManager;
 
     /**
      * Terminal-initiated key rotation (auto-approved).
@@ -78,29 +89,25 @@ public class KeyRotationService {
 
         // Initiate rotation (auto-approved)
         String initiatedBy = "TERMINAL:" + request.getTerminalId();
-        KeyRotationResponse response = initiateRotation(rotationRequest, initiatedBy);
+        // The requesting terminal gets its key in this response, so nothing is pushed
+        KeyRotationResponse response = initiateRotation(rotationRequest, initiatedBy, false);
 
         // Immediately deliver encrypted new key (streamlined for terminal-initiated)
         KeyRotationHistory rotation = rotationHistoryRepository.findById(response.getRotationId())
                 .orElseThrow(() -> new IllegalStateException("Rotation not found after creation"));
 
         // Find participant record
-        RotationParticipant participant = participantRepository.findByRotation(rotation).stream()
-                .filter(p -> p.getTerminal() != null && p.getTerminal().getId().equals(terminal.getId()))
-                .findFirst()
+        RotationParticipant participant = participantRepository
+                .findFirstByRotation_IdAndTerminal_Id(rotation.getId(), terminal.getId())
                 .orElseThrow(() -> new IllegalStateException("Participant not found after rotation creation"));
 
-        // Encrypt new key under current key
-        byte[] oldKeyData = rotation.getOldKey().getKeyData();
-        byte[] newKeyData = rotation.getNewKey().getKeyData();
-        String encryptedNewKey = encryptKeyForDelivery(newKeyData, oldKeyData);
+        // New key encrypted under current key, prepared when the rotation was created
+        String encryptedNewKey = rotationDeliveryCache.payloadFor(rotation, terminal.getId());
 
         // Mark participant as DELIVERED
-        participant.setUpdateStatus(RotationParticipant.UpdateStatus.DELIVERED);
-        participant.setNewKeyDeliveredAt(LocalDateTime.now());
-        participant.setDeliveryAttempts(1);
-        participant.setLastDeliveryAttempt(LocalDateTime.now());
-        participantRepository.save(participant);
+        markDelivered(rotation, participant);
+        rotationEventService.record(rotation, RotationEvent.EventType.DELIVERED,
+                terminal.getTerminalId(), terminalActor(terminal), null);
 
         log.info("New key delivered immediately to terminal: {}", request.getTerminalId());
 
@@ -111,15 +118,12 @@ public class KeyRotationService {
         response.setGracePeriodEndsAt(calculateGracePeriodEnd(rotation).toString());
 
         // Update message for immediate delivery
-        long pending = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.PENDING);
-        long delivered = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.DELIVERED);
+        RotationProgress progress = rotationProgressService.getProgress(rotation.getId());
 
         response.setMessage(String.format(
                 "Terminal-initiated rotation started. New key delivered immediately. " +
                 "Please install and confirm. (Pending: %d, Delivered: %d)",
-                pending, delivered));
+                progress.pending(), progress.delivered()));
 
         return response;
     }
@@ -130,6 +134,10 @@ public class KeyRotationService {
      */
     @Transactional
     public KeyRotationResponse initiateRotation(KeyRotationRequest request, String initiatedBy) {
+        return initiateRotation(request, initiatedBy, true);
+    }
+
+    private KeyRotationResponse initiateRotation(KeyRotationRequest request, String initiatedBy, boolean pushToTerminals) {
         log.info("Initiating key rotation for key: {}, type: {}, reason: {}",
                 request.getKeyId(), request.getRotationType(), request.getReason());
 
@@ -146,6 +154,8 @@ public class KeyRotationService {
 
         // Create rotation history record
         String rotationIdString = generateRotationId(oldKey.getKeyType());
+        LocalDateTime startedAt = LocalDateTime.now();
+        int gracePeriodHours = request.getGracePeriodHours() != null ? request.getGracePeriodHours() : 24;
         KeyRotationHistory rotation = KeyRotationHistory.builder()
                 .rotationId(rotationIdString)
                 .oldKey(oldKey)
@@ -154,14 +164,30 @@ public class KeyRotationService {
                 .rotationReason(request.getReason())
                 .rotationInitiatedBy(initiatedBy)
                 .rotationStatus(KeyRotationHistory.RotationStatus.IN_PROGRESS)
-                .rotationStartedAt(LocalDateTime.now())
+                .rotationStartedAt(startedAt)
+                .gracePeriodEndsAt(startedAt.plusHours(gracePeriodHours))
+                .autoComplete(!Boolean.FALSE.equals(request.getAutoComplete()))
                 .build();
 
         rotation = rotationHistoryRepository.save(rotation);
+        rotationExpiryService.scheduleRotation(rotation.getId(), rotation.getGracePeriodEndsAt());
+        rotationKeyResolver.rotationChanged(rotation);
 
         // Identify and register participants
         List<RotationParticipant> participants = identifyParticipants(oldKey, rotation);
         participantRepository.saveAll(participants);
+        rotationProgressService.participantsAdded(rotation.getId(),
+                RotationParticipant.UpdateStatus.PENDING, participants.size());
+        rotationDeliveryCache.prepare(rotation, participants.stream()
+                .filter(p -> p.getTerminal() != null)
+                .map(p -> p.getTerminal().getId())
+                .toList());
+        if (pushToTerminals) {
+            terminalKeyPushService.rotationStarted(rotation, participants.stream()
+                    .filter(p -> p.getTerminal() != null)
+                    .map(p -> p.getTerminal().getTerminalId())
+                    .toList());
+        }
 
         rotation.setAffectedTerminalsCount((int) participants.stream()
                 .filter(p -> p.getParticipantType() == RotationParticipant.ParticipantType.TERMINAL)
@@ -171,6 +197,9 @@ public class KeyRotationService {
                 .count());
 
         rotation = rotationHistoryRepository.save(rotation);
+        rotationEventService.record(rotation, RotationEvent.EventType.INITIATED, null, initiatedBy,
+                String.format("%s %s rotation of %s, %d participants", request.getRotationType(),
+                        oldKey.getKeyType(), oldKey.getMasterKeyId(), participants.size()));
 
         // Link new key to old key for rotation tracking
         newKey.setRotatedFromKeyId(oldKey.getId());
@@ -209,9 +238,8 @@ public class KeyRotationService {
         }
 
         // Find participant record
-        RotationParticipant participant = participantRepository.findByRotation(rotation).stream()
-                .filter(p -> p.getTerminal() != null && p.getTerminal().getId().equals(terminal.getId()))
-                .findFirst()
+        RotationParticipant participant = participantRepository
+                .findFirstByRotation_IdAndTerminal_Id(rotation.getId(), terminal.getId())
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Terminal not involved in this rotation: " + request.getTerminalId()));
 
@@ -225,25 +253,25 @@ public class KeyRotationService {
             if (!expectedChecksum.equalsIgnoreCase(request.getCurrentKeyChecksum())) {
                 log.warn("Key checksum mismatch for terminal {}: expected {}, got {}",
                         request.getTerminalId(), expectedChecksum, request.getCurrentKeyChecksum());
-                participant.setFailureReason("Key checksum mismatch");
-                participant.setUpdateStatus(RotationParticipant.UpdateStatus.FAILED);
-                participantRepository.save(participant);
+                LocalDateTime now = LocalDateTime.now();
+                transitionParticipant(rotation, participant, RotationParticipant.UpdateStatus.FAILED,
+                        from -> participantRepository.markFailed(participant.getId(), from,
+                                RotationParticipant.UpdateStatus.FAILED, "Key checksum mismatch", now));
+                rotationEventService.record(rotation, RotationEvent.EventType.FAILED, terminal.getTerminalId(),
+                        terminalActor(terminal), "Key checksum mismatch");
                 throw new IllegalArgumentException("Current key checksum does not match");
             }
         }
 
-        // Encrypt new key under current (old) terminal key for secure delivery
-        String encryptedNewKey = encryptKeyForDelivery(
-                rotation.getNewKey().getKeyData(),
-                rotation.getOldKey().getKeyData()
-        );
+        // New key encrypted under current (old) key, looked up from the rotation's delivery cache
+        String encryptedNewKey = rotationDeliveryCache.payloadFor(rotation, terminal.getId());
 
-        // Update participant status
-        participant.setUpdateStatus(RotationParticipant.UpdateStatus.DELIVERED);
-        participant.setNewKeyDeliveredAt(LocalDateTime.now());
-        participant.setDeliveryAttempts(participant.getDeliveryAttempts() + 1);
-        participant.setLastDeliveryAttempt(LocalDateTime.now());
-        participantRepository.save(participant);
+        // Update participant status; a confirmation that got there first wins
+        if (markDelivered(rotation, participant).isEmpty()) {
+            throw new IllegalStateException("Terminal already updated: " + request.getTerminalId());
+        }
+        rotationEventService.record(rotation, RotationEvent.EventType.DELIVERED,
+                terminal.getTerminalId(), terminalActor(terminal), null);
 
         log.info("New key delivered to terminal: {}", request.getTerminalId());
 
@@ -272,9 +300,8 @@ public class KeyRotationService {
                 .orElseThrow(() -> new IllegalArgumentException("Terminal not found: " + terminalId));
 
         // Find participant record
-        RotationParticipant participant = participantRepository.findByRotation(rotation).stream()
-                .filter(p -> p.getTerminal() != null && p.getTerminal().getId().equals(terminal.getId()))
-                .findFirst()
+        RotationParticipant participant = participantRepository
+                .findFirstByRotation_IdAndTerminal_Id(rotation.getId(), terminal.getId())
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Terminal not involved in this rotation: " + terminalId));
 
@@ -284,16 +311,26 @@ public class KeyRotationService {
         }
 
         // Mark as confirmed
-        participant.setUpdateStatus(RotationParticipant.UpdateStatus.CONFIRMED);
-        participant.setUpdateConfirmedAt(LocalDateTime.now());
-        participant.setUpdateConfirmedBy(confirmedBy);
-        participantRepository.save(participant);
+        LocalDateTime now = LocalDateTime.now();
+        Optional<RotationParticipant.UpdateStatus> confirmed = transitionParticipant(rotation, participant,
+                RotationParticipant.UpdateStatus.CONFIRMED,
+                from -> participantRepository.markConfirmed(participant.getId(), from,
+                        RotationParticipant.UpdateStatus.CONFIRMED, confirmedBy, now));
+        if (confirmed.isEmpty()) {
+            log.warn("Terminal {} already confirmed update for rotation {}", terminalId, rotationId);
+            return buildRotationResponse(rotation);
+        }
 
         log.info("Terminal {} confirmed key update successfully", terminalId);
+        rotationDeliveryCache.confirmed(rotation.getId(), terminal.getId());
+        rotationEventService.record(rotation, RotationEvent.EventType.CONFIRMED, terminalId, confirmedBy, null);
+        // The terminal's confirmed key is now tried first
+        rotationKeyResolver.rotationChanged(rotation);
 
         // Check if all participants have confirmed
-        checkAndCompleteRotation(rotation);
-
+        if (checkAndCompleteRotation(rotation)) {
+            return buildRotationResponse(rotation, KeyRotationHistory.RotationStatus.COMPLETED);
+        }
         return buildRotationResponse(rotation);
     }
 
@@ -324,8 +361,7 @@ public class KeyRotationService {
         }
 
         // Check pending participants
-        long pendingCount = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.PENDING);
+        long pendingCount = rotationProgressService.getProgress(rotation.getId()).pending();
 
         if (pendingCount > 0) {
             log.warn("Completing rotation with {} pending participants", pendingCount);
@@ -343,6 +379,10 @@ public class KeyRotationService {
         rotation.setRotationCompletedAt(LocalDateTime.now());
         rotation.setRotationApprovedBy(completedBy);
         rotationHistoryRepository.save(rotation);
+        rotationEventService.record(rotation, RotationEvent.EventType.COMPLETED, null, completedBy,
+                pendingCount > 0 ? String.format("Completed manually with %d participants pending", pendingCount) : null);
+        rotationDeliveryCache.evict(rotation.getId());
+        rotationKeyResolver.rotationChanged(rotation);
 
         log.info("Rotation completed successfully. Old key {} marked as ROTATED", oldKey.getMasterKeyId());
 
@@ -381,6 +421,9 @@ public class KeyRotationService {
         rotation.setRollbackCompletedAt(LocalDateTime.now());
         rotation.setNotes("Rollback reason: " + reason + " | Rolled back by: " + rolledBackBy);
         rotationHistoryRepository.save(rotation);
+        rotationEventService.record(rotation, RotationEvent.EventType.ROLLED_BACK, null, rolledBackBy, reason);
+        rotationDeliveryCache.evict(rotation.getId());
+        rotationKeyResolver.rotationChanged(rotation);
 
         log.info("Rotation rolled back successfully");
 
@@ -485,75 +528,121 @@ public class KeyRotationService {
     }
 
     /**
-     * Encrypt new key under old key for secure delivery to terminal.
+     * Mark a participant DELIVERED; empty when it already confirmed.
      */
-    private String encryptKeyForDelivery(byte[] newKeyData, byte[] oldKeyData) {
-        try {
-            // Derive operational key from old master key for encryption
-            String context = "KEY_DELIVERY:ROTATION";
-            byte[] encryptionKey = CryptoUtils.deriveKeyFromParent(oldKeyData, context, 128);
-
-            // Generate random IV
-            byte[] iv = new byte[CryptoConstants.CBC_IV_BYTES];
-            secureRandom.nextBytes(iv);
-
-            // Encrypt new key
-            Cipher cipher = Cipher.getInstance(CryptoConstants.PIN_CIPHER);
-            SecretKeySpec keySpec = new SecretKeySpec(encryptionKey, CryptoConstants.MASTER_KEY_ALGORITHM);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
+    private Optional<RotationParticipant.UpdateStatus> markDelivered(KeyRotationHistory rotation,
+                                                                     RotationParticipant participant) {
+        LocalDateTime now = LocalDateTime.now();
+        return transitionParticipant(rotation, participant, RotationParticipant.UpdateStatus.DELIVERED,
+                from -> participantRepository.markDelivered(participant.getId(), from,
+                        RotationParticipant.UpdateStatus.DELIVERED, now));
+    }
 
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-            byte[] encrypted = cipher.doFinal(newKeyData);
+    /**
+     * Apply a participant status change as a conditional UPDATE on the status it was read with.
+     * If a concurrent request moved the participant first, the status is re-read and the change retried.
+     * Returns the status the participant moved from, or empty when it is already CONFIRMED.
+     * The loaded entity is left untouched, so it is never flushed over the newer row.
+     */
+    private Optional<RotationParticipant.UpdateStatus> transitionParticipant(
+            KeyRotationHistory rotation, RotationParticipant participant,
+            RotationParticipant.UpdateStatus to, ToIntFunction<RotationParticipant.UpdateStatus> update) {
+        RotationParticipant.UpdateStatus from = participant.getUpdateStatus();
+        for (int attempt = 0; attempt < TRANSITION_ATTEMPTS; attempt++) {
+            if (from == RotationParticipant.UpdateStatus.CONFIRMED) {
+                return Optional.empty();
+            }
+            if (update.applyAsInt(from) == 1) {
+                rotationProgressService.transition(rotation.getId(), from, to);
+                return Optional.of(from);
+            }
+            from = participantRepository.findUpdateStatus(participant.getId())
+                    .orElseThrow(() -> new IllegalStateException("Participant not found: " + participant.getId()));
+        }
+        throw new IllegalStateException("Participant " + participant.getId() + " is being updated concurrently, retry");
+    }
 
-            // Prepend IV
-            byte[] result = new byte[iv.length + encrypted.length];
-            System.arraycopy(iv, 0, result, 0, iv.length);
-            System.arraycopy(encrypted, 0, result, iv.length, encrypted.length);
+    /**
+     * Check if all participants have confirmed and auto-complete if enabled.
+     * Confirmations committing concurrently do not see each other, so when others are still
+     * outstanding the check is repeated after commit; the last confirmation to commit completes.
+     */
+    private boolean checkAndCompleteRotation(KeyRotationHistory rotation) {
+        if (Boolean.FALSE.equals(rotation.getAutoComplete())) {
+            return false;
+        }
+        if (rotationProgressService.getProgress(rotation.getId()).outstanding() == 0) {
+            return autoComplete(rotation);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            UUID rotationId = rotation.getId();
+            // Registered after the progress counters' hook, so it sees this commit's counts
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    completeIfAllConfirmed(rotationId);
+                }
+            });
+        }
+        return false;
+    }
 
-            return CryptoUtils.bytesToHex(result);
+    private void completeIfAllConfirmed(UUID rotationId) {
+        if (rotationProgressService.getProgress(rotationId).outstanding() > 0) {
+            return;
+        }
+        TransactionTemplate separate = new TransactionTemplate(transactionManager);
+        separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            separate.executeWithoutResult(status -> rotationHistoryRepository.findById(rotationId)
+                    .ifPresent(this::autoComplete));
         } catch (Exception e) {
-            throw new RuntimeException("Failed to encrypt key for delivery", e);
+            // Left in progress; manual completion or the grace period scheduler finishes it
+            log.warn("Failed to auto-complete rotation {}: {}", rotationId, e.getMessage());
         }
     }
 
     /**
-     * Check if all participants have confirmed and auto-complete if enabled.
+     * Complete the rotation and retire the old key, once.
+     * The conditional status UPDATE lets exactly one concurrent caller through.
      */
-    private void checkAndCompleteRotation(KeyRotationHistory rotation) {
-        long pendingCount = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.PENDING);
-        long deliveredCount = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.DELIVERED);
-
-        if (pendingCount == 0 && deliveredCount == 0) {
-            // All participants confirmed, auto-complete rotation
-            log.info("All participants confirmed for rotation {}. Auto-completing...", rotation.getId());
-
-            MasterKey oldKey = rotation.getOldKey();
-            oldKey.setStatus(MasterKey.KeyStatus.ROTATED);
-            oldKey.setRevokedAt(LocalDateTime.now());
-            oldKey.setRevocationReason("Rotated to " + rotation.getNewKey().getMasterKeyId());
-            masterKeyRepository.save(oldKey);
-
-            rotation.setRotationStatus(KeyRotationHistory.RotationStatus.COMPLETED);
-            rotation.setRotationCompletedAt(LocalDateTime.now());
-            rotationHistoryRepository.save(rotation);
-
-            log.info("Rotation auto-completed successfully");
+    private boolean autoComplete(KeyRotationHistory rotation) {
+        LocalDateTime now = LocalDateTime.now();
+        if (rotationHistoryRepository.completeIfInProgress(rotation.getId(),
+                KeyRotationHistory.RotationStatus.COMPLETED, now, rotation.getRotationApprovedBy()) == 0) {
+            return false;
         }
+        log.info("All participants confirmed for rotation {}. Auto-completing...", rotation.getId());
+
+        MasterKey oldKey = rotation.getOldKey();
+        oldKey.setStatus(MasterKey.KeyStatus.ROTATED);
+        oldKey.setRevokedAt(now);
+        oldKey.setRevocationReason("Rotated to " + rotation.getNewKey().getMasterKeyId());
+        masterKeyRepository.save(oldKey);
+        rotationDeliveryCache.evict(rotation.getId());
+        rotationKeyResolver.rotationChanged(rotation);
+        rotationEventService.record(rotation, RotationEvent.EventType.COMPLETED, null, AUTO_COMPLETE_ACTOR,
+                "All participants confirmed");
+
+        log.info("Rotation auto-completed successfully");
+        return true;
     }
 
     /**
-     * Find latest pending rotation for a terminal.
+     * Actor recorded for events a terminal causes.
      */
-    private KeyRotationHistory findLatestPendingRotationForTerminal(Terminal terminal) {
-        List<RotationParticipant> participants = participantRepository.findByTerminal_Id(terminal.getId());
+    private static String terminalActor(Terminal terminal) {
+        return "TERMINAL:" + terminal.getTerminalId();
+    }
 
-        return participants.stream()
-                .filter(p -> p.getRotation().getRotationStatus() == KeyRotationHistory.RotationStatus.IN_PROGRESS)
-                .filter(p -> p.getUpdateStatus() == RotationParticipant.UpdateStatus.PENDING ||
-                             p.getUpdateStatus() == RotationParticipant.UpdateStatus.DELIVERED)
-                .map(RotationParticipant::getRotation)
+    /**
+     * Find latest pending rotation for a terminal; a delivered one still counts, so a lost response can be re-fetched.
+     */
+    private KeyRotationHistory findLatestPendingRotationForTerminal(Terminal terminal) {
+        return participantRepository.findInProgressRotationsForTerminal(terminal.getId(),
+                        List.of(RotationParticipant.UpdateStatus.PENDING, RotationParticipant.UpdateStatus.DELIVERED),
+                        PageRequest.of(0, 1))
+                .stream()
                 .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException(
                         "No pending rotation found for terminal: " + terminal.getTerminalId()));
@@ -563,8 +652,11 @@ public class KeyRotationService {
      * Calculate grace period end time.
      */
     private LocalDateTime calculateGracePeriodEnd(KeyRotationHistory rotation) {
-        // Default 24 hours from now
-        return LocalDateTime.now().plusHours(24);
+        if (rotation.getGracePeriodEndsAt() != null) {
+            return rotation.getGracePeriodEndsAt();
+        }
+        // Default 24 hours from start
+        return rotation.getRotationStartedAt().plusHours(24);
     }
 
     /**
@@ -580,13 +672,16 @@ public class KeyRotationService {
      * Build rotation response DTO with current status.
      */
     private KeyRotationResponse buildRotationResponse(KeyRotationHistory rotation) {
-        long total = participantRepository.findByRotation(rotation).size();
-        long pending = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.PENDING);
-        long confirmed = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.CONFIRMED);
-        long failed = participantRepository.countByRotationAndUpdateStatus(
-                rotation, RotationParticipant.UpdateStatus.FAILED);
+        return buildRotationResponse(rotation, rotation.getRotationStatus());
+    }
+
+    private KeyRotationResponse buildRotationResponse(KeyRotationHistory rotation,
+                                                      KeyRotationHistory.RotationStatus status) {
+        RotationProgress progress = rotationProgressService.getProgress(rotation.getId());
+        long total = progress.total();
+        long pending = progress.pending();
+        long confirmed = progress.confirmed();
+        long failed = progress.failed();
 
         return KeyRotationResponse.builder()
                 .rotationId(rotation.getId())
@@ -594,13 +689,13 @@ public class KeyRotationService {
                 .oldKeyId(rotation.getOldKey().getMasterKeyId())
                 .newKeyId(rotation.getNewKey().getMasterKeyId())
                 .rotationType(rotation.getRotationType())
-                .rotationStatus(rotation.getRotationStatus())
+                .rotationStatus(status)
                 .rotationStartedAt(rotation.getRotationStartedAt())
                 .totalParticipants((int) total)
                 .pendingParticipants((int) pending)
                 .confirmedParticipants((int) confirmed)
                 .failedParticipants((int) failed)
-                .message(buildStatusMessage(rotation.getRotationStatus(), pending, total))
+                .message(buildStatusMessage(status, pending, total))
                 .build();
     }
 
@@ -0,0 +1,92 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.KeysetPage;
+import com.artivisi.hsm.simulator.entity.GeneratedMac;
+import com.artivisi.hsm.simulator.entity.GeneratedPin;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.GeneratedMacRepository;
+import com.artivisi.hsm.simulator.repository.GeneratedPinRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.util.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination for the key, PIN and MAC listings.
+ * Pages are ordered by (generatedAt, id) descending; no OFFSET and no COUNT query is issued.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class KeysetPaginationService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final MasterKeyRepository masterKeyRepository;
+    private final GeneratedPinRepository generatedPinRepository;
+    private final GeneratedMacRepository generatedMacRepository;
+
+    public KeysetPage<MasterKey> findKeys(String cursor, int size) {
+        return fetch(cursor, size,
+                masterKeyRepository::findKeysetFirstPage,
+                (c, limit) -> masterKeyRepository.findKeysetPageAfter(c.generatedAt(), c.id(), limit),
+                MasterKey::getGeneratedAt, MasterKey::getId);
+    }
+
+    public KeysetPage<GeneratedPin> findPins(String cursor, int size) {
+        return fetch(cursor, size,
+                generatedPinRepository::findKeysetFirstPage,
+                (c, limit) -> generatedPinRepository.findKeysetPageAfter(c.generatedAt(), c.id(), limit),
+                GeneratedPin::getGeneratedAt, GeneratedPin::getId);
+    }
+
+    public KeysetPage<GeneratedMac> findMacs(String cursor, int size) {
+        return fetch(cursor, size,
+                generatedMacRepository::findKeysetFirstPage,
+                (c, limit) -> generatedMacRepository.findKeysetPageAfter(c.generatedAt(), c.id(), limit),
+                GeneratedMac::getGeneratedAt, GeneratedMac::getId);
+    }
+
+    private <T> KeysetPage<T> fetch(String cursor, int size,
+                                    Function<Pageable, List<T>> firstPage,
+                                    BiFunction<KeysetCursor, Pageable, List<T>> pageAfter,
+                                    Function<T, LocalDateTime> generatedAt,
+                                    Function<T, UUID> id) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        // Fetch one extra row to know whether another page exists
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<T> rows = after == null ? firstPage.apply(limit) : pageAfter.apply(after, limit);
+
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            nextCursor = new KeysetCursor(generatedAt.apply(last), id.apply(last)).encode();
+        }
+
+        return KeysetPage.<T>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .first(after == null)
+                .build();
+    }
+}
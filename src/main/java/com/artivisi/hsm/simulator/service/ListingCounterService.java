@@ -0,0 +1,250 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.GeneratedMac;
+import com.artivisi.hsm.simulator.entity.GeneratedPin;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.GeneratedMacRepository;
+import com.artivisi.hsm.simulator.repository.GeneratedPinRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stat counters for the key, PIN and MAC listings.
+ * Counters are adjusted from Hibernate post-commit events, so every write path is covered
+ * without per-request COUNT queries. A periodic GROUP BY reconciliation corrects drift from
+ * bulk JPQL updates, partition drops or writes made outside this application.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ListingCounterService implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final String TOTAL = "total";
+    private static final String STATUS = "status.";
+    private static final String METHOD = "method.";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MasterKeyRepository masterKeyRepository;
+    private final GeneratedPinRepository generatedPinRepository;
+    private final GeneratedMacRepository generatedMacRepository;
+
+    private final Map<Class<?>, Map<String, AtomicLong>> counters = Map.of(
+            MasterKey.class, new ConcurrentHashMap<>(),
+            GeneratedPin.class, new ConcurrentHashMap<>(),
+            GeneratedMac.class, new ConcurrentHashMap<>()
+    );
+
+    @PostConstruct
+    void registerHibernateListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    // ===== READ =====
+
+    public long keyCount() {
+        return get(MasterKey.class, TOTAL);
+    }
+
+    public long keyCountByStatus(MasterKey.KeyStatus status) {
+        return get(MasterKey.class, STATUS + status.name());
+    }
+
+    public long keyCountByGenerationMethod(String generationMethod) {
+        return get(MasterKey.class, METHOD + generationMethod);
+    }
+
+    public long pinCount() {
+        return get(GeneratedPin.class, TOTAL);
+    }
+
+    public long pinCountByStatus(GeneratedPin.PinStatus status) {
+        return get(GeneratedPin.class, STATUS + status.name());
+    }
+
+    public long macCount() {
+        return get(GeneratedMac.class, TOTAL);
+    }
+
+    public long macCountByStatus(GeneratedMac.MacStatus status) {
+        return get(GeneratedMac.class, STATUS + status.name());
+    }
+
+    // ===== RECONCILIATION =====
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${hsm.listing.counters.reconcile-interval-ms:300000}",
+               initialDelayString = "${hsm.listing.counters.reconcile-interval-ms:300000}")
+    public void reconcileScheduled() {
+        reconcile();
+    }
+
+    /**
+     * Recompute all counters from the database with one GROUP BY query per dimension
+     */
+    public void reconcile() {
+        try {
+            replace(MasterKey.class, STATUS, masterKeyRepository.countGroupedByStatus(),
+                    METHOD, masterKeyRepository.countGroupedByGenerationMethod());
+            replace(GeneratedPin.class, STATUS, generatedPinRepository.countGroupedByStatus(), null, List.of());
+            replace(GeneratedMac.class, STATUS, generatedMacRepository.countGroupedByStatus(), null, List.of());
+            log.debug("Listing counters reconciled: keys={}, pins={}, macs={}", keyCount(), pinCount(), macCount());
+        } catch (Exception e) {
+            log.warn("Failed to reconcile listing counters: {}", e.getMessage());
+        }
+    }
+
+    // ===== HIBERNATE EVENTS =====
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Map<String, AtomicLong> target = counters.get(event.getPersister().getMappedClass());
+        if (target != null) {
+            adjust(target, event.getPersister(), event.getState(), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Map<String, AtomicLong> target = counters.get(event.getPersister().getMappedClass());
+        if (target == null || event.getOldState() == null) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        for (String property : List.of("status", "generationMethod")) {
+            Object before = valueOf(persister, event.getOldState(), property);
+            Object after = valueOf(persister, event.getState(), property);
+            if (!Objects.equals(before, after)) {
+                String prefix = "status".equals(property) ? STATUS : METHOD;
+                if (before != null) {
+                    increment(target, prefix + name(before), -1);
+                }
+                if (after != null) {
+                    increment(target, prefix + name(after), 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Map<String, AtomicLong> target = counters.get(event.getPersister().getMappedClass());
+        if (target != null) {
+            adjust(target, event.getPersister(), event.getDeletedState(), -1);
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Nothing was counted before commit
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Nothing was counted before commit
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // Nothing was counted before commit
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return counters.containsKey(persister.getMappedClass());
+    }
+
+    // ===== INTERNALS =====
+
+    private void adjust(Map<String, AtomicLong> target, EntityPersister persister, Object[] state, int delta) {
+        increment(target, TOTAL, delta);
+        Object status = valueOf(persister, state, "status");
+        if (status != null) {
+            increment(target, STATUS + name(status), delta);
+        }
+        Object method = valueOf(persister, state, "generationMethod");
+        if (method != null) {
+            increment(target, METHOD + name(method), delta);
+        }
+    }
+
+    private Object valueOf(EntityPersister persister, Object[] state, String property) {
+        if (state == null) {
+            return null;
+        }
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) {
+                return state[i];
+            }
+        }
+        return null;
+    }
+
+    private void replace(Class<?> entity, String prefix, List<Object[]> rows,
+                         String secondPrefix, List<Object[]> secondRows) {
+        Map<String, AtomicLong> fresh = new ConcurrentHashMap<>();
+        long total = 0;
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            total += count;
+            if (row[0] != null) {
+                fresh.put(prefix + name(row[0]), new AtomicLong(count));
+            }
+        }
+        for (Object[] row : secondRows) {
+            if (row[0] != null) {
+                fresh.put(secondPrefix + name(row[0]), new AtomicLong(((Number) row[1]).longValue()));
+            }
+        }
+        fresh.put(TOTAL, new AtomicLong(total));
+
+        Map<String, AtomicLong> target = counters.get(entity);
+        target.keySet().retainAll(fresh.keySet());
+        fresh.forEach((key, value) -> target.computeIfAbsent(key, k -> new AtomicLong()).set(value.get()));
+    }
+
+    private void increment(Map<String, AtomicLong> target, String key, long delta) {
+        target.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    private long get(Class<?> entity, String key) {
+        AtomicLong value = counters.get(entity).get(key);
+        return value == null ? 0 : Math.max(0, value.get());
+    }
+
+    private static String name(Object value) {
+        return value instanceof Enum<?> e ? e.name() : value.toString();
+    }
+}
@@ -17,6 +17,7 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -32,6 +33,7 @@ public class MacService {
     private final GeneratedMacRepository generatedMacRepository;
     private final MasterKeyRepository masterKeyRepository;
     private final KeyGenerationService keyGenerationService;
+    private final RotationKeyResolver rotationKeyResolver;
 
     // Cache for derived MAC keys to avoid re-deriving on every operation
     private final ConcurrentHashMap<String, byte[]> derivedKeyCache = new ConcurrentHashMap<>();
@@ -79,8 +81,11 @@ public class MacService {
             throw new IllegalArgumentException("Invalid key type for MAC. Use TSK (terminal) or ZSK (zone) keys.");
         }
 
-        String calculatedMac = calculateMac(message, macKey, algorithm);
-        boolean isValid = calculatedMac.equalsIgnoreCase(providedMac);
+        // During a TSK/ZSK rotation the MAC is checked under the confirmed key first, then the alternate
+        boolean isValid = rotationKeyResolver.tryKeys("MAC_VERIFY", macKey, candidate ->
+                calculateMac(message, candidate, algorithm).equalsIgnoreCase(providedMac)
+                        ? Optional.of(candidate)
+                        : Optional.<MasterKey>empty()).isPresent();
 
         // Find and update existing MAC record if exists
         generatedMacRepository.findByMessageAndMacKey_Id(message, keyId)
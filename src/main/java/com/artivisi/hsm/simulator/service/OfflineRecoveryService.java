@@ -1,28 +1,44 @@
 package com.artivisi.hsm.simulator.service;
 
+import com.artivisi.hsm.simulator.dto.RecoveryProgress;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
 import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
 import com.artivisi.hsm.simulator.util.CryptoUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Service for offline key recovery using only share files (no database required).
  * Useful for disaster recovery scenarios where the database is lost.
+ * Shares are decrypted in parallel on a bounded pool, since each one needs a PBKDF2 run.
+ * Streamed recoveries run on a second small pool that turns requests away once it is busy.
  */
 @Service
 @Slf4j
@@ -32,53 +48,142 @@ public class OfflineRecoveryService {
     private final KeyGenerationService keyGenerationService;
     private final MasterKeyRepository masterKeyRepository;
 
+    @Value("${hsm.recovery.decrypt-parallelism:0}")
+    private int decryptParallelism;
+
+    @Value("${hsm.recovery.max-share-file-bytes:65536}")
+    private long maxShareFileBytes;
+
+    @Value("${hsm.recovery.max-concurrent-streams:2}")
+    private int maxConcurrentStreams = 2;
+
+    private ExecutorService decryptPool;
+
+    // Runs each streamed recovery, which itself waits on decryptPool; sharing that pool could deadlock
+    private ThreadPoolExecutor streamPool;
+
+    @PostConstruct
+    void startPool() {
+        int threads = decryptParallelism > 0 ? decryptParallelism : Runtime.getRuntime().availableProcessors();
+        decryptPool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("share-decrypt-", 0).daemon().factory());
+        int streams = Math.max(1, maxConcurrentStreams);
+        streamPool = new ThreadPoolExecutor(streams, streams, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                Thread.ofPlatform().name("offline-recovery-stream-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Share decryption pool started with {} threads, {} concurrent streamed recoveries", threads, streams);
+    }
+
+    @PreDestroy
+    void stopPool() {
+        streamPool.shutdownNow();
+        decryptPool.shutdownNow();
+    }
+
     /**
-     * Parses a key share file and extracts share information
+     * Runs a streamed recovery in the background. Interrupting it through the returned future
+     * cancels the share decryptions still pending.
+     *
+     * @throws RecoveryUnavailableException when the configured number of streams is already running
      */
-    public ParsedShare parseShareFile(MultipartFile file) throws Exception {
-        log.info("Parsing share file: {}", file.getOriginalFilename());
-
-        String content = new String(file.getBytes(), StandardCharsets.UTF_8);
+    public Future<?> runInBackground(Runnable recovery) {
+        try {
+            return streamPool.submit(recovery);
+        } catch (RejectedExecutionException e) {
+            log.warn("Offline recovery busy ({} streams running); rejecting request", streamPool.getActiveCount());
+            throw new RecoveryUnavailableException("Offline recovery is busy; please try again shortly");
+        }
+    }
 
-        // Extract share information using regex
-        String shareId = extractValue(content, "Share ID:\\s+(.+)");
-        String shareIndexStr = extractValue(content, "Share Index:\\s+(\\d+)");
-        String thresholdStr = extractValue(content, "Threshold:\\s+(\\d+)");
-        String masterKeyFingerprint = extractValue(content, "Fingerprint:\\s+(.+)");
-        String kdfSalt = extractValue(content, "KDF Salt:\\s+(.+)");
-        String ceremonyName = extractValue(content, "Ceremony Name:\\s+(.+)");
-        String ceremonyId = extractValue(content, "Ceremony ID:\\s+(.+)");
-        String custodianEmail = extractValue(content, "Email:\\s+(.+)");
+    /**
+     * Parses a key share file and extracts share information.
+     * The file is streamed line by line and rejected at the first framing, Base64 or hash error.
+     */
+    public ParsedShare parseShareFile(MultipartFile file) throws IOException {
+        log.info("Parsing share file: {}", file.getOriginalFilename());
 
-        if (shareId == null || shareIndexStr == null || thresholdStr == null || ceremonyId == null || custodianEmail == null) {
-            throw new IllegalArgumentException("Invalid share file format: missing required fields (shareId, shareIndex, threshold, ceremonyId, email)");
+        if (file.getSize() > maxShareFileBytes) {
+            throw new IllegalArgumentException(String.format("Share file %s exceeds the maximum size of %d bytes",
+                    file.getOriginalFilename(), maxShareFileBytes));
+        }
+        ParsedShare share;
+        try (InputStream in = file.getInputStream()) {
+            share = ShareFileParser.parse(in, file.getOriginalFilename(), maxShareFileBytes);
         }
 
-        int shareIndex = Integer.parseInt(shareIndexStr.split(" ")[0]); // "1 of 3" -> "1"
-        int threshold = Integer.parseInt(thresholdStr.split(" ")[0]); // "2 shares required" -> "2"
+        log.info("Successfully parsed share: {} (index {}, threshold {})",
+                share.getShareId(), share.getShareIndex(), share.getThreshold());
+        return share;
+    }
 
-        // Extract encrypted share data
-        byte[] encryptedShareData = extractEncryptedShare(content);
+    /**
+     * Parses and checks uploaded share files in parallel, one result per file in upload order.
+     * Files that parse are then checked against each other: a share from another ceremony,
+     * with another threshold or with an index already uploaded is marked invalid.
+     */
+    public List<ShareValidation> validateShareFiles(List<MultipartFile> files) {
+        log.info("Validating {} share files", files.size());
+
+        List<ShareValidation> results;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ShareValidation>> futures = files.stream()
+                    .map(file -> executor.submit(() -> validate(file)))
+                    .toList();
+            results = new ArrayList<>(futures.size());
+            for (Future<ShareValidation> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Share validation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Share validation failed", e.getCause());
+        }
 
-        if (encryptedShareData == null || encryptedShareData.length == 0) {
-            throw new IllegalArgumentException("Invalid share file: no encrypted data found");
+        ParsedShare reference = null;
+        Map<Integer, String> indexes = new HashMap<>();
+        for (ShareValidation result : results) {
+            if (!result.isValid()) {
+                continue;
+            }
+            ParsedShare share = result.getShare();
+            if (reference == null) {
+                reference = share;
+            } else if (!Objects.equals(share.getCeremonyId(), reference.getCeremonyId())
+                    || !Objects.equals(share.getMasterKeyFingerprint(), reference.getMasterKeyFingerprint())) {
+                reject(result, "Share is from a different ceremony than " + reference.getFileName());
+                continue;
+            } else if (share.getThreshold() != reference.getThreshold()) {
+                reject(result, "Threshold differs from " + reference.getFileName());
+                continue;
+            }
+            String duplicateOf = indexes.putIfAbsent(share.getShareIndex(), share.getFileName());
+            if (duplicateOf != null) {
+                reject(result, "Share index " + share.getShareIndex() + " already uploaded in " + duplicateOf);
+            }
         }
+        return results;
+    }
 
-        ParsedShare share = ParsedShare.builder()
-                .shareId(shareId)
-                .shareIndex(shareIndex)
-                .threshold(threshold)
-                .encryptedShareData(encryptedShareData)
-                .masterKeyFingerprint(masterKeyFingerprint)
-                .kdfSalt(kdfSalt)
-                .ceremonyName(ceremonyName)
-                .ceremonyId(ceremonyId)
-                .custodianEmail(custodianEmail)
-                .fileName(file.getOriginalFilename())
-                .build();
+    private ShareValidation validate(MultipartFile file) {
+        try {
+            return ShareValidation.builder()
+                    .fileName(file.getOriginalFilename())
+                    .valid(true)
+                    .share(parseShareFile(file))
+                    .build();
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("Rejected share file {}: {}", file.getOriginalFilename(), e.getMessage());
+            return ShareValidation.builder()
+                    .fileName(file.getOriginalFilename())
+                    .valid(false)
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
 
-        log.info("Successfully parsed share: {} (index {}, threshold {})", shareId, shareIndex, threshold);
-        return share;
+    private void reject(ShareValidation result, String error) {
+        result.setValid(false);
+        result.setError(error);
     }
 
     /**
@@ -86,6 +191,15 @@ public class OfflineRecoveryService {
      * @param sharesWithPassphrases List of shares paired with their passphrases
      */
     public OfflineRecoveryResult reconstructFromFiles(List<ShareWithPassphrase> sharesWithPassphrases) throws Exception {
+        return reconstructFromFiles(sharesWithPassphrases, progress -> { });
+    }
+
+    /**
+     * Reconstructs master key from uploaded share files, reporting progress after each decrypted share.
+     * The listener is called on the calling thread.
+     */
+    public OfflineRecoveryResult reconstructFromFiles(List<ShareWithPassphrase> sharesWithPassphrases,
+                                                      Consumer<RecoveryProgress> progressListener) throws Exception {
         log.info("Starting offline recovery with {} shares", sharesWithPassphrases.size());
 
         if (sharesWithPassphrases.isEmpty()) {
@@ -129,26 +243,7 @@ public class OfflineRecoveryService {
         // Decrypt ALL provided shares using passphrases
         // Even though only 'threshold' shares are needed, using all provided shares
         // provides better verification and follows best security practices
-        List<KeyGenerationService.ShamirShare> shamirShares = new ArrayList<>();
-        for (ShareWithPassphrase swp : sharesWithPassphrases) {
-            // Extract salt from encrypted share data
-            // Format: [32-byte salt][encrypted share data]
-            byte[] shareDataWithSalt = swp.getShare().getEncryptedShareData();
-            byte[] salt = new byte[32];  // CryptoConstants.KDF_SALT_BYTES
-            byte[] encryptedShareData = new byte[shareDataWithSalt.length - 32];
-            System.arraycopy(shareDataWithSalt, 0, salt, 0, 32);
-            System.arraycopy(shareDataWithSalt, 32, encryptedShareData, 0, encryptedShareData.length);
-
-            // Derive the encryption key from passphrase + extracted salt
-            byte[] encryptionKey = deriveEncryptionKeyFromPassphrase(swp.getPassphrase(), salt);
-
-            // Decrypt the share
-            KeyGenerationService.ShamirShare shamirShare = keyGenerationService.decryptShare(
-                    encryptedShareData,
-                    encryptionKey
-            );
-            shamirShares.add(shamirShare);
-        }
+        List<KeyGenerationService.ShamirShare> shamirShares = decryptShares(sharesWithPassphrases, progressListener);
 
         // Reconstruct the master key
         byte[] reconstructedKey = keyGenerationService.reconstructSecret(shamirShares);
@@ -188,36 +283,77 @@ public class OfflineRecoveryService {
     }
 
     /**
-     * Extracts a value from content using regex
+     * Decrypts all shares in parallel, in input order. The first share that fails authentication
+     * (wrong passphrase or altered file) cancels the shares still waiting and fails the recovery.
      */
-    private String extractValue(String content, String regex) {
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1).trim();
+    private List<KeyGenerationService.ShamirShare> decryptShares(List<ShareWithPassphrase> sharesWithPassphrases,
+                                                                 Consumer<RecoveryProgress> progressListener) {
+        long start = System.nanoTime();
+        int total = sharesWithPassphrases.size();
+        ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(decryptPool);
+        KeyGenerationService.ShamirShare[] decrypted = new KeyGenerationService.ShamirShare[total];
+        List<Future<Integer>> futures = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            int position = i;
+            futures.add(completion.submit(() -> {
+                decrypted[position] = decryptShare(sharesWithPassphrases.get(position));
+                return position;
+            }));
         }
-        return null;
-    }
-
-    /**
-     * Extracts encrypted share data from content
-     */
-    private byte[] extractEncryptedShare(String content) {
-        int beginIndex = content.indexOf("BEGIN ENCRYPTED SHARE");
-        int endIndex = content.indexOf("END ENCRYPTED SHARE");
 
-        if (beginIndex == -1 || endIndex == -1) {
-            return null;
+        try {
+            for (int done = 1; done <= total; done++) {
+                ParsedShare share = sharesWithPassphrases.get(completion.take().get()).getShare();
+                progressListener.accept(progress(share, total, done, start, false));
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        } catch (InterruptedException | CancellationException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Share decryption interrupted", e);
         }
 
-        // Extract Base64 content between markers
-        String base64Content = content.substring(beginIndex + "BEGIN ENCRYPTED SHARE".length(), endIndex);
+        RecoveryProgress summary = progress(null, total, total, start, true);
+        progressListener.accept(summary);
+        log.info("Decrypted {} shares in {} ms", total, summary.getElapsedMs());
+        return Arrays.asList(decrypted);
+    }
+
+    private KeyGenerationService.ShamirShare decryptShare(ShareWithPassphrase swp) {
+        // Extract salt from encrypted share data
+        // Format: [32-byte salt][encrypted share data]
+        byte[] shareDataWithSalt = swp.getShare().getEncryptedShareData();
+        byte[] salt = new byte[32];  // CryptoConstants.KDF_SALT_BYTES
+        byte[] encryptedShareData = new byte[shareDataWithSalt.length - 32];
+        System.arraycopy(shareDataWithSalt, 0, salt, 0, 32);
+        System.arraycopy(shareDataWithSalt, 32, encryptedShareData, 0, encryptedShareData.length);
 
-        // Remove whitespace and newlines
-        base64Content = base64Content.replaceAll("\\s+", "");
+        // Derive the encryption key from passphrase + extracted salt
+        byte[] encryptionKey = deriveEncryptionKeyFromPassphrase(swp.getPassphrase(), salt);
 
-        // Decode Base64
-        return Base64.getDecoder().decode(base64Content);
+        // Decrypt the share; GCM authentication fails on a wrong passphrase or an altered file
+        try {
+            return keyGenerationService.decryptShare(encryptedShareData, encryptionKey);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Share %s (%s) could not be decrypted: wrong passphrase or altered share file",
+                    swp.getShare().getShareId(), swp.getShare().getFileName()), e);
+        } finally {
+            Arrays.fill(encryptionKey, (byte) 0);
+        }
+    }
+
+    private RecoveryProgress progress(ParsedShare share, int total, int decrypted, long start, boolean done) {
+        return RecoveryProgress.builder()
+                .shareId(share != null ? share.getShareId() : null)
+                .shareIndex(share != null ? share.getShareIndex() : 0)
+                .sharesTotal(total)
+                .sharesDecrypted(decrypted)
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .done(done)
+                .build();
     }
 
     /**
@@ -295,6 +431,15 @@ public class OfflineRecoveryService {
 
     // ===== Data Classes =====
 
+    /**
+     * Thrown when every streamed recovery slot is taken
+     */
+    public static class RecoveryUnavailableException extends IllegalStateException {
+        public RecoveryUnavailableException(String message) {
+            super(message);
+        }
+    }
+
     @lombok.Data
     @lombok.Builder
     public static class ShareWithPassphrase {
@@ -315,6 +460,17 @@ public class OfflineRecoveryService {
         private String ceremonyId;
         private String custodianEmail;
         private String fileName;
+        private String verificationHash;    // Computed over the decoded share data
+        private boolean hashVerified;       // File carried a verification hash and it matched
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class ShareValidation {
+        private String fileName;
+        private boolean valid;
+        private String error;
+        private ParsedShare share;          // Null when the file could not be parsed
     }
 
     @lombok.Data
@@ -0,0 +1,316 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Retention for the monthly-partitioned generated_pins and generated_macs tables.
+ * Pre-creates upcoming partitions, exports expired ones to gzipped NDJSON archives
+ * and drops them whole instead of deleting row by row. Dropping a PIN partition also
+ * releases its accounts in generated_pin_accounts, which row triggers cannot do for a DROP.
+ * Rows that landed in the DEFAULT partition are split out into their monthly partitions
+ * first, so they expire like any other month.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PartitionRetentionService {
+
+    static final String PINS_TABLE = "generated_pins";
+    static final String MACS_TABLE = "generated_macs";
+    static final String PIN_ACCOUNTS_TABLE = "generated_pin_accounts";
+
+    private static final Pattern PARTITION_SUFFIX = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    /** Columns written to the archive; clear_pin is deliberately never exported. */
+    private static final Map<String, String> ARCHIVE_COLUMNS = Map.of(
+            PINS_TABLE, "id, account_number, pin_length, pin_format, encrypted_pin_block, pin_verification_value, "
+                    + "id_encryption_key, status, generated_at, last_verified_at, verification_attempts",
+            MACS_TABLE, "id, message, message_length, mac_value, mac_algorithm, id_mac_key, status, "
+                    + "verification_attempts, last_verified_at, generated_at"
+    );
+
+    private static final int ARCHIVE_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ListingCounterService listingCounterService;
+
+    @Value("${hsm.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hsm.retention.pins-months:12}")
+    private int pinsRetentionMonths;
+
+    @Value("${hsm.retention.macs-months:6}")
+    private int macsRetentionMonths;
+
+    @Value("${hsm.retention.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${hsm.retention.archive-enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${hsm.retention.archive-dir:./archive}")
+    private String archiveDir;
+
+    /**
+     * Scheduled retention run: make sure upcoming partitions exist, then archive and drop expired ones
+     */
+    @Scheduled(cron = "${hsm.retention.cron:0 30 2 * * *}")
+    public void runScheduledRetention() {
+        if (!enabled) {
+            log.debug("Partition retention disabled, skipping scheduled run");
+            return;
+        }
+        try {
+            RetentionResult result = runRetention(LocalDate.now());
+            log.info("Partition retention finished: {}", result);
+        } catch (Exception e) {
+            log.error("Partition retention run failed", e);
+        }
+    }
+
+    /**
+     * Run retention for both tables relative to the given date. Expired partitions are still
+     * dropped when a partition could not be created, but the run then ends with an exception.
+     */
+    public RetentionResult runRetention(LocalDate today) {
+        RetentionResult result = new RetentionResult();
+        YearMonth current = YearMonth.from(today);
+
+        for (String table : List.of(PINS_TABLE, MACS_TABLE)) {
+            try {
+                result.created.addAll(splitDefaultPartition(table));
+                result.created.addAll(ensureFuturePartitions(table, current));
+            } catch (IllegalStateException e) {
+                log.error("Partition creation failed for {}", table, e);
+                result.failed.add(e.getMessage());
+            }
+
+            YearMonth cutoff = current.minusMonths(retentionMonthsFor(table));
+            for (String partition : findExpiredPartitions(table, cutoff)) {
+                if (archiveEnabled) {
+                    result.archived.add(archivePartition(table, partition).toString());
+                }
+                dropPartition(table, partition);
+                result.dropped.add(partition);
+            }
+        }
+
+        if (!result.dropped.isEmpty()) {
+            // Dropped partitions bypass Hibernate events, so refresh the listing counters
+            listingCounterService.reconcile();
+        }
+        if (!result.failed.isEmpty()) {
+            throw new IllegalStateException("Partition retention incomplete: " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Move every month found in the table's DEFAULT partition into its own monthly partition
+     */
+    public List<String> splitDefaultPartition(String table) {
+        String defaultPartition = table + "_default";
+        if (!ARCHIVE_COLUMNS.containsKey(table) || !partitionExists(defaultPartition)) {
+            return List.of();
+        }
+        List<java.sql.Date> months = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', generated_at)::date FROM " + defaultPartition + " ORDER BY 1",
+                java.sql.Date.class);
+
+        List<String> created = new ArrayList<>();
+        for (java.sql.Date month : months) {
+            String name = partitionName(table, YearMonth.from(month.toLocalDate()));
+            createPartition(table, name, month);
+            created.add(name);
+            log.info("Moved rows of {} from {} into {}", YearMonth.from(month.toLocalDate()), defaultPartition, name);
+        }
+        return created;
+    }
+
+    /**
+     * Create partitions for the current month and the configured number of months ahead
+     */
+    public List<String> ensureFuturePartitions(String table, YearMonth from) {
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = from.plusMonths(i);
+            String name = partitionName(table, month);
+            if (partitionExists(name)) {
+                continue;
+            }
+            createPartition(table, name, java.sql.Date.valueOf(month.atDay(1)));
+            created.add(name);
+            log.info("Created partition {}", name);
+        }
+        return created;
+    }
+
+    /**
+     * List monthly partitions of the table whose whole range is older than the cutoff month
+     */
+    public List<String> findExpiredPartitions(String table, YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ? ORDER BY c.relname",
+                String.class, table);
+
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            YearMonth month = parsePartitionMonth(partition);
+            if (month != null && month.isBefore(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Stream every row of a partition into a gzipped NDJSON file and return its path
+     */
+    public Path archivePartition(String table, String partition) {
+        requireKnownPartition(table, partition);
+        try {
+            Path dir = Paths.get(archiveDir);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(partition + ".ndjson.gz");
+
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+                 JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.setRootValueSeparator(null);
+                // PostgreSQL only streams with a fetch size inside a transaction
+                JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+                streaming.setFetchSize(ARCHIVE_FETCH_SIZE);
+                String sql = "SELECT " + ARCHIVE_COLUMNS.get(table) + " FROM " + partition;
+                transactionTemplate.executeWithoutResult(status -> streaming.query(sql, rs -> {
+                    try {
+                        ResultSetMetaData meta = rs.getMetaData();
+                        json.writeStartObject();
+                        for (int col = 1; col <= meta.getColumnCount(); col++) {
+                            Object value = rs.getObject(col);
+                            json.writeFieldName(meta.getColumnLabel(col));
+                            if (value == null) {
+                                json.writeNull();
+                            } else if (value instanceof Number number) {
+                                json.writeNumber(number.toString());
+                            } else {
+                                json.writeString(value.toString());
+                            }
+                        }
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+
+            log.info("Archived partition {} to {}", partition, file);
+            return file;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to archive partition " + partition + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Detach and drop a whole monthly partition, in one transaction with its account lookup rows
+     */
+    public void dropPartition(String table, String partition) {
+        requireKnownPartition(table, partition);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (PINS_TABLE.equals(table)) {
+                int released = jdbcTemplate.update("DELETE FROM " + PIN_ACCOUNTS_TABLE + " a USING " + partition
+                        + " p WHERE a.id_generated_pin = p.id AND a.account_number = p.account_number");
+                log.debug("Released {} accounts of partition {}", released, partition);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        });
+        log.info("Dropped partition {} from {}", partition, table);
+    }
+
+    private void createPartition(String table, String name, java.sql.Date month) {
+        try {
+            jdbcTemplate.queryForObject("SELECT create_monthly_partition(?, ?)", String.class, table, month);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Could not create partition " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private int retentionMonthsFor(String table) {
+        return PINS_TABLE.equals(table) ? pinsRetentionMonths : macsRetentionMonths;
+    }
+
+    private boolean partitionExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private void requireKnownPartition(String table, String partition) {
+        // Partition names are spliced into DDL, so only accept exactly <table>_pYYYY_MM
+        YearMonth month = parsePartitionMonth(partition);
+        if (!ARCHIVE_COLUMNS.containsKey(table) || month == null || !partition.equals(partitionName(table, month))) {
+            throw new IllegalArgumentException("Not a monthly partition of " + table + ": " + partition);
+        }
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return table + "_p" + month.format(SUFFIX_FORMAT);
+    }
+
+    static YearMonth parsePartitionMonth(String partition) {
+        Matcher matcher = PARTITION_SUFFIX.matcher(partition);
+        if (!matcher.find()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    /**
+     * Summary of one retention run
+     */
+    @Getter
+    public static class RetentionResult {
+        private final List<String> created = new ArrayList<>();
+        private final List<String> archived = new ArrayList<>();
+        private final List<String> dropped = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return "created=" + created + ", archived=" + archived + ", dropped=" + dropped + ", failed=" + failed;
+        }
+    }
+}
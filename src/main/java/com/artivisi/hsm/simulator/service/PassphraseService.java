@@ -2,19 +2,40 @@ package com.artivisi.hsm.simulator.service;
 
 import com.artivisi.hsm.simulator.entity.PassphraseContribution;
 import com.artivisi.hsm.simulator.util.CryptoUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 /**
  * Service for passphrase validation, strength analysis, and secure hashing.
  * Uses Argon2id for passphrase hashing and implements entropy calculation
  * based on character diversity and length.
+ * Argon2 hashing and verification run on a dedicated pool sized from a memory budget (64 MB per hash),
+ * behind a bounded queue, so custodian submissions cannot exhaust the heap or hold request threads
+ * serving PIN and MAC traffic.
  */
 @Service
 @Slf4j
@@ -28,14 +49,54 @@ public class PassphraseService {
     private static final Pattern DIGIT_PATTERN = Pattern.compile("[0-9]");
     private static final Pattern SPECIAL_PATTERN = Pattern.compile("[^A-Za-z0-9]");
 
+    // Memory cost of defaultsForSpringSecurity_v5_8: 65536 KB per hash
+    static final int ARGON2_MEMORY_MB = 64;
+
+    // Pause before a batch retries admission to a full executor
+    private static final long ADMISSION_RETRY_MS = 50;
+
     private final PasswordEncoder passwordEncoder;
 
+    @Value("${hsm.argon2.memory-budget-mb:256}")
+    private int memoryBudgetMb = 256;
+
+    @Value("${hsm.argon2.max-queue:16}")
+    private int maxQueue = 16;
+
+    @Value("${hsm.argon2.timeout-ms:30000}")
+    private long timeoutMs = 30000;
+
+    private ThreadPoolExecutor hashExecutor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder totalHashMs = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+
     public PassphraseService() {
         // Argon2id with recommended parameters for passphrase hashing
         // saltLength: 16 bytes, hashLength: 32 bytes, parallelism: 1, memory: 65536 KB, iterations: 3
         this.passwordEncoder = Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8();
     }
 
+    @PostConstruct
+    void startExecutor() {
+        int concurrency = Math.max(1, memoryBudgetMb / ARGON2_MEMORY_MB);
+        hashExecutor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueue)),
+                Thread.ofPlatform().name("argon2-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Argon2 executor started: {} concurrent hashes ({} MB budget), queue {}, timeout {} ms",
+                concurrency, memoryBudgetMb, maxQueue, timeoutMs);
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        hashExecutor.shutdownNow();
+    }
+
     /**
      * Validates and analyzes passphrase strength
      */
@@ -126,7 +187,7 @@ public class PassphraseService {
      */
     public String hashPassphrase(String passphrase) {
         log.debug("Hashing passphrase (length: {})", passphrase.length());
-        return passwordEncoder.encode(passphrase);
+        return runArgon2(() -> passwordEncoder.encode(passphrase));
     }
 
     /**
@@ -134,7 +195,133 @@ public class PassphraseService {
      * Used for restoration operations where custodians re-enter passphrases.
      */
     public boolean verifyPassphrase(String plaintext, String hash) {
-        return passwordEncoder.matches(plaintext, hash);
+        return runArgon2(() -> passwordEncoder.matches(plaintext, hash));
+    }
+
+    /**
+     * Verifies several passphrases against their hashes for a caller that needs all of them
+     * (master key generation). At most as many verifications as the executor runs at once are in
+     * flight, so the batch never takes the queue that single submissions share. When other callers
+     * fill the queue, admission is retried instead of failing at once; the batch gives up with
+     * HashingUnavailableException once no verification has completed for timeoutMs.
+     *
+     * @return index of a passphrase that does not match its hash, or -1 when all match
+     */
+    public int verifyPassphrases(List<String> plaintexts, List<String> hashes) {
+        int total = plaintexts.size();
+        int window = hashExecutor.getMaximumPoolSize();
+        ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(hashExecutor);
+        List<Future<Integer>> futures = new ArrayList<>(total);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int submitted = 0;
+        int running = 0;
+        try {
+            for (int done = 0; done < total; done++) {
+                while (submitted < total && running < window) {
+                    int index = submitted;
+                    try {
+                        futures.add(completion.submit(measured(() ->
+                                passwordEncoder.matches(plaintexts.get(index), hashes.get(index)) ? -1 : index)));
+                        submitted++;
+                        running++;
+                    } catch (RejectedExecutionException e) {
+                        if (running > 0) {
+                            break; // wait for one of this batch's own verifications
+                        }
+                        if (System.nanoTime() > deadline) {
+                            rejected.increment();
+                            throw new HashingUnavailableException("Passphrase processing is busy; please try again shortly");
+                        }
+                        Thread.sleep(ADMISSION_RETRY_MS);
+                    }
+                }
+                Future<Integer> next = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    timedOut.increment();
+                    throw new HashingUnavailableException("Passphrase processing timed out; please try again shortly");
+                }
+                running--;
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                int mismatch = next.get();
+                if (mismatch >= 0) {
+                    return mismatch;
+                }
+            }
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for passphrase processing", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        } finally {
+            // No-op for completed verifications; frees the slots of the rest after a mismatch or failure
+            futures.forEach(future -> future.cancel(true));
+            hashExecutor.purge();
+        }
+    }
+
+    /**
+     * Argon2 executor counters and current load
+     */
+    public Map<String, Object> getHashingMetrics() {
+        long done = completed.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("maxConcurrent", hashExecutor.getMaximumPoolSize());
+        metrics.put("memoryBudgetMb", memoryBudgetMb);
+        metrics.put("active", hashExecutor.getActiveCount());
+        metrics.put("queued", hashExecutor.getQueue().size());
+        metrics.put("queueCapacity", maxQueue);
+        metrics.put("completed", done);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("timedOut", timedOut.sum());
+        metrics.put("avgHashMs", done == 0 ? 0 : totalHashMs.sum() / done);
+        metrics.put("avgWaitMs", done == 0 ? 0 : totalWaitMs.sum() / done);
+        metrics.put("maxWaitMs", maxWaitMs.get());
+        return metrics;
+    }
+
+    // Runs one Argon2 operation on the bounded executor; callers wait at most timeoutMs
+    private <T> T runArgon2(Callable<T> operation) {
+        Future<T> future;
+        try {
+            future = hashExecutor.submit(measured(operation));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Argon2 executor full ({} running, {} queued); rejecting request",
+                    hashExecutor.getActiveCount(), hashExecutor.getQueue().size());
+            throw new HashingUnavailableException("Passphrase processing is busy; please try again shortly");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A queued task is dropped and frees its slot; a running one finishes but its result is discarded
+            future.cancel(true);
+            hashExecutor.purge();
+            timedOut.increment();
+            throw new HashingUnavailableException("Passphrase processing timed out; please try again shortly");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for passphrase processing", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Wraps an operation so its queue wait and hashing time feed the executor metrics
+    private <T> Callable<T> measured(Callable<T> operation) {
+        long submittedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            long waitMs = (startedAt - submittedAt) / 1_000_000;
+            totalWaitMs.add(waitMs);
+            maxWaitMs.accumulateAndGet(waitMs, Math::max);
+            T result = operation.call();
+            totalHashMs.add((System.nanoTime() - startedAt) / 1_000_000);
+            completed.increment();
+            return result;
+        };
     }
 
     /**
@@ -153,6 +340,15 @@ public class PassphraseService {
         }
     }
 
+    /**
+     * Thrown when the Argon2 executor is saturated or a hash did not finish in time
+     */
+    public static class HashingUnavailableException extends IllegalStateException {
+        public HashingUnavailableException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * Result object for passphrase validation
      */
@@ -9,6 +9,7 @@ import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
 import com.artivisi.hsm.simulator.util.CryptoUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,8 +18,10 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * Service for PIN generation, encryption, and verification using HSM keys
@@ -31,6 +34,7 @@ public class PinGenerationService {
     private final GeneratedPinRepository generatedPinRepository;
     private final MasterKeyRepository masterKeyRepository;
     private final KeyGenerationService keyGenerationService;
+    private final RotationKeyResolver rotationKeyResolver;
     private final SecureRandom secureRandom = new SecureRandom();
 
     // Cache for derived PIN keys to avoid re-deriving on every operation
@@ -52,6 +56,11 @@ public class PinGenerationService {
     public GeneratedPin generatePin(UUID keyId, String accountNumber, String clearPin, String pinFormat) {
         log.info("Generating PIN for account: {}, length: {}, format: {}", accountNumber, clearPin.length(), pinFormat);
 
+        // Fast path only; generated_pin_accounts rejects a concurrent duplicate when the row is flushed
+        if (generatedPinRepository.existsByAccountNumber(accountNumber)) {
+            throw new IllegalArgumentException("PIN already exists for account: " + accountNumber);
+        }
+
         MasterKey encryptionKey = masterKeyRepository.findById(keyId)
                 .orElseThrow(() -> new IllegalArgumentException("Encryption key not found: " + keyId));
 
@@ -93,7 +102,12 @@ public class PinGenerationService {
                 .verificationAttempts(0)
                 .build();
 
-        return generatedPinRepository.save(generatedPin);
+        try {
+            // Flushed here so a duplicate account fails this call rather than the commit
+            return generatedPinRepository.saveAndFlush(generatedPin);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("PIN already exists for account: " + accountNumber, e);
+        }
     }
 
     /**
@@ -208,30 +222,9 @@ public class PinGenerationService {
                 throw new IllegalArgumentException("Target key must be LMK, got: " + lmkKey.getKeyType());
             }
 
-            // Step 2: Decrypt PIN block under TPK
-            log.info("----------------------------------------");
-            log.info("STEP 2: Decrypt PIN Block from Terminal");
-            log.info("----------------------------------------");
-            log.info("Encrypted PIN Block (TPK): {}", encryptedPinBlockUnderTPK);
-            log.info("Decryption Algorithm: AES/ECB");
-
-            String clearPinBlockFromTPK = decryptPinBlock(encryptedPinBlockUnderTPK, tpkKey);
-            log.info("Clear PIN Block (decrypted): {}", clearPinBlockFromTPK);
-
-            // Step 3: Extract PIN from terminal PIN block
-            log.info("----------------------------------------");
-            log.info("STEP 3: Extract PIN from Terminal PIN Block");
-            log.info("----------------------------------------");
-            log.info("PIN Format: {}", pinFormat);
-            log.info("Clear PIN Block: {}", clearPinBlockFromTPK);
-
-            String pinFromTerminal = extractPinFromPinBlock(clearPinBlockFromTPK, pan, pinFormat);
-            log.info("Extracted PIN from Terminal: {}", maskPin(pinFromTerminal));
-            log.info("PIN Length: {}", pinFromTerminal.length());
-
-            // Step 4: Decrypt PIN block under LMK
+            // Step 2: Decrypt PIN block under LMK
             log.info("----------------------------------------");
-            log.info("STEP 4: Decrypt PIN Block from Database");
+            log.info("STEP 2: Decrypt PIN Block from Database");
             log.info("----------------------------------------");
             log.info("Encrypted PIN Block (LMK): {}", encryptedPinBlockUnderLMK);
             log.info("Decryption Algorithm: AES/ECB");
@@ -239,9 +232,9 @@ public class PinGenerationService {
             String clearPinBlockFromLMK = decryptPinBlock(encryptedPinBlockUnderLMK, lmkKey);
             log.info("Clear PIN Block (decrypted): {}", clearPinBlockFromLMK);
 
-            // Step 5: Extract PIN from database PIN block
+            // Step 3: Extract PIN from database PIN block
             log.info("----------------------------------------");
-            log.info("STEP 5: Extract PIN from Database PIN Block");
+            log.info("STEP 3: Extract PIN from Database PIN Block");
             log.info("----------------------------------------");
             log.info("PIN Format: {}", pinFormat);
             log.info("Clear PIN Block: {}", clearPinBlockFromLMK);
@@ -250,14 +243,16 @@ public class PinGenerationService {
             log.info("Extracted PIN from Database: {}", maskPin(pinFromDatabase));
             log.info("PIN Length: {}", pinFromDatabase.length());
 
-            // Step 6: Compare PINs
+            // Step 4: Decrypt terminal PIN block under TPK and compare
+            // (during a TPK rotation, under the terminal's confirmed key first, then the alternate)
             log.info("----------------------------------------");
-            log.info("STEP 6: Compare Extracted PINs");
+            log.info("STEP 4: Decrypt Terminal PIN Block and Compare");
             log.info("----------------------------------------");
-            log.info("Terminal PIN: {}", maskPin(pinFromTerminal));
+            log.info("Encrypted PIN Block (TPK): {}", encryptedPinBlockUnderTPK);
             log.info("Database PIN: {}", maskPin(pinFromDatabase));
 
-            boolean isValid = pinFromTerminal.equals(pinFromDatabase);
+            boolean isValid = decryptPinUnderTransmissionKey("PIN_VERIFY", encryptedPinBlockUnderTPK,
+                    tpkKey, pan, pinFormat, pinFromDatabase::equals).isPresent();
 
             log.info("Comparison Result: {}", isValid ? "MATCH" : "MISMATCH");
             log.info("========================================");
@@ -332,63 +327,37 @@ public class PinGenerationService {
                 throw new IllegalArgumentException("PVV calculation key must be LMK (acting as PVK), got: " + pvkKey.getKeyType());
             }
 
-            // Step 2: Decrypt PIN block under TPK
+            // Step 2: Decrypt PIN block under TPK, calculate PVV and compare
+            // (during a TPK rotation, under the terminal's confirmed key first, then the alternate)
             log.info("----------------------------------------");
-            log.info("STEP 2: Decrypt PIN Block from Terminal");
+            log.info("STEP 2: Decrypt PIN Block, Calculate PVV (Visa PVV Algorithm, AES adaptation)");
             log.info("----------------------------------------");
             log.info("Encrypted PIN Block (TPK): {}", encryptedPinBlockUnderTPK);
-            log.info("Decryption Algorithm: AES/ECB");
-
-            String clearPinBlock = decryptPinBlock(encryptedPinBlockUnderTPK, tpkKey);
-            log.info("Clear PIN Block (decrypted): {}", clearPinBlock);
-
-            // Step 3: Extract clear PIN
-            log.info("----------------------------------------");
-            log.info("STEP 3: Extract Clear PIN from PIN Block");
-            log.info("----------------------------------------");
-            log.info("PIN Format: {}", pinFormat);
-            log.info("Clear PIN Block: {}", clearPinBlock);
-            log.info("PAN (for XOR): {}", maskPan(pan));
-
-            String clearPin = extractPinFromPinBlock(clearPinBlock, pan, pinFormat);
-            log.info("Extracted Clear PIN: {}", maskPin(clearPin));
-            log.info("PIN Length: {} digits", clearPin.length());
-
-            // Step 4: Calculate PVV from clear PIN using Visa PVV algorithm
-            log.info("----------------------------------------");
-            log.info("STEP 4: Calculate PVV (Visa PVV Algorithm, AES adaptation)");
-            log.info("----------------------------------------");
             log.info("PVV Calculation Method: Visa PVV (AES-128-ECB)");
-            log.info("Input for PVV calculation:");
-            log.info("  - Clear PIN rightmost digit: {}", clearPin.substring(clearPin.length() - 1));
-            log.info("  - PAN (11 rightmost excl. check digit): masked");
-            log.info("  - PVKI: {}", CryptoConstants.PVV_PVKI_DEFAULT);
-
-            byte[] pvkKeyBytes = derivePvk(pvkKey);
-            String calculatedPVV = generatePVV(clearPin, pan, pvkKeyBytes);
-            log.info("Calculated PVV: {}", calculatedPVV);
             log.info("PVV Generation Algorithm (Visa PVV):");
             log.info("  1. Build TSP: 11 PAN digits + PVKI + PIN rightmost digit");
             log.info("  2. Encrypt TSP with PVK (AES-128-ECB)");
             log.info("  3. Decimalize ciphertext hex → 4-digit PVV");
-            log.info("  4. Result: {}", calculatedPVV);
+            log.info("  - PVKI: {}", CryptoConstants.PVV_PVKI_DEFAULT);
 
-            // Step 5: Compare PVVs
+            byte[] pvkKeyBytes = derivePvk(pvkKey);
+            boolean isValid = decryptPinUnderTransmissionKey("PIN_VERIFY_PVV", encryptedPinBlockUnderTPK,
+                    tpkKey, pan, pinFormat, clearPin -> {
+                        String calculatedPVV = generatePVV(clearPin, pan, pvkKeyBytes);
+                        log.info("Calculated PVV: {} (stored: {})", calculatedPVV, storedPVV);
+                        return calculatedPVV.equals(storedPVV);
+                    }).isPresent();
+
+            // Step 3: Compare PVVs
             log.info("----------------------------------------");
-            log.info("STEP 5: Compare Calculated vs Stored PVV");
+            log.info("STEP 3: Compare Calculated vs Stored PVV");
             log.info("----------------------------------------");
-            log.info("Stored PVV (from database): {}", storedPVV);
-            log.info("Calculated PVV (from PIN): {}", calculatedPVV);
-
-            boolean isValid = calculatedPVV.equals(storedPVV);
-
             log.info("Comparison Result: {}", isValid ? "MATCH" : "MISMATCH");
 
             if (!isValid) {
                 log.warn("PVV Mismatch Details:");
                 log.warn("  - Expected (stored): {}", storedPVV);
-                log.warn("  - Received (calculated): {}", calculatedPVV);
-                log.warn("  - Difference: PVVs do not match");
+                log.warn("  - Difference: no PVV calculated from the PIN block matches");
             }
 
             log.info("========================================");
@@ -445,14 +414,11 @@ public class PinGenerationService {
 
             log.info("ZPK Key: {} ({})", zpkKey.getMasterKeyId(), zpkKey.getKeyType());
 
-            // Step 3: Decrypt PIN block under TPK
-            log.info("Step 1: Decrypting PIN block under TPK");
-            String clearPinBlock = decryptPinBlock(encryptedPinBlockUnderTPK, tpkKey);
-            log.info("Clear PIN block: {}", clearPinBlock);
-
-            // Step 4: Extract PIN from clear PIN block
-            log.info("Step 2: Extracting PIN from clear PIN block");
-            String pin = extractPinFromPinBlock(clearPinBlock, pan, pinFormat);
+            // Step 3-4: Decrypt PIN block under TPK and extract PIN
+            log.info("Step 1-2: Decrypting PIN block under TPK and extracting PIN");
+            String pin = decryptPinUnderTransmissionKey("PIN_TRANSLATE_TPK", encryptedPinBlockUnderTPK,
+                    tpkKey, pan, pinFormat, extracted -> true)
+                    .orElseThrow(() -> new IllegalArgumentException("PIN block does not decrypt under the TPK"));
             log.info("Extracted PIN: {}", maskPin(pin));
 
             // Step 5: Create new PIN block
@@ -519,14 +485,11 @@ public class PinGenerationService {
 
             log.info("LMK Key: {} ({})", lmkKey.getMasterKeyId(), lmkKey.getKeyType());
 
-            // Step 3: Decrypt PIN block under ZPK
-            log.info("Step 1: Decrypting PIN block under ZPK");
-            String clearPinBlock = decryptPinBlock(encryptedPinBlockUnderZPK, zpkKey);
-            log.info("Clear PIN block: {}", clearPinBlock);
-
-            // Step 4: Extract PIN from clear PIN block
-            log.info("Step 2: Extracting PIN from clear PIN block");
-            String pin = extractPinFromPinBlock(clearPinBlock, pan, pinFormat);
+            // Step 3-4: Decrypt PIN block under ZPK and extract PIN
+            log.info("Step 1-2: Decrypting PIN block under ZPK and extracting PIN");
+            String pin = decryptPinUnderTransmissionKey("PIN_TRANSLATE_ZPK", encryptedPinBlockUnderZPK,
+                    zpkKey, pan, pinFormat, extracted -> true)
+                    .orElseThrow(() -> new IllegalArgumentException("PIN block does not decrypt under the ZPK"));
             log.info("Extracted PIN: {}", maskPin(pin));
 
             // Step 5: Create new PIN block
@@ -583,6 +546,10 @@ public class PinGenerationService {
     }
 
     private String createPinBlock(String pin, String accountNumber, String format) {
+        // The length is one hex nibble after the control nibble, so 10-12 digit PINs keep the layout
+        if (pin == null || !pin.matches("\\d{4,12}")) {
+            throw new IllegalArgumentException("PIN must be 4-12 digits");
+        }
         return switch (format) {
             case "ISO-0" -> createISO0PinBlock(pin, accountNumber);
             case "ISO-1" -> createISO1PinBlock(pin);
@@ -594,7 +561,7 @@ public class PinGenerationService {
 
     private String createISO0PinBlock(String pin, String accountNumber) {
         // ISO Format 0: 0L[PIN][F]... XOR [0000][12 rightmost PAN digits excluding check digit]
-        String pinField = String.format("0%d%s", pin.length(), pin);
+        String pinField = String.format("0%X%s", pin.length(), pin);
         while (pinField.length() < 16) {
             pinField += "F";
         }
@@ -607,7 +574,7 @@ public class PinGenerationService {
 
     private String createISO1PinBlock(String pin) {
         // ISO Format 1: 1L[PIN][Random]
-        String pinField = String.format("1%d%s", pin.length(), pin);
+        String pinField = String.format("1%X%s", pin.length(), pin);
         while (pinField.length() < 16) {
             pinField += Integer.toHexString(secureRandom.nextInt(16));
         }
@@ -616,7 +583,7 @@ public class PinGenerationService {
 
     private String createISO3PinBlock(String pin, String accountNumber) {
         // ISO Format 3: Similar to Format 0 but with different padding
-        String pinField = String.format("3%d%s", pin.length(), pin);
+        String pinField = String.format("3%X%s", pin.length(), pin);
         while (pinField.length() < 16) {
             pinField += secureRandom.nextInt(10);
         }
@@ -629,7 +596,7 @@ public class PinGenerationService {
 
     private String createISO4PinBlock(String pin, String accountNumber) {
         // ISO Format 4: 4L[PIN][Random] XOR [PAN]
-        String pinField = String.format("4%d%s", pin.length(), pin);
+        String pinField = String.format("4%X%s", pin.length(), pin);
         while (pinField.length() < 16) {
             pinField += Integer.toHexString(secureRandom.nextInt(16));
         }
@@ -693,6 +660,61 @@ public class PinGenerationService {
         }
     }
 
+    /**
+     * Decrypt a PIN block under a TPK/ZPK and extract the PIN, returning it if {@code accept} agrees.
+     * While the key is in a rotation, the terminal's confirmed key is tried first and the other key second.
+     * A key that does not fit fails padding or yields a block that is not a well-formed PIN block,
+     * and the alternate is tried.
+     */
+    private Optional<String> decryptPinUnderTransmissionKey(String operation, String encryptedPinBlock,
+                                                            MasterKey key, String pan, String pinFormat,
+                                                            Predicate<String> accept) {
+        return rotationKeyResolver.tryKeys(operation, key, candidate -> {
+            String clearPinBlock = decryptPinBlock(encryptedPinBlock, candidate);
+            if (!isWellFormedPinBlock(clearPinBlock, pan, pinFormat)) {
+                log.info("PIN block is malformed under key {}", candidate.getMasterKeyId());
+                return Optional.empty();
+            }
+            String pin = extractPinFromPinBlock(clearPinBlock, pan, pinFormat);
+            log.info("PIN extracted under key {}: {}", candidate.getMasterKeyId(), maskPin(pin));
+            return accept.test(pin) ? Optional.of(pin) : Optional.empty();
+        });
+    }
+
+    /**
+     * Whether a clear PIN block has the layout createPinBlock writes for the format: 8 bytes,
+     * the format's control nibble, a PIN length of 4-12, decimal PIN digits and the fill nibbles
+     * where the format fixes them (F for ISO-0, decimal for ISO-3). ISO-1 and ISO-4 fill is random.
+     */
+    private boolean isWellFormedPinBlock(String clearPinBlock, String pan, String format) {
+        char control = switch (format) {
+            case "ISO-0" -> '0';
+            case "ISO-1" -> '1';
+            case "ISO-3" -> '3';
+            case "ISO-4" -> '4';
+            default -> throw new IllegalArgumentException("Unsupported PIN format: " + format);
+        };
+        if (clearPinBlock.length() != 16) {
+            return false;
+        }
+        String pinField = control == '1'
+                ? clearPinBlock
+                : xorHex(clearPinBlock, "0000" + pan.substring(pan.length() - 13, pan.length() - 1));
+        if (pinField.charAt(0) != control) {
+            return false;
+        }
+        int pinLength = Character.digit(pinField.charAt(1), 16);
+        if (pinLength < 4 || pinLength > 12 || !pinField.substring(2, 2 + pinLength).matches("\\d+")) {
+            return false;
+        }
+        String fill = pinField.substring(2 + pinLength);
+        return switch (control) {
+            case '0' -> fill.matches("F*");
+            case '3' -> fill.matches("\\d*");
+            default -> true;
+        };
+    }
+
     private String decryptPinBlock(String encryptedPinBlock, MasterKey key) {
         try {
             // Derive operational PIN key using context
@@ -0,0 +1,221 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.config.CryptoConstants;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rotation-scoped cache of the key-delivery KEK and the encrypted new key per terminal.
+ * The KEK is derived from the old key once per rotation instead of once per delivery attempt,
+ * and payloads prepared when the rotation starts are served to terminals as a lookup.
+ * At most {@code max-rotations} rotations are held, least recently used evicted first; a terminal's
+ * payload is dropped once it confirms, and a rotation's entry when the rotation completes or rolls
+ * back, or is swept if it is no longer in progress. Derivation and encryption run outside the map,
+ * so a slow derivation only delays deliveries of its own rotation.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RotationDeliveryCache {
+
+    private static final String DELIVERY_CONTEXT = "KEY_DELIVERY:ROTATION";
+
+    private final KeyRotationHistoryRepository rotationHistoryRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Map<UUID, RotationDelivery> deliveries = new ConcurrentHashMap<>();
+    private final AtomicLong uses = new AtomicLong();
+
+    @Value("${hsm.rotation.delivery-cache.max-rotations:64}")
+    private int maxRotations;
+
+    /**
+     * Derive the rotation KEK and encrypt the new key for each terminal participant
+     */
+    public void prepare(KeyRotationHistory rotation, Collection<UUID> terminalIds) {
+        UUID rotationId = rotation.getId();
+        RotationDelivery delivery = delivery(rotation);
+        SecretKeySpec kek = delivery.kek();
+        byte[] newKeyData = rotation.getNewKey().getKeyData();
+
+        Cipher cipher = newCipher();
+        for (UUID terminalId : terminalIds) {
+            if (!delivery.payloads.containsKey(terminalId)) {
+                delivery.payloads.putIfAbsent(terminalId, encrypt(cipher, kek, newKeyData));
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        evict(rotationId);
+                    }
+                }
+            });
+        }
+        log.debug("Prepared delivery payloads for {} terminals of rotation {}", terminalIds.size(), rotation.getRotationId());
+    }
+
+    /**
+     * New key encrypted for delivery to a terminal, hex encoded with the IV prepended.
+     * Falls back to encrypting under the cached KEK when no payload was prepared.
+     */
+    public String payloadFor(KeyRotationHistory rotation, UUID terminalId) {
+        RotationDelivery delivery = delivery(rotation);
+        String payload = delivery.payloads.get(terminalId);
+        if (payload != null) {
+            return payload;
+        }
+        // Concurrent first requests may both encrypt; every caller is served the payload that was stored
+        String encrypted = encrypt(newCipher(), delivery.kek(), rotation.getNewKey().getKeyData());
+        String existing = delivery.payloads.putIfAbsent(terminalId, encrypted);
+        return existing != null ? existing : encrypted;
+    }
+
+    /**
+     * Drop the payload of a terminal that confirmed the new key
+     */
+    public void confirmed(UUID rotationId, UUID terminalId) {
+        RotationDelivery delivery = deliveries.get(rotationId);
+        if (delivery != null) {
+            delivery.payloads.remove(terminalId);
+        }
+    }
+
+    public void evict(UUID rotationId) {
+        deliveries.remove(rotationId);
+    }
+
+    /**
+     * Drop entries of rotations that finished outside this service (other instances, manual updates)
+     */
+    @Scheduled(fixedDelayString = "${hsm.rotation.delivery-cache.sweep-interval-ms:600000}")
+    public void sweep() {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        try {
+            Set<UUID> inProgress = new HashSet<>(rotationHistoryRepository.findInProgressIds(List.copyOf(deliveries.keySet())));
+            deliveries.keySet().stream()
+                    .filter(rotationId -> !inProgress.contains(rotationId))
+                    .toList()
+                    .forEach(this::evict);
+        } catch (Exception e) {
+            log.warn("Failed to sweep rotation delivery cache: {}", e.getMessage());
+        }
+    }
+
+    // ===== INTERNALS =====
+
+    private RotationDelivery delivery(KeyRotationHistory rotation) {
+        RotationDelivery delivery = deliveries.get(rotation.getId());
+        if (delivery == null) {
+            // The holder is cheap; the KEK is derived on first use, outside the map
+            delivery = deliveries.computeIfAbsent(rotation.getId(),
+                    id -> new RotationDelivery(rotation.getOldKey().getKeyData()));
+            if (deliveries.size() > maxRotations) {
+                evictLeastRecentlyUsed(rotation.getId());
+            }
+        }
+        delivery.lastUsed = uses.incrementAndGet();
+        return delivery;
+    }
+
+    private void evictLeastRecentlyUsed(UUID keep) {
+        while (deliveries.size() > maxRotations) {
+            deliveries.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(keep))
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                    .ifPresentOrElse(entry -> {
+                        deliveries.remove(entry.getKey(), entry.getValue());
+                        log.debug("Evicted delivery cache entry of rotation {}", entry.getKey());
+                    }, deliveries::clear);
+        }
+    }
+
+    private Cipher newCipher() {
+        try {
+            return Cipher.getInstance(CryptoConstants.PIN_CIPHER);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to encrypt key for delivery", e);
+        }
+    }
+
+    /**
+     * Encrypt new key under the delivery KEK with a fresh IV
+     */
+    private String encrypt(Cipher cipher, SecretKeySpec kek, byte[] newKeyData) {
+        try {
+            byte[] iv = new byte[CryptoConstants.CBC_IV_BYTES];
+            secureRandom.nextBytes(iv);
+
+            cipher.init(Cipher.ENCRYPT_MODE, kek, new IvParameterSpec(iv));
+            byte[] encrypted = cipher.doFinal(newKeyData);
+
+            // Prepend IV
+            byte[] result = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, result, 0, iv.length);
+            System.arraycopy(encrypted, 0, result, iv.length, encrypted.length);
+
+            return CryptoUtils.bytesToHex(result);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to encrypt key for delivery", e);
+        }
+    }
+
+    private static class RotationDelivery {
+        private final Map<UUID, String> payloads = new ConcurrentHashMap<>();
+        private byte[] oldKeyData;
+        private volatile SecretKeySpec kek;
+        private volatile long lastUsed;
+
+        RotationDelivery(byte[] oldKeyData) {
+            this.oldKeyData = oldKeyData;
+        }
+
+        // Concurrent first deliveries of one rotation wait for a single derivation
+        SecretKeySpec kek() {
+            SecretKeySpec derived = kek;
+            if (derived == null) {
+                synchronized (this) {
+                    derived = kek;
+                    if (derived == null) {
+                        byte[] kekData = CryptoUtils.deriveKeyFromParent(oldKeyData, DELIVERY_CONTEXT, 128);
+                        // The spec keeps its own copy
+                        derived = new SecretKeySpec(kekData, CryptoConstants.MASTER_KEY_ALGORITHM);
+                        Arrays.fill(kekData, (byte) 0);
+                        kek = derived;
+                        oldKeyData = null;
+                    }
+                }
+            }
+            return derived;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.RotationEventPage;
+import com.artivisi.hsm.simulator.dto.RotationFeedEvent;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.RotationEvent;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.RotationEventRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import com.artivisi.hsm.simulator.util.EventCursor;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only rotation event log and its cursor feed.
+ * Events are inserted in the transaction of the change they record, so the log never shows a
+ * change that rolled back. The feed orders by (writing transaction, id) and only serves transactions
+ * older than every transaction still in flight, so a consumer tailing with its last cursor never
+ * skips an event that commits late. SSE subscribers are tailed on virtual threads, woken by local
+ * commits and polling for events written by other instances.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RotationEventService {
+
+    private static final String FEED_SQL =
+            "SELECT id, txid::text AS txid, id_rotation, rotation_id, event_type, terminal_id, actor, details, created_at " +
+            "FROM rotation_events " +
+            "WHERE (txid, id) > (?::xid8, ?) AND txid < pg_snapshot_xmin(pg_current_snapshot()) " +
+            "ORDER BY txid, id LIMIT ?";
+
+    private final RotationEventRepository eventRepository;
+    private final KeyRotationHistoryRepository rotationHistoryRepository;
+    private final RotationParticipantRepository participantRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${hsm.rotation.events.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${hsm.rotation.events.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${hsm.rotation.events.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${hsm.rotation.events.heartbeat-interval-ms:25000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${hsm.rotation.events.max-subscribers:50}")
+    private int maxSubscribers;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ExecutorService tailExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Tailing subscribers wait here; local commits bump the generation and wake them
+    private final ReentrantLock signalLock = new ReentrantLock();
+    private final Condition newEvents = signalLock.newCondition();
+    private long generation;
+
+    @PreDestroy
+    void stopTailing() {
+        tailExecutor.shutdownNow();
+    }
+
+    // ===== RECORDING =====
+
+    /**
+     * Append an event for a rotation, or for one of its terminals when terminalId is set
+     */
+    public void record(KeyRotationHistory rotation, RotationEvent.EventType type,
+                       String terminalId, String actor, String details) {
+        eventRepository.save(event(rotation.getId(), rotation.getRotationId(), type, terminalId, actor, details));
+        signalAfterCommit();
+    }
+
+    /**
+     * Append INITIATED events for rotations created together
+     */
+    public void rotationsInitiated(Collection<KeyRotationHistory> rotations, String actor, String details) {
+        eventRepository.saveAll(rotations.stream()
+                .map(r -> event(r.getId(), r.getRotationId(), RotationEvent.EventType.INITIATED, null, actor, details))
+                .toList());
+        signalAfterCommit();
+    }
+
+    /**
+     * Append the events of rotations whose grace period ended: FAILED per outstanding participant,
+     * EXPIRED per rotation and COMPLETED for auto-complete ones.
+     * Call before the outstanding participants are failed.
+     */
+    public void gracePeriodExpired(Collection<UUID> rotationIds, String reason, String actor) {
+        List<RotationEvent> events = new ArrayList<>();
+        for (Object[] row : participantRepository.findOutstandingTerminals(rotationIds)) {
+            events.add(event((UUID) row[0], (String) row[1], RotationEvent.EventType.FAILED,
+                    (String) row[2], actor, reason));
+        }
+        for (Object[] row : rotationHistoryRepository.findEventHeaders(rotationIds)) {
+            events.add(event((UUID) row[0], (String) row[1], RotationEvent.EventType.EXPIRED, null, actor, reason));
+            if (Boolean.TRUE.equals(row[2])) {
+                events.add(event((UUID) row[0], (String) row[1], RotationEvent.EventType.COMPLETED,
+                        null, actor, "Auto-completed after grace period"));
+            }
+        }
+        eventRepository.saveAll(events);
+        signalAfterCommit();
+    }
+
+    // ===== FEED =====
+
+    /**
+     * Events after the cursor, oldest first
+     */
+    public RotationEventPage readAfter(String cursor, int limit) {
+        EventCursor position = EventCursor.decode(cursor);
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        List<RotationFeedEvent> events = read(position, size);
+        return RotationEventPage.builder()
+                .events(events)
+                .nextCursor(events.isEmpty() ? position.encode() : events.get(events.size() - 1).getCursor())
+                .hasMore(events.size() == size)
+                .build();
+    }
+
+    /**
+     * Open an SSE stream of events after the cursor; the stream catches up, then tails new events.
+     * Each SSE event ID is the cursor, so a reconnecting client resumes with Last-Event-ID.
+     */
+    public SseEmitter subscribe(String cursor) {
+        EventCursor start = EventCursor.decode(cursor);
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new IllegalStateException("Too many rotation event subscribers (max " + maxSubscribers + ")");
+        }
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+
+        tailExecutor.execute(() -> {
+            try {
+                tail(emitter, open, start);
+            } finally {
+                subscribers.decrementAndGet();
+            }
+        });
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    // ===== INTERNALS =====
+
+    private void tail(SseEmitter emitter, AtomicBoolean open, EventCursor start) {
+        EventCursor position = start;
+        long lastSentAt = System.currentTimeMillis();
+        try {
+            while (open.get()) {
+                long seen = currentGeneration();
+                List<RotationFeedEvent> events = read(position, maxPageSize);
+                for (RotationFeedEvent event : events) {
+                    emitter.send(SseEmitter.event()
+                            .id(event.getCursor())
+                            .name("rotation-event")
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+                if (!events.isEmpty()) {
+                    position = EventCursor.decode(events.get(events.size() - 1).getCursor());
+                    lastSentAt = System.currentTimeMillis();
+                    if (events.size() == maxPageSize) {
+                        // Still catching up
+                        continue;
+                    }
+                } else if (System.currentTimeMillis() - lastSentAt >= heartbeatIntervalMs) {
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                    lastSentAt = System.currentTimeMillis();
+                }
+                awaitNewEvents(seen);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Rotation event subscriber went away: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } catch (Exception e) {
+            log.warn("Rotation event stream failed: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private List<RotationFeedEvent> read(EventCursor position, int limit) {
+        return jdbcTemplate.query(FEED_SQL, this::toFeedEvent,
+                Long.toString(position.txid()), position.id(), limit);
+    }
+
+    private RotationFeedEvent toFeedEvent(ResultSet rs, int row) throws SQLException {
+        long id = rs.getLong("id");
+        return RotationFeedEvent.builder()
+                .cursor(new EventCursor(Long.parseLong(rs.getString("txid")), id).encode())
+                .eventId(id)
+                .eventType(rs.getString("event_type"))
+                .rotationId(rs.getObject("id_rotation", UUID.class))
+                .rotationIdString(rs.getString("rotation_id"))
+                .terminalId(rs.getString("terminal_id"))
+                .actor(rs.getString("actor"))
+                .details(rs.getString("details"))
+                .occurredAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .build();
+    }
+
+    private RotationEvent event(UUID rotationId, String rotationIdString, RotationEvent.EventType type,
+                                String terminalId, String actor, String details) {
+        return RotationEvent.builder()
+                .idRotation(rotationId)
+                .rotationId(rotationIdString)
+                .eventType(type)
+                .terminalId(terminalId)
+                .actor(actor)
+                .details(details)
+                .build();
+    }
+
+    private void signalAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            signal();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                signal();
+            }
+        });
+    }
+
+    private void signal() {
+        signalLock.lock();
+        try {
+            generation++;
+            newEvents.signalAll();
+        } finally {
+            signalLock.unlock();
+        }
+    }
+
+    private long currentGeneration() {
+        signalLock.lock();
+        try {
+            return generation;
+        } finally {
+            signalLock.unlock();
+        }
+    }
+
+    private void awaitNewEvents(long seen) throws InterruptedException {
+        signalLock.lock();
+        try {
+            // Events of other instances only show up by polling
+            if (generation == seen) {
+                newEvents.await(pollIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            signalLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Deadline scheduler for rotation grace periods and key expiry.
+ * Deadlines within the horizon are held in a priority queue ordered by due time, so each tick
+ * only looks at entries that are due instead of scanning every in-progress rotation.
+ * Due rotations fail their undelivered participants and, when auto-complete is set, retire the old key
+ * and complete; due keys are marked EXPIRED. Both are applied with one batched UPDATE per kind.
+ * The queue is reloaded from the database periodically, so deadlines beyond the horizon
+ * and rotations started on other instances are picked up; deadlines scheduled while a reload
+ * queries are kept rather than replaced.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RotationExpiryService {
+
+    static final String EXPIRED_REASON = "Grace period expired";
+    static final String SYSTEM_ACTOR = "SYSTEM:GRACE_PERIOD";
+
+    private final KeyRotationHistoryRepository rotationHistoryRepository;
+    private final RotationParticipantRepository participantRepository;
+    private final MasterKeyRepository masterKeyRepository;
+    private final RotationProgressService rotationProgressService;
+    private final RotationDeliveryCache rotationDeliveryCache;
+    private final ListingCounterService listingCounterService;
+    private final RotationKeyResolver rotationKeyResolver;
+    private final RotationEventService rotationEventService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${hsm.rotation.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hsm.rotation.expiry.horizon-minutes:60}")
+    private long horizonMinutes;
+
+    @Value("${hsm.rotation.expiry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${hsm.rotation.expiry.key-lead-time-minutes:0}")
+    private long keyLeadTimeMinutes;
+
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>(Comparator.comparing(Deadline::at));
+
+    // Deadlines up to this time are known to the queue; later ones come with the next reload
+    private volatile LocalDateTime loadedUntil = LocalDateTime.MIN;
+
+    // Sequence number of the last scheduled deadline; guarded by queue
+    private long scheduledSeq;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Rebuild the queue from rotations and keys due within the horizon
+     */
+    @Scheduled(fixedDelayString = "${hsm.rotation.expiry.reload-interval-ms:600000}",
+               initialDelayString = "${hsm.rotation.expiry.reload-interval-ms:600000}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime until = LocalDateTime.now().plusMinutes(horizonMinutes);
+            long loadStartSeq;
+            synchronized (queue) {
+                loadStartSeq = scheduledSeq;
+                // Deadlines scheduled while the query runs are queued up to the new horizon
+                if (until.isAfter(loadedUntil)) {
+                    loadedUntil = until;
+                }
+            }
+            List<Deadline> deadlines = new ArrayList<>();
+            for (Object[] row : rotationHistoryRepository.findGracePeriodDeadlines(until)) {
+                deadlines.add(new Deadline((LocalDateTime) row[1], (UUID) row[0], Kind.ROTATION, 0));
+            }
+            for (Object[] row : masterKeyRepository.findActiveExpiryDeadlines(until.plusMinutes(keyLeadTimeMinutes))) {
+                deadlines.add(new Deadline(((LocalDateTime) row[1]).minusMinutes(keyLeadTimeMinutes), (UUID) row[0], Kind.KEY, 0));
+            }
+            Set<UUID> loadedRotations = deadlines.stream()
+                    .filter(d -> d.kind() == Kind.ROTATION).map(Deadline::id).collect(Collectors.toSet());
+            synchronized (queue) {
+                // Scheduled after the query started, so the query may not have seen their commit
+                List<Deadline> scheduledSince = queue.stream()
+                        .filter(d -> d.seq() > loadStartSeq && !loadedRotations.contains(d.id()))
+                        .toList();
+                queue.clear();
+                queue.addAll(deadlines);
+                queue.addAll(scheduledSince);
+            }
+            log.debug("Expiry queue reloaded with {} deadlines up to {}", deadlines.size(), until);
+        } catch (Exception e) {
+            log.warn("Failed to reload rotation expiry queue: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Track the grace period of a new rotation once the current transaction commits
+     */
+    public void scheduleRotation(UUID rotationId, LocalDateTime gracePeriodEndsAt) {
+        scheduleRotations(List.of(rotationId), gracePeriodEndsAt);
+    }
+
+    /**
+     * Track rotations sharing one grace period end once the current transaction commits
+     */
+    public void scheduleRotations(Collection<UUID> rotationIds, LocalDateTime gracePeriodEndsAt) {
+        if (!enabled || rotationIds.isEmpty() || gracePeriodEndsAt == null) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(rotationIds);
+        Runnable enqueue = () -> {
+            synchronized (queue) {
+                // Beyond the loaded horizon the next reload picks it up
+                if (!gracePeriodEndsAt.isAfter(loadedUntil)) {
+                    ids.forEach(id -> queue.add(new Deadline(gracePeriodEndsAt, id, Kind.ROTATION, ++scheduledSeq)));
+                }
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue.run();
+            }
+        });
+    }
+
+    public int getQueuedCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Apply every deadline that is due, a batch at a time
+     */
+    @Scheduled(fixedDelayString = "${hsm.rotation.expiry.tick-ms:5000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        List<Deadline> due;
+        while (!(due = pollDue(LocalDateTime.now())).isEmpty()) {
+            List<UUID> rotations = due.stream().filter(d -> d.kind() == Kind.ROTATION).map(Deadline::id).toList();
+            List<UUID> keys = due.stream().filter(d -> d.kind() == Kind.KEY).map(Deadline::id).toList();
+            try {
+                if (!rotations.isEmpty()) {
+                    expireRotations(rotations);
+                }
+                if (!keys.isEmpty()) {
+                    expireKeys(keys);
+                }
+            } catch (Exception e) {
+                // Left for the next reload to pick up again
+                log.warn("Failed to apply {} expiry deadlines: {}", due.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fail outstanding participants of rotations whose grace period ended, completing the auto-complete ones
+     */
+    int expireRotations(Collection<UUID> rotationIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> expired = transactionTemplate.execute(status -> {
+            // Re-check: a rotation may have completed or been rolled back since it was queued
+            List<UUID> ids = rotationHistoryRepository.findGracePeriodExpiredIds(rotationIds, now);
+            if (ids.isEmpty()) {
+                return ids;
+            }
+            rotationEventService.gracePeriodExpired(ids, EXPIRED_REASON, SYSTEM_ACTOR);
+            int failed = participantRepository.failOutstanding(
+                    ids, RotationParticipant.UpdateStatus.FAILED, EXPIRED_REASON, now);
+            masterKeyRepository.retireOldKeysOfAutoCompleteRotations(
+                    ids, MasterKey.KeyStatus.ROTATED, now, "Rotated; " + EXPIRED_REASON.toLowerCase());
+            int completed = rotationHistoryRepository.completeAutoCompleteRotations(
+                    ids, KeyRotationHistory.RotationStatus.COMPLETED, now, SYSTEM_ACTOR);
+            log.info("Grace period expired for {} rotations: {} participants failed, {} rotations auto-completed",
+                    ids.size(), failed, completed);
+            return ids;
+        });
+        if (expired == null || expired.isEmpty()) {
+            return 0;
+        }
+        // Bulk updates bypass entity events; refresh the derived state
+        rotationProgressService.invalidate(expired);
+        expired.forEach(rotationDeliveryCache::evict);
+        rotationKeyResolver.invalidateRotations(expired);
+        listingCounterService.reconcile();
+        return expired.size();
+    }
+
+    /**
+     * Mark active keys EXPIRED once they are within the lead time of their expiry
+     */
+    int expireKeys(Collection<UUID> keyIds) {
+        LocalDateTime cutoff = LocalDateTime.now().plusMinutes(keyLeadTimeMinutes);
+        Integer expired = transactionTemplate.execute(status ->
+                masterKeyRepository.expireKeys(keyIds, MasterKey.KeyStatus.EXPIRED, cutoff));
+        if (expired != null && expired > 0) {
+            log.info("{} keys expired", expired);
+            listingCounterService.reconcile();
+        }
+        return expired != null ? expired : 0;
+    }
+
+    // ===== INTERNALS =====
+
+    private List<Deadline> pollDue(LocalDateTime now) {
+        List<Deadline> due = new ArrayList<>();
+        synchronized (queue) {
+            while (due.size() < batchSize && !queue.isEmpty() && !queue.peek().at().isAfter(now)) {
+                due.add(queue.poll());
+            }
+        }
+        return due;
+    }
+
+    private enum Kind {
+        ROTATION, KEY
+    }
+
+    // seq is 0 for deadlines loaded from the database
+    private record Deadline(LocalDateTime at, UUID id, Kind kind, long seq) {
+    }
+}
@@ -0,0 +1,238 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Dual-key acceptance window for PIN and MAC verification during a key rotation.
+ * While a TPK, TSK, ZPK or ZSK is the old or new key of an IN_PROGRESS rotation, inbound
+ * cryptograms are tried under the key the terminal has confirmed first and the other key second,
+ * so terminals switching at different times do not fail and retry. Windows are cached per key
+ * for a short TTL and dropped when a rotation starts, is confirmed or ends on this instance.
+ * Usage counters record which key each operation ended up using.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RotationKeyResolver {
+
+    private static final Set<KeyType> WINDOW_KEY_TYPES = EnumSet.of(KeyType.TPK, KeyType.TSK, KeyType.ZPK, KeyType.ZSK);
+
+    private final KeyRotationHistoryRepository rotationHistoryRepository;
+    private final RotationParticipantRepository participantRepository;
+
+    @Value("${hsm.rotation.dual-key.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hsm.rotation.dual-key.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private final Map<UUID, Entry> entriesByKey = new ConcurrentHashMap<>();
+    private final Map<UUID, Window> windowsByRotation = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> usage = new ConcurrentHashMap<>();
+
+    /**
+     * Which key of a rotation window an operation used
+     */
+    public enum KeySlot {
+        ONLY,       // Key not in a rotation; no alternate tried
+        OLD,        // Old key of an in-progress rotation
+        NEW,        // New key of an in-progress rotation
+        FALLBACK,   // Succeeded on the alternate key after the first choice failed
+        REJECTED    // Neither key fitted
+    }
+
+    /**
+     * Keys to try for the requested key: the confirmed key first, the alternate second
+     */
+    public List<MasterKey> candidates(MasterKey requested) {
+        return candidates(requested, window(requested));
+    }
+
+    /**
+     * Run an attempt with each candidate key until one yields a result.
+     * An attempt returns empty (or throws) when the key does not fit the cryptogram.
+     * If every attempt threw, the first exception is rethrown.
+     */
+    public <T> Optional<T> tryKeys(String operation, MasterKey requested, Function<MasterKey, Optional<T>> attempt) {
+        Window window = window(requested);
+        List<MasterKey> keys = candidates(requested, window);
+        RuntimeException firstFailure = null;
+        int failures = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            MasterKey key = keys.get(i);
+            try {
+                Optional<T> result = attempt.apply(key);
+                if (result.isPresent()) {
+                    record(operation, slotOf(key, window));
+                    if (i > 0) {
+                        record(operation, KeySlot.FALLBACK);
+                        log.info("{} accepted under alternate key {} during rotation", operation, key.getMasterKeyId());
+                    }
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                failures++;
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+                log.debug("{} failed under key {}: {}", operation, key.getMasterKeyId(), e.getMessage());
+            }
+        }
+        record(operation, KeySlot.REJECTED);
+        if (failures == keys.size()) {
+            throw firstFailure;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Drop cached windows of a rotation's keys once the current transaction commits
+     */
+    public void rotationChanged(KeyRotationHistory rotation) {
+        UUID rotationId = rotation.getId();
+        List<UUID> keyIds = List.of(rotation.getOldKey().getId(), rotation.getNewKey().getId());
+        afterCommit(() -> {
+            invalidateRotation(rotationId);
+            keyIds.forEach(entriesByKey::remove);
+        });
+    }
+
+    /**
+     * Drop cached entries of keys that just entered a rotation once the current transaction commits
+     */
+    public void rotationsStarted(Collection<UUID> oldKeyIds) {
+        List<UUID> keyIds = List.copyOf(oldKeyIds);
+        afterCommit(() -> keyIds.forEach(entriesByKey::remove));
+    }
+
+    /**
+     * Drop cached windows of rotations that ended outside a loaded entity (bulk updates)
+     */
+    public void invalidateRotations(Collection<UUID> rotationIds) {
+        rotationIds.forEach(this::invalidateRotation);
+    }
+
+    /**
+     * Usage counts per operation and key slot
+     */
+    public Map<String, Map<String, Long>> getUsage() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        usage.forEach((name, count) -> {
+            int separator = name.indexOf(':');
+            result.computeIfAbsent(name.substring(0, separator), k -> new TreeMap<>())
+                    .put(name.substring(separator + 1), count.sum());
+        });
+        return result;
+    }
+
+    public int getCachedWindowCount() {
+        return windowsByRotation.size();
+    }
+
+    // ===== INTERNALS =====
+
+    private List<MasterKey> candidates(MasterKey requested, Window window) {
+        if (window == null) {
+            return List.of(requested);
+        }
+        return window.newKeyConfirmed()
+                ? List.of(window.newKey(), window.oldKey())
+                : List.of(window.oldKey(), window.newKey());
+    }
+
+    private Window window(MasterKey requested) {
+        if (!enabled || requested.getId() == null || !WINDOW_KEY_TYPES.contains(requested.getKeyType())
+                || requested.getStatus() != MasterKey.KeyStatus.ACTIVE) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = entriesByKey.get(requested.getId());
+        if (entry == null || now - entry.loadedAt() > cacheTtlMs) {
+            entry = load(requested, now);
+            entriesByKey.put(requested.getId(), entry);
+        }
+        return entry.window();
+    }
+
+    private Entry load(MasterKey requested, long now) {
+        List<KeyRotationHistory> rotations = rotationHistoryRepository
+                .findInProgressByKeyWithKeys(requested.getId(), PageRequest.of(0, 1));
+        if (rotations.isEmpty()) {
+            return new Entry(null, now);
+        }
+        KeyRotationHistory rotation = rotations.get(0);
+        MasterKey oldKey = rotation.getOldKey();
+        MasterKey newKey = rotation.getNewKey();
+
+        boolean newKeyConfirmed = oldKey.getIdTerminal() != null && participantRepository
+                .findFirstByRotation_IdAndTerminal_Id(rotation.getId(), oldKey.getIdTerminal())
+                .map(p -> p.getUpdateStatus() == RotationParticipant.UpdateStatus.CONFIRMED)
+                .orElse(false);
+
+        Window window = new Window(rotation.getId(), oldKey, newKey, newKeyConfirmed);
+        windowsByRotation.put(rotation.getId(), window);
+        return new Entry(window, now);
+    }
+
+    private void invalidateRotation(UUID rotationId) {
+        Window window = windowsByRotation.remove(rotationId);
+        if (window != null) {
+            entriesByKey.remove(window.oldKey().getId());
+            entriesByKey.remove(window.newKey().getId());
+        }
+    }
+
+    private KeySlot slotOf(MasterKey key, Window window) {
+        if (window == null) {
+            return KeySlot.ONLY;
+        }
+        return key.getId().equals(window.newKey().getId()) ? KeySlot.NEW : KeySlot.OLD;
+    }
+
+    private void record(String operation, KeySlot slot) {
+        usage.computeIfAbsent(operation + ":" + slot.name(), k -> new LongAdder()).increment();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Entry(Window window, long loadedAt) {
+    }
+
+    private record Window(UUID rotationId, MasterKey oldKey, MasterKey newKey, boolean newKeyConfirmed) {
+    }
+}
@@ -0,0 +1,319 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.RotationProgress;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-rotation participant counts by update status, kept as atomic counters.
+ * Status transitions are recorded as deltas on the current transaction and applied to the
+ * shared counters after commit, so reads inside a transaction see its own changes and other
+ * readers only see committed ones. Counters are loaded lazily with one GROUP BY query and
+ * periodically reconciled for in-progress rotations.
+ * <p>
+ * A committing transaction is counted on its rotation from beforeCommit until its deltas are
+ * applied. A query result is only installed when no such transaction was in flight and none
+ * committed while it ran, since the result may or may not include their changes; otherwise it is
+ * returned to the caller uncached and the next read queries again.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RotationProgressService {
+
+    private static final int STATUSES = RotationParticipant.UpdateStatus.values().length;
+
+    private final RotationParticipantRepository participantRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<UUID, Slot> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Current progress of a rotation, including uncommitted changes of the calling transaction
+     */
+    public RotationProgress getProgress(UUID rotationId) {
+        long[] counts = committedCounts(rotationId);
+        Map<UUID, long[]> deltas = transactionDeltas(false);
+        long[] own = deltas == null ? null : deltas.get(rotationId);
+        if (own != null) {
+            for (int i = 0; i < STATUSES; i++) {
+                counts[i] += own[i];
+            }
+        }
+        return RotationProgress.of(counts);
+    }
+
+    /**
+     * Record newly registered participants of a rotation
+     */
+    public void participantsAdded(UUID rotationId, RotationParticipant.UpdateStatus status, long count) {
+        record(rotationId, status.ordinal(), count);
+    }
+
+    /**
+     * Record a participant moving from one update status to another
+     */
+    public void transition(UUID rotationId, RotationParticipant.UpdateStatus from, RotationParticipant.UpdateStatus to) {
+        if (from == to) {
+            return;
+        }
+        record(rotationId, from.ordinal(), -1);
+        record(rotationId, to.ordinal(), 1);
+    }
+
+    /**
+     * Drop counters changed by bulk updates; the next read reloads them
+     */
+    public void invalidate(Collection<UUID> rotationIds) {
+        for (UUID rotationId : rotationIds) {
+            Slot slot = counters.get(rotationId);
+            if (slot != null) {
+                slot.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Recompute counters of all in-progress rotations with one GROUP BY query and drop the rest
+     */
+    @Scheduled(fixedDelayString = "${hsm.rotation.progress.reconcile-interval-ms:60000}",
+               initialDelayString = "${hsm.rotation.progress.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            Map<UUID, Long> versions = new HashMap<>();
+            counters.forEach((rotationId, slot) -> versions.put(rotationId, slot.stableVersion()));
+            Map<UUID, long[]> fresh = new HashMap<>();
+            for (Object[] row : participantRepository.countGroupedByRotationAndStatusInProgress()) {
+                fresh.computeIfAbsent((UUID) row[0], k -> new long[STATUSES])
+                        [((RotationParticipant.UpdateStatus) row[1]).ordinal()] = ((Number) row[2]).longValue();
+            }
+            counters.forEach((rotationId, slot) -> {
+                if (!fresh.containsKey(rotationId) && slot.retire(versions.getOrDefault(rotationId, 0L))) {
+                    counters.remove(rotationId, slot);
+                }
+            });
+            int installed = 0;
+            for (Map.Entry<UUID, long[]> entry : fresh.entrySet()) {
+                // A slot created during the query starts at version 0
+                if (slot(entry.getKey()).install(entry.getValue(), versions.getOrDefault(entry.getKey(), 0L), true)) {
+                    installed++;
+                }
+            }
+            log.debug("Rotation progress counters reconciled for {} of {} in-progress rotations", installed, fresh.size());
+        } catch (Exception e) {
+            log.warn("Failed to reconcile rotation progress counters: {}", e.getMessage());
+        }
+    }
+
+    // ===== INTERNALS =====
+
+    private long[] committedCounts(UUID rotationId) {
+        Slot slot = slot(rotationId);
+        long[] cached = slot.counts();
+        if (cached != null) {
+            return cached;
+        }
+        long version = slot.stableVersion();
+        // Load committed state only; the caller's own changes are tracked as deltas
+        TransactionTemplate separate = new TransactionTemplate(transactionManager);
+        separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        separate.setReadOnly(true);
+        List<Object[]> rows = separate.execute(status -> participantRepository.countGroupedByStatus(rotationId));
+
+        long[] counts = new long[STATUSES];
+        for (Object[] row : rows) {
+            counts[((RotationParticipant.UpdateStatus) row[0]).ordinal()] = ((Number) row[1]).longValue();
+        }
+        slot.install(counts, version, false);
+        return counts;
+    }
+
+    private Slot slot(UUID rotationId) {
+        return counters.computeIfAbsent(rotationId, k -> new Slot());
+    }
+
+    // A live slot for the rotation, with this transaction counted as in flight on it
+    private Slot beginCommit(UUID rotationId) {
+        while (true) {
+            Slot slot = slot(rotationId);
+            if (slot.begin()) {
+                return slot;
+            }
+        }
+    }
+
+    private void record(UUID rotationId, int status, long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            long[] counts = new long[STATUSES];
+            counts[status] = delta;
+            apply(rotationId, counts);
+            return;
+        }
+        transactionDeltas(true).computeIfAbsent(rotationId, k -> new long[STATUSES])[status] += delta;
+    }
+
+    private void apply(UUID rotationId, long[] deltas) {
+        Slot slot = counters.get(rotationId);
+        // Without a slot no read is cached or under way; the next one loads committed state
+        if (slot != null) {
+            slot.apply(deltas, false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<UUID, long[]> transactionDeltas(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<UUID, long[]> deltas = (Map<UUID, long[]>) TransactionSynchronizationManager.getResource(this);
+        if (deltas == null && create) {
+            Map<UUID, long[]> created = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private final Map<UUID, Slot> committing = new HashMap<>();
+
+                // A suspended transaction keeps its deltas to itself
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RotationProgressService.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(RotationProgressService.this, created);
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    created.keySet().forEach(rotationId -> committing.put(rotationId, beginCommit(rotationId)));
+                }
+
+                @Override
+                public void afterCommit() {
+                    created.forEach((rotationId, counts) -> {
+                        Slot slot = committing.remove(rotationId);
+                        if (slot != null) {
+                            slot.apply(counts, true);
+                        } else {
+                            apply(rotationId, counts);
+                        }
+                    });
+                    // Applied now; later after-commit hooks must not count them twice
+                    created.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    // Rolled back, or the outcome is unknown and the counters may be off
+                    committing.values().forEach(slot -> slot.end(status == STATUS_UNKNOWN));
+                    committing.clear();
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RotationProgressService.this);
+                }
+            });
+            deltas = created;
+        }
+        return deltas;
+    }
+
+    /**
+     * Committed counters of one rotation, with the transactions committing changes to it
+     */
+    private static final class Slot {
+        private final AtomicLongArray counts = new AtomicLongArray(STATUSES);
+        private volatile boolean loaded;
+        // Guarded by this: bumped whenever a transaction starts or finishes committing
+        private long version;
+        private int inFlight;
+        private boolean retired;
+
+        long[] counts() {
+            if (!loaded) {
+                return null;
+            }
+            long[] copy = new long[STATUSES];
+            for (int i = 0; i < STATUSES; i++) {
+                copy[i] = counts.get(i);
+            }
+            return copy;
+        }
+
+        // Version to check a query against, or -1 when a commit is already under way
+        synchronized long stableVersion() {
+            return inFlight == 0 ? version : -1;
+        }
+
+        synchronized boolean install(long[] fresh, long expectedVersion, boolean replace) {
+            if (retired || expectedVersion < 0 || version != expectedVersion || inFlight > 0 || (loaded && !replace)) {
+                return false;
+            }
+            for (int i = 0; i < STATUSES; i++) {
+                counts.set(i, fresh[i]);
+            }
+            loaded = true;
+            return true;
+        }
+
+        synchronized boolean begin() {
+            if (retired) {
+                return false;
+            }
+            inFlight++;
+            version++;
+            return true;
+        }
+
+        synchronized void apply(long[] deltas, boolean began) {
+            // Not loaded: the next query reads committed state, which already includes these
+            if (loaded) {
+                for (int i = 0; i < STATUSES; i++) {
+                    if (deltas[i] != 0) {
+                        counts.addAndGet(i, deltas[i]);
+                    }
+                }
+            }
+            version++;
+            if (began) {
+                inFlight--;
+            }
+        }
+
+        synchronized void end(boolean invalidate) {
+            inFlight--;
+            version++;
+            if (invalidate) {
+                loaded = false;
+            }
+        }
+
+        synchronized void invalidate() {
+            loaded = false;
+            version++;
+        }
+
+        synchronized boolean retire(long expectedVersion) {
+            if (expectedVersion < 0 || version != expectedVersion || inFlight > 0) {
+                return false;
+            }
+            retired = true;
+            loaded = false;
+            return true;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.artivisi.hsm.simulator.service;
 
+import com.artivisi.hsm.simulator.dto.ShareArchiveEntry;
+import com.artivisi.hsm.simulator.dto.ShareArchiveManifest;
 import com.artivisi.hsm.simulator.entity.CeremonyCustodian;
 import com.artivisi.hsm.simulator.entity.KeyCeremony;
 import com.artivisi.hsm.simulator.entity.KeyShare;
@@ -7,16 +9,28 @@ import com.artivisi.hsm.simulator.entity.MasterKey;
 import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
 import com.artivisi.hsm.simulator.repository.KeyShareRepository;
 import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Service for managing key share distribution including viewing, downloading,
@@ -27,11 +41,24 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ShareDistributionService {
 
+    public static final String MANIFEST_FILE = "manifest.json";
+    public static final String CHECKSUMS_FILE = "SHA256SUMS";
+
+    private static final String DOUBLE_RULE = "═══════════════════════════════════════════════════════════════";
+    private static final String SINGLE_RULE = "─────────────────────────────────────────────────────────────";
+    private static final int FIELD_WIDTH = 19;
+    private static final Base64.Encoder SHARE_ENCODER =
+            Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII));
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final KeyShareRepository shareRepository;
     private final MasterKeyRepository masterKeyRepository;
     private final CeremonyCustodianRepository ceremonyCustodianRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final CeremonyStatusService ceremonyStatusService;
+    private final CeremonyStatisticsService ceremonyStatisticsService;
     private final TemplateService templateService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Gets all shares for a ceremony with distribution status
@@ -80,89 +107,160 @@ public class ShareDistributionService {
     public byte[] generateShareDownload(KeyShare share) {
         log.info("Generating download for share: {}", share.getShareId());
 
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        try {
+            Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+            writeShareDocument(share, writer, LocalDateTime.now());
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Streams all shares of a ceremony as a ZIP archive: one share file per custodian, then
+     * manifest.json and SHA256SUMS with the SHA-256 of every file. Documents are rendered straight
+     * into the archive; the output stream is finished but not closed.
+     */
+    @Transactional(readOnly = true)
+    public void exportCeremonyShares(UUID ceremonyId, OutputStream out) throws IOException {
+        MasterKey masterKey = masterKeyRepository.findByKeyCeremonyId(ceremonyId)
+                .orElseThrow(() -> new IllegalArgumentException("Master key not found for ceremony"));
+        List<KeyShare> shares = shareRepository.findByMasterKeyIdWithCustodians(masterKey.getId());
+        if (shares.isEmpty()) {
+            throw new IllegalArgumentException("No shares found for ceremony");
+        }
+        KeyCeremony ceremony = masterKey.getKeyCeremony();
+        LocalDateTime generatedAt = LocalDateTime.now();
+        log.info("Exporting {} shares of ceremony {}", shares.size(), ceremony.getCeremonyId());
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        List<ShareArchiveEntry> entries = new ArrayList<>(shares.size());
+        StringBuilder checksums = new StringBuilder();
+
+        for (KeyShare share : shares) {
+            String file = "key-share-" + share.getShareId() + ".txt";
+            ZipEntry zipEntry = new ZipEntry(file);
+            zip.putNextEntry(zipEntry);
+
+            MessageDigest digest = sha256();
+            // Flushed, never closed: closing would close the archive
+            Writer writer = new OutputStreamWriter(new DigestOutputStream(zip, digest), StandardCharsets.UTF_8);
+            writeShareDocument(share, writer, generatedAt);
+            writer.flush();
+            zip.closeEntry();
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            checksums.append(hash).append("  ").append(file).append('\n');
+            entries.add(ShareArchiveEntry.builder()
+                    .file(file)
+                    .shareId(share.getShareId())
+                    .shareIndex(share.getShareIndex())
+                    .custodianLabel(share.getCeremonyCustodian().getCustodianLabel())
+                    .shareVerificationHash(share.getShareVerificationHash())
+                    .sha256(hash)
+                    .size(zipEntry.getSize())
+                    .build());
+        }
+
+        ShareArchiveManifest manifest = ShareArchiveManifest.builder()
+                .formatVersion(1)
+                .ceremonyId(ceremony.getCeremonyId())
+                .ceremonyName(ceremony.getCeremonyName())
+                .masterKeyId(masterKey.getMasterKeyId())
+                .masterKeyFingerprint(masterKey.getKeyFingerprint())
+                .threshold(ceremony.getThreshold())
+                .totalShares(ceremony.getNumberOfCustodians())
+                .hashAlgorithm("SHA-256")
+                .generatedAt(generatedAt)
+                .shares(entries)
+                .build();
+
+        zip.putNextEntry(new ZipEntry(MANIFEST_FILE));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry(CHECKSUMS_FILE));
+        zip.write(checksums.toString().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Writes the share text document; the layout is what OfflineRecoveryService parses
+     */
+    private void writeShareDocument(KeyShare share, Writer out, LocalDateTime generatedAt) throws IOException {
         CeremonyCustodian ceremonyCustodian = share.getCeremonyCustodian();
         MasterKey masterKey = share.getMasterKey();
         KeyCeremony ceremony = masterKey.getKeyCeremony();
 
-        // Build formatted text document
-        StringBuilder content = new StringBuilder();
-        content.append("═══════════════════════════════════════════════════════════════\n");
-        content.append("           HSM KEY CEREMONY - ENCRYPTED KEY SHARE\n");
-        content.append("═══════════════════════════════════════════════════════════════\n\n");
-
-        content.append("CEREMONY INFORMATION\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append(String.format("Ceremony Name:     %s\n", ceremony.getCeremonyName()));
-        content.append(String.format("Ceremony ID:       %s\n", ceremony.getCeremonyId()));
-        content.append(String.format("Completed:         %s\n", formatDateTime(ceremony.getCompletedAt())));
-        content.append(String.format("Algorithm:         %s\n", ceremony.getAlgorithm()));
-        content.append(String.format("Key Size:          %d bits\n", ceremony.getKeySize()));
-        content.append("\n");
-
-        content.append("MASTER KEY INFORMATION\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append(String.format("Master Key ID:     %s\n", masterKey.getMasterKeyId()));
-        content.append(String.format("Fingerprint:       %s\n", masterKey.getKeyFingerprint()));
-        content.append(String.format("Status:            %s\n", masterKey.getStatus()));
-        content.append(String.format("KDF Salt:          %s\n", masterKey.getKdfSalt()));
-        content.append("\n");
-
-        content.append("CUSTODIAN INFORMATION\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append(String.format("Custodian:         %s\n", ceremonyCustodian.getCustodianLabel()));
-        content.append(String.format("Name:              %s\n", ceremonyCustodian.getKeyCustodian().getFullName()));
-        content.append(String.format("Email:             %s\n", ceremonyCustodian.getKeyCustodian().getEmail()));
-        content.append("\n");
-
-        content.append("SHARE INFORMATION\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append(String.format("Share ID:          %s\n", share.getShareId()));
-        content.append(String.format("Share Index:       %d of %d\n", share.getShareIndex(), ceremony.getNumberOfCustodians()));
-        content.append(String.format("Threshold:         %d shares required for recovery\n", ceremony.getThreshold()));
-        content.append(String.format("Polynomial Degree: %d\n", share.getPolynomialDegree()));
-        content.append(String.format("Generated:         %s\n", formatDateTime(share.getGeneratedAt())));
-        content.append("\n");
-
-        content.append("VERIFICATION\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append(String.format("Verification Hash: %s\n", share.getShareVerificationHash()));
-        content.append("\n");
-
-        content.append("ENCRYPTED SHARE DATA\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append("Format: Base64-encoded AES-256-GCM encrypted data\n");
-        content.append("The encrypted data includes:\n");
-        content.append("  - Shamir share index and value\n");
-        content.append("  - Prime modulus for reconstruction\n");
-        content.append("  - Threshold information\n\n");
-
-        // Encode share data as Base64
-        String encodedShare = Base64.getEncoder().encodeToString(share.getShareDataEncrypted());
-
-        // Format in 64-character lines
-        content.append("BEGIN ENCRYPTED SHARE\n");
-        for (int i = 0; i < encodedShare.length(); i += 64) {
-            int end = Math.min(i + 64, encodedShare.length());
-            content.append(encodedShare.substring(i, end)).append("\n");
-        }
-        content.append("END ENCRYPTED SHARE\n");
-        content.append("\n");
-
-        content.append("SECURITY NOTICE\n");
-        content.append("─────────────────────────────────────────────────────────────\n");
-        content.append("• Store this share in a secure location\n");
-        content.append("• Do NOT share with unauthorized personnel\n");
-        content.append("• Any " + ceremony.getThreshold() + " shares can reconstruct the master key\n");
-        content.append("• Required for HSM recovery operations\n");
-        content.append("• Contact security team if compromised\n");
-        content.append("\n");
-
-        content.append("═══════════════════════════════════════════════════════════════\n");
-        content.append("        Generated by HSM Simulator - ArtiVisi Intermedia\n");
-        content.append(String.format("        %s\n", formatDateTime(LocalDateTime.now())));
-        content.append("═══════════════════════════════════════════════════════════════\n");
-
-        return content.toString().getBytes(StandardCharsets.UTF_8);
+        line(out, DOUBLE_RULE);
+        line(out, "           HSM KEY CEREMONY - ENCRYPTED KEY SHARE");
+        line(out, DOUBLE_RULE);
+        line(out, "");
+
+        section(out, "CEREMONY INFORMATION");
+        field(out, "Ceremony Name:", ceremony.getCeremonyName());
+        field(out, "Ceremony ID:", ceremony.getCeremonyId());
+        field(out, "Completed:", formatDateTime(ceremony.getCompletedAt()));
+        field(out, "Algorithm:", ceremony.getAlgorithm());
+        field(out, "Key Size:", ceremony.getKeySize() + " bits");
+        line(out, "");
+
+        section(out, "MASTER KEY INFORMATION");
+        field(out, "Master Key ID:", masterKey.getMasterKeyId());
+        field(out, "Fingerprint:", masterKey.getKeyFingerprint());
+        field(out, "Status:", masterKey.getStatus());
+        field(out, "KDF Salt:", masterKey.getKdfSalt());
+        line(out, "");
+
+        section(out, "CUSTODIAN INFORMATION");
+        field(out, "Custodian:", ceremonyCustodian.getCustodianLabel());
+        field(out, "Name:", ceremonyCustodian.getKeyCustodian().getFullName());
+        field(out, "Email:", ceremonyCustodian.getKeyCustodian().getEmail());
+        line(out, "");
+
+        section(out, "SHARE INFORMATION");
+        field(out, "Share ID:", share.getShareId());
+        field(out, "Share Index:", share.getShareIndex() + " of " + ceremony.getNumberOfCustodians());
+        field(out, "Threshold:", ceremony.getThreshold() + " shares required for recovery");
+        field(out, "Polynomial Degree:", share.getPolynomialDegree());
+        field(out, "Generated:", formatDateTime(share.getGeneratedAt()));
+        line(out, "");
+
+        section(out, "VERIFICATION");
+        field(out, "Verification Hash:", share.getShareVerificationHash());
+        line(out, "");
+
+        section(out, "ENCRYPTED SHARE DATA");
+        line(out, "Format: Base64-encoded AES-256-GCM encrypted data");
+        line(out, "The encrypted data includes:");
+        line(out, "  - Shamir share index and value");
+        line(out, "  - Prime modulus for reconstruction");
+        line(out, "  - Threshold information");
+        line(out, "");
+
+        // Base64 in 64-character lines
+        line(out, "BEGIN ENCRYPTED SHARE");
+        line(out, SHARE_ENCODER.encodeToString(share.getShareDataEncrypted()));
+        line(out, "END ENCRYPTED SHARE");
+        line(out, "");
+
+        section(out, "SECURITY NOTICE");
+        line(out, "• Store this share in a secure location");
+        line(out, "• Do NOT share with unauthorized personnel");
+        line(out, "• Any " + ceremony.getThreshold() + " shares can reconstruct the master key");
+        line(out, "• Required for HSM recovery operations");
+        line(out, "• Contact security team if compromised");
+        line(out, "");
+
+        line(out, DOUBLE_RULE);
+        line(out, "        Generated by HSM Simulator - ArtiVisi Intermedia");
+        line(out, "        " + formatDateTime(generatedAt));
+        line(out, DOUBLE_RULE);
     }
 
     /**
@@ -175,16 +273,18 @@ public class ShareDistributionService {
         share.setDistributedAt(LocalDateTime.now());
         share.setDistributionMethod(method);
         shareRepository.save(share);
+        ceremonyStatusService.shareDistributed(share);
+        ceremonyStatisticsService.shareDistributed(share);
 
         log.info("Share marked as distributed");
     }
 
     /**
-     * Sends share via email with attachment
+     * Queues the share email with attachment; the share is marked distributed once the outbox delivers it
      */
     @Transactional
     public void sendShareViaEmail(KeyShare share) {
-        log.info("Sending share via email: {}", share.getShareId());
+        log.info("Queueing share email: {}", share.getShareId());
 
         CeremonyCustodian ceremonyCustodian = share.getCeremonyCustodian();
         MasterKey masterKey = share.getMasterKey();
@@ -205,30 +305,14 @@ public class ShareDistributionService {
                 ceremony.getNumberOfCustodians()
         );
 
-        // Send email with attachment
-        try {
-            emailService.sendHtmlEmailWithAttachment(
-                    recipientEmail,
-                    "Your HSM Key Share - " + ceremony.getCeremonyName(),
-                    htmlContent,
-                    "key-share-" + share.getShareId() + ".txt",
-                    shareContent
-            );
-
-            // Mark as distributed
-            markAsDistributed(share, KeyShare.DistributionMethod.EMAIL);
-
-            // Log appropriate message based on whether email was actually sent
-            if (emailService.isEmailEnabled()) {
-                log.info("Email sent successfully to {}", recipientEmail);
-            } else {
-                log.info("Email sending disabled - simulated email to {}", recipientEmail);
-            }
-
-        } catch (Exception e) {
-            log.error("Failed to send email to {}", recipientEmail, e);
-            throw new RuntimeException("Failed to send email: " + e.getMessage(), e);
-        }
+        emailOutboxService.enqueueKeyShare(
+                share.getId(),
+                recipientEmail,
+                "Your HSM Key Share - " + ceremony.getCeremonyName(),
+                htmlContent,
+                "key-share-" + share.getShareId() + ".txt",
+                shareContent
+        );
     }
 
     /**
@@ -275,7 +359,34 @@ public class ShareDistributionService {
 
     private String formatDateTime(LocalDateTime dateTime) {
         if (dateTime == null) return "N/A";
-        return dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        return dateTime.format(DATE_TIME_FORMAT);
+    }
+
+    private static void line(Writer out, String text) throws IOException {
+        out.write(text);
+        out.write('\n');
+    }
+
+    private static void section(Writer out, String title) throws IOException {
+        line(out, title);
+        line(out, SINGLE_RULE);
+    }
+
+    // Label padded to the value column
+    private static void field(Writer out, String label, Object value) throws IOException {
+        out.write(label);
+        for (int i = label.length(); i < FIELD_WIDTH; i++) {
+            out.write(' ');
+        }
+        line(out, String.valueOf(value));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     // ===== Response Classes =====
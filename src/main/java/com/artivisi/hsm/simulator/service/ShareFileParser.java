@@ -0,0 +1,214 @@
+package com.artivisi.hsm.simulator.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line-by-line reader for key share files.
+ * Header fields are collected until BEGIN ENCRYPTED SHARE, where missing required fields reject the
+ * file before its data is read. The Base64 block is validated and decoded a line at a time while the
+ * share verification hash is computed over the decoded bytes, and reading stops at END ENCRYPTED SHARE.
+ * Lines and total size are bounded, so an oversized or binary upload fails after at most maxBytes.
+ */
+final class ShareFileParser {
+
+    static final int MAX_LINE_LENGTH = 1024;
+    static final int SALT_LENGTH = 32;
+
+    private static final String BEGIN_MARKER = "BEGIN ENCRYPTED SHARE";
+    private static final String END_MARKER = "END ENCRYPTED SHARE";
+
+    private static final String SHARE_ID = "Share ID:";
+    private static final String SHARE_INDEX = "Share Index:";
+    private static final String THRESHOLD = "Threshold:";
+    private static final String FINGERPRINT = "Fingerprint:";
+    private static final String KDF_SALT = "KDF Salt:";
+    private static final String CEREMONY_NAME = "Ceremony Name:";
+    private static final String CEREMONY_ID = "Ceremony ID:";
+    private static final String EMAIL = "Email:";
+    private static final String VERIFICATION_HASH = "Verification Hash:";
+
+    private static final List<String> LABELS = List.of(SHARE_ID, SHARE_INDEX, THRESHOLD, FINGERPRINT, KDF_SALT,
+            CEREMONY_NAME, CEREMONY_ID, EMAIL, VERIFICATION_HASH);
+    private static final List<String> REQUIRED = List.of(SHARE_ID, SHARE_INDEX, THRESHOLD, CEREMONY_ID, EMAIL);
+
+    private final Reader reader;
+    private final String fileName;
+    private final long maxBytes;
+    private final StringBuilder line = new StringBuilder();
+    private final Map<String, String> fields = new HashMap<>();
+    private int lineNumber;
+    private long charsRead;
+
+    private ShareFileParser(InputStream in, String fileName, long maxBytes) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.fileName = fileName;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Parse one share file; the stream is read up to the end of the encrypted share block and not closed
+     */
+    static OfflineRecoveryService.ParsedShare parse(InputStream in, String fileName, long maxBytes) throws IOException {
+        return new ShareFileParser(in, fileName, maxBytes).parse();
+    }
+
+    private OfflineRecoveryService.ParsedShare parse() throws IOException {
+        String text;
+        while ((text = readLine()) != null && !text.trim().equals(BEGIN_MARKER)) {
+            for (String label : LABELS) {
+                if (text.startsWith(label)) {
+                    String value = text.substring(label.length()).trim();
+                    if (!value.isEmpty()) {
+                        fields.putIfAbsent(label, value);
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (REQUIRED.stream().anyMatch(label -> !fields.containsKey(label))) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid share file format (%s): missing required fields (shareId, shareIndex, threshold, ceremonyId, email)",
+                    fileName));
+        }
+        if (text == null) {
+            throw new IllegalArgumentException("Invalid share file (" + fileName + "): no encrypted data found");
+        }
+        int shareIndex = leadingNumber(SHARE_INDEX);   // "1 of 3" -> 1
+        int threshold = leadingNumber(THRESHOLD);      // "2 shares required" -> 2
+
+        MessageDigest digest = sha256();
+        byte[] shareData = readEncryptedBlock(digest);
+        String computedHash = HexFormat.of().formatHex(digest.digest());
+
+        String expectedHash = fields.get(VERIFICATION_HASH);
+        if (expectedHash != null && !expectedHash.equalsIgnoreCase(computedHash)) {
+            throw new IllegalArgumentException(String.format(
+                    "Share file %s: verification hash mismatch, the share data was altered or corrupted", fileName));
+        }
+
+        return OfflineRecoveryService.ParsedShare.builder()
+                .shareId(fields.get(SHARE_ID))
+                .shareIndex(shareIndex)
+                .threshold(threshold)
+                .encryptedShareData(shareData)
+                .masterKeyFingerprint(fields.get(FINGERPRINT))
+                .kdfSalt(fields.get(KDF_SALT))
+                .ceremonyName(fields.get(CEREMONY_NAME))
+                .ceremonyId(fields.get(CEREMONY_ID))
+                .custodianEmail(fields.get(EMAIL))
+                .fileName(fileName)
+                .verificationHash(computedHash)
+                .hashVerified(expectedHash != null)
+                .build();
+    }
+
+    // Decodes whole 4-character groups as lines arrive; a partial group carries over to the next line
+    private byte[] readEncryptedBlock(MessageDigest digest) throws IOException {
+        Base64.Decoder decoder = Base64.getDecoder();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        StringBuilder pending = new StringBuilder();
+        int padding = 0;
+
+        String text;
+        while ((text = readLine()) != null) {
+            String trimmed = text.trim();
+            if (trimmed.equals(END_MARKER)) {
+                if (!pending.isEmpty()) {
+                    throw fail("Base64 data is truncated");
+                }
+                if (data.size() <= SALT_LENGTH) {
+                    throw fail("encrypted share data is too short");
+                }
+                return data.toByteArray();
+            }
+            for (int i = 0; i < trimmed.length(); i++) {
+                char c = trimmed.charAt(i);
+                if (c == '=') {
+                    if (++padding > 2) {
+                        throw fail("invalid Base64 padding");
+                    }
+                } else if (padding > 0) {
+                    throw fail("data after Base64 padding");
+                } else if (!isBase64(c)) {
+                    throw fail("invalid Base64 character '" + c + "'");
+                }
+                pending.append(c);
+            }
+            int whole = pending.length() & ~3;
+            if (whole > 0) {
+                byte[] chunk = decoder.decode(pending.substring(0, whole));
+                digest.update(chunk);
+                data.writeBytes(chunk);
+                pending.delete(0, whole);
+            }
+        }
+        throw fail("missing " + END_MARKER + " marker");
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (++charsRead > maxBytes) {
+                throw new IllegalArgumentException(String.format(
+                        "Share file %s exceeds the maximum size of %d bytes", fileName, maxBytes));
+            }
+            if (c == '\n') {
+                lineNumber++;
+                return line.toString();
+            }
+            if (c != '\r') {
+                if (line.length() == MAX_LINE_LENGTH) {
+                    lineNumber++;
+                    throw fail("line longer than " + MAX_LINE_LENGTH + " characters");
+                }
+                line.append((char) c);
+            }
+        }
+        if (line.isEmpty()) {
+            return null;
+        }
+        lineNumber++;
+        return line.toString();
+    }
+
+    private int leadingNumber(String label) {
+        String value = fields.get(label);
+        try {
+            return Integer.parseInt(value.split(" ")[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid share file (%s): %s '%s' is not a number", fileName, label, value));
+        }
+    }
+
+    private IllegalArgumentException fail(String reason) {
+        return new IllegalArgumentException(String.format("Share file %s line %d: %s", fileName, lineNumber, reason));
+    }
+
+    private static boolean isBase64(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/';
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.TerminalKeyNotice;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.entity.Terminal;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import com.artivisi.hsm.simulator.repository.TerminalRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Push channel for terminal key delivery.
+ * Terminals hold an SSE stream or a long-poll request per terminal ID; when a rotation that
+ * includes them commits, a notice is pushed so they call get-updated-key once instead of polling.
+ * A new subscriber is told immediately about a rotation that is already waiting for it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TerminalKeyPushService {
+
+    private static final String NOTICE_MESSAGE = "New key available. Retrieve it with get-updated-key and confirm installation.";
+
+    private final TerminalRepository terminalRepository;
+    private final RotationParticipantRepository participantRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${hsm.rotation.push.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${hsm.rotation.push.long-poll-max-ms:60000}")
+    private long longPollMaxMs;
+
+    private final Map<String, Subscribers> subscriptions = new ConcurrentHashMap<>();
+
+    // Pushes run off the committing thread so a slow client cannot hold up a rotation
+    private final ExecutorService pushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    void stopPush() {
+        pushExecutor.shutdownNow();
+        subscriptions.values().forEach(s -> s.emitters.forEach(SseEmitter::complete));
+    }
+
+    /**
+     * Open an SSE stream of rotation notices for a terminal
+     */
+    public SseEmitter subscribe(String terminalId) {
+        Terminal terminal = findTerminal(terminalId);
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Runnable remove = () -> removeEmitter(terminalId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        // Register before looking up pending work, so a rotation committed in between is not missed
+        subscriptions.compute(terminalId, (k, s) -> (s != null ? s : new Subscribers()).add(emitter));
+        log.debug("Terminal {} subscribed to key updates ({} terminals subscribed)", terminalId, subscriptions.size());
+
+        pendingNotice(terminal).ifPresent(notice -> send(terminalId, emitter, notice));
+        return emitter;
+    }
+
+    /**
+     * Wait up to the given time for a rotation notice; completes with 204 No Content on timeout
+     */
+    public DeferredResult<ResponseEntity<?>> poll(String terminalId, long timeoutMs) {
+        Terminal terminal = findTerminal(terminalId);
+
+        long timeout = timeoutMs > 0 ? Math.min(timeoutMs, longPollMaxMs) : longPollMaxMs;
+        DeferredResult<ResponseEntity<?>> waiter = new DeferredResult<>(timeout, ResponseEntity.noContent().build());
+        waiter.onCompletion(() -> removeWaiter(terminalId, waiter));
+
+        subscriptions.compute(terminalId, (k, s) -> (s != null ? s : new Subscribers()).add(waiter));
+
+        pendingNotice(terminal).ifPresent(notice -> waiter.setResult(ResponseEntity.ok(notice)));
+        return waiter;
+    }
+
+    /**
+     * Notify subscribed terminals of a new rotation once the current transaction commits
+     */
+    public void rotationStarted(KeyRotationHistory rotation, Collection<String> terminalIds) {
+        TerminalKeyNotice notice = toNotice(rotation);
+        schedule(terminalIds.stream().map(terminalId -> new Push(terminalId, notice)).toList());
+    }
+
+    /**
+     * Notify subscribed terminals of per-terminal rotations (keyed by terminal ID) once the current transaction commits
+     */
+    public void rotationsStarted(Map<String, KeyRotationHistory> rotationsByTerminal) {
+        schedule(rotationsByTerminal.entrySet().stream()
+                .map(entry -> new Push(entry.getKey(), toNotice(entry.getValue())))
+                .toList());
+    }
+
+    public int getSubscribedTerminalCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Keep idle SSE connections alive through proxies and drop the ones whose client went away
+     */
+    @Scheduled(fixedDelayString = "${hsm.rotation.push.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        subscriptions.forEach((terminalId, s) -> s.emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+            } catch (IOException | IllegalStateException e) {
+                removeEmitter(terminalId, emitter);
+            }
+        }));
+    }
+
+    // ===== INTERNALS =====
+
+    private void schedule(List<Push> pushes) {
+        if (pushes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliverAsync(pushes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliverAsync(pushes);
+            }
+        });
+    }
+
+    private void deliverAsync(List<Push> pushes) {
+        // Most terminals of a large fleet are not subscribed; skip the hand-off entirely then
+        if (!subscriptions.isEmpty()) {
+            pushExecutor.execute(() -> deliver(pushes));
+        }
+    }
+
+    private void deliver(List<Push> pushes) {
+        int delivered = 0;
+        for (Push push : pushes) {
+            Subscribers s = subscriptions.get(push.terminalId());
+            if (s == null) {
+                continue;
+            }
+            s.emitters.forEach(emitter -> send(push.terminalId(), emitter, push.notice()));
+            // Completion callback removes the waiter
+            s.waiters.forEach(waiter -> waiter.setResult(ResponseEntity.ok(push.notice())));
+            delivered++;
+        }
+        if (delivered > 0) {
+            log.info("{} rotation notices pushed to subscribed terminals", delivered);
+        }
+    }
+
+    private void send(String terminalId, SseEmitter emitter, TerminalKeyNotice notice) {
+        try {
+            emitter.send(SseEmitter.event().name("rotation").data(notice, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not push rotation to terminal {}: {}", terminalId, e.getMessage());
+            removeEmitter(terminalId, emitter);
+        }
+    }
+
+    private Terminal findTerminal(String terminalId) {
+        return terminalRepository.findByTerminalId(terminalId)
+                .orElseThrow(() -> new IllegalArgumentException("Terminal not found: " + terminalId));
+    }
+
+    private Optional<TerminalKeyNotice> pendingNotice(Terminal terminal) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        // Only undelivered rotations: once fetched, a notice would send a long-polling terminal straight back
+        return readOnly.execute(status -> participantRepository
+                .findInProgressRotationsForTerminal(terminal.getId(),
+                        List.of(RotationParticipant.UpdateStatus.PENDING), PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .map(this::toNotice));
+    }
+
+    private TerminalKeyNotice toNotice(KeyRotationHistory rotation) {
+        return TerminalKeyNotice.builder()
+                .rotationId(rotation.getId())
+                .rotationIdString(rotation.getRotationId())
+                .keyType(rotation.getNewKey().getKeyType().toString())
+                .newKeyId(rotation.getNewKey().getMasterKeyId())
+                .rotationStartedAt(rotation.getRotationStartedAt())
+                .message(NOTICE_MESSAGE)
+                .build();
+    }
+
+    private void removeEmitter(String terminalId, SseEmitter emitter) {
+        subscriptions.computeIfPresent(terminalId, (k, s) -> {
+            s.emitters.remove(emitter);
+            return s.isEmpty() ? null : s;
+        });
+    }
+
+    private void removeWaiter(String terminalId, DeferredResult<ResponseEntity<?>> waiter) {
+        subscriptions.computeIfPresent(terminalId, (k, s) -> {
+            s.waiters.remove(waiter);
+            return s.isEmpty() ? null : s;
+        });
+    }
+
+    private record Push(String terminalId, TerminalKeyNotice notice) {
+    }
+
+    /**
+     * Open streams and pending long-polls of one terminal
+     */
+    private static class Subscribers {
+        private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+        private final Set<DeferredResult<ResponseEntity<?>>> waiters = ConcurrentHashMap.newKeySet();
+
+        Subscribers add(SseEmitter emitter) {
+            emitters.add(emitter);
+            return this;
+        }
+
+        Subscribers add(DeferredResult<ResponseEntity<?>> waiter) {
+            waiters.add(waiter);
+            return this;
+        }
+
+        boolean isEmpty() {
+            return emitters.isEmpty() && waiters.isEmpty();
+        }
+    }
+}
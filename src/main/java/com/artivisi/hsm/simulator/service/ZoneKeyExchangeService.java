@@ -0,0 +1,399 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.config.CryptoConstants;
+import com.artivisi.hsm.simulator.dto.ZoneKeyBatchExportRequest;
+import com.artivisi.hsm.simulator.dto.ZoneKeyBundle;
+import com.artivisi.hsm.simulator.dto.ZoneKeyBundleEntry;
+import com.artivisi.hsm.simulator.dto.ZoneKeyImportResponse;
+import com.artivisi.hsm.simulator.entity.Bank;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.ZoneKeyExchange;
+import com.artivisi.hsm.simulator.repository.BankRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.ZoneKeyExchangeRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Batch zone key exchange between HSM instances sharing a ZMK.
+ * A set of ZPK/ZSK keys is exported as one bundle: a KEK and a signing key are derived from the ZMK
+ * once per bundle (a single PBKDF2 run instead of one per key), every key is wrapped under the KEK with
+ * AES-GCM, and the bundle is signed with HMAC-SHA256. The exchanges are recorded with one batched insert.
+ * The partner instance imports the bundle in one pass: it verifies the signature and every KCV before
+ * storing any key.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ZoneKeyExchangeService {
+
+    static final int BUNDLE_FORMAT_VERSION = 1;
+
+    private static final Set<KeyType> BUNDLE_KEY_TYPES = EnumSet.of(KeyType.ZPK, KeyType.ZSK);
+    private static final String SEPARATOR = "|";
+
+    private final MasterKeyRepository masterKeyRepository;
+    private final BankRepository bankRepository;
+    private final ZoneKeyExchangeRepository zoneKeyExchangeRepository;
+    private final KeyGenerationService keyGenerationService;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${hsm.zone-exchange.max-bundle-keys:500}")
+    private int maxBundleKeys;
+
+    /**
+     * Wrap the requested zone keys under the ZMK and record one IN_TRANSIT exchange per key
+     */
+    @Transactional
+    public ZoneKeyBundle exportBundle(ZoneKeyBatchExportRequest request, String initiatedBy) {
+        if (request.getZmkId() == null || request.getDestinationBankCode() == null) {
+            throw new IllegalArgumentException("zmkId and destinationBankCode are required");
+        }
+        List<UUID> keyIds = request.getKeyIds() == null ? List.of() : List.copyOf(new LinkedHashSet<>(request.getKeyIds()));
+        requireBundleSize(keyIds.size());
+
+        MasterKey zmk = masterKeyRepository.findById(request.getZmkId())
+                .orElseThrow(() -> new IllegalArgumentException("ZMK not found: " + request.getZmkId()));
+        requireActiveZmk(zmk);
+        Bank sourceBank = bankRepository.findById(zmk.getIdBank())
+                .orElseThrow(() -> new IllegalStateException("Bank not found for ZMK: " + zmk.getMasterKeyId()));
+        Bank destinationBank = bankRepository.findByBankCode(request.getDestinationBankCode())
+                .orElseThrow(() -> new IllegalArgumentException("Bank not found: " + request.getDestinationBankCode()));
+        if (sourceBank.getId().equals(destinationBank.getId())) {
+            throw new IllegalArgumentException("Destination bank must differ from the ZMK's bank");
+        }
+        ZoneKeyExchange.ExchangeType exchangeType = request.getExchangeType() != null
+                ? ZoneKeyExchange.ExchangeType.valueOf(request.getExchangeType().toUpperCase())
+                : ZoneKeyExchange.ExchangeType.INITIAL;
+
+        Map<UUID, MasterKey> keysById = masterKeyRepository.findAllById(keyIds).stream()
+                .collect(Collectors.toMap(MasterKey::getId, Function.identity()));
+        List<MasterKey> keys = new ArrayList<>(keyIds.size());
+        for (UUID keyId : keyIds) {
+            MasterKey key = keysById.get(keyId);
+            if (key == null) {
+                throw new IllegalArgumentException("Key not found: " + keyId);
+            }
+            if (!BUNDLE_KEY_TYPES.contains(key.getKeyType()) || key.getStatus() != MasterKey.KeyStatus.ACTIVE) {
+                throw new IllegalArgumentException("Only ACTIVE ZPK/ZSK keys can be exported: " + key.getMasterKeyId());
+            }
+            keys.add(key);
+        }
+
+        String bundleId = "ZKB-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        BundleKeys bundleKeys = deriveBundleKeys(zmk, bundleId);
+        try {
+            List<ZoneKeyBundleEntry> entries = new ArrayList<>(keys.size());
+            List<ZoneKeyExchange> exchanges = new ArrayList<>(keys.size());
+            String transportKeyFingerprint = CryptoUtils.generateFingerprint(bundleKeys.kek());
+            for (int i = 0; i < keys.size(); i++) {
+                MasterKey key = keys.get(i);
+                String exchangeId = String.format("%s-%04d", bundleId, i + 1);
+                entries.add(ZoneKeyBundleEntry.builder()
+                        .exchangeId(exchangeId)
+                        .masterKeyId(key.getMasterKeyId())
+                        .keyType(key.getKeyType().toString())
+                        .algorithm(key.getAlgorithm())
+                        .keySize(key.getKeySize())
+                        .wrappedKey(wrap(bundleKeys.kek(), key.getKeyData(),
+                                associatedData(bundleId, key.getMasterKeyId(), key.getKeyType().toString())))
+                        .keyCheckValue(CryptoUtils.calculateKeyCheckValue(key.getKeyData()))
+                        .build());
+                exchanges.add(ZoneKeyExchange.builder()
+                        .exchangeId(exchangeId)
+                        .bundleId(bundleId)
+                        .sourceBank(sourceBank)
+                        .destinationBank(destinationBank)
+                        .zmk(zmk)
+                        .exchangedKey(key)
+                        .exchangeType(exchangeType)
+                        .keyTransportMethod(ZoneKeyExchange.TransportMethod.ENCRYPTED_UNDER_ZMK)
+                        .transportKeyFingerprint(transportKeyFingerprint)
+                        .exchangeStatus(ZoneKeyExchange.ExchangeStatus.IN_TRANSIT)
+                        .initiatedBy(initiatedBy)
+                        .build());
+            }
+
+            ZoneKeyBundle bundle = ZoneKeyBundle.builder()
+                    .formatVersion(BUNDLE_FORMAT_VERSION)
+                    .bundleId(bundleId)
+                    .sourceBankCode(sourceBank.getBankCode())
+                    .destinationBankCode(destinationBank.getBankCode())
+                    .zmkChecksum(zmk.getKeyChecksum())
+                    .exchangeType(exchangeType.toString())
+                    .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+                    .keys(entries)
+                    .build();
+            bundle.setSignature(CryptoUtils.bytesToHex(sign(bundleKeys.signingKey(), bundle)));
+
+            zoneKeyExchangeRepository.saveAll(exchanges);
+
+            log.info("Zone key bundle {} exported: {} keys from {} to {} under {}",
+                    bundleId, entries.size(), sourceBank.getBankCode(), destinationBank.getBankCode(), zmk.getMasterKeyId());
+            return bundle;
+        } finally {
+            bundleKeys.clear();
+        }
+    }
+
+    /**
+     * Verify and unwrap a partner's bundle, storing its keys under the local copy of the ZMK.
+     * Nothing is stored unless the signature and every key check value match.
+     * Keys already present on this instance are skipped, so a bundle can be re-imported.
+     */
+    @Transactional
+    public ZoneKeyImportResponse importBundle(ZoneKeyBundle bundle, String importedBy) {
+        if (bundle.getFormatVersion() != BUNDLE_FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported bundle format version: " + bundle.getFormatVersion());
+        }
+        if (bundle.getBundleId() == null || bundle.getZmkChecksum() == null || bundle.getSignature() == null
+                || bundle.getSourceBankCode() == null || bundle.getCreatedAt() == null) {
+            throw new IllegalArgumentException("Bundle is missing required fields");
+        }
+        List<ZoneKeyBundleEntry> entries = bundle.getKeys() == null ? List.of() : bundle.getKeys();
+        requireBundleSize(entries.size());
+
+        MasterKey zmk = masterKeyRepository.findByKeyTypeAndStatusAndKeyChecksum(
+                        KeyType.ZMK, MasterKey.KeyStatus.ACTIVE, bundle.getZmkChecksum())
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No active ZMK matches bundle ZMK checksum " + bundle.getZmkChecksum()));
+        requireActiveZmk(zmk);
+        Bank localBank = bankRepository.findById(zmk.getIdBank())
+                .orElseThrow(() -> new IllegalStateException("Bank not found for ZMK: " + zmk.getMasterKeyId()));
+        if (bundle.getDestinationBankCode() != null && !bundle.getDestinationBankCode().equals(localBank.getBankCode())) {
+            throw new IllegalArgumentException(String.format("Bundle is addressed to bank %s, ZMK belongs to %s",
+                    bundle.getDestinationBankCode(), localBank.getBankCode()));
+        }
+        Bank partnerBank = bankRepository.findByBankCode(bundle.getSourceBankCode())
+                .orElseThrow(() -> new IllegalArgumentException("Partner bank not registered: " + bundle.getSourceBankCode()));
+        ZoneKeyExchange.ExchangeType exchangeType = bundle.getExchangeType() != null
+                ? ZoneKeyExchange.ExchangeType.valueOf(bundle.getExchangeType())
+                : ZoneKeyExchange.ExchangeType.INITIAL;
+
+        BundleKeys bundleKeys = deriveBundleKeys(zmk, bundle.getBundleId());
+        try {
+            if (!MessageDigest.isEqual(sign(bundleKeys.signingKey(), bundle), CryptoUtils.hexToBytes(bundle.getSignature()))) {
+                throw new IllegalArgumentException("Bundle signature does not match; it was altered or not made with this ZMK");
+            }
+
+            // Unwrap and check everything before storing anything
+            List<MasterKey> newKeys = new ArrayList<>(entries.size());
+            List<String> exchangeIds = new ArrayList<>(entries.size());
+            Set<String> fingerprints = new LinkedHashSet<>();
+            LocalDateTime now = LocalDateTime.now();
+            int skipped = 0;
+            for (ZoneKeyBundleEntry entry : entries) {
+                KeyType keyType = KeyType.valueOf(entry.getKeyType());
+                if (!BUNDLE_KEY_TYPES.contains(keyType)) {
+                    throw new IllegalArgumentException("Unexpected key type in bundle: " + entry.getKeyType());
+                }
+                byte[] keyData = unwrap(bundleKeys.kek(), entry.getWrappedKey(),
+                        associatedData(bundle.getBundleId(), entry.getMasterKeyId(), entry.getKeyType()));
+                if (!CryptoUtils.calculateKeyCheckValue(keyData).equalsIgnoreCase(entry.getKeyCheckValue())) {
+                    throw new IllegalArgumentException("Key check value mismatch for " + entry.getMasterKeyId());
+                }
+
+                String fingerprint = CryptoUtils.generateFingerprint(keyData);
+                if (!fingerprints.add(fingerprint) || masterKeyRepository.findByKeyFingerprint(fingerprint).isPresent()) {
+                    skipped++;
+                    continue;
+                }
+                if (masterKeyRepository.findByMasterKeyId(entry.getMasterKeyId()).isPresent()) {
+                    throw new IllegalStateException("Key ID already in use with different key material: " + entry.getMasterKeyId());
+                }
+                newKeys.add(MasterKey.builder()
+                        .masterKeyId(entry.getMasterKeyId())
+                        .parentKeyId(zmk.getId())
+                        .idBank(zmk.getIdBank())
+                        .keyType(keyType)
+                        .algorithm(entry.getAlgorithm())
+                        .keySize(entry.getKeySize())
+                        .keyData(keyData)
+                        .keyFingerprint(fingerprint)
+                        .keyChecksum(CryptoUtils.generateChecksum(keyData))
+                        .combinedEntropyHash(fingerprint)
+                        .generationMethod("KEY_EXCHANGE")
+                        .kdfIterations(0)
+                        .kdfSalt("N/A")
+                        .status(MasterKey.KeyStatus.ACTIVE)
+                        .activatedAt(now)
+                        .build());
+                exchangeIds.add(entry.getExchangeId());
+            }
+
+            masterKeyRepository.saveAll(newKeys);
+            String transportKeyFingerprint = CryptoUtils.generateFingerprint(bundleKeys.kek());
+            List<ZoneKeyExchange> exchanges = new ArrayList<>(newKeys.size());
+            for (int i = 0; i < newKeys.size(); i++) {
+                exchanges.add(ZoneKeyExchange.builder()
+                        .exchangeId(exchangeIds.get(i))
+                        .bundleId(bundle.getBundleId())
+                        .sourceBank(partnerBank)
+                        .destinationBank(localBank)
+                        .zmk(zmk)
+                        .exchangedKey(newKeys.get(i))
+                        .exchangeType(exchangeType)
+                        .keyTransportMethod(ZoneKeyExchange.TransportMethod.ENCRYPTED_UNDER_ZMK)
+                        .transportKeyFingerprint(transportKeyFingerprint)
+                        .exchangeStatus(ZoneKeyExchange.ExchangeStatus.ACKNOWLEDGED)
+                        .acknowledgedAt(now)
+                        .acknowledgedBy(importedBy)
+                        .initiatedBy("PARTNER:" + partnerBank.getBankCode())
+                        .build());
+            }
+            zoneKeyExchangeRepository.saveAll(exchanges);
+
+            log.info("Zone key bundle {} imported from {}: {} keys stored, {} already present",
+                    bundle.getBundleId(), partnerBank.getBankCode(), newKeys.size(), skipped);
+
+            return ZoneKeyImportResponse.builder()
+                    .bundleId(bundle.getBundleId())
+                    .imported(newKeys.size())
+                    .skipped(skipped)
+                    .importedKeyIds(newKeys.stream().map(MasterKey::getMasterKeyId).toList())
+                    .message(String.format("%d keys imported under %s, %d already present",
+                            newKeys.size(), zmk.getMasterKeyId(), skipped))
+                    .build();
+        } finally {
+            bundleKeys.clear();
+        }
+    }
+
+    // ===== INTERNALS =====
+
+    private void requireBundleSize(int size) {
+        if (size == 0) {
+            throw new IllegalArgumentException("Bundle must contain at least one key");
+        }
+        if (size > maxBundleKeys) {
+            throw new IllegalArgumentException("Bundle exceeds " + maxBundleKeys + " keys: " + size);
+        }
+    }
+
+    private void requireActiveZmk(MasterKey zmk) {
+        if (zmk.getKeyType() != KeyType.ZMK || zmk.getStatus() != MasterKey.KeyStatus.ACTIVE) {
+            throw new IllegalArgumentException("Key is not an ACTIVE ZMK: " + zmk.getMasterKeyId());
+        }
+        if (zmk.getIdBank() == null) {
+            throw new IllegalStateException("ZMK has no bank association: " + zmk.getMasterKeyId());
+        }
+    }
+
+    /**
+     * KEK and signing key of a bundle from one derivation. The context uses the ZMK checksum rather than
+     * the bank ID, since each instance has its own bank IDs for the same ZMK.
+     */
+    private BundleKeys deriveBundleKeys(MasterKey zmk, String bundleId) {
+        String context = keyGenerationService.buildKeyContext("ZMK", zmk.getKeyChecksum(), "BUNDLE-" + bundleId);
+        byte[] derived = keyGenerationService.deriveOperationalKey(zmk.getKeyData(), context, CryptoConstants.ZONE_KEY_BYTES * 2);
+        BundleKeys keys = new BundleKeys(
+                Arrays.copyOfRange(derived, 0, CryptoConstants.ZONE_KEY_BYTES),
+                Arrays.copyOfRange(derived, CryptoConstants.ZONE_KEY_BYTES, derived.length));
+        Arrays.fill(derived, (byte) 0);
+        return keys;
+    }
+
+    private String wrap(byte[] kek, byte[] keyData, byte[] associatedData) {
+        try {
+            byte[] iv = new byte[CryptoConstants.GCM_IV_BYTES];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CryptoConstants.KEK_CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(kek, CryptoConstants.MASTER_KEY_ALGORITHM),
+                    new GCMParameterSpec(CryptoConstants.GCM_TAG_BITS, iv));
+            cipher.updateAAD(associatedData);
+            byte[] encrypted = cipher.doFinal(keyData);
+
+            // Prepend IV to encrypted data (IV:ciphertext)
+            byte[] result = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, result, 0, iv.length);
+            System.arraycopy(encrypted, 0, result, iv.length, encrypted.length);
+            return CryptoUtils.bytesToHex(result);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to wrap key", e);
+        }
+    }
+
+    private byte[] unwrap(byte[] kek, String wrappedKey, byte[] associatedData) {
+        byte[] wrapped = CryptoUtils.hexToBytes(wrappedKey);
+        if (wrapped.length <= CryptoConstants.GCM_IV_BYTES) {
+            throw new IllegalArgumentException("Wrapped key too short");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(CryptoConstants.KEK_CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(kek, CryptoConstants.MASTER_KEY_ALGORITHM),
+                    new GCMParameterSpec(CryptoConstants.GCM_TAG_BITS, wrapped, 0, CryptoConstants.GCM_IV_BYTES));
+            cipher.updateAAD(associatedData);
+            return cipher.doFinal(wrapped, CryptoConstants.GCM_IV_BYTES, wrapped.length - CryptoConstants.GCM_IV_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Failed to unwrap key; bundle does not match this ZMK", e);
+        }
+    }
+
+    private static byte[] associatedData(String bundleId, String masterKeyId, String keyType) {
+        return String.join(SEPARATOR, bundleId, masterKeyId, keyType).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * HMAC over the bundle header and every entry in order, excluding the signature itself
+     */
+    private byte[] sign(byte[] signingKey, ZoneKeyBundle bundle) {
+        StringBuilder content = new StringBuilder()
+                .append(bundle.getFormatVersion()).append(SEPARATOR)
+                .append(bundle.getBundleId()).append(SEPARATOR)
+                .append(bundle.getSourceBankCode()).append(SEPARATOR)
+                .append(bundle.getDestinationBankCode()).append(SEPARATOR)
+                .append(bundle.getZmkChecksum()).append(SEPARATOR)
+                .append(bundle.getExchangeType()).append(SEPARATOR)
+                .append(bundle.getCreatedAt()).append('\n');
+        for (ZoneKeyBundleEntry entry : bundle.getKeys()) {
+            content.append(entry.getExchangeId()).append(SEPARATOR)
+                    .append(entry.getMasterKeyId()).append(SEPARATOR)
+                    .append(entry.getKeyType()).append(SEPARATOR)
+                    .append(entry.getAlgorithm()).append(SEPARATOR)
+                    .append(entry.getKeySize()).append(SEPARATOR)
+                    .append(entry.getWrappedKey()).append(SEPARATOR)
+                    .append(entry.getKeyCheckValue()).append('\n');
+        }
+        try {
+            Mac mac = Mac.getInstance(CryptoConstants.MAC_ALGORITHM_HMAC);
+            mac.init(new SecretKeySpec(signingKey, CryptoConstants.MAC_ALGORITHM_HMAC));
+            return mac.doFinal(content.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign bundle", e);
+        }
+    }
+
+    private record BundleKeys(byte[] kek, byte[] signingKey) {
+        void clear() {
+            Arrays.fill(kek, (byte) 0);
+            Arrays.fill(signingKey, (byte) 0);
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.artivisi.hsm.simulator.util;
 import com.artivisi.hsm.simulator.config.CryptoConstants;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
@@ -138,6 +140,24 @@ public final class CryptoUtils {
         }
     }
 
+    /**
+     * Calculates the key check value (KCV): a block of zeros encrypted under the key (AES-ECB).
+     *
+     * @param key AES key bytes
+     * @return KCV (6 hex characters, uppercase)
+     */
+    public static String calculateKeyCheckValue(byte[] key) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, CryptoConstants.MASTER_KEY_ALGORITHM));
+            byte[] encrypted = cipher.doFinal(new byte[16]);
+            return bytesToHex(encrypted).substring(0, CryptoConstants.KCV_HEX_LENGTH);
+        } catch (Exception e) {
+            log.error("Failed to calculate KCV", e);
+            throw new RuntimeException("Failed to calculate KCV", e);
+        }
+    }
+
     // ===== BYTE/HEX CONVERSION =====
 
     /**
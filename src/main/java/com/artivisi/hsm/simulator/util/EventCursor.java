@@ -0,0 +1,48 @@
+package com.artivisi.hsm.simulator.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for the rotation event feed, positioned after event (txid, id).
+ * Encoded as URL-safe Base64 of "txid:id" so it can be passed as a query parameter or SSE event ID.
+ */
+public record EventCursor(long txid, long id) {
+
+    public static final EventCursor START = new EventCursor(0, 0);
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * Encodes this cursor for use in a URL.
+     *
+     * @return URL-safe Base64 cursor string
+     */
+    public String encode() {
+        String raw = txid + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode()}.
+     *
+     * @param cursor Cursor string, may be null or blank to start from the oldest event
+     * @return Decoded cursor, or {@link #START}
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static EventCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new EventCursor(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.artivisi.hsm.simulator.util;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Byte-wise Shamir Secret Sharing over GF(2^8).
+ * Every secret byte gets its own random polynomial, so secrets of any length can be split and each share
+ * is exactly as long as the secret. Field arithmetic uses the AES polynomial x^8 + x^4 + x^3 + x + 1
+ * with log/exp tables: addition is XOR, multiplication and division are table lookups.
+ * Share x-coordinates are 1..255, which limits a split to 255 shares.
+ */
+public final class Gf256Shamir {
+
+    /** Field description stored with shares for reference */
+    public static final String FIELD = "GF(2^8)/11B";
+
+    /** Largest number of shares, one per non-zero x-coordinate */
+    public static final int MAX_SHARES = 255;
+
+    private static final int REDUCING_POLYNOMIAL = 0x11B;
+    private static final int GENERATOR = 0x03;
+
+    private static final int[] EXP = new int[510];
+    private static final int[] LOG = new int[256];
+
+    static {
+        int value = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = value;
+            LOG[value] = i;
+            value = multiplyNoTable(value, GENERATOR);
+        }
+        // Doubled so the sum of two logs needs no modulo
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+    }
+
+    private Gf256Shamir() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Split a secret into shares for x = 1..numShares; shares[i] belongs to x = i + 1
+     */
+    public static byte[][] split(byte[] secret, int numShares, int threshold, SecureRandom random) {
+        if (numShares > MAX_SHARES) {
+            throw new IllegalArgumentException("GF(256) Shamir supports at most " + MAX_SHARES + " shares");
+        }
+        byte[][] shares = new byte[numShares][secret.length];
+        // Coefficients a1..a(k-1) for every byte position, drawn in one call
+        byte[] coefficients = new byte[(threshold - 1) * secret.length];
+        random.nextBytes(coefficients);
+
+        for (int x = 1; x <= numShares; x++) {
+            byte[] share = shares[x - 1];
+            for (int pos = 0; pos < secret.length; pos++) {
+                // Horner's rule from the highest coefficient down to a0 = secret byte
+                int y = 0;
+                for (int c = threshold - 2; c >= 0; c--) {
+                    y = multiply(y, x) ^ (coefficients[c * secret.length + pos] & 0xFF);
+                }
+                share[pos] = (byte) (multiply(y, x) ^ (secret[pos] & 0xFF));
+            }
+        }
+        Arrays.fill(coefficients, (byte) 0);
+        return shares;
+    }
+
+    /**
+     * Recover the secret from shares at distinct x-coordinates by Lagrange interpolation at x = 0
+     */
+    public static byte[] combine(int[] xs, byte[][] ys) {
+        if (xs.length != ys.length || xs.length == 0) {
+            throw new IllegalArgumentException("Need one x-coordinate per share");
+        }
+        int length = ys[0].length;
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] < 1 || xs[i] > MAX_SHARES) {
+                throw new IllegalArgumentException("Share x-coordinate out of range: " + xs[i]);
+            }
+            if (ys[i].length != length) {
+                throw new IllegalArgumentException("Shares have different lengths");
+            }
+            for (int j = 0; j < i; j++) {
+                if (xs[i] == xs[j]) {
+                    throw new IllegalArgumentException("Duplicate share x-coordinate: " + xs[i]);
+                }
+            }
+        }
+
+        // Lagrange basis at 0 depends only on the x-coordinates: l_i = prod x_j / (x_i - x_j), j != i
+        int[] basis = new int[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            int numerator = 1;
+            int denominator = 1;
+            for (int j = 0; j < xs.length; j++) {
+                if (i != j) {
+                    numerator = multiply(numerator, xs[j]);
+                    denominator = multiply(denominator, xs[i] ^ xs[j]);
+                }
+            }
+            basis[i] = divide(numerator, denominator);
+        }
+
+        byte[] secret = new byte[length];
+        for (int pos = 0; pos < length; pos++) {
+            int value = 0;
+            for (int i = 0; i < xs.length; i++) {
+                value ^= multiply(ys[i][pos] & 0xFF, basis[i]);
+            }
+            secret[pos] = (byte) value;
+        }
+        return secret;
+    }
+
+    // ===== FIELD ARITHMETIC =====
+
+    static int multiply(int a, int b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        return EXP[LOG[a] + LOG[b]];
+    }
+
+    static int divide(int a, int b) {
+        if (b == 0) {
+            throw new ArithmeticException("Division by zero in GF(256)");
+        }
+        if (a == 0) {
+            return 0;
+        }
+        return EXP[LOG[a] + 255 - LOG[b]];
+    }
+
+    // Carry-less multiply with reduction; only used to build the tables
+    private static int multiplyNoTable(int a, int b) {
+        int product = 0;
+        while (b != 0) {
+            if ((b & 1) != 0) {
+                product ^= a;
+            }
+            a <<= 1;
+            if ((a & 0x100) != 0) {
+                a ^= REDUCING_POLYNOMIAL;
+            }
+            b >>= 1;
+        }
+        return product;
+    }
+}
@@ -0,0 +1,51 @@
+package com.artivisi.hsm.simulator.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque cursor for keyset (seek) pagination on (generatedAt, id).
+ * Encoded as URL-safe Base64 of "generatedAt|id" so it can be passed as a query parameter.
+ */
+public record KeysetCursor(LocalDateTime generatedAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Encodes this cursor for use in a URL.
+     *
+     * @return URL-safe Base64 cursor string
+     */
+    public String encode() {
+        String raw = generatedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode()}.
+     *
+     * @param cursor Cursor string, may be null or blank for the first page
+     * @return Decoded cursor, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package com.artivisi.hsm.simulator.web;
 
+import com.artivisi.hsm.simulator.dto.AuditLogEntry;
+import com.artivisi.hsm.simulator.dto.KeysetPage;
 import com.artivisi.hsm.simulator.entity.KeyCeremony;
 import com.artivisi.hsm.simulator.entity.KeyCustodian;
 import com.artivisi.hsm.simulator.entity.KeyShare;
 import com.artivisi.hsm.simulator.entity.MasterKey;
 import com.artivisi.hsm.simulator.repository.KeyCustodianRepository;
+import com.artivisi.hsm.simulator.service.CeremonyAuditService;
 import com.artivisi.hsm.simulator.service.CeremonyService;
+import com.artivisi.hsm.simulator.service.CeremonyStatisticsService;
+import com.artivisi.hsm.simulator.service.PassphraseService;
 import com.artivisi.hsm.simulator.service.ShareDistributionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,6 +37,8 @@ import java.util.UUID;
 public class CeremonyController {
 
     private final CeremonyService ceremonyService;
+    private final CeremonyAuditService ceremonyAuditService;
+    private final CeremonyStatisticsService ceremonyStatisticsService;
     private final ShareDistributionService shareDistributionService;
     private final KeyCustodianRepository custodianRepository;
 
@@ -149,6 +158,14 @@ public class CeremonyController {
                     "message", "Master key generated successfully"
             ));
 
+        } catch (PassphraseService.HashingUnavailableException e) {
+            log.warn("Key generation deferred: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of(
+                            "success", false,
+                            "error", e.getMessage()
+                    ));
         } catch (IllegalStateException e) {
             log.error("Invalid state for key generation", e);
             return ResponseEntity.badRequest().body(Map.of(
@@ -190,6 +207,66 @@ public class CeremonyController {
         }
     }
 
+    /**
+     * Audit trail of a ceremony, newest first, one keyset page at a time
+     * GET /api/ceremonies/{ceremonyId}/audit?cursor={nextCursor}&size=50
+     */
+    @GetMapping("/api/ceremonies/{ceremonyId}/audit")
+    @ResponseBody
+    public ResponseEntity<?> getCeremonyAudit(
+            @PathVariable UUID ceremonyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            KeysetPage<AuditLogEntry> page = ceremonyAuditService.findCeremonyEntries(ceremonyId, cursor, size);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "entries", page.getContent(),
+                    "hasNext", page.isHasNext(),
+                    "nextCursor", page.getNextCursor() != null ? page.getNextCursor() : ""
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Recomputes the ceremony audit hash chain and reports the first broken entry, if any
+     */
+    @GetMapping("/api/ceremonies/audit/verify")
+    @ResponseBody
+    public ResponseEntity<CeremonyAuditService.ChainVerification> verifyAuditChain() {
+        return ResponseEntity.ok(ceremonyAuditService.verifyChain());
+    }
+
+    /**
+     * Totals and averages across all ceremonies, served from memory
+     */
+    @GetMapping("/api/ceremonies/statistics")
+    @ResponseBody
+    public ResponseEntity<CeremonyStatisticsService.StatisticsSummary> getStatisticsSummary() {
+        return ResponseEntity.ok(ceremonyStatisticsService.getSummary());
+    }
+
+    /**
+     * Statistics of one ceremony
+     */
+    @GetMapping("/api/ceremonies/{ceremonyId}/statistics")
+    @ResponseBody
+    public ResponseEntity<?> getCeremonyStatistics(@PathVariable UUID ceremonyId) {
+        try {
+            return ResponseEntity.ok(ceremonyStatisticsService.getCeremonyStatistics(ceremonyId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Shows the share distribution page
      */
@@ -236,7 +313,26 @@ public class CeremonyController {
     }
 
     /**
-     * Sends share via email (simulated for MVP)
+     * Downloads all shares of a ceremony as one ZIP archive with a manifest, streamed to the client
+     */
+    @GetMapping("/api/ceremonies/{ceremonyId}/shares/export")
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportShares(@PathVariable UUID ceremonyId) {
+        log.info("Exporting shares of ceremony: {}", ceremonyId);
+
+        StreamingResponseBody body = out -> shareDistributionService.exportCeremonyShares(ceremonyId, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "key-shares-" + ceremonyId + ".zip");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
+    /**
+     * Queues share email; delivered by the email outbox
      */
     @PostMapping("/api/shares/{share}/email")
     @ResponseBody
@@ -248,14 +344,14 @@ public class CeremonyController {
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "message", "Share sent via email successfully"
+                    "message", "Share email queued for delivery"
             ));
 
         } catch (Exception e) {
             log.error("Error sending email", e);
             return ResponseEntity.internalServerError().body(Map.of(
                     "success", false,
-                    "error", "Failed to send email"
+                    "error", "Failed to queue email"
             ));
         }
     }
@@ -6,6 +6,8 @@ import com.artivisi.hsm.simulator.service.PassphraseService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -122,6 +124,15 @@ public class ContributionController {
         }
     }
 
+    /**
+     * Argon2 executor load and counters (API endpoint)
+     */
+    @GetMapping("/api/contributions/hashing/stats")
+    @ResponseBody
+    public ResponseEntity<?> getHashingStats() {
+        return ResponseEntity.ok(passphraseService.getHashingMetrics());
+    }
+
     /**
      * Submits a custodian's passphrase contribution (API endpoint)
      */
@@ -168,6 +179,14 @@ public class ContributionController {
                     "success", false,
                     "error", e.getMessage()
             ));
+        } catch (PassphraseService.HashingUnavailableException e) {
+            log.warn("Contribution deferred: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of(
+                            "success", false,
+                            "error", e.getMessage()
+                    ));
         } catch (IllegalStateException e) {
             log.error("State error submitting contribution", e);
             return ResponseEntity.badRequest().body(Map.of(
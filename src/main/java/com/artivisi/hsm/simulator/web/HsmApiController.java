@@ -3,26 +3,41 @@ package com.artivisi.hsm.simulator.web;
 import com.artivisi.hsm.simulator.config.CryptoConstants;
 import com.artivisi.hsm.simulator.dto.KeyExchangeRequest;
 import com.artivisi.hsm.simulator.dto.KeyExchangeResponse;
+import com.artivisi.hsm.simulator.dto.KeySummary;
 import com.artivisi.hsm.simulator.dto.PinEncryptRequest;
 import com.artivisi.hsm.simulator.dto.PinEncryptResponse;
+import com.artivisi.hsm.simulator.dto.ZoneKeyBatchExportRequest;
+import com.artivisi.hsm.simulator.dto.ZoneKeyBundle;
+import com.artivisi.hsm.simulator.dto.ZoneKeyImportResponse;
 import com.artivisi.hsm.simulator.entity.GeneratedPin;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.BankRepository;
 import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.service.BulkKeyInitializationService;
 import com.artivisi.hsm.simulator.service.KeyGenerationService;
 import com.artivisi.hsm.simulator.service.KeyInitializationService;
 import com.artivisi.hsm.simulator.service.KeyOperationService;
 import com.artivisi.hsm.simulator.service.MacService;
 import com.artivisi.hsm.simulator.service.PinGenerationService;
+import com.artivisi.hsm.simulator.service.ZoneKeyExchangeService;
 import com.artivisi.hsm.simulator.util.CryptoUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.security.Principal;
 import java.security.SecureRandom;
 import java.util.Map;
 import java.util.UUID;
@@ -41,10 +56,16 @@ public class HsmApiController {
     private final MacService macService;
     private final KeyOperationService keyOperationService;
     private final KeyInitializationService keyInitializationService;
+    private final BulkKeyInitializationService bulkKeyInitializationService;
     private final KeyGenerationService keyGenerationService;
+    private final ZoneKeyExchangeService zoneKeyExchangeService;
     private final MasterKeyRepository masterKeyRepository;
+    private final BankRepository bankRepository;
     private final SecureRandom secureRandom = new SecureRandom();
 
+    @Value("${hsm.bulk-init.stream-timeout-ms:1800000}")
+    private long initStreamTimeoutMs = 1800000;
+
     /**
      * POST /api/hsm/pin/encrypt
      * Encrypt PIN block with provided cleartext PIN
@@ -142,10 +163,7 @@ public class HsmApiController {
             }
 
             // Find active LMK key
-            MasterKey lmkKey = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                    .stream()
-                    .filter(k -> k.getKeyType() == KeyType.LMK)
-                    .findFirst()
+            KeySummary lmkKey = masterKeyRepository.findFirstActiveSummary(KeyType.LMK)
                     .orElseThrow(() -> new IllegalStateException("No active LMK key found"));
 
             // Generate PIN block with plaintext PIN
@@ -223,18 +241,12 @@ public class HsmApiController {
             }
 
             // Find active LMK key
-            MasterKey lmkKey = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                    .stream()
-                    .filter(k -> k.getKeyType() == KeyType.LMK)
-                    .findFirst()
+            KeySummary lmkKey = masterKeyRepository.findFirstActiveSummary(KeyType.LMK)
                     .orElseThrow(() -> new IllegalStateException("No active LMK key found"));
 
             // Find active TPK key for the terminal's bank
             // For simplicity, we'll use the first active TPK key
-            MasterKey tpkKey = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                    .stream()
-                    .filter(k -> k.getKeyType() == KeyType.TPK)
-                    .findFirst()
+            KeySummary tpkKey = masterKeyRepository.findFirstActiveSummary(KeyType.TPK)
                     .orElseThrow(() -> new IllegalStateException("No active TPK key found"));
 
             // Verify PIN with translation
@@ -337,17 +349,11 @@ public class HsmApiController {
             }
 
             // Find active TPK key
-            MasterKey tpkKey = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                    .stream()
-                    .filter(k -> k.getKeyType() == KeyType.TPK)
-                    .findFirst()
+            KeySummary tpkKey = masterKeyRepository.findFirstActiveSummary(KeyType.TPK)
                     .orElseThrow(() -> new IllegalStateException("No active TPK key found"));
 
             // Find active LMK key (used as PVK for PVV calculation)
-            MasterKey pvkKey = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                    .stream()
-                    .filter(k -> k.getKeyType() == KeyType.LMK)
-                    .findFirst()
+            KeySummary pvkKey = masterKeyRepository.findFirstActiveSummary(KeyType.LMK)
                     .orElseThrow(() -> new IllegalStateException("No active LMK key found"));
 
             // Verify PIN with PVV
@@ -565,34 +571,16 @@ public class HsmApiController {
      */
     @PostMapping("/keys/initialize")
     public ResponseEntity<?> initializeKeys(@RequestBody(required = false) Map<String, Object> request) {
-        boolean clearExisting = true; // Default: clear existing sample keys
-        Integer keySize = 256; // Default key size
-        String bankCode = null; // Default: all banks
-        String shareZoneKeysWith = null; // Default: create new zone keys
-
-        if (request != null) {
-            if (request.containsKey("clearExisting")) {
-                clearExisting = (Boolean) request.get("clearExisting");
-            }
-            if (request.containsKey("keySize")) {
-                keySize = (Integer) request.get("keySize");
-            }
-            if (request.containsKey("bankCode")) {
-                bankCode = (String) request.get("bankCode");
-            }
-            if (request.containsKey("shareZoneKeysWith")) {
-                shareZoneKeysWith = (String) request.get("shareZoneKeysWith");
-            }
-        }
+        InitializeParams params = InitializeParams.from(request);
 
         log.info("API: Initializing complete key set (bankCode: {}, shareZoneKeysWith: {}, clearExisting: {}, keySize: {})",
-                 bankCode == null ? "ALL" : bankCode,
-                 shareZoneKeysWith == null ? "NONE" : shareZoneKeysWith,
-                 clearExisting, keySize);
+                 params.bankCode() == null ? "ALL" : params.bankCode(),
+                 params.shareZoneKeysWith() == null ? "NONE" : params.shareZoneKeysWith(),
+                 params.clearExisting(), params.keySize());
 
         try {
             Map<String, Object> result = keyInitializationService.initializeAllKeys(
-                clearExisting, keySize, bankCode, shareZoneKeysWith);
+                params.clearExisting(), params.keySize(), params.bankCode(), params.shareZoneKeysWith());
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             log.error("Error initializing keys", e);
@@ -602,6 +590,94 @@ public class HsmApiController {
         }
     }
 
+    /**
+     * POST /api/hsm/keys/initialize/stream
+     * Same as /keys/initialize, but streams progress as Server-Sent Events while terminal keys
+     * are derived and inserted in batches. Intended for banks with thousands of terminals.
+     *
+     * Request body: same as /keys/initialize
+     *
+     * Events:
+     * - progress: {"bankCode": "ISS001", "terminalsTotal": 20000, "terminalsProcessed": 250,
+     *              "keysCreated": 500, "elapsedMs": 1830, "keysPerSecond": 273.2, "done": false}
+     * - result:   final response of /keys/initialize
+     * - error:    {"error": "..."}; also sent with status 503 while another streamed run is in progress
+     */
+    @PostMapping(value = "/keys/initialize/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> initializeKeysStream(@RequestBody(required = false) Map<String, Object> request) {
+        InitializeParams params = InitializeParams.from(request);
+        log.info("API: Streaming key initialization (bankCode: {}, keySize: {})",
+                 params.bankCode() == null ? "ALL" : params.bankCode(), params.keySize());
+
+        SseEmitter emitter = new SseEmitter(initStreamTimeoutMs);
+        try {
+            bulkKeyInitializationService.runInBackground(() -> {
+                try {
+                    Map<String, Object> result = keyInitializationService.initializeAllKeys(
+                            params.clearExisting(), params.keySize(), params.bankCode(), params.shareZoneKeysWith(),
+                            progress -> sendEvent(emitter, "progress", progress));
+                    // The full key ID list can be huge; the summary is enough for a streamed run
+                    result.remove("createdKeys");
+                    sendEvent(emitter, "result", result);
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("Error initializing keys (stream)", e);
+                    sendEvent(emitter, "error", Map.of("error", String.valueOf(e.getMessage())));
+                    emitter.complete();
+                }
+            });
+        } catch (BulkKeyInitializationService.InitializationUnavailableException e) {
+            sendEvent(emitter, "error", Map.of("error", e.getMessage()));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(emitter);
+        }
+
+        // The run is one transaction and is left to commit; only the stream is closed
+        emitter.onTimeout(() -> {
+            sendEvent(emitter, "error", Map.of("error", "Stream timed out; initialization continues in the background"));
+            emitter.complete();
+        });
+        emitter.onError(e -> log.debug("Key initialization stream closed: {}", e.getMessage()));
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; initialization keeps running to completion
+            log.debug("Could not send {} event: {}", name, e.getMessage());
+        }
+    }
+
+    private record InitializeParams(boolean clearExisting, Integer keySize, String bankCode, String shareZoneKeysWith) {
+
+        static InitializeParams from(Map<String, Object> request) {
+            boolean clearExisting = true; // Default: clear existing sample keys
+            Integer keySize = 256; // Default key size
+            String bankCode = null; // Default: all banks
+            String shareZoneKeysWith = null; // Default: create new zone keys
+
+            if (request != null) {
+                if (request.containsKey("clearExisting")) {
+                    clearExisting = (Boolean) request.get("clearExisting");
+                }
+                if (request.containsKey("keySize")) {
+                    keySize = (Integer) request.get("keySize");
+                }
+                if (request.containsKey("bankCode")) {
+                    bankCode = (String) request.get("bankCode");
+                }
+                if (request.containsKey("shareZoneKeysWith")) {
+                    shareZoneKeysWith = (String) request.get("shareZoneKeysWith");
+                }
+            }
+            return new InitializeParams(clearExisting, keySize, bankCode, shareZoneKeysWith);
+        }
+    }
+
     /**
      * POST /api/hsm/mac/generate
      * Generate MAC for message
@@ -755,13 +831,54 @@ public class HsmApiController {
         }
     }
 
+    /**
+     * POST /api/hsm/key/exchange/batch
+     * Export ZPK/ZSK keys to a partner bank as one bundle wrapped under a shared ZMK
+     */
+    @PostMapping("/key/exchange/batch")
+    public ResponseEntity<?> exportKeyBundle(@RequestBody ZoneKeyBatchExportRequest request, Principal principal) {
+        log.info("API: Exporting {} zone keys to {} under ZMK {}",
+                request.getKeyIds() != null ? request.getKeyIds().size() : 0,
+                request.getDestinationBankCode(), request.getZmkId());
+
+        try {
+            String initiatedBy = principal != null ? principal.getName() : "system";
+            ZoneKeyBundle bundle = zoneKeyExchangeService.exportBundle(request, initiatedBy);
+            return ResponseEntity.ok(bundle);
+        } catch (Exception e) {
+            log.error("Error exporting zone key bundle", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * POST /api/hsm/key/exchange/batch/import
+     * Import a partner's zone key bundle in one pass
+     */
+    @PostMapping("/key/exchange/batch/import")
+    public ResponseEntity<?> importKeyBundle(@RequestBody ZoneKeyBundle bundle, Principal principal) {
+        log.info("API: Importing zone key bundle {} from {}", bundle.getBundleId(), bundle.getSourceBankCode());
+
+        try {
+            String importedBy = principal != null ? principal.getName() : "system";
+            ZoneKeyImportResponse response = zoneKeyExchangeService.importBundle(bundle, importedBy);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error importing zone key bundle", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
     // Helper methods
 
     private UUID getFirstActiveBankId() {
-        return masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
+        return bankRepository.findActiveBankIds(PageRequest.of(0, 1))
                 .stream()
                 .findFirst()
-                .map(MasterKey::getId)
                 .orElseThrow(() -> new IllegalStateException("No active banks found"));
     }
 
@@ -813,17 +930,8 @@ public class HsmApiController {
     }
 
     private String calculateKeyCheckValue(byte[] key) {
-        try {
-            // KCV uses ECB mode with zeros - this is standard practice
-            Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
-            SecretKeySpec secretKey = new SecretKeySpec(key, CryptoConstants.MASTER_KEY_ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            byte[] encrypted = cipher.doFinal(new byte[16]); // Encrypt zeros
-            return CryptoUtils.bytesToHex(encrypted).substring(0, CryptoConstants.KCV_HEX_LENGTH);
-        } catch (Exception e) {
-            log.error("Failed to calculate KCV", e);
-            throw new RuntimeException("Failed to calculate KCV", e);
-        }
+        // KCV uses ECB mode with zeros - this is standard practice
+        return CryptoUtils.calculateKeyCheckValue(key);
     }
 
     /**
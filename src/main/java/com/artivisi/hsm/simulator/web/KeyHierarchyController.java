@@ -1,15 +1,24 @@
 package com.artivisi.hsm.simulator.web;
 
+import com.artivisi.hsm.simulator.dto.KeyHierarchyNode;
 import com.artivisi.hsm.simulator.entity.MasterKey;
-import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.service.KeyHierarchyService;
+import com.artivisi.hsm.simulator.service.ListingCounterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Controller
 @Slf4j
@@ -17,81 +26,83 @@ import java.util.List;
 @RequestMapping("/keys/hierarchy")
 public class KeyHierarchyController {
 
-    private final MasterKeyRepository masterKeyRepository;
+    private final KeyHierarchyService keyHierarchyService;
+    private final ListingCounterService listingCounterService;
 
+    /**
+     * Hierarchy page shell; the tree itself is loaded level by level from the API below
+     */
     @GetMapping
     public String showHierarchy(Model model) {
-        List<MasterKey> allKeys = masterKeyRepository.findAll();
-
-        // Generate Mermaid diagram syntax
-        String mermaidDiagram = generateMermaidDiagram(allKeys);
-
-        model.addAttribute("mermaidDiagram", mermaidDiagram);
-        model.addAttribute("totalKeys", allKeys.size());
+        model.addAttribute("totalKeys", listingCounterService.keyCount());
+        model.addAttribute("activeKeys", listingCounterService.keyCountByStatus(MasterKey.KeyStatus.ACTIVE));
+        model.addAttribute("rotatedKeys", listingCounterService.keyCountByStatus(MasterKey.KeyStatus.ROTATED));
+        model.addAttribute("revokedKeys", listingCounterService.keyCountByStatus(MasterKey.KeyStatus.REVOKED));
+        model.addAttribute("pageSize", 100);
 
         return "keys/hierarchy";
     }
 
-    private String generateMermaidDiagram(List<MasterKey> keys) {
-        StringBuilder diagram = new StringBuilder();
-        diagram.append("graph TD\n");
-
-        for (MasterKey key : keys) {
-            String nodeId = sanitizeNodeId(key.getId().toString());
-            String label = formatKeyLabel(key);
-            String nodeClass = getNodeClass(key);
-
-            // Define node with styling
-            diagram.append("    ").append(nodeId)
-                   .append("[\"").append(label).append("\"]:::")
-                   .append(nodeClass).append("\n");
-
-            // Add parent relationship if exists
-            if (key.getParentKeyId() != null) {
-                String parentNodeId = sanitizeNodeId(key.getParentKeyId().toString());
-                diagram.append("    ").append(parentNodeId)
-                       .append(" --> ").append(nodeId).append("\n");
-            }
-
-            // Add rotation relationship if exists
-            if (key.getRotatedFromKeyId() != null) {
-                String rotatedFromNodeId = sanitizeNodeId(key.getRotatedFromKeyId().toString());
-                diagram.append("    ").append(rotatedFromNodeId)
-                       .append(" -.rotated to.-> ").append(nodeId).append("\n");
-            }
+    /**
+     * GET /keys/hierarchy/api/roots?page=0&size=100
+     * Response: { "nodes": [...], "page": 0, "size": 100, "hasMore": false }
+     */
+    @GetMapping("/api/roots")
+    @ResponseBody
+    public ResponseEntity<?> roots(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        try {
+            return ResponseEntity.ok(levelResponse(keyHierarchyService.findRoots(page, size), page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-
-        // Add style classes
-        diagram.append("\n    classDef activeKey fill:#10b981,stroke:#059669,stroke-width:2px,color:#fff\n");
-        diagram.append("    classDef revokedKey fill:#ef4444,stroke:#dc2626,stroke-width:2px,color:#fff\n");
-        diagram.append("    classDef rotatedKey fill:#f59e0b,stroke:#d97706,stroke-width:2px,color:#fff\n");
-        diagram.append("    classDef expiredKey fill:#6b7280,stroke:#4b5563,stroke-width:2px,color:#fff\n");
-
-        return diagram.toString();
     }
 
-    private String formatKeyLabel(MasterKey key) {
-        String keyId = key.getMasterKeyId();
-        if (keyId.length() > 30) {
-            keyId = keyId.substring(0, 30) + "...";
+    /**
+     * GET /keys/hierarchy/api/{keyId}/children?page=0&size=100
+     */
+    @GetMapping("/api/{keyId}/children")
+    @ResponseBody
+    public ResponseEntity<?> children(
+            @PathVariable UUID keyId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        try {
+            return ResponseEntity.ok(levelResponse(keyHierarchyService.findChildren(keyId, page, size), page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-        return String.format("<b>%s</b><br/>%s<br/><i>%s</i>",
-            key.getKeyType(),
-            keyId,
-            key.getStatus().name()
-        );
     }
 
-    private String getNodeClass(MasterKey key) {
-        return switch (key.getStatus()) {
-            case ACTIVE -> "activeKey";
-            case REVOKED -> "revokedKey";
-            case ROTATED -> "rotatedKey";
-            case EXPIRED -> "expiredKey";
-        };
+    /**
+     * GET /keys/hierarchy/api/{keyId}/subtree?depth=1&size=100
+     * Children beyond {@code size} per node, or beyond the subtree node cap, are flagged with
+     * "moreChildren" for lazy loading.
+     */
+    @GetMapping("/api/{keyId}/subtree")
+    @ResponseBody
+    public ResponseEntity<?> subtree(
+            @PathVariable UUID keyId,
+            @RequestParam(defaultValue = "1") int depth,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        try {
+            return ResponseEntity.ok(keyHierarchyService.findSubtree(keyId, depth, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
-    private String sanitizeNodeId(String id) {
-        return "node_" + id.replace("-", "_");
+    private Map<String, Object> levelResponse(List<KeyHierarchyNode> nodes, int page, int size) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("nodes", nodes);
+        response.put("page", page);
+        response.put("size", size);
+        // A full page means there may be more siblings to fetch
+        response.put("hasMore", nodes.size() == size);
+        return response;
     }
 }
@@ -1,14 +1,12 @@
 package com.artivisi.hsm.simulator.web;
 
+import com.artivisi.hsm.simulator.dto.KeysetPage;
 import com.artivisi.hsm.simulator.entity.MasterKey;
-import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
 import com.artivisi.hsm.simulator.service.KeyOperationService;
+import com.artivisi.hsm.simulator.service.KeysetPaginationService;
+import com.artivisi.hsm.simulator.service.ListingCounterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -19,6 +17,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -28,28 +27,28 @@ import java.util.UUID;
 @RequestMapping("/keys")
 public class KeyManagementController {
 
-    private final MasterKeyRepository masterKeyRepository;
     private final KeyOperationService keyOperationService;
+    private final KeysetPaginationService keysetPaginationService;
+    private final ListingCounterService listingCounterService;
 
     @GetMapping
     public String listKeys(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "generatedAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String direction,
             Model model
     ) {
-        log.info("Listing master keys - page: {}, size: {}, sortBy: {}, direction: {}",
-                 page, size, sortBy, direction);
+        log.info("Listing master keys - cursor: {}, size: {}", cursor, size);
 
-        // Create pageable with sorting
-        Sort sort = direction.equalsIgnoreCase("asc")
-                ? Sort.by(sortBy).ascending()
-                : Sort.by(sortBy).descending();
-        Pageable pageable = PageRequest.of(page, size, sort);
-
-        // Get paginated results
-        Page<MasterKey> masterKeysPage = masterKeyRepository.findAll(pageable);
+        // Keyset pagination on (generatedAt, id), newest first
+        KeysetPage<MasterKey> masterKeysPage;
+        try {
+            masterKeysPage = keysetPaginationService.findKeys(cursor, size);
+        } catch (IllegalArgumentException e) {
+            // Stale or hand-edited link: show the first page instead of an error page
+            log.warn("Invalid key list request, showing first page: {}", e.getMessage());
+            size = Math.clamp(size, 1, KeysetPaginationService.MAX_PAGE_SIZE);
+            masterKeysPage = keysetPaginationService.findKeys(null, size);
+        }
 
         // Get plaintext for each key
         Map<UUID, String> keyPlaintexts = new HashMap<>();
@@ -57,33 +56,44 @@ public class KeyManagementController {
             keyPlaintexts.put(key.getId(), keyOperationService.getKeyPlaintext(key.getId()));
         }
 
-        // Calculate statistics using repository count queries
-        long totalKeys = masterKeyRepository.count();
-        long activeKeys = masterKeyRepository.countByStatus(MasterKey.KeyStatus.ACTIVE);
-        long recoveredKeys = masterKeyRepository.countByGenerationMethod("RECOVERED");
-        long revokedKeys = masterKeyRepository.countByStatus(MasterKey.KeyStatus.REVOKED);
-
-        // Calculate pagination display values
-        long showingFrom = masterKeysPage.getNumber() * masterKeysPage.getSize() + 1;
-        long showingTo = Math.min((masterKeysPage.getNumber() + 1) * masterKeysPage.getSize(),
-                                   masterKeysPage.getTotalElements());
-
+        // Statistics come from incrementally maintained counters
         model.addAttribute("masterKeysPage", masterKeysPage);
         model.addAttribute("keyPlaintexts", keyPlaintexts);
-        model.addAttribute("totalKeys", totalKeys);
-        model.addAttribute("activeKeys", activeKeys);
-        model.addAttribute("recoveredKeys", recoveredKeys);
-        model.addAttribute("revokedKeys", revokedKeys);
-        model.addAttribute("currentPage", page);
+        model.addAttribute("totalKeys", listingCounterService.keyCount());
+        model.addAttribute("activeKeys", listingCounterService.keyCountByStatus(MasterKey.KeyStatus.ACTIVE));
+        model.addAttribute("recoveredKeys", listingCounterService.keyCountByGenerationMethod("RECOVERED"));
+        model.addAttribute("revokedKeys", listingCounterService.keyCountByStatus(MasterKey.KeyStatus.REVOKED));
         model.addAttribute("pageSize", size);
-        model.addAttribute("sortBy", sortBy);
-        model.addAttribute("direction", direction);
-        model.addAttribute("showingFrom", showingFrom);
-        model.addAttribute("showingTo", showingTo);
 
         return "keys/list";
     }
 
+    /**
+     * List key metadata as JSON using the same cursor as the list page (key material is never returned)
+     *
+     * GET /keys/api/list?cursor={nextCursor}&size=20
+     * Response: { "content": [...], "size": 20, "hasNext": true, "nextCursor": "...", "first": false }
+     */
+    @GetMapping("/api/list")
+    @ResponseBody
+    public ResponseEntity<?> listKeysApi(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        try {
+            KeysetPage<MasterKey> masterKeysPage = keysetPaginationService.findKeys(cursor, size);
+            return ResponseEntity.ok(KeysetPage.<Map<String, Object>>builder()
+                    .content(masterKeysPage.getContent().stream().map(this::toListItem).toList())
+                    .size(masterKeysPage.getSize())
+                    .hasNext(masterKeysPage.isHasNext())
+                    .nextCursor(masterKeysPage.getNextCursor())
+                    .first(masterKeysPage.isFirst())
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{keyId}/plaintext")
     @ResponseBody
     public ResponseEntity<Map<String, String>> getKeyPlaintext(@PathVariable UUID keyId) {
@@ -100,4 +110,21 @@ public class KeyManagementController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    private Map<String, Object> toListItem(MasterKey key) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", key.getId());
+        item.put("masterKeyId", key.getMasterKeyId());
+        item.put("keyType", key.getKeyType());
+        item.put("algorithm", key.getAlgorithm());
+        item.put("keySize", key.getKeySize());
+        item.put("status", key.getStatus());
+        item.put("generationMethod", key.getGenerationMethod());
+        item.put("keyFingerprint", key.getKeyFingerprint());
+        item.put("idBank", key.getIdBank());
+        item.put("idTerminal", key.getIdTerminal());
+        item.put("parentKeyId", key.getParentKeyId());
+        item.put("generatedAt", key.getGeneratedAt());
+        return item;
+    }
 }
@@ -1,5 +1,6 @@
 package com.artivisi.hsm.simulator.web;
 
+import com.artivisi.hsm.simulator.dto.KeySummary;
 import com.artivisi.hsm.simulator.entity.Bank;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
@@ -16,6 +17,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -37,10 +39,10 @@ public class KeyOperationController {
     public String showGenerateForm(Model model) {
         model.addAttribute("banks", bankRepository.findAll());
         model.addAttribute("terminals", terminalRepository.findAll());
-        model.addAttribute("tmks", masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                .stream().filter(k -> k.getKeyType() == KeyType.TMK).toList());
-        model.addAttribute("zmks", masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                .stream().filter(k -> k.getKeyType() == KeyType.ZMK).toList());
+        model.addAttribute("tmks", masterKeyRepository.findSummariesByStatusAndKeyTypes(
+                MasterKey.KeyStatus.ACTIVE, List.of(KeyType.TMK)));
+        model.addAttribute("zmks", masterKeyRepository.findSummariesByStatusAndKeyTypes(
+                MasterKey.KeyStatus.ACTIVE, List.of(KeyType.ZMK)));
 
         return "keys/generate";
     }
@@ -3,14 +3,21 @@ package com.artivisi.hsm.simulator.web;
 import com.artivisi.hsm.simulator.service.OfflineRecoveryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +31,9 @@ public class KeyRecoveryController {
 
     private final OfflineRecoveryService offlineRecoveryService;
 
+    @Value("${hsm.recovery.stream-timeout-ms:120000}")
+    private long streamTimeoutMs = 120000;
+
     // ===== Offline Recovery (no database required) =====
 
     /**
@@ -63,15 +73,7 @@ public class KeyRecoveryController {
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "parsedShares", parsedShares.stream().map(share -> Map.of(
-                            "shareId", share.getShareId(),
-                            "shareIndex", share.getShareIndex(),
-                            "threshold", share.getThreshold(),
-                            "fileName", share.getFileName(),
-                            "ceremonyName", share.getCeremonyName() != null ? share.getCeremonyName() : "Unknown",
-                            "ceremonyId", share.getCeremonyId() != null ? share.getCeremonyId() : "Unknown",
-                            "masterKeyFingerprint", share.getMasterKeyFingerprint() != null ? share.getMasterKeyFingerprint() : "N/A"
-                    )).collect(Collectors.toList()),
+                    "parsedShares", parsedShares.stream().map(this::toShareMap).collect(Collectors.toList()),
                     "sharesUploaded", parsedShares.size(),
                     "sharesRequired", threshold,
                     "canReconstruct", parsedShares.size() >= threshold && threshold > 0,
@@ -89,6 +91,52 @@ public class KeyRecoveryController {
         }
     }
 
+    /**
+     * Validates uploaded share files in parallel: each file is streamed, its Base64 and verification
+     * hash checked, then the valid shares are checked against each other. Invalid files are listed
+     * with their error instead of failing the whole upload.
+     */
+    @PostMapping("/offline/validate")
+    @ResponseBody
+    public ResponseEntity<?> validateShareFiles(@RequestParam("files") List<MultipartFile> files) {
+        log.info("Validating {} share files", files.size());
+
+        try {
+            List<OfflineRecoveryService.ShareValidation> results = offlineRecoveryService.validateShareFiles(files);
+            List<OfflineRecoveryService.ParsedShare> validShares = results.stream()
+                    .filter(OfflineRecoveryService.ShareValidation::isValid)
+                    .map(OfflineRecoveryService.ShareValidation::getShare)
+                    .toList();
+            int threshold = validShares.isEmpty() ? 0 : validShares.get(0).getThreshold();
+            boolean canReconstruct = threshold > 0 && validShares.size() >= threshold;
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "parsedShares", validShares.stream().map(this::toShareMap).toList(),
+                    "invalidFiles", results.stream()
+                            .filter(result -> !result.isValid())
+                            .map(result -> Map.of(
+                                    "fileName", String.valueOf(result.getFileName()),
+                                    "error", String.valueOf(result.getError())))
+                            .toList(),
+                    "sharesUploaded", validShares.size(),
+                    "sharesRequired", threshold,
+                    "canReconstruct", canReconstruct,
+                    "message", canReconstruct
+                            ? "Threshold met. Ready to reconstruct."
+                            : threshold > 0 ? "Need " + (threshold - validShares.size()) + " more share(s)"
+                                            : "No valid share files"
+            ));
+
+        } catch (Exception e) {
+            log.error("Error validating share files", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Loads reconstructed key into HSM (database)
      * Reconstructs the key server-side from uploaded files to avoid byte array serialization issues
@@ -168,18 +216,7 @@ public class KeyRecoveryController {
             OfflineRecoveryService.OfflineRecoveryResult result =
                     offlineRecoveryService.reconstructFromFiles(sharesWithPassphrases);
 
-            return ResponseEntity.ok(Map.of(
-                    "success", result.isSuccess(),
-                    "verified", result.isVerified(),
-                    "canVerify", result.isCanVerify(),
-                    "sharesUsed", result.getSharesUsed(),
-                    "threshold", result.getThreshold(),
-                    "reconstructedFingerprint", result.getReconstructedFingerprint(),
-                    "originalFingerprint", result.getOriginalFingerprint() != null ? result.getOriginalFingerprint() : "N/A",
-                    "ceremonyName", result.getCeremonyName() != null ? result.getCeremonyName() : "Unknown",
-                    "ceremonyId", result.getCeremonyId() != null ? result.getCeremonyId() : "Unknown",
-                    "message", result.getMessage()
-            ));
+            return ResponseEntity.ok(toResultMap(result));
 
         } catch (Exception e) {
             log.error("Error reconstructing from files", e);
@@ -189,4 +226,108 @@ public class KeyRecoveryController {
             ));
         }
     }
+
+    /**
+     * Reconstructs key from uploaded files with passphrases, streaming progress as server-sent events
+     *
+     * Events:
+     * - progress: {"shareId": "...", "shareIndex": 2, "sharesTotal": 3, "sharesDecrypted": 1, "elapsedMs": 410, "done": false}
+     * - result:   same body as /offline/reconstruct
+     * - error:    {"success": false, "error": "..."}; sent as soon as any share fails to decrypt,
+     *             when the stream times out, or with status 503 when too many recoveries are running
+     */
+    @PostMapping(value = "/offline/reconstruct/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> reconstructFromFilesStream(@RequestParam("files") List<MultipartFile> files,
+                                                                 @RequestParam("passphrases") List<String> passphrases) {
+        log.info("Reconstructing key from {} share files (stream)", files.size());
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        List<OfflineRecoveryService.ShareWithPassphrase> sharesWithPassphrases = new ArrayList<>();
+        try {
+            if (files.size() != passphrases.size()) {
+                throw new IllegalArgumentException("Number of files must match number of passphrases");
+            }
+            // Uploaded files are read before the request thread returns
+            for (int i = 0; i < files.size(); i++) {
+                sharesWithPassphrases.add(OfflineRecoveryService.ShareWithPassphrase.builder()
+                        .share(offlineRecoveryService.parseShareFile(files.get(i)))
+                        .passphrase(passphrases.get(i))
+                        .build());
+            }
+        } catch (Exception e) {
+            log.error("Error parsing share files (stream)", e);
+            sendEvent(emitter, "error", Map.of("success", false, "error", String.valueOf(e.getMessage())));
+            emitter.complete();
+            return ResponseEntity.ok(emitter);
+        }
+
+        Future<?> recovery;
+        try {
+            recovery = offlineRecoveryService.runInBackground(() -> {
+                try {
+                    OfflineRecoveryService.OfflineRecoveryResult result = offlineRecoveryService.reconstructFromFiles(
+                            sharesWithPassphrases, progress -> sendEvent(emitter, "progress", progress));
+                    sendEvent(emitter, "result", toResultMap(result));
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("Error reconstructing from files (stream)", e);
+                    sendEvent(emitter, "error", Map.of("success", false, "error", String.valueOf(e.getMessage())));
+                    emitter.complete();
+                }
+            });
+        } catch (OfflineRecoveryService.RecoveryUnavailableException e) {
+            sendEvent(emitter, "error", Map.of("success", false, "error", e.getMessage()));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(emitter);
+        }
+
+        emitter.onTimeout(() -> {
+            recovery.cancel(true);
+            sendEvent(emitter, "error", Map.of("success", false, "error", "Recovery timed out"));
+            emitter.complete();
+        });
+        // Client disconnected; stop decrypting shares nobody will read
+        emitter.onError(e -> recovery.cancel(true));
+        return ResponseEntity.ok(emitter);
+    }
+
+    private Map<String, Object> toShareMap(OfflineRecoveryService.ParsedShare share) {
+        return Map.of(
+                "shareId", share.getShareId(),
+                "shareIndex", share.getShareIndex(),
+                "threshold", share.getThreshold(),
+                "fileName", share.getFileName(),
+                "ceremonyName", share.getCeremonyName() != null ? share.getCeremonyName() : "Unknown",
+                "ceremonyId", share.getCeremonyId() != null ? share.getCeremonyId() : "Unknown",
+                "masterKeyFingerprint", share.getMasterKeyFingerprint() != null ? share.getMasterKeyFingerprint() : "N/A",
+                "hashVerified", share.isHashVerified()
+        );
+    }
+
+    private Map<String, Object> toResultMap(OfflineRecoveryService.OfflineRecoveryResult result) {
+        return Map.of(
+                "success", result.isSuccess(),
+                "verified", result.isVerified(),
+                "canVerify", result.isCanVerify(),
+                "sharesUsed", result.getSharesUsed(),
+                "threshold", result.getThreshold(),
+                "reconstructedFingerprint", result.getReconstructedFingerprint(),
+                "originalFingerprint", result.getOriginalFingerprint() != null ? result.getOriginalFingerprint() : "N/A",
+                "ceremonyName", result.getCeremonyName() != null ? result.getCeremonyName() : "Unknown",
+                "ceremonyId", result.getCeremonyId() != null ? result.getCeremonyId() : "Unknown",
+                "message", result.getMessage()
+        );
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Page went away; recovery result is discarded
+            log.debug("Could not send {} event: {}", name, e.getMessage());
+        }
+    }
 }
@@ -3,12 +3,21 @@ package com.artivisi.hsm.simulator.web;
 import com.artivisi.hsm.simulator.dto.*;
 import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
 import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.service.BulkKeyRotationService;
 import com.artivisi.hsm.simulator.service.KeyRotationService;
+import com.artivisi.hsm.simulator.service.RotationEventService;
+import com.artivisi.hsm.simulator.service.RotationKeyResolver;
+import com.artivisi.hsm.simulator.service.TerminalKeyPushService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.security.Principal;
 import java.util.Map;
 import java.util.UUID;
@@ -23,8 +32,15 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class KeyRotationController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final KeyRotationService keyRotationService;
     private final KeyRotationHistoryRepository rotationHistoryRepository;
+    private final BulkKeyRotationService bulkKeyRotationService;
+    private final TerminalKeyPushService terminalKeyPushService;
+    private final RotationKeyResolver rotationKeyResolver;
+    private final RotationEventService rotationEventService;
+    private final ObjectMapper objectMapper;
 
     /**
      * POST /api/hsm/terminal/{terminalId}/request-rotation
@@ -184,6 +200,59 @@ public class KeyRotationController {
         }
     }
 
+    /**
+     * GET /api/hsm/terminal/{terminalId}/key-updates
+     * Server-Sent Events stream of rotation notices for a terminal, replacing periodic polling
+     * of get-updated-key. A rotation already waiting for the terminal is sent on connect.
+     *
+     * Events:
+     * - rotation: {"rotationId": "uuid", "rotationIdString": "ROT-TPK-ABC12345", "keyType": "TPK",
+     *              "newKeyId": "TPK-TRMISS001ATM001-1A2B3C4D", "rotationStartedAt": "2025-10-31T10:00:00",
+     *              "message": "New key available. ..."}
+     * - error:    {"error": "..."}
+     */
+    @GetMapping(value = "/terminal/{terminalId}/key-updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeKeyUpdates(@PathVariable String terminalId) {
+        log.info("API: Terminal {} subscribing to key updates", terminalId);
+
+        try {
+            return terminalKeyPushService.subscribe(terminalId);
+        } catch (Exception e) {
+            log.error("Error subscribing terminal to key updates: " + terminalId, e);
+            SseEmitter emitter = new SseEmitter();
+            try {
+                emitter.send(SseEmitter.event().name("error").data(Map.of("error", e.getMessage()), MediaType.APPLICATION_JSON));
+            } catch (IOException ignored) {
+                // Client already gone
+            }
+            emitter.complete();
+            return emitter;
+        }
+    }
+
+    /**
+     * GET /api/hsm/terminal/{terminalId}/key-updates/poll?timeoutMs=30000
+     * Long-poll alternative to the SSE stream for terminals that cannot keep a stream open.
+     * Returns the rotation notice as soon as one is available, or 204 No Content when the
+     * deadline (capped by hsm.rotation.push.long-poll-max-ms) passes.
+     */
+    @GetMapping("/terminal/{terminalId}/key-updates/poll")
+    public DeferredResult<ResponseEntity<?>> pollKeyUpdates(
+            @PathVariable String terminalId,
+            @RequestParam(defaultValue = "30000") long timeoutMs
+    ) {
+        try {
+            return terminalKeyPushService.poll(terminalId, timeoutMs);
+        } catch (Exception e) {
+            log.error("Error polling key updates for terminal: " + terminalId, e);
+            DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            )));
+            return result;
+        }
+    }
+
     /**
      * POST /api/hsm/terminal/{terminalId}/confirm-key-update
      * Terminal confirms successful key installation.
@@ -404,4 +473,195 @@ public class KeyRotationController {
             ));
         }
     }
+
+    /**
+     * POST /api/hsm/bank/{bankCode}/bulk-rotation
+     * Rotate terminal keys of every active terminal of a bank as a background job.
+     * Creates one rotation per terminal key; terminals then fetch and confirm as usual.
+     *
+     * Request body (optional):
+     * {
+     *   "keyTypes": ["TPK", "TSK"],
+     *   "rotationType": "SCHEDULED",
+     *   "reason": "Annual TPK/TSK rotation"
+     * }
+     *
+     * Response:
+     * {
+     *   "jobId": "uuid",
+     *   "bankCode": "ACQ001",
+     *   "keyTypes": "TPK,TSK",
+     *   "status": "QUEUED",
+     *   "terminalsTotal": 20000,
+     *   "terminalsProcessed": 0,
+     *   "rotationsCreated": 0
+     * }
+     */
+    @PostMapping("/bank/{bankCode}/bulk-rotation")
+    public ResponseEntity<?> startBulkRotation(
+            @PathVariable String bankCode,
+            @RequestBody(required = false) BulkRotationRequest request,
+            Principal principal
+    ) {
+        log.info("API: Starting bulk terminal key rotation for bank: {}", bankCode);
+
+        try {
+            String initiatedBy = principal != null ? principal.getName() : "system";
+            BulkRotationJobResponse response = bulkKeyRotationService.startJob(
+                    bankCode, request != null ? request : new BulkRotationRequest(), initiatedBy);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error starting bulk rotation for bank: " + bankCode, e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * GET /api/hsm/bulk-rotation
+     * List bulk rotation jobs, newest first.
+     */
+    @GetMapping("/bulk-rotation")
+    public ResponseEntity<?> listBulkRotations() {
+        return ResponseEntity.ok(bulkKeyRotationService.listJobs());
+    }
+
+    /**
+     * GET /api/hsm/bulk-rotation/{jobId}
+     * Progress of a bulk rotation job.
+     */
+    @GetMapping("/bulk-rotation/{jobId}")
+    public ResponseEntity<?> getBulkRotation(@PathVariable UUID jobId) {
+        try {
+            return ResponseEntity.ok(bulkKeyRotationService.getJob(jobId));
+        } catch (Exception e) {
+            log.error("Error getting bulk rotation job", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * POST /api/hsm/bulk-rotation/{jobId}/cancel
+     * Stop a job after its current chunk. Rotations already created stay in progress.
+     */
+    @PostMapping("/bulk-rotation/{jobId}/cancel")
+    public ResponseEntity<?> cancelBulkRotation(@PathVariable UUID jobId) {
+        log.info("API: Cancelling bulk rotation job: {}", jobId);
+
+        try {
+            return ResponseEntity.ok(bulkKeyRotationService.cancelJob(jobId));
+        } catch (Exception e) {
+            log.error("Error cancelling bulk rotation job", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * POST /api/hsm/bulk-rotation/{jobId}/resume
+     * Continue a cancelled, failed or interrupted job after its last committed terminal.
+     */
+    @PostMapping("/bulk-rotation/{jobId}/resume")
+    public ResponseEntity<?> resumeBulkRotation(@PathVariable UUID jobId) {
+        log.info("API: Resuming bulk rotation job: {}", jobId);
+
+        try {
+            return ResponseEntity.ok(bulkKeyRotationService.resumeJob(jobId));
+        } catch (Exception e) {
+            log.error("Error resuming bulk rotation job", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * GET /api/hsm/rotation/dual-key/stats
+     * Which key of a rotation window PIN and MAC operations used, per operation.
+     */
+    @GetMapping("/rotation/dual-key/stats")
+    public ResponseEntity<?> getDualKeyStats() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "usage", rotationKeyResolver.getUsage(),
+                    "cachedWindows", rotationKeyResolver.getCachedWindowCount()
+            ));
+        } catch (Exception e) {
+            log.error("Error getting dual-key stats", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * GET /api/hsm/rotation/events?cursor={nextCursor}&limit=500
+     * Rotation events after the cursor as NDJSON (one JSON object per line), oldest first.
+     * Omit the cursor to start from the oldest event. Continue with the X-Next-Cursor header;
+     * X-Has-More is true while more events are already available.
+     *
+     * Line:
+     * {"cursor": "...", "eventId": 42, "eventType": "CONFIRMED", "rotationId": "uuid",
+     *  "rotationIdString": "ROT-TPK-ABC12345", "terminalId": "TRM-ISS001-ATM-001",
+     *  "actor": "ATM_SOFTWARE_v3.2", "details": null, "occurredAt": "2025-10-31T10:05:00"}
+     */
+    @GetMapping("/rotation/events")
+    public ResponseEntity<?> getRotationEvents(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        try {
+            RotationEventPage page = rotationEventService.readAfter(cursor, limit);
+            StringBuilder body = new StringBuilder();
+            for (RotationFeedEvent event : page.getEvents()) {
+                body.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            return ResponseEntity.ok()
+                    .contentType(NDJSON)
+                    .header("X-Next-Cursor", page.getNextCursor())
+                    .header("X-Has-More", String.valueOf(page.isHasMore()))
+                    .body(body.toString());
+        } catch (Exception e) {
+            log.error("Error reading rotation events", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * GET /api/hsm/rotation/events/stream?cursor={cursor}
+     * Server-Sent Events stream of rotation events after the cursor: catches up, then tails new events.
+     * Each event ID is its cursor, so a reconnecting client resumes through Last-Event-ID.
+     *
+     * Events:
+     * - rotation-event: same object as an NDJSON line of /rotation/events
+     * - error:          {"error": "..."}
+     */
+    @GetMapping(value = "/rotation/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRotationEvents(
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        log.info("API: Subscribing to rotation events");
+
+        try {
+            return rotationEventService.subscribe(lastEventId != null ? lastEventId : cursor);
+        } catch (Exception e) {
+            log.error("Error subscribing to rotation events", e);
+            SseEmitter emitter = new SseEmitter();
+            try {
+                emitter.send(SseEmitter.event().name("error").data(Map.of("error", e.getMessage()), MediaType.APPLICATION_JSON));
+            } catch (IOException ignored) {
+                // Client already gone
+            }
+            emitter.complete();
+            return emitter;
+        }
+    }
 }
@@ -1,23 +1,24 @@
 package com.artivisi.hsm.simulator.web;
 
+import com.artivisi.hsm.simulator.dto.KeySummary;
+import com.artivisi.hsm.simulator.dto.KeysetPage;
 import com.artivisi.hsm.simulator.entity.GeneratedMac;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
 import com.artivisi.hsm.simulator.repository.GeneratedMacRepository;
 import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.service.KeysetPaginationService;
+import com.artivisi.hsm.simulator.service.ListingCounterService;
 import com.artivisi.hsm.simulator.service.MacService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -31,43 +32,71 @@ public class MacController {
     private final MacService macService;
     private final GeneratedMacRepository generatedMacRepository;
     private final MasterKeyRepository masterKeyRepository;
+    private final KeysetPaginationService keysetPaginationService;
+    private final ListingCounterService listingCounterService;
 
     /**
-     * Show MAC list page
+     * Show MAC list page (keyset pagination, newest first)
      */
     @GetMapping
     public String listMacs(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
             Model model
     ) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("generatedAt").descending());
-        Page<GeneratedMac> macsPage = generatedMacRepository.findAll(pageable);
-
-        long totalMacs = generatedMacRepository.count();
-        long activeMacs = generatedMacRepository.countByStatus(GeneratedMac.MacStatus.ACTIVE);
-        long expiredMacs = generatedMacRepository.countByStatus(GeneratedMac.MacStatus.EXPIRED);
+        KeysetPage<GeneratedMac> macsPage;
+        try {
+            macsPage = keysetPaginationService.findMacs(cursor, size);
+        } catch (IllegalArgumentException e) {
+            // Bad cursor or page size: render the first page rather than a 500
+            log.warn("Invalid MAC list request, showing first page: {}", e.getMessage());
+            size = Math.clamp(size, 1, KeysetPaginationService.MAX_PAGE_SIZE);
+            macsPage = keysetPaginationService.findMacs(null, size);
+        }
 
         model.addAttribute("macsPage", macsPage);
-        model.addAttribute("totalMacs", totalMacs);
-        model.addAttribute("activeMacs", activeMacs);
-        model.addAttribute("expiredMacs", expiredMacs);
-        model.addAttribute("currentPage", page);
+        model.addAttribute("totalMacs", listingCounterService.macCount());
+        model.addAttribute("activeMacs", listingCounterService.macCountByStatus(GeneratedMac.MacStatus.ACTIVE));
+        model.addAttribute("expiredMacs", listingCounterService.macCountByStatus(GeneratedMac.MacStatus.EXPIRED));
         model.addAttribute("pageSize", size);
 
         return "macs/list";
     }
 
+    /**
+     * List MACs as JSON using the same cursor as the list page
+     *
+     * GET /macs/api/list?cursor=...&size=20
+     * Response: { "content": [...], "size": 20, "hasNext": true, "nextCursor": "...", "first": false }
+     */
+    @GetMapping("/api/list")
+    @ResponseBody
+    public ResponseEntity<?> listMacsApi(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        try {
+            KeysetPage<GeneratedMac> macsPage = keysetPaginationService.findMacs(cursor, size);
+            return ResponseEntity.ok(KeysetPage.<Map<String, Object>>builder()
+                    .content(macsPage.getContent().stream().map(this::toListItem).toList())
+                    .size(macsPage.getSize())
+                    .hasNext(macsPage.isHasNext())
+                    .nextCursor(macsPage.getNextCursor())
+                    .first(macsPage.isFirst())
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Show MAC generation form
      */
     @GetMapping("/generate")
     public String showGenerateForm(Model model) {
         // Get TSK and ZSK keys for MAC generation
-        List<MasterKey> macKeys = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                .stream()
-                .filter(k -> k.getKeyType() == KeyType.TSK || k.getKeyType() == KeyType.ZSK)
-                .toList();
+        List<KeySummary> macKeys = masterKeyRepository.findSummariesByStatusAndKeyTypes(
+                MasterKey.KeyStatus.ACTIVE, List.of(KeyType.TSK, KeyType.ZSK));
 
         model.addAttribute("macKeys", macKeys);
         return "macs/generate";
@@ -118,10 +147,8 @@ public class MacController {
     @GetMapping("/verify")
     public String showVerifyForm(Model model) {
         // Get TSK and ZSK keys for MAC verification
-        List<MasterKey> macKeys = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                .stream()
-                .filter(k -> k.getKeyType() == KeyType.TSK || k.getKeyType() == KeyType.ZSK)
-                .toList();
+        List<KeySummary> macKeys = masterKeyRepository.findSummariesByStatusAndKeyTypes(
+                MasterKey.KeyStatus.ACTIVE, List.of(KeyType.TSK, KeyType.ZSK));
 
         model.addAttribute("macKeys", macKeys);
         return "macs/verify";
@@ -195,4 +222,18 @@ public class MacController {
             return "redirect:/macs?error=" + e.getMessage();
         }
     }
+
+    private Map<String, Object> toListItem(GeneratedMac mac) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", mac.getId());
+        item.put("message", mac.getMessage());
+        item.put("messageLength", mac.getMessageLength());
+        item.put("macValue", mac.getMacValue());
+        item.put("macAlgorithm", mac.getMacAlgorithm());
+        item.put("macKeyId", mac.getMacKey().getId());
+        item.put("status", mac.getStatus());
+        item.put("verificationAttempts", mac.getVerificationAttempts());
+        item.put("generatedAt", mac.getGeneratedAt());
+        return item;
+    }
 }
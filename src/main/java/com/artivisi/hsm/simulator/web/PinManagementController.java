@@ -1,23 +1,24 @@
 package com.artivisi.hsm.simulator.web;
 
+import com.artivisi.hsm.simulator.dto.KeySummary;
+import com.artivisi.hsm.simulator.dto.KeysetPage;
 import com.artivisi.hsm.simulator.entity.GeneratedPin;
 import com.artivisi.hsm.simulator.entity.KeyType;
 import com.artivisi.hsm.simulator.entity.MasterKey;
 import com.artivisi.hsm.simulator.repository.GeneratedPinRepository;
 import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.service.KeysetPaginationService;
+import com.artivisi.hsm.simulator.service.ListingCounterService;
 import com.artivisi.hsm.simulator.service.PinGenerationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -31,33 +32,63 @@ public class PinManagementController {
     private final PinGenerationService pinGenerationService;
     private final GeneratedPinRepository generatedPinRepository;
     private final MasterKeyRepository masterKeyRepository;
+    private final KeysetPaginationService keysetPaginationService;
+    private final ListingCounterService listingCounterService;
 
     /**
-     * Show PIN list page
+     * Show PIN list page (keyset pagination, newest first)
      */
     @GetMapping
     public String listPins(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
             Model model
     ) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("generatedAt").descending());
-        Page<GeneratedPin> pinsPage = generatedPinRepository.findAll(pageable);
-
-        long totalPins = generatedPinRepository.count();
-        long activePins = generatedPinRepository.countByStatus(GeneratedPin.PinStatus.ACTIVE);
-        long blockedPins = generatedPinRepository.countByStatus(GeneratedPin.PinStatus.BLOCKED);
+        KeysetPage<GeneratedPin> pinsPage;
+        try {
+            pinsPage = keysetPaginationService.findPins(cursor, size);
+        } catch (IllegalArgumentException e) {
+            // Malformed cursor or page size in the link: fall back to the first page
+            log.warn("Invalid PIN list request, showing first page: {}", e.getMessage());
+            size = Math.clamp(size, 1, KeysetPaginationService.MAX_PAGE_SIZE);
+            pinsPage = keysetPaginationService.findPins(null, size);
+        }
 
         model.addAttribute("pinsPage", pinsPage);
-        model.addAttribute("totalPins", totalPins);
-        model.addAttribute("activePins", activePins);
-        model.addAttribute("blockedPins", blockedPins);
-        model.addAttribute("currentPage", page);
+        model.addAttribute("totalPins", listingCounterService.pinCount());
+        model.addAttribute("activePins", listingCounterService.pinCountByStatus(GeneratedPin.PinStatus.ACTIVE));
+        model.addAttribute("blockedPins", listingCounterService.pinCountByStatus(GeneratedPin.PinStatus.BLOCKED));
         model.addAttribute("pageSize", size);
 
         return "pins/list";
     }
 
+    /**
+     * List PINs as JSON using the same cursor as the list page (clear PINs are never returned)
+     *
+     * GET /pins/api/list?cursor={nextCursor}&size=20
+     * Response: { "content": [...], "size": 20, "hasNext": true, "nextCursor": "...", "first": false }
+     */
+    @GetMapping("/api/list")
+    @ResponseBody
+    public ResponseEntity<?> listPinsApi(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        try {
+            KeysetPage<GeneratedPin> pinsPage = keysetPaginationService.findPins(cursor, size);
+            return ResponseEntity.ok(KeysetPage.<Map<String, Object>>builder()
+                    .content(pinsPage.getContent().stream().map(this::toListItem).toList())
+                    .size(pinsPage.getSize())
+                    .hasNext(pinsPage.isHasNext())
+                    .nextCursor(pinsPage.getNextCursor())
+                    .first(pinsPage.isFirst())
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Show PIN generation form
      */
@@ -65,12 +96,8 @@ public class PinManagementController {
     public String showGenerateForm(Model model) {
         // Get LMK keys for PIN storage encryption (primary)
         // TPK and ZPK can also be used for transmission scenarios
-        List<MasterKey> pinKeys = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
-                .stream()
-                .filter(k -> k.getKeyType() == KeyType.LMK ||
-                            k.getKeyType() == KeyType.TPK ||
-                            k.getKeyType() == KeyType.ZPK)
-                .toList();
+        List<KeySummary> pinKeys = masterKeyRepository.findSummariesByStatusAndKeyTypes(
+                MasterKey.KeyStatus.ACTIVE, List.of(KeyType.LMK, KeyType.TPK, KeyType.ZPK));
 
         model.addAttribute("pinKeys", pinKeys);
         return "pins/generate";
@@ -169,11 +196,9 @@ public class PinManagementController {
                 .orElseThrow(() -> new IllegalArgumentException("PIN not found: " + pinId));
 
         // Get available keys for translation (LMK, TPK, ZPK)
-        List<MasterKey> targetKeys = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE)
+        List<KeySummary> targetKeys = masterKeyRepository.findSummariesByStatusAndKeyTypes(
+                        MasterKey.KeyStatus.ACTIVE, List.of(KeyType.LMK, KeyType.TPK, KeyType.ZPK))
                 .stream()
-                .filter(k -> k.getKeyType() == KeyType.LMK ||
-                            k.getKeyType() == KeyType.TPK ||
-                            k.getKeyType() == KeyType.ZPK)
                 .filter(k -> !k.getId().equals(pin.getEncryptionKey().getId())) // Exclude current key
                 .toList();
 
@@ -199,7 +224,7 @@ public class PinManagementController {
             GeneratedPin sourcePin = generatedPinRepository.findById(sourcePinId)
                     .orElseThrow(() -> new IllegalArgumentException("Source PIN not found: " + sourcePinId));
 
-            MasterKey targetKey = masterKeyRepository.findById(targetKeyId)
+            KeySummary targetKey = masterKeyRepository.findSummaryById(targetKeyId)
                     .orElseThrow(() -> new IllegalArgumentException("Target key not found: " + targetKeyId));
 
             String translatedPinBlock = pinGenerationService.translatePin(sourcePinId, targetKeyId);
@@ -269,7 +294,7 @@ public class PinManagementController {
             model.addAttribute("panField", panField);
             model.addAttribute("pinBlock", pinBlock);
         } else if ("ISO-1".equals(pin.getPinFormat())) {
-            String pinField = "1" + pin.getPinLength() + pin.getClearPin();
+            String pinField = String.format("1%X%s", pin.getPinLength(), pin.getClearPin());
             // Pad with random (we'll just show placeholder)
             while (pinField.length() < 16) {
                 pinField += "R";
@@ -283,13 +308,27 @@ public class PinManagementController {
     }
 
     private String calculatePinField(String pin, int length) {
-        String pinField = String.format("0%d%s", length, pin);
+        String pinField = String.format("0%X%s", length, pin);
         while (pinField.length() < 16) {
             pinField += "F";
         }
         return pinField.toUpperCase();
     }
 
+    private Map<String, Object> toListItem(GeneratedPin pin) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", pin.getId());
+        item.put("accountNumber", pin.getAccountNumber());
+        item.put("pinLength", pin.getPinLength());
+        item.put("pinFormat", pin.getPinFormat());
+        item.put("encryptedPinBlock", pin.getEncryptedPinBlock());
+        item.put("encryptionKeyId", pin.getEncryptionKey().getId());
+        item.put("status", pin.getStatus());
+        item.put("verificationAttempts", pin.getVerificationAttempts());
+        item.put("generatedAt", pin.getGeneratedAt());
+        return item;
+    }
+
     private String calculatePanField(String accountNumber) {
         String panField = "0000" + accountNumber.substring(accountNumber.length() - 13,
                 accountNumber.length() - 1);
@@ -0,0 +1,50 @@
+-- ============================================================================
+-- HSM Simulator - Rotation Event Log
+-- Version: 10.0
+-- Purpose: Append-only log of rotation lifecycle events (initiation, delivery,
+--          confirmation, failure, expiry, completion, rollback), written in the
+--          same transaction as the change it records and read as a cursor feed
+-- ============================================================================
+
+-- ============================================================================
+-- Rotation Events Table
+-- ============================================================================
+
+CREATE TABLE rotation_events (
+    id BIGSERIAL PRIMARY KEY,
+    -- Writing transaction; the feed orders by (txid, id) and only serves
+    -- transactions older than every one still in flight, so none are skipped
+    txid XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    id_rotation UUID NOT NULL,
+    rotation_id VARCHAR(50) NOT NULL,
+    event_type VARCHAR(20) NOT NULL CHECK (event_type IN ('INITIATED', 'DELIVERED', 'CONFIRMED', 'FAILED', 'EXPIRED', 'COMPLETED', 'ROLLED_BACK')),
+    terminal_id VARCHAR(50),
+    actor VARCHAR(100),
+    details TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_rotation_event_rotation FOREIGN KEY (id_rotation) REFERENCES key_rotation_history(id) ON DELETE CASCADE
+);
+
+-- ============================================================================
+-- Indexes for Rotation Events
+-- ============================================================================
+
+-- Feed cursor
+CREATE INDEX idx_rotation_event_txid_id ON rotation_events(txid, id);
+
+-- Events of one rotation
+CREATE INDEX idx_rotation_event_rotation ON rotation_events(id_rotation);
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON TABLE rotation_events IS 'Append-only rotation lifecycle events, tailed through the rotation event feed';
+COMMENT ON COLUMN rotation_events.txid IS 'Writing transaction ID; feed cursor is (txid, id)';
+COMMENT ON COLUMN rotation_events.event_type IS 'Event type: INITIATED, DELIVERED, CONFIRMED, FAILED, EXPIRED, COMPLETED, ROLLED_BACK';
+COMMENT ON COLUMN rotation_events.terminal_id IS 'Terminal of participant events, NULL for rotation-level events';
+COMMENT ON COLUMN rotation_events.actor IS 'User, terminal or system component that caused the event';
+
+-- ============================================================================
+-- End of Migration V10
+-- ============================================================================
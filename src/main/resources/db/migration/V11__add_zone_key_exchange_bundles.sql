@@ -0,0 +1,29 @@
+-- ============================================================================
+-- HSM Simulator - Zone Key Exchange Bundles
+-- Version: 11.0
+-- Purpose: Group zone key exchanges that were exported or imported together
+--          in one ZMK-wrapped, signed key bundle
+-- ============================================================================
+
+-- ============================================================================
+-- Bundle Column
+-- ============================================================================
+
+ALTER TABLE zone_key_exchanges ADD COLUMN bundle_id VARCHAR(50);
+
+-- ============================================================================
+-- Indexes
+-- ============================================================================
+
+-- Exchanges of one bundle
+CREATE INDEX idx_zone_exchanges_bundle ON zone_key_exchanges(bundle_id);
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON COLUMN zone_key_exchanges.bundle_id IS 'Key bundle the exchange was exported or imported with; NULL for single-key exchanges';
+
+-- ============================================================================
+-- End of Migration V11
+-- ============================================================================
@@ -0,0 +1,54 @@
+-- ============================================================================
+-- HSM Simulator - Email Outbox
+-- Version: 12.0
+-- Purpose: Transactional outbox for custodian emails (ceremony invitations,
+--          key share distribution). Messages are written in the transaction
+--          that produces them and delivered by a background sender with
+--          retries, exponential backoff and dead-lettering
+-- ============================================================================
+
+-- ============================================================================
+-- Email Outbox Table
+-- ============================================================================
+
+CREATE TABLE email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    message_type VARCHAR(20) NOT NULL CHECK (message_type IN ('INVITATION', 'KEY_SHARE')),
+    -- Ceremony custodian (INVITATION) or key share (KEY_SHARE) updated once the email is sent
+    reference_id UUID,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    html_body TEXT NOT NULL,
+    attachment_name VARCHAR(255),
+    attachment_content BYTEA,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'SENT', 'DEAD')),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP
+);
+
+-- ============================================================================
+-- Indexes for Email Outbox
+-- ============================================================================
+
+-- Sender claims due messages in next_attempt_at order
+CREATE INDEX idx_email_outbox_due ON email_outbox(next_attempt_at) WHERE status = 'PENDING';
+
+-- Status counts
+CREATE INDEX idx_email_outbox_status ON email_outbox(status);
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON TABLE email_outbox IS 'Outgoing custodian emails, written transactionally and delivered by the background sender';
+COMMENT ON COLUMN email_outbox.reference_id IS 'Ceremony custodian (INVITATION) or key share (KEY_SHARE) marked as sent on delivery';
+COMMENT ON COLUMN email_outbox.attachment_content IS 'Attachment bytes; cleared once the message is sent';
+COMMENT ON COLUMN email_outbox.status IS 'Delivery status: PENDING, SENT, DEAD (gave up after max attempts)';
+COMMENT ON COLUMN email_outbox.next_attempt_at IS 'Earliest next delivery attempt; pushed forward while a sender holds the message';
+
+-- ============================================================================
+-- End of Migration V12
+-- ============================================================================
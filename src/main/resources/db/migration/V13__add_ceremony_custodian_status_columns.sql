@@ -0,0 +1,44 @@
+-- ============================================================================
+-- HSM Simulator - Ceremony Status Read Model
+-- Version: 13.0
+-- Purpose: Denormalize contribution and share state onto ceremony_custodians
+--          so a ceremony's status is read with one query instead of one
+--          contribution lookup per custodian
+-- ============================================================================
+
+-- ============================================================================
+-- Status Columns
+-- ============================================================================
+
+ALTER TABLE ceremony_custodians ADD COLUMN passphrase_strength VARCHAR(20);
+ALTER TABLE ceremony_custodians ADD COLUMN passphrase_entropy_score DECIMAL(3,1);
+ALTER TABLE ceremony_custodians ADD COLUMN share_id VARCHAR(50);
+
+-- ============================================================================
+-- Backfill
+-- ============================================================================
+
+UPDATE ceremony_custodians cc
+SET passphrase_strength = pc.passphrase_strength,
+    passphrase_entropy_score = pc.passphrase_entropy_score
+FROM passphrase_contributions pc
+WHERE pc.id_ceremony_custodian = cc.id;
+
+UPDATE ceremony_custodians cc
+SET share_id = ks.share_id,
+    share_sent_at = ks.distributed_at
+FROM key_shares ks
+WHERE ks.id_ceremony_custodian = cc.id;
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON COLUMN ceremony_custodians.passphrase_strength IS 'Strength of the contributed passphrase, copied from passphrase_contributions';
+COMMENT ON COLUMN ceremony_custodians.passphrase_entropy_score IS 'Entropy score of the contributed passphrase, copied from passphrase_contributions';
+COMMENT ON COLUMN ceremony_custodians.share_id IS 'Key share generated for the custodian, copied from key_shares';
+COMMENT ON COLUMN ceremony_custodians.share_sent_at IS 'When the custodian''s key share was distributed, copied from key_shares.distributed_at';
+
+-- ============================================================================
+-- End of Migration V13
+-- ============================================================================
@@ -0,0 +1,48 @@
+-- ============================================================================
+-- HSM Simulator - Hash-Chained Ceremony Audit Log
+-- Version: 14.0
+-- Purpose: Give every ceremony audit entry a gap-free sequence number and a
+--          SHA-256 hash over its content and the previous entry's hash, and
+--          back the paged audit queries with (filter, sequence_number) indexes
+-- ============================================================================
+
+-- ============================================================================
+-- Chain Columns
+-- ============================================================================
+
+ALTER TABLE ceremony_audit_logs ADD COLUMN sequence_number BIGINT;
+ALTER TABLE ceremony_audit_logs ADD COLUMN previous_hash VARCHAR(64);
+ALTER TABLE ceremony_audit_logs ADD COLUMN entry_hash VARCHAR(64);
+
+-- Existing entries are numbered in creation order and stay unhashed;
+-- the chain starts at the first entry written after this migration
+UPDATE ceremony_audit_logs a
+SET sequence_number = numbered.seq
+FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY created_at, id) AS seq FROM ceremony_audit_logs) numbered
+WHERE numbered.id = a.id;
+
+ALTER TABLE ceremony_audit_logs ALTER COLUMN sequence_number SET NOT NULL;
+
+-- ============================================================================
+-- Indexes
+-- ============================================================================
+
+CREATE UNIQUE INDEX idx_audit_sequence ON ceremony_audit_logs(sequence_number);
+
+-- Keyset pages newest first within a ceremony, event type or severity; the
+-- composite indexes also serve the plain column lookups they replace
+DROP INDEX IF EXISTS idx_audit_ceremony;
+DROP INDEX IF EXISTS idx_audit_event_type;
+DROP INDEX IF EXISTS idx_audit_event_severity;
+CREATE INDEX idx_audit_ceremony_sequence ON ceremony_audit_logs(id_key_ceremony, sequence_number DESC);
+CREATE INDEX idx_audit_event_type_sequence ON ceremony_audit_logs(event_type, sequence_number DESC);
+CREATE INDEX idx_audit_event_severity_sequence ON ceremony_audit_logs(event_severity, sequence_number DESC);
+
+COMMENT ON COLUMN ceremony_audit_logs.sequence_number IS 'Gap-free position in the audit chain, assigned by the audit writer';
+COMMENT ON COLUMN ceremony_audit_logs.previous_hash IS 'entry_hash of the previous entry (64 zeros for the first chained entry)';
+COMMENT ON COLUMN ceremony_audit_logs.entry_hash IS 'SHA-256 over previous_hash, sequence_number and the entry content; NULL for entries written before V14';
+COMMENT ON INDEX idx_audit_sequence IS 'Audit chain order and keyset pagination over all entries';
+
+-- ============================================================================
+-- End of Migration V14
+-- ============================================================================
@@ -0,0 +1,60 @@
+-- ============================================================================
+-- HSM Simulator - Ceremony Statistics Snapshots
+-- Version: 15.0
+-- Purpose: Seed one ceremony_statistics row per existing ceremony. From here
+--          on the rows are periodic snapshots of the in-memory aggregator
+--          (CeremonyStatisticsService), which loads them on startup
+-- ============================================================================
+
+-- ============================================================================
+-- Backfill
+-- ============================================================================
+
+INSERT INTO ceremony_statistics (
+    id_key_ceremony, total_custodians, contributions_received, contributions_pending,
+    shares_generated, shares_distributed, average_contribution_time_minutes,
+    total_duration_minutes, ceremony_completion_percentage, last_activity_at, last_updated_at
+)
+SELECT kc.id,
+       kc.number_of_custodians,
+       stats.contributions,
+       GREATEST(kc.number_of_custodians - stats.contributions, 0),
+       stats.shares_generated,
+       stats.shares_distributed,
+       ROUND(stats.contribution_minutes / NULLIF(stats.contributions, 0)),
+       CASE WHEN kc.completed_at IS NOT NULL
+            THEN ROUND(EXTRACT(EPOCH FROM (kc.completed_at - kc.started_at)) / 60) END,
+       LEAST(100.00, ROUND(stats.contributions * 100.0 / kc.number_of_custodians, 2)),
+       GREATEST(kc.started_at, kc.completed_at, stats.last_contribution, stats.last_share_sent),
+       CURRENT_TIMESTAMP
+FROM key_ceremonies kc
+JOIN (
+    SELECT kc2.id AS id_key_ceremony,
+           COUNT(cc.id) FILTER (WHERE cc.contribution_status = 'CONTRIBUTED') AS contributions,
+           COUNT(cc.share_id) AS shares_generated,
+           COUNT(cc.share_sent_at) AS shares_distributed,
+           SUM(EXTRACT(EPOCH FROM (cc.contributed_at - kc2.started_at)) / 60)
+               FILTER (WHERE cc.contribution_status = 'CONTRIBUTED') AS contribution_minutes,
+           MAX(cc.contributed_at) AS last_contribution,
+           MAX(cc.share_sent_at) AS last_share_sent
+    FROM key_ceremonies kc2
+    LEFT JOIN ceremony_custodians cc ON cc.id_key_ceremony = kc2.id
+    GROUP BY kc2.id
+) stats ON stats.id_key_ceremony = kc.id
+ON CONFLICT (id_key_ceremony) DO UPDATE SET
+    total_custodians = EXCLUDED.total_custodians,
+    contributions_received = EXCLUDED.contributions_received,
+    contributions_pending = EXCLUDED.contributions_pending,
+    shares_generated = EXCLUDED.shares_generated,
+    shares_distributed = EXCLUDED.shares_distributed,
+    average_contribution_time_minutes = EXCLUDED.average_contribution_time_minutes,
+    total_duration_minutes = EXCLUDED.total_duration_minutes,
+    ceremony_completion_percentage = EXCLUDED.ceremony_completion_percentage,
+    last_activity_at = EXCLUDED.last_activity_at,
+    last_updated_at = EXCLUDED.last_updated_at;
+
+COMMENT ON TABLE ceremony_statistics IS 'Per-ceremony statistics snapshots written periodically by the in-memory statistics aggregator';
+
+-- ============================================================================
+-- End of Migration V15
+-- ============================================================================
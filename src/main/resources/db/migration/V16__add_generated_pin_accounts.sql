@@ -0,0 +1,59 @@
+-- ============================================================================
+-- HSM Simulator - Unique Account Numbers for Partitioned Generated PINs
+-- Version: 16.0
+-- Purpose: Restore database-enforced uniqueness of generated_pins.account_number,
+--          lost in V4 because a unique index on a partitioned table must include
+--          the partition key. A trigger keeps one row per account in an
+--          unpartitioned lookup table whose primary key rejects a second PIN
+-- ============================================================================
+
+-- ============================================================================
+-- Table: generated_pin_accounts
+-- ============================================================================
+CREATE TABLE generated_pin_accounts (
+    account_number VARCHAR(19) PRIMARY KEY,
+    id_generated_pin UUID NOT NULL,
+    generated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_generated_pin_accounts_pin ON generated_pin_accounts(id_generated_pin);
+
+-- Newest PIN per account, in case the service check let a duplicate through
+INSERT INTO generated_pin_accounts (account_number, id_generated_pin, generated_at)
+SELECT DISTINCT ON (account_number) account_number, id, generated_at
+FROM generated_pins
+ORDER BY account_number, generated_at DESC, id DESC;
+
+-- ============================================================================
+-- Trigger: keep generated_pin_accounts in step with generated_pins
+-- ============================================================================
+CREATE OR REPLACE FUNCTION sync_generated_pin_account()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        DELETE FROM generated_pin_accounts
+        WHERE account_number = OLD.account_number AND id_generated_pin = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        -- Raises unique_violation on generated_pin_accounts_pkey for a second PIN of the account
+        INSERT INTO generated_pin_accounts (account_number, id_generated_pin, generated_at)
+        VALUES (NEW.account_number, NEW.id, NEW.generated_at);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_generated_pins_account
+    AFTER INSERT OR DELETE OR UPDATE OF account_number ON generated_pins
+    FOR EACH ROW EXECUTE FUNCTION sync_generated_pin_account();
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+COMMENT ON TABLE generated_pin_accounts IS 'One row per account with a generated PIN; enforces unique account_number across generated_pins partitions';
+COMMENT ON COLUMN generated_pin_accounts.id_generated_pin IS 'generated_pins.id of the account''s PIN';
+COMMENT ON FUNCTION sync_generated_pin_account() IS 'Maintains generated_pin_accounts; dropped partitions bypass it, so PartitionRetentionService deletes their rows';
+
+-- ============================================================================
+-- End of Migration V16
+-- ============================================================================
@@ -0,0 +1,32 @@
+-- ============================================================================
+-- HSM Simulator - One Active Bulk Rotation Job per Bank
+-- Version: 17.0
+-- Purpose: Enforce in the database that a bank has at most one QUEUED or
+--          RUNNING bulk rotation job, so two concurrent start or resume
+--          requests cannot both pass the service's existence check
+-- ============================================================================
+
+-- Keep the newest active job per bank; older ones become resumable
+UPDATE bulk_rotation_jobs j
+SET status = 'INTERRUPTED', updated_at = CURRENT_TIMESTAMP
+WHERE j.status IN ('QUEUED', 'RUNNING')
+  AND EXISTS (
+      SELECT 1 FROM bulk_rotation_jobs n
+      WHERE n.id_bank = j.id_bank
+        AND n.status IN ('QUEUED', 'RUNNING')
+        AND (n.created_at, n.id) > (j.created_at, j.id)
+  );
+
+-- ============================================================================
+-- Indexes for Bulk Rotation Jobs
+-- ============================================================================
+
+CREATE UNIQUE INDEX uq_bulk_rotation_job_active_bank
+    ON bulk_rotation_jobs(id_bank)
+    WHERE status IN ('QUEUED', 'RUNNING');
+
+COMMENT ON INDEX uq_bulk_rotation_job_active_bank IS 'At most one QUEUED or RUNNING bulk rotation job per bank';
+
+-- ============================================================================
+-- End of Migration V17
+-- ============================================================================
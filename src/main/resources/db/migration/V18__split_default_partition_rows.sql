@@ -0,0 +1,81 @@
+-- ============================================================================
+-- HSM Simulator - Split Default Partition Rows into Monthly Partitions
+-- Version: 18.0
+-- Purpose: create_monthly_partition failed for any month that already had
+--          rows in the DEFAULT partition, because PostgreSQL refuses a new
+--          partition whose range overlaps default rows. The function now
+--          moves those rows into the new table before attaching it, so
+--          retention can also split old months out of the default partition
+-- ============================================================================
+
+-- ============================================================================
+-- Function: create_monthly_partition
+-- Purpose: Create (if missing) the monthly partition <parent>_pYYYY_MM covering
+--          [month_start, month_start + 1 month), taking over the month's rows
+--          from the parent's DEFAULT partition when it has one
+-- ============================================================================
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent_table TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    range_start DATE := date_trunc('month', month_start)::DATE;
+    range_end DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := parent_table || '_p' || to_char(range_start, 'YYYY_MM');
+    default_partition REGCLASS;
+    moved BIGINT;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    SELECT NULLIF(pt.partdefid, 0)::REGCLASS INTO default_partition
+    FROM pg_partitioned_table pt
+    WHERE pt.partrelid = parent_table::REGCLASS;
+
+    IF default_partition IS NULL THEN
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            partition_name, parent_table, range_start, range_end
+        );
+        RETURN partition_name;
+    END IF;
+
+    -- Hold off inserts routed to the default partition until the month is attached
+    EXECUTE format('LOCK TABLE %s IN EXCLUSIVE MODE', default_partition);
+
+    EXECUTE format(
+        'CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+        partition_name, parent_table
+    );
+    EXECUTE format(
+        'WITH moved AS (DELETE FROM %s WHERE generated_at >= %L AND generated_at < %L RETURNING *) '
+        'INSERT INTO %I SELECT * FROM moved',
+        default_partition, range_start, range_end, partition_name
+    );
+    GET DIAGNOSTICS moved = ROW_COUNT;
+
+    EXECUTE format(
+        'ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        parent_table, partition_name, range_start, range_end
+    );
+
+    -- The delete above fired sync_generated_pin_account; the copy did not
+    IF parent_table = 'generated_pins' AND moved > 0 THEN
+        EXECUTE format(
+            'INSERT INTO generated_pin_accounts (account_number, id_generated_pin, generated_at) '
+            'SELECT account_number, id, generated_at FROM %I',
+            partition_name
+        );
+    END IF;
+
+    IF moved > 0 THEN
+        RAISE NOTICE 'Moved % rows from % into %', moved, default_partition, partition_name;
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION create_monthly_partition(TEXT, DATE) IS 'Creates the monthly range partition <parent>_pYYYY_MM if it does not exist yet, moving its rows out of the DEFAULT partition';
+
+-- ============================================================================
+-- End of Migration V18
+-- ============================================================================
@@ -0,0 +1,167 @@
+-- ============================================================================
+-- HSM Simulator - Time-Based Partitioning for Generated PINs and MACs
+-- Version: 4.0
+-- Purpose: Convert generated_pins and generated_macs into monthly range
+--          partitions on generated_at so old history can be archived and
+--          dropped a whole partition at a time instead of row-by-row deletes
+-- ============================================================================
+
+-- ============================================================================
+-- Function: create_monthly_partition
+-- Purpose: Create (if missing) the monthly partition <parent>_pYYYY_MM covering
+--          [month_start, month_start + 1 month). Used by this migration and by
+--          PartitionRetentionService to pre-create upcoming partitions.
+-- ============================================================================
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent_table TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    range_start DATE := date_trunc('month', month_start)::DATE;
+    range_end DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := parent_table || '_p' || to_char(range_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            partition_name, parent_table, range_start, range_end
+        );
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION create_monthly_partition(TEXT, DATE) IS 'Creates the monthly range partition <parent>_pYYYY_MM if it does not exist yet';
+
+-- ============================================================================
+-- Table: generated_pins (partitioned)
+-- ============================================================================
+ALTER TABLE generated_pins RENAME TO generated_pins_unpartitioned;
+
+CREATE TABLE generated_pins_partitioned (
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
+    account_number VARCHAR(19) NOT NULL,
+    pin_length INTEGER NOT NULL CHECK (pin_length BETWEEN 4 AND 12),
+    pin_format VARCHAR(20) NOT NULL,
+    encrypted_pin_block TEXT NOT NULL,
+    pin_verification_value VARCHAR(10),
+    id_encryption_key UUID NOT NULL,
+    clear_pin VARCHAR(12),
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    generated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_verified_at TIMESTAMP,
+    verification_attempts INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT pk_generated_pins PRIMARY KEY (id, generated_at),
+    CONSTRAINT fk_generated_pins_encryption_key FOREIGN KEY (id_encryption_key) REFERENCES master_keys(id) ON DELETE RESTRICT
+) PARTITION BY RANGE (generated_at);
+
+-- ============================================================================
+-- Table: generated_macs (partitioned)
+-- ============================================================================
+ALTER TABLE generated_macs RENAME TO generated_macs_unpartitioned;
+
+CREATE TABLE generated_macs_partitioned (
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
+    message TEXT NOT NULL,
+    message_length INTEGER NOT NULL,
+    mac_value VARCHAR(64) NOT NULL,
+    mac_algorithm VARCHAR(50) NOT NULL CHECK (mac_algorithm IN ('ISO9797-ALG3', 'HMAC-SHA256', 'CBC-MAC', 'AES-CMAC')),
+    id_mac_key UUID NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE' CHECK (status IN ('ACTIVE', 'EXPIRED', 'REVOKED')),
+    verification_attempts INTEGER DEFAULT 0,
+    last_verified_at TIMESTAMP,
+    generated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_generated_macs PRIMARY KEY (id, generated_at),
+    CONSTRAINT fk_generated_macs_mac_key FOREIGN KEY (id_mac_key) REFERENCES master_keys(id) ON DELETE RESTRICT
+) PARTITION BY RANGE (generated_at);
+
+-- Swap the partitioned tables in under the original names before creating
+-- partitions, so partition names follow the generated_pins_pYYYY_MM pattern
+ALTER TABLE generated_pins_partitioned RENAME TO generated_pins;
+ALTER TABLE generated_macs_partitioned RENAME TO generated_macs;
+
+-- ============================================================================
+-- Partitions: one per month from the oldest existing row up to three months
+-- ahead, plus a DEFAULT partition catching anything outside those ranges
+-- ============================================================================
+DO $$
+DECLARE
+    first_month DATE;
+    last_month DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::DATE;
+    m DATE;
+BEGIN
+    SELECT date_trunc('month', LEAST(
+               COALESCE((SELECT MIN(generated_at) FROM generated_pins_unpartitioned), CURRENT_TIMESTAMP),
+               COALESCE((SELECT MIN(generated_at) FROM generated_macs_unpartitioned), CURRENT_TIMESTAMP)
+           ))::DATE
+      INTO first_month;
+
+    m := first_month;
+    WHILE m <= last_month LOOP
+        PERFORM create_monthly_partition('generated_pins', m);
+        PERFORM create_monthly_partition('generated_macs', m);
+        m := (m + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+CREATE TABLE generated_pins_default PARTITION OF generated_pins DEFAULT;
+CREATE TABLE generated_macs_default PARTITION OF generated_macs DEFAULT;
+
+-- ============================================================================
+-- Copy existing rows and drop the unpartitioned tables
+-- ============================================================================
+INSERT INTO generated_pins (id, account_number, pin_length, pin_format, encrypted_pin_block,
+                            pin_verification_value, id_encryption_key, clear_pin, status,
+                            generated_at, last_verified_at, verification_attempts)
+SELECT id, account_number, pin_length, pin_format, encrypted_pin_block,
+       pin_verification_value, id_encryption_key, clear_pin, status,
+       generated_at, last_verified_at, verification_attempts
+FROM generated_pins_unpartitioned;
+
+INSERT INTO generated_macs (id, message, message_length, mac_value, mac_algorithm, id_mac_key,
+                            status, verification_attempts, last_verified_at, generated_at)
+SELECT id, message, message_length, mac_value, mac_algorithm, id_mac_key,
+       status, verification_attempts, last_verified_at, generated_at
+FROM generated_macs_unpartitioned;
+
+DROP TABLE generated_pins_unpartitioned;
+DROP TABLE generated_macs_unpartitioned;
+
+-- ============================================================================
+-- Indexes (created on the parent, propagated to every partition)
+-- ============================================================================
+-- account_number can no longer be UNIQUE: unique indexes on a partitioned table
+-- must include the partition key. Uniqueness is enforced by PinGenerationService.
+CREATE INDEX idx_generated_pins_account ON generated_pins(account_number);
+CREATE INDEX idx_generated_pins_status ON generated_pins(status);
+CREATE INDEX idx_generated_pins_encryption_key ON generated_pins(id_encryption_key);
+CREATE INDEX idx_generated_pins_generated_at ON generated_pins(generated_at DESC);
+CREATE INDEX idx_generated_pins_id ON generated_pins(id);
+
+CREATE INDEX idx_generated_macs_mac_key_id ON generated_macs(id_mac_key);
+CREATE INDEX idx_generated_macs_status ON generated_macs(status);
+CREATE INDEX idx_generated_macs_generated_at ON generated_macs(generated_at);
+CREATE INDEX idx_generated_macs_message_key ON generated_macs(message, id_mac_key);
+CREATE INDEX idx_generated_macs_id ON generated_macs(id);
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+COMMENT ON TABLE generated_pins IS 'Stores generated and encrypted PINs for card accounts (monthly partitions on generated_at)';
+COMMENT ON COLUMN generated_pins.pin_format IS 'PIN block format: ISO-0, ISO-1, ISO-3, ISO-4';
+COMMENT ON COLUMN generated_pins.pin_verification_value IS 'PIN Verification Value (PVV) for offline PIN verification';
+COMMENT ON COLUMN generated_pins.clear_pin IS 'Clear PIN for simulation/testing - NEVER store in production';
+
+COMMENT ON TABLE generated_macs IS 'Stores generated MACs (Message Authentication Codes) for transaction integrity verification (monthly partitions on generated_at)';
+COMMENT ON COLUMN generated_macs.message IS 'Original message that was authenticated';
+COMMENT ON COLUMN generated_macs.message_length IS 'Length of the message in bytes';
+COMMENT ON COLUMN generated_macs.mac_value IS 'Generated MAC value (hexadecimal)';
+COMMENT ON COLUMN generated_macs.mac_algorithm IS 'MAC algorithm used (ISO9797-ALG3, HMAC-SHA256, CBC-MAC)';
+COMMENT ON COLUMN generated_macs.id_mac_key IS 'Reference to the MAC key (TSK or ZSK) used';
+COMMENT ON COLUMN generated_macs.status IS 'Current status: ACTIVE, EXPIRED, or REVOKED';
+COMMENT ON COLUMN generated_macs.verification_attempts IS 'Number of times this MAC has been verified';
+COMMENT ON COLUMN generated_macs.last_verified_at IS 'Timestamp of last verification attempt';
+COMMENT ON COLUMN generated_macs.generated_at IS 'Timestamp when MAC was generated';
+
+-- ============================================================================
+-- End of Migration V4
+-- ============================================================================
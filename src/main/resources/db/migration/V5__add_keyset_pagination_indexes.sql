@@ -0,0 +1,30 @@
+-- ============================================================================
+-- HSM Simulator - Keyset Pagination Indexes
+-- Version: 5.0
+-- Purpose: Composite (generated_at, id) indexes backing the keyset (seek)
+--          pagination used by the key, PIN and MAC listings
+-- ============================================================================
+
+-- ============================================================================
+-- master_keys
+-- ============================================================================
+CREATE INDEX idx_master_keys_keyset ON master_keys(generated_at DESC, id DESC);
+
+-- ============================================================================
+-- generated_pins / generated_macs (propagated to every partition)
+-- ============================================================================
+-- The composite index also serves plain ORDER BY generated_at, so the
+-- single-column indexes are replaced
+DROP INDEX IF EXISTS idx_generated_pins_generated_at;
+CREATE INDEX idx_generated_pins_keyset ON generated_pins(generated_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_generated_macs_generated_at;
+CREATE INDEX idx_generated_macs_keyset ON generated_macs(generated_at DESC, id DESC);
+
+COMMENT ON INDEX idx_master_keys_keyset IS 'Keyset pagination on (generated_at, id) for the key listing';
+COMMENT ON INDEX idx_generated_pins_keyset IS 'Keyset pagination on (generated_at, id) for the PIN listing';
+COMMENT ON INDEX idx_generated_macs_keyset IS 'Keyset pagination on (generated_at, id) for the MAC listing';
+
+-- ============================================================================
+-- End of Migration V5
+-- ============================================================================
@@ -0,0 +1,33 @@
+-- ============================================================================
+-- HSM Simulator - Rotation Participant Lookup Index
+-- Version: 6.0
+-- Purpose: Index (rotation, terminal) so a polling terminal finds its own
+--          participant row directly instead of scanning every participant
+--          of a bank-wide rotation
+-- ============================================================================
+
+-- ============================================================================
+-- Indexes for Rotation Participants
+-- ============================================================================
+
+CREATE INDEX idx_rotation_participant_rotation_terminal
+    ON rotation_participants(id_rotation, id_terminal);
+
+-- Pending-rotation lookup for a terminal (rotation id not supplied)
+CREATE INDEX idx_rotation_participant_terminal_status
+    ON rotation_participants(id_terminal, update_status);
+
+-- The composite indexes lead with these columns
+DROP INDEX IF EXISTS idx_rotation_participant_rotation;
+DROP INDEX IF EXISTS idx_rotation_participant_terminal;
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON INDEX idx_rotation_participant_rotation_terminal IS 'Per-terminal participant lookup within a rotation';
+COMMENT ON INDEX idx_rotation_participant_terminal_status IS 'Pending or delivered rotations for a terminal';
+
+-- ============================================================================
+-- End of Migration V6
+-- ============================================================================
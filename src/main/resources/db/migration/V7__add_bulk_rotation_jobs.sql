@@ -0,0 +1,53 @@
+-- ============================================================================
+-- HSM Simulator - Bulk Rotation Jobs
+-- Version: 7.0
+-- Purpose: Track bank-wide TPK/TSK rotation jobs that create one rotation per
+--          terminal key in committed chunks, so a job can report progress and
+--          be cancelled or resumed from its last committed terminal
+-- ============================================================================
+
+-- ============================================================================
+-- Bulk Rotation Jobs Table
+-- ============================================================================
+
+CREATE TABLE bulk_rotation_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    id_bank UUID NOT NULL,
+    key_types VARCHAR(50) NOT NULL,
+    rotation_type VARCHAR(50) NOT NULL,
+    rotation_reason TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED' CHECK (status IN ('QUEUED', 'RUNNING', 'INTERRUPTED', 'CANCELLED', 'COMPLETED', 'FAILED')),
+    terminals_total INTEGER NOT NULL DEFAULT 0,
+    terminals_processed INTEGER NOT NULL DEFAULT 0,
+    terminals_skipped INTEGER NOT NULL DEFAULT 0,
+    rotations_created INTEGER NOT NULL DEFAULT 0,
+    last_terminal_id VARCHAR(50),
+    initiated_by VARCHAR(100) NOT NULL,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_bulk_rotation_job_bank FOREIGN KEY (id_bank) REFERENCES banks(id) ON DELETE CASCADE
+);
+
+-- ============================================================================
+-- Indexes for Bulk Rotation Jobs
+-- ============================================================================
+
+-- Active job check per bank
+CREATE INDEX idx_bulk_rotation_job_bank_status ON bulk_rotation_jobs(id_bank, status);
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON TABLE bulk_rotation_jobs IS 'Bank-wide terminal key rotation jobs processed in committed chunks';
+COMMENT ON COLUMN bulk_rotation_jobs.key_types IS 'Comma-separated terminal key types to rotate: TPK, TSK';
+COMMENT ON COLUMN bulk_rotation_jobs.status IS 'Job status: QUEUED, RUNNING, INTERRUPTED, CANCELLED, COMPLETED, FAILED';
+COMMENT ON COLUMN bulk_rotation_jobs.terminals_skipped IS 'Terminals without an active key or with a rotation already in progress';
+COMMENT ON COLUMN bulk_rotation_jobs.last_terminal_id IS 'Keyset cursor: last terminal_id committed, a resumed job continues after it';
+
+-- ============================================================================
+-- End of Migration V7
+-- ============================================================================
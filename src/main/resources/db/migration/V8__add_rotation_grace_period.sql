@@ -0,0 +1,51 @@
+-- ============================================================================
+-- HSM Simulator - Rotation Grace Period
+-- Version: 8.0
+-- Purpose: Persist the grace period deadline and auto-complete flag of each
+--          rotation so expired rotations can be failed or completed by the
+--          scheduler, and index deadlines for rotations and key expiry
+-- ============================================================================
+
+-- ============================================================================
+-- Key Rotation History
+-- ============================================================================
+
+ALTER TABLE key_rotation_history ADD COLUMN grace_period_ends_at TIMESTAMP;
+ALTER TABLE key_rotation_history ADD COLUMN auto_complete BOOLEAN NOT NULL DEFAULT TRUE;
+
+-- Existing in-progress rotations get the previous implicit 24 hour grace period
+UPDATE key_rotation_history
+   SET grace_period_ends_at = rotation_started_at + INTERVAL '24 hours'
+ WHERE grace_period_ends_at IS NULL;
+
+-- ============================================================================
+-- Bulk Rotation Jobs
+-- ============================================================================
+
+ALTER TABLE bulk_rotation_jobs ADD COLUMN grace_period_hours INTEGER NOT NULL DEFAULT 24;
+
+-- ============================================================================
+-- Indexes for Deadline Lookups
+-- ============================================================================
+
+CREATE INDEX idx_rotation_history_grace_period
+    ON key_rotation_history(grace_period_ends_at)
+    WHERE rotation_status = 'IN_PROGRESS';
+
+CREATE INDEX idx_master_keys_expires_at
+    ON master_keys(expires_at)
+    WHERE status = 'ACTIVE';
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON COLUMN key_rotation_history.grace_period_ends_at IS 'Deadline for participants; on expiry unconfirmed participants fail and auto-complete rotations complete';
+COMMENT ON COLUMN key_rotation_history.auto_complete IS 'Complete the rotation when all participants confirm or the grace period expires';
+COMMENT ON COLUMN bulk_rotation_jobs.grace_period_hours IS 'Grace period applied to each rotation created by the job';
+COMMENT ON INDEX idx_rotation_history_grace_period IS 'Grace period deadlines of in-progress rotations';
+COMMENT ON INDEX idx_master_keys_expires_at IS 'Expiry deadlines of active keys';
+
+-- ============================================================================
+-- End of Migration V8
+-- ============================================================================
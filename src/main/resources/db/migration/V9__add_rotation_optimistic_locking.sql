@@ -0,0 +1,25 @@
+-- ============================================================================
+-- HSM Simulator - Rotation Optimistic Locking
+-- Version: 9.0
+-- Purpose: Version columns for rotations and rotation participants, so
+--          concurrent confirmations and completions cannot overwrite each
+--          other; state transitions are conditional UPDATEs on these rows
+-- ============================================================================
+
+-- ============================================================================
+-- Version Columns
+-- ============================================================================
+
+ALTER TABLE key_rotation_history ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE rotation_participants ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- ============================================================================
+-- Comments
+-- ============================================================================
+
+COMMENT ON COLUMN key_rotation_history.version IS 'Optimistic lock version, incremented by every update including conditional status transitions';
+COMMENT ON COLUMN rotation_participants.version IS 'Optimistic lock version, incremented by every update including conditional status transitions';
+
+-- ============================================================================
+-- End of Migration V9
+-- ============================================================================
@@ -0,0 +1,83 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.Bank;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.Terminal;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput benchmark for parallel TPK/TSK derivation used by bulk key initialization.
+ * Measures derivation only (no database). Disabled by default because 100k terminals means
+ * 200k PBKDF2 runs. Run with:
+ *
+ *   mvn test -Dtest=BulkKeyInitializationBenchmarkTest -Dhsm.benchmark=true -Dhsm.benchmark.terminals=1000,10000,100000
+ */
+@EnabledIfSystemProperty(named = "hsm.benchmark", matches = "true")
+public class BulkKeyInitializationBenchmarkTest {
+
+    private static final int CHUNK_SIZE = 250;
+
+    @Test
+    public void benchmarkParallelTerminalKeyDerivation() {
+        BulkKeyInitializationService service =
+                new BulkKeyInitializationService(new KeyOperationService(null, null, null), null, null);
+        service.startPool();
+
+        Bank bank = Bank.builder().id(UUID.randomUUID()).bankCode("BENCH01").bankName("Benchmark Bank").build();
+        MasterKey tmk = MasterKey.builder()
+                .id(UUID.randomUUID())
+                .masterKeyId("TMK-BENCH01")
+                .keyType(KeyType.TMK)
+                .keySize(256)
+                .keyData(CryptoUtils.generateRandomKey(256))
+                .build();
+
+        String sizes = System.getProperty("hsm.benchmark.terminals", "1000,10000,100000");
+        System.out.println("=".repeat(80));
+        System.out.println("BULK TERMINAL KEY DERIVATION BENCHMARK");
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.println("=".repeat(80));
+
+        try {
+            for (String size : sizes.split(",")) {
+                int terminalCount = Integer.parseInt(size.trim());
+                List<Terminal> terminals = buildTerminals(bank, terminalCount);
+
+                long start = System.nanoTime();
+                int keys = 0;
+                for (int i = 0; i < terminals.size(); i += CHUNK_SIZE) {
+                    keys += service.deriveTerminalKeys(tmk,
+                            terminals.subList(i, Math.min(i + CHUNK_SIZE, terminals.size()))).size();
+                }
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+                assertEquals(terminalCount * 2, keys);
+                System.out.printf("%,8d terminals -> %,9d keys in %8.2f s = %,10.1f keys/s%n",
+                        terminalCount, keys, seconds, keys / seconds);
+            }
+        } finally {
+            service.stopPool();
+        }
+    }
+
+    private List<Terminal> buildTerminals(Bank bank, int count) {
+        List<Terminal> terminals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            terminals.add(Terminal.builder()
+                    .id(UUID.randomUUID())
+                    .terminalId(String.format("TRM-BENCH01-ATM-%06d", i))
+                    .bank(bank)
+                    .build());
+        }
+        return terminals;
+    }
+}
@@ -0,0 +1,126 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.BulkRotationRequest;
+import com.artivisi.hsm.simulator.entity.Bank;
+import com.artivisi.hsm.simulator.entity.BulkRotationJob;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.Terminal;
+import com.artivisi.hsm.simulator.repository.BankRepository;
+import com.artivisi.hsm.simulator.repository.BulkRotationJobRepository;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import com.artivisi.hsm.simulator.repository.TerminalRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A bulk rotation replaces each terminal key with new key material, not a re-derivation of the same key,
+ * and a bank never has two active jobs.
+ */
+public class BulkKeyRotationServiceTest {
+
+    private final BulkRotationJobRepository jobRepository = mock(BulkRotationJobRepository.class);
+    private final BankRepository bankRepository = mock(BankRepository.class);
+    private final MasterKeyRepository masterKeyRepository = mock(MasterKeyRepository.class);
+    private final KeyRotationHistoryRepository rotationHistoryRepository = mock(KeyRotationHistoryRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final KeyOperationService keyOperationService = new KeyOperationService(null, null, null);
+
+    private final BulkKeyRotationService service = new BulkKeyRotationService(jobRepository,
+            bankRepository, mock(TerminalRepository.class), masterKeyRepository, rotationHistoryRepository,
+            mock(RotationParticipantRepository.class), keyOperationService, mock(RotationProgressService.class),
+            mock(TerminalKeyPushService.class), mock(RotationExpiryService.class), mock(RotationKeyResolver.class),
+            mock(RotationEventService.class), transactionTemplate);
+
+    public BulkKeyRotationServiceTest() {
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "maxConcurrentJobs", 1);
+        service.startPools();
+
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @AfterEach
+    void stop() {
+        service.stopPools();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rotatedKeysHaveNewKeyMaterial() {
+        Bank bank = Bank.builder().id(UUID.randomUUID()).bankCode("ISS001").build();
+        Terminal terminal = Terminal.builder().id(UUID.randomUUID()).terminalId("TRM-ISS001-ATM-001").bank(bank).build();
+        MasterKey tmk = MasterKey.builder()
+                .id(UUID.randomUUID())
+                .keyType(KeyType.TMK)
+                .keySize(256)
+                .keyData(CryptoUtils.generateRandomKey(256))
+                .build();
+        // The key in service, derived from the same TMK for the same terminal
+        MasterKey oldKey = keyOperationService.buildDerivedTerminalKey(tmk, terminal, KeyType.TPK);
+        oldKey.setId(UUID.randomUUID());
+
+        BulkRotationJob job = BulkRotationJob.builder().id(UUID.randomUUID()).bank(bank).build();
+        when(masterKeyRepository.findActiveTerminalKeys(anyCollection(), anyCollection())).thenReturn(List.of(oldKey));
+        when(rotationHistoryRepository.findOldKeyIdsInProgress(anyCollection())).thenReturn(List.of());
+        when(masterKeyRepository.findAllById(anyCollection())).thenReturn(List.of(tmk));
+        when(jobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+
+        int rotations = ReflectionTestUtils.invokeMethod(service, "processChunk", job, List.of(terminal), List.of(KeyType.TPK));
+        assertEquals(1, rotations);
+
+        ArgumentCaptor<List<MasterKey>> saved = ArgumentCaptor.forClass(List.class);
+        verify(masterKeyRepository).saveAll(saved.capture());
+        MasterKey newKey = saved.getValue().get(0);
+
+        assertEquals(oldKey.getId(), newKey.getRotatedFromKeyId());
+        assertFalse(Arrays.equals(oldKey.getKeyData(), newKey.getKeyData()));
+        assertNotEquals(oldKey.getKeyFingerprint(), newKey.getKeyFingerprint());
+        assertNotEquals(oldKey.getKdfSalt(), newKey.getKdfSalt());
+    }
+
+    @Test
+    public void concurrentStartRejectedByActiveJobIndexIsReportedAsRunning() {
+        Bank bank = Bank.builder().id(UUID.randomUUID()).bankCode("ISS001").build();
+        when(bankRepository.findByBankCode("ISS001")).thenReturn(Optional.of(bank));
+        // Another request queued a job between the existence check and this insert
+        when(jobRepository.existsActiveForBank(bank.getId())).thenReturn(false);
+        when(jobRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"uq_bulk_rotation_job_active_bank\""));
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> service.startJob("ISS001", new BulkRotationRequest(), "admin"));
+
+        assertEquals("A bulk rotation job is already running for bank: ISS001", thrown.getMessage());
+        verify(jobRepository, never()).findById(any());
+    }
+}
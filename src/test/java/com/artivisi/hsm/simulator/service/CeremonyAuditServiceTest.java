@@ -0,0 +1,227 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.CeremonyAuditLog;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.repository.CeremonyAuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Buffered audit entries are written in batches that extend one hash chain, and chain
+ * verification pinpoints an entry whose stored content was altered. An entry the database
+ * rejects is dead-lettered without holding back the entries around it.
+ */
+public class CeremonyAuditServiceTest {
+
+    private static final String REJECTED_DESCRIPTION = "Contribution for a ceremony that no longer exists";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CeremonyAuditService service = new CeremonyAuditService(mock(CeremonyAuditLogRepository.class),
+            jdbcTemplate, mock(PlatformTransactionManager.class), new ObjectMapper());
+
+    private final KeyCeremony ceremony = KeyCeremony.builder().id(UUID.randomUUID()).ceremonyId("CER-2026-000001").build();
+
+    public CeremonyAuditServiceTest() {
+        ReflectionTestUtils.setField(service, "bufferSize", 16);
+        ReflectionTestUtils.setField(service, "batchSize", 4);
+        ReflectionTestUtils.setField(service, "offerTimeoutMs", 100L);
+        service.init();
+
+        // The table's chain head follows what the batches insert
+        List<Map<String, Object>> head = new ArrayList<>();
+        when(jdbcTemplate.queryForList(anyString())).thenAnswer(inv -> List.copyOf(head));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(inv -> {
+            List<Object[]> rows = inv.getArgument(1);
+            for (Object[] row : rows) {
+                if (REJECTED_DESCRIPTION.equals(row[4])) {
+                    throw new DataIntegrityViolationException("violates foreign key constraint");
+                }
+            }
+            Object[] last = rows.get(rows.size() - 1);
+            head.clear();
+            head.add(Map.of("sequence_number", last[20], "entry_hash", last[22]));
+            return new int[rows.size()];
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bufferedEntriesAreWrittenInChainedBatches() {
+        List<CeremonyAuditLog> entries = appendEvents(10);
+
+        assertEquals(10, service.flush());
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), rows.capture());
+        assertEquals(List.of(4, 4, 2), rows.getAllValues().stream().map(List::size).toList());
+
+        assertEquals(CeremonyAuditService.GENESIS_HASH, entries.get(0).getPreviousHash());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i + 1, entries.get(i).getSequenceNumber());
+            if (i > 0) {
+                assertEquals(entries.get(i - 1).getEntryHash(), entries.get(i).getPreviousHash());
+            }
+        }
+        assertEquals(0, service.flush());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rejectedEntryIsDeadLetteredAndTheRestAreChained() {
+        List<CeremonyAuditLog> entries = appendEvents(10);
+        entries.get(5).setEventDescription(REJECTED_DESCRIPTION);
+
+        assertEquals(9, service.flush());
+        assertEquals(1, service.getDeadLetterCount());
+
+        List<CeremonyAuditLog> written = new ArrayList<>(entries);
+        written.remove(5);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), rows.capture());
+        // Batches holding the rejected entry rolled back; the rest were committed in order
+        List<Object> insertedIds = new ArrayList<>();
+        for (List<Object[]> batch : rows.getAllValues()) {
+            if (batch.stream().noneMatch(row -> REJECTED_DESCRIPTION.equals(row[4]))) {
+                batch.forEach(row -> insertedIds.add(row[0]));
+            }
+        }
+        assertEquals(written.stream().map(CeremonyAuditLog::getId).toList(), insertedIds);
+        long sequence = 0;
+        for (CeremonyAuditLog entry : written) {
+            assertEquals(++sequence, entry.getSequenceNumber());
+        }
+        for (int i = 1; i < written.size(); i++) {
+            assertEquals(written.get(i - 1).getEntryHash(), written.get(i).getPreviousHash());
+        }
+        assertEquals(0, service.flush());
+    }
+
+    @Test
+    public void unavailableDatabaseKeepsEntriesForTheNextFlush() {
+        List<CeremonyAuditLog> entries = appendEvents(3);
+        doThrow(new CannotGetJdbcConnectionException("Connection refused")).when(jdbcTemplate).queryForList(anyString());
+
+        assertEquals(0, service.flush());
+        assertEquals(0, service.getDeadLetterCount());
+
+        doReturn(List.of()).when(jdbcTemplate).queryForList(anyString());
+        assertEquals(3, service.flush());
+        assertEquals(3L, entries.get(2).getSequenceNumber());
+    }
+
+    @Test
+    public void appendRejectsEntryThatCannotBeStored() {
+        CeremonyAuditLog overlong = event(1);
+        overlong.setEventType("X".repeat(101));
+        assertThrows(IllegalArgumentException.class, () -> service.append(overlong));
+
+        CeremonyAuditLog missingStatus = event(2);
+        missingStatus.setEventStatus(null);
+        assertThrows(IllegalArgumentException.class, () -> service.append(missingStatus));
+
+        CeremonyAuditLog unserializable = event(3);
+        unserializable.setEventMetadata(Map.of("session", new Object()));
+        assertThrows(IllegalArgumentException.class, () -> service.append(unserializable));
+
+        assertEquals(0, service.flush());
+    }
+
+    @Test
+    public void verificationFindsAlteredEntry() {
+        List<CeremonyAuditLog> entries = appendEvents(5);
+        service.flush();
+        stubChain(entries);
+
+        CeremonyAuditService.ChainVerification intact = service.verifyChain();
+        assertTrue(intact.isValid());
+        assertEquals(5, intact.getEntriesChecked());
+        assertEquals(entries.get(4).getEntryHash(), intact.getHeadHash());
+
+        entries.get(2).setEventDescription("Master key generated successfully. Fingerprint: forged");
+        stubChain(entries);
+
+        CeremonyAuditService.ChainVerification altered = service.verifyChain();
+        assertFalse(altered.isValid());
+        assertEquals(3L, altered.getBrokenAtSequence());
+        assertEquals(2, altered.getEntriesChecked());
+    }
+
+    @Test
+    public void metadataKeyOrderDoesNotChangeTheHash() {
+        CeremonyAuditLog entry = event(1);
+        entry.setSequenceNumber(1L);
+        entry.setPreviousHash(CeremonyAuditService.GENESIS_HASH);
+        entry.setCreatedAt(LocalDateTime.of(2026, 1, 15, 9, 30));
+
+        Map<String, Object> forward = new LinkedHashMap<>();
+        forward.put("shares", 5);
+        forward.put("algorithm", "AES-256");
+        entry.setEventMetadata(forward);
+        String hash = service.chainHash(entry);
+
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("algorithm", "AES-256");
+        reversed.put("shares", 5);
+        entry.setEventMetadata(reversed);
+        assertEquals(hash, service.chainHash(entry));
+    }
+
+    private List<CeremonyAuditLog> appendEvents(int count) {
+        List<CeremonyAuditLog> entries = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            CeremonyAuditLog entry = event(i);
+            service.append(entry);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private CeremonyAuditLog event(int i) {
+        return CeremonyAuditLog.builder()
+                .id(UUID.randomUUID())
+                .keyCeremony(ceremony)
+                .eventType("CONTRIBUTION_RECEIVED")
+                .eventCategory(CeremonyAuditLog.EventCategory.CEREMONY)
+                .eventDescription("Contribution received from Custodian " + i)
+                .actorType(CeremonyAuditLog.ActorType.ADMINISTRATOR)
+                .actorName("custodian" + i)
+                .eventStatus(CeremonyAuditLog.EventStatus.SUCCESS)
+                .eventSeverity(CeremonyAuditLog.EventSeverity.INFO)
+                .build();
+    }
+
+    // The whole chain fits in the first verification page
+    @SuppressWarnings("unchecked")
+    private void stubChain(List<CeremonyAuditLog> entries) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenReturn(entries);
+    }
+}
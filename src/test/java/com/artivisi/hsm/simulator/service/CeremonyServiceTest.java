@@ -0,0 +1,161 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.CeremonyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.entity.KeyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.PassphraseContribution;
+import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.KeyCeremonyRepository;
+import com.artivisi.hsm.simulator.repository.KeyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.KeyShareRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.PassphraseContributionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Custodian shares are encrypted on the share encryption pool and saved in one batch, after one
+ * batched passphrase verification; a wrong passphrase or a busy Argon2 executor fails the ceremony
+ * without saving any share.
+ */
+public class CeremonyServiceTest {
+
+    private final KeyCeremonyRepository ceremonyRepository = mock(KeyCeremonyRepository.class);
+    private final CeremonyCustodianRepository ceremonyCustodianRepository = mock(CeremonyCustodianRepository.class);
+    private final PassphraseContributionRepository contributionRepository = mock(PassphraseContributionRepository.class);
+    private final MasterKeyRepository masterKeyRepository = mock(MasterKeyRepository.class);
+    private final KeyShareRepository shareRepository = mock(KeyShareRepository.class);
+    private final PassphraseService passphraseService = mock(PassphraseService.class);
+
+    private final CeremonyService service = new CeremonyService(ceremonyRepository, ceremonyCustodianRepository,
+            mock(KeyCustodianRepository.class), contributionRepository, masterKeyRepository, shareRepository,
+            passphraseService, new KeyGenerationService(), mock(EmailOutboxService.class),
+            mock(CeremonyStatusService.class), mock(CeremonyAuditService.class), mock(CeremonyStatisticsService.class),
+            mock(TemplateService.class), mock(TransactionTemplate.class));
+
+    private final KeyCeremony ceremony = KeyCeremony.builder()
+            .id(UUID.randomUUID())
+            .ceremonyId("CER-2026-000042")
+            .status(KeyCeremony.CeremonyStatus.PARTIAL_CONTRIBUTIONS)
+            .numberOfCustodians(3)
+            .threshold(2)
+            .build();
+    private final Map<String, String> passphrases = new HashMap<>();
+
+    public CeremonyServiceTest() {
+        ReflectionTestUtils.setField(service, "shareEncryptionParallelism", 2);
+        service.startPool();
+
+        List<CeremonyCustodian> custodians = new ArrayList<>();
+        List<PassphraseContribution> contributions = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            String email = "custodian" + i + "@example.com";
+            CeremonyCustodian custodian = CeremonyCustodian.builder()
+                    .id(UUID.randomUUID())
+                    .keyCeremony(ceremony)
+                    .keyCustodian(KeyCustodian.builder().email(email).build())
+                    .custodianOrder(i)
+                    .custodianLabel("Custodian " + (char) ('A' + i - 1))
+                    .contributionStatus(CeremonyCustodian.ContributionStatus.CONTRIBUTED)
+                    .build();
+            custodians.add(custodian);
+            contributions.add(PassphraseContribution.builder()
+                    .ceremonyCustodian(custodian)
+                    .passphraseHash("hash-" + i)
+                    .build());
+            passphrases.put(email, "Passphrase-Of-Custodian-" + i + "!");
+        }
+
+        when(ceremonyRepository.findById(ceremony.getId())).thenReturn(Optional.of(ceremony));
+        when(ceremonyCustodianRepository.countByKeyCeremonyAndContributionStatus(
+                ceremony, CeremonyCustodian.ContributionStatus.CONTRIBUTED)).thenReturn(3L);
+        when(ceremonyCustodianRepository.findStatusRows(ceremony.getId())).thenReturn(custodians);
+        when(contributionRepository.findByKeyCeremonyId(ceremony.getId())).thenReturn(contributions);
+        when(masterKeyRepository.save(any(MasterKey.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(passphraseService.verifyPassphrases(anyList(), anyList())).thenReturn(-1);
+    }
+
+    @AfterEach
+    void stop() {
+        service.stopPool();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sharesAreEncryptedInParallelAndSavedInOneBatch() {
+        service.generateMasterKey(ceremony.getId(), "admin", passphrases);
+
+        ArgumentCaptor<List<KeyShare>> saved = ArgumentCaptor.forClass(List.class);
+        verify(shareRepository, times(1)).saveAll(saved.capture());
+        verify(shareRepository, never()).save(any(KeyShare.class));
+        // One batch on the Argon2 executor, in custodian order
+        verify(passphraseService, times(1)).verifyPassphrases(
+                List.of(passphrases.get("custodian1@example.com"), passphrases.get("custodian2@example.com"),
+                        passphrases.get("custodian3@example.com")),
+                List.of("hash-1", "hash-2", "hash-3"));
+        verify(passphraseService, never()).verifyPassphrase(anyString(), anyString());
+
+        List<KeyShare> shares = saved.getValue();
+        assertEquals(3, shares.size());
+        for (int i = 0; i < shares.size(); i++) {
+            assertEquals(i + 1, shares.get(i).getShareIndex());
+            assertEquals("custodian" + (i + 1) + "@example.com",
+                    shares.get(i).getCeremonyCustodian().getKeyCustodian().getEmail());
+        }
+        // Each share is encrypted under its own salt, stored in the first 32 bytes
+        assertFalse(Arrays.equals(
+                Arrays.copyOf(shares.get(0).getShareDataEncrypted(), 32),
+                Arrays.copyOf(shares.get(1).getShareDataEncrypted(), 32)));
+        assertEquals(KeyCeremony.CeremonyStatus.COMPLETED, ceremony.getStatus());
+    }
+
+    @Test
+    public void wrongPassphraseFailsCeremonyWithoutSavingShares() {
+        when(passphraseService.verifyPassphrases(anyList(), anyList())).thenReturn(1);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.generateMasterKey(ceremony.getId(), "admin", passphrases));
+
+        assertTrue(e.getMessage().contains("Invalid passphrase for custodian: custodian2@example.com"));
+        verify(shareRepository, never()).saveAll(anyList());
+        assertEquals(KeyCeremony.CeremonyStatus.PARTIAL_CONTRIBUTIONS, ceremony.getStatus());
+    }
+
+    @Test
+    public void busyArgon2ExecutorIsReportedAsRetryable() {
+        when(passphraseService.verifyPassphrases(anyList(), anyList()))
+                .thenThrow(new PassphraseService.HashingUnavailableException("Passphrase processing is busy"));
+
+        assertThrows(PassphraseService.HashingUnavailableException.class,
+                () -> service.generateMasterKey(ceremony.getId(), "admin", passphrases));
+
+        verify(shareRepository, never()).saveAll(anyList());
+        assertEquals(KeyCeremony.CeremonyStatus.PARTIAL_CONTRIBUTIONS, ceremony.getStatus());
+    }
+}
@@ -0,0 +1,105 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.CeremonyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ceremony events move the in-memory totals and averages without rescanning, and only changed
+ * ceremonies are written to the snapshot table.
+ */
+public class CeremonyStatisticsServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CeremonyStatisticsService service = new CeremonyStatisticsService(jdbcTemplate);
+
+    private final UUID ceremonyId = UUID.randomUUID();
+    private final LocalDateTime startedAt = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    public CeremonyStatisticsServiceTest() {
+        // A freshly created ceremony: three custodians, nothing contributed yet
+        Map<String, Object> row = new HashMap<>();
+        row.put("number_of_custodians", 3);
+        row.put("started_at", Timestamp.valueOf(startedAt));
+        row.put("contributions", 0L);
+        row.put("shares_generated", 0L);
+        row.put("shares_distributed", 0L);
+        row.put("last_activity_at", Timestamp.valueOf(startedAt));
+        when(jdbcTemplate.queryForList(anyString(), any(Object[].class))).thenReturn(List.of(row));
+    }
+
+    @Test
+    public void eventsUpdateSummaryIncrementally() {
+        service.ceremonyCreated(ceremonyId);
+        assertEquals(1, service.getSummary().getTotalCeremonies());
+        assertEquals(0, service.getSummary().getAverageCompletionPercentage().compareTo(BigDecimal.ZERO));
+
+        service.contributionRecorded(ceremonyId, startedAt.plusMinutes(10));
+        service.contributionRecorded(ceremonyId, startedAt.plusMinutes(20));
+        CeremonyStatisticsService.StatisticsSummary partial = service.getSummary();
+        assertEquals(2, partial.getTotalContributions());
+        assertEquals(new BigDecimal("66.67"), partial.getAverageCompletionPercentage());
+        assertEquals(15.0, partial.getAverageContributionTimeMinutes());
+        assertNull(partial.getAverageCeremonyDurationMinutes());
+
+        service.contributionRecorded(ceremonyId, startedAt.plusMinutes(30));
+        service.keyGenerated(ceremonyId, 3, startedAt.plusMinutes(40));
+        service.shareDistributed(share());
+
+        CeremonyStatisticsService.StatisticsSummary summary = service.getSummary();
+        assertEquals(1, summary.getCompletedCeremonies());
+        assertEquals(3, summary.getTotalContributions());
+        assertEquals(3, summary.getTotalSharesGenerated());
+        assertEquals(1, summary.getTotalSharesDistributed());
+        assertEquals(new BigDecimal("100.00"), summary.getAverageCompletionPercentage());
+        assertEquals(20.0, summary.getAverageContributionTimeMinutes());
+        assertEquals(40.0, summary.getAverageCeremonyDurationMinutes());
+
+        CeremonyStatisticsService.CeremonyStatisticsInfo info = service.getCeremonyStatistics(ceremonyId);
+        assertEquals(0, info.getContributionsPending());
+        assertEquals(40, info.getTotalDurationMinutes());
+        assertEquals(startedAt.plusMinutes(45), info.getLastActivityAt());
+
+        // The ceremony was read from the database once, when its first event arrived
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void snapshotWritesOnlyChangedCeremonies() {
+        service.ceremonyCreated(ceremonyId);
+        service.contributionRecorded(ceremonyId, startedAt.plusMinutes(5));
+
+        assertEquals(1, service.snapshot());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertEquals(0, service.snapshot());
+    }
+
+    private KeyShare share() {
+        KeyCeremony ceremony = KeyCeremony.builder().id(ceremonyId).build();
+        CeremonyCustodian custodian = CeremonyCustodian.builder().keyCeremony(ceremony).build();
+        return KeyShare.builder()
+                .ceremonyCustodian(custodian)
+                .distributedAt(startedAt.plusMinutes(45))
+                .build();
+    }
+}
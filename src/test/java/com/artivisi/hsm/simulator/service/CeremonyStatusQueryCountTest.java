@@ -0,0 +1,94 @@
+package com.artivisi.hsm.simulator.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prepared statements issued by CeremonyStatusService.getStatus against PostgreSQL, counted with
+ * Hibernate statistics: one for a ceremony with 3 custodians and one for 50, none while cached.
+ * Needs Docker; skipped without it.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Testcontainers(disabledWithoutDocker = true)
+class CeremonyStatusQueryCountTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @Autowired
+    private CeremonyStatusService ceremonyStatusService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void statusStatementCountDoesNotGrowWithCustodians() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> statements = new ArrayList<>();
+
+        for (int custodians : new int[]{3, 50}) {
+            UUID ceremonyId = seedCeremony(custodians);
+
+            statistics.clear();
+            CeremonyService.CeremonyStatusResponse status = ceremonyStatusService.getStatus(ceremonyId);
+            statements.add(statistics.getPrepareStatementCount());
+
+            assertEquals(custodians, status.getCustodianStatuses().size());
+            assertEquals(custodians - 1, status.getContributedCount());
+            assertEquals("Custodian 1", status.getCustodianStatuses().get(0).getCustodianName());
+            assertEquals("Query count " + custodians, status.getCeremony().getCeremonyName());
+
+            statistics.clear();
+            ceremonyStatusService.getStatus(ceremonyId);
+            assertEquals(0, statistics.getPrepareStatementCount());
+        }
+
+        assertEquals(List.of(1L, 1L), statements);
+    }
+
+    // All but the last custodian have contributed
+    private UUID seedCeremony(int custodians) {
+        UUID ceremonyId = UUID.randomUUID();
+        String suffix = ceremonyId.toString().substring(0, 8);
+        jdbcTemplate.update("INSERT INTO key_ceremonies (id, ceremony_id, ceremony_name, purpose, ceremony_type, status, " +
+                "number_of_custodians, threshold, created_by) VALUES (?, ?, ?, 'Query count', 'INITIALIZATION', " +
+                "'PARTIAL_CONTRIBUTIONS', ?, 2, 'test')",
+                ceremonyId, "CER-QC-" + suffix, "Query count " + custodians, custodians);
+
+        List<Object[]> keyCustodians = new ArrayList<>(custodians);
+        List<Object[]> links = new ArrayList<>(custodians);
+        for (int i = 1; i <= custodians; i++) {
+            UUID custodianId = UUID.randomUUID();
+            boolean contributed = i < custodians;
+            keyCustodians.add(new Object[]{custodianId, "CUST-QC-" + suffix + "-" + i, "Custodian " + i,
+                    "qc-" + suffix + "-" + i + "@example.com"});
+            links.add(new Object[]{ceremonyId, custodianId, i, "Custodian " + i, UUID.randomUUID().toString(),
+                    contributed ? "CONTRIBUTED" : "PENDING", contributed ? "STRONG" : null});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO key_custodians (id, custodian_id, full_name, email) VALUES (?, ?, ?, ?)",
+                keyCustodians);
+        jdbcTemplate.batchUpdate("INSERT INTO ceremony_custodians (id_key_ceremony, id_key_custodian, custodian_order, " +
+                "custodian_label, contribution_token, contribution_status, passphrase_strength) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", links);
+        return ceremonyId;
+    }
+}
@@ -0,0 +1,124 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.CeremonyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.entity.KeyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import com.artivisi.hsm.simulator.entity.PassphraseContribution;
+import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.KeyCeremonyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * A ceremony status is built from one custodian query whether the ceremony has 3 or 50 custodians,
+ * is served from the cache while unchanged, and is rebuilt after a contribution or share event.
+ */
+public class CeremonyStatusServiceTest {
+
+    private final KeyCeremonyRepository ceremonyRepository = mock(KeyCeremonyRepository.class);
+    private final CeremonyCustodianRepository ceremonyCustodianRepository = mock(CeremonyCustodianRepository.class);
+    private final CeremonyStatusService service = new CeremonyStatusService(ceremonyRepository, ceremonyCustodianRepository);
+
+    public CeremonyStatusServiceTest() {
+        ReflectionTestUtils.setField(service, "cacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "cacheMaxEntries", 1000);
+    }
+
+    @Test
+    public void statusIsOneQueryRegardlessOfCustodianCount() {
+        for (int custodians : new int[]{3, 50}) {
+            KeyCeremony ceremony = ceremony(custodians);
+            List<CeremonyCustodian> rows = custodians(ceremony, custodians);
+            when(ceremonyCustodianRepository.findStatusRows(ceremony.getId())).thenReturn(rows);
+
+            CeremonyService.CeremonyStatusResponse status = service.getStatus(ceremony.getId());
+
+            assertEquals(custodians, status.getCustodianStatuses().size());
+            assertEquals(custodians - 1, status.getContributedCount());
+            assertTrue(status.isThresholdMet());
+            assertEquals(PassphraseContribution.PassphraseStrength.STRONG,
+                    status.getCustodianStatuses().get(0).getPassphraseStrength());
+            verify(ceremonyCustodianRepository, times(1)).findStatusRows(ceremony.getId());
+        }
+        verify(ceremonyRepository, never()).findById(any());
+        verifyNoMoreInteractions(ceremonyCustodianRepository);
+    }
+
+    @Test
+    public void cachedUntilAnEventChangesTheCeremony() {
+        KeyCeremony ceremony = ceremony(3);
+        List<CeremonyCustodian> rows = custodians(ceremony, 3);
+        when(ceremonyCustodianRepository.findStatusRows(ceremony.getId())).thenReturn(rows);
+
+        CeremonyService.CeremonyStatusResponse first = service.getStatus(ceremony.getId());
+        assertSame(first, service.getStatus(ceremony.getId()));
+        verify(ceremonyCustodianRepository, times(1)).findStatusRows(ceremony.getId());
+
+        KeyShare share = KeyShare.builder()
+                .shareId("SHR-1")
+                .ceremonyCustodian(rows.get(0))
+                .distributedAt(LocalDateTime.now())
+                .build();
+        service.shareGenerated(rows.get(0), share);
+        service.shareDistributed(share);
+
+        CeremonyService.CeremonyStatusResponse second = service.getStatus(ceremony.getId());
+        verify(ceremonyCustodianRepository, times(2)).findStatusRows(ceremony.getId());
+        assertEquals(1, second.getSharesDistributed());
+        assertEquals("SHR-1", second.getCustodianStatuses().get(0).getShareId());
+    }
+
+    private static KeyCeremony ceremony(int custodians) {
+        return KeyCeremony.builder()
+                .id(UUID.randomUUID())
+                .ceremonyId("CER-" + custodians)
+                .ceremonyName("Status " + custodians)
+                .status(KeyCeremony.CeremonyStatus.PARTIAL_CONTRIBUTIONS)
+                .numberOfCustodians(custodians)
+                .threshold(2)
+                .build();
+    }
+
+    // All but the last custodian have contributed
+    private static List<CeremonyCustodian> custodians(KeyCeremony ceremony, int count) {
+        List<CeremonyCustodian> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            boolean contributed = i < count;
+            rows.add(CeremonyCustodian.builder()
+                    .id(UUID.randomUUID())
+                    .keyCeremony(ceremony)
+                    .keyCustodian(KeyCustodian.builder()
+                            .id(UUID.randomUUID())
+                            .fullName("Custodian " + i)
+                            .email("custodian" + i + "@example.com")
+                            .build())
+                    .custodianOrder(i)
+                    .custodianLabel("Custodian " + (char) ('A' + (i - 1) % 26))
+                    .contributionStatus(contributed
+                            ? CeremonyCustodian.ContributionStatus.CONTRIBUTED
+                            : CeremonyCustodian.ContributionStatus.PENDING)
+                    .passphraseStrength(contributed ? PassphraseContribution.PassphraseStrength.STRONG : null)
+                    .passphraseEntropyScore(contributed ? new BigDecimal("8.5") : null)
+                    .build());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,153 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.EmailOutbox;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.EmailOutboxRepository;
+import com.artivisi.hsm.simulator.repository.KeyShareRepository;
+import jakarta.mail.Message;
+import jakarta.mail.Multipart;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The outbox sender delivers through the real EmailService to a stand-in mail server:
+ * a delivered key share email marks the share distributed, failures back off exponentially
+ * and the last allowed failure dead-letters the message.
+ */
+public class EmailOutboxServiceTest {
+
+    private final List<MimeMessage> delivered = new ArrayList<>();
+    private final JavaMailSender mailServer = mock(JavaMailSender.class);
+    private final EmailOutboxRepository outboxRepository = mock(EmailOutboxRepository.class);
+    private final KeyShareRepository shareRepository = mock(KeyShareRepository.class);
+    private final CeremonyCustodianRepository ceremonyCustodianRepository = mock(CeremonyCustodianRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EmailOutboxService service;
+
+    private final KeyShare share = KeyShare.builder().id(UUID.randomUUID()).shareId("SHR-001").build();
+    private final EmailOutbox message = EmailOutbox.builder()
+            .id(1L)
+            .messageType(EmailOutbox.MessageType.KEY_SHARE)
+            .referenceId(share.getId())
+            .recipient("custodian@example.com")
+            .subject("Your HSM Key Share")
+            .htmlBody("<p>Share attached</p>")
+            .attachmentName("key-share-SHR-001.txt")
+            .attachmentContent("share".getBytes())
+            .attempts(1)
+            .build();
+
+    public EmailOutboxServiceTest() {
+        when(mailServer.createMimeMessage()).thenAnswer(inv -> new MimeMessage(Session.getInstance(new Properties())));
+        doAnswer(inv -> delivered.add(inv.getArgument(0))).when(mailServer).send(any(MimeMessage.class));
+
+        EmailService emailService = new EmailService(mailServer);
+        ReflectionTestUtils.setField(emailService, "emailEnabled", true);
+        ReflectionTestUtils.setField(emailService, "fromEmail", "hsm@example.com");
+
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(shareRepository.findById(share.getId())).thenReturn(Optional.of(share));
+
+        service = new EmailOutboxService(outboxRepository, ceremonyCustodianRepository, shareRepository,
+                mock(CeremonyStatusService.class), mock(CeremonyStatisticsService.class),
+                emailService, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "baseDelayMs", 5_000L);
+        ReflectionTestUtils.setField(service, "maxDelayMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxBatchesPerRun", 3);
+    }
+
+    @Test
+    public void deliveredMessageMarksShareDistributed() throws Exception {
+        service.deliver(1L);
+
+        assertEquals(1, delivered.size());
+        MimeMessage sent = delivered.get(0);
+        sent.saveChanges();
+        assertEquals("custodian@example.com", sent.getRecipients(Message.RecipientType.TO)[0].toString());
+        assertEquals("Your HSM Key Share", sent.getSubject());
+        assertTrue(((Multipart) sent.getContent()).getCount() >= 2);
+
+        assertEquals(EmailOutbox.Status.SENT, message.getStatus());
+        assertNotNull(message.getSentAt());
+        assertNull(message.getAttachmentContent());
+        assertNotNull(share.getDistributedAt());
+        assertEquals(KeyShare.DistributionMethod.EMAIL, share.getDistributionMethod());
+    }
+
+    @Test
+    public void failedSendsBackOffThenDeadLetter() {
+        doAnswer(inv -> { throw new MailSendException("Connection refused"); })
+                .when(mailServer).send(any(MimeMessage.class));
+
+        LocalDateTime before = LocalDateTime.now();
+        service.deliver(1L);
+
+        assertEquals(EmailOutbox.Status.PENDING, message.getStatus());
+        assertTrue(message.getLastError().contains("Connection refused"));
+        assertTrue(!message.getNextAttemptAt().isBefore(before.plusSeconds(5)));
+
+        // Third claim is the last allowed attempt
+        message.setAttempts(3);
+        service.deliver(1L);
+
+        assertEquals(EmailOutbox.Status.DEAD, message.getStatus());
+        assertNull(message.getAttachmentContent());
+        assertNull(share.getDistributedAt());
+        verify(shareRepository, never()).save(any());
+
+        // Dead messages are not retried
+        service.deliver(1L);
+        assertEquals(3, message.getAttempts());
+    }
+
+    @Test
+    public void drainRunStopsAfterTheBatchLimit() {
+        // The outbox never runs dry: every claim returns a full batch
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any(), any())).thenReturn(List.of(2L, 3L));
+
+        service.drainBatches();
+
+        verify(jdbcTemplate, times(3)).queryForList(anyString(), eq(Long.class), any(), any(), any());
+    }
+
+    @Test
+    public void backoffDoublesUpToTheCap() {
+        assertEquals(5_000L, service.backoffMs(1));
+        assertEquals(10_000L, service.backoffMs(2));
+        assertEquals(40_000L, service.backoffMs(4));
+        assertEquals(60_000L, service.backoffMs(5));
+        assertEquals(60_000L, service.backoffMs(40));
+    }
+}
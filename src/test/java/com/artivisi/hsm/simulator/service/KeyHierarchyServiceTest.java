@@ -0,0 +1,105 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.KeyHierarchyNode;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A subtree is loaded level by level, one children query and one count query per level, and
+ * stops growing at the node cap.
+ */
+public class KeyHierarchyServiceTest {
+
+    private final MasterKeyRepository repository = mock(MasterKeyRepository.class);
+    private final KeyHierarchyService service = new KeyHierarchyService(repository);
+
+    private final KeyHierarchyNode lmk = new KeyHierarchyNode(UUID.randomUUID(), "LMK-ISS001", KeyType.LMK,
+            MasterKey.KeyStatus.ACTIVE, null, null);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void subtreeLoadsEachLevelWithOneQuery() {
+        // LMK -> 2 TMKs -> 2 TPKs each
+        List<Object[]> tmks = List.of(row("TMK-1", KeyType.TMK, lmk.getId()), row("TMK-2", KeyType.TMK, lmk.getId()));
+        List<Object[]> tpks = List.of(
+                row("TPK-1A", KeyType.TPK, (UUID) tmks.get(0)[0]), row("TPK-2A", KeyType.TPK, (UUID) tmks.get(1)[0]),
+                row("TPK-1B", KeyType.TPK, (UUID) tmks.get(0)[0]), row("TPK-2B", KeyType.TPK, (UUID) tmks.get(1)[0]));
+        when(repository.findHierarchyNode(lmk.getId())).thenReturn(Optional.of(lmk));
+        when(repository.countChildrenByParent(anyCollection())).thenAnswer(inv -> {
+            List<Object[]> counts = new ArrayList<>();
+            for (UUID id : (Collection<UUID>) inv.getArgument(0)) {
+                long count = id.equals(lmk.getId()) ? 2 : tmks.stream().anyMatch(r -> r[0].equals(id)) ? 3 : 0;
+                if (count > 0) {
+                    counts.add(new Object[]{id, count});
+                }
+            }
+            return counts;
+        });
+        when(repository.findChildHierarchyRows(anyCollection(), eq(2), anyInt())).thenAnswer(inv ->
+                ((Collection<UUID>) inv.getArgument(0)).contains(lmk.getId()) ? tmks : tpks);
+
+        KeyHierarchyNode root = service.findSubtree(lmk.getId(), 2, 2);
+
+        assertEquals(List.of("TMK-1", "TMK-2"), root.getChildren().stream().map(KeyHierarchyNode::getMasterKeyId).toList());
+        assertFalse(root.isMoreChildren());
+        KeyHierarchyNode tmk1 = root.getChildren().get(0);
+        assertEquals(List.of("TPK-1A", "TPK-1B"), tmk1.getChildren().stream().map(KeyHierarchyNode::getMasterKeyId).toList());
+        assertEquals(3, tmk1.getChildCount());
+        assertTrue(tmk1.isMoreChildren());
+        assertEquals(KeyType.TPK, tmk1.getChildren().get(0).getKeyType());
+        assertNull(tmk1.getChildren().get(0).getChildren());
+
+        verify(repository, times(2)).findChildHierarchyRows(anyCollection(), anyInt(), anyInt());
+        verify(repository, times(3)).countChildrenByParent(anyCollection());
+        verify(repository, never()).findChildHierarchyNodes(any(), any());
+    }
+
+    @Test
+    public void subtreeQueriesAskForNoMoreThanTheRemainingNodes() {
+        when(repository.findHierarchyNode(lmk.getId())).thenReturn(Optional.of(lmk));
+        when(repository.countChildrenByParent(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{lmk.getId(), 5000L}))
+                .thenReturn(List.of());
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < KeyHierarchyService.MAX_SUBTREE_NODES - 1; i++) {
+            rows.add(row("TMK-" + i, KeyType.TMK, lmk.getId()));
+        }
+        when(repository.findChildHierarchyRows(anyCollection(), anyInt(), anyInt())).thenReturn(rows);
+
+        KeyHierarchyNode root = service.findSubtree(lmk.getId(), 3, KeyHierarchyService.MAX_CHILDREN_PER_NODE);
+
+        verify(repository).findChildHierarchyRows(argThat(ids -> List.copyOf(ids).equals(List.of(lmk.getId()))),
+                eq(KeyHierarchyService.MAX_CHILDREN_PER_NODE),
+                eq(KeyHierarchyService.MAX_SUBTREE_NODES - 1));
+        // The cap is used up after the first level
+        verify(repository, times(1)).findChildHierarchyRows(anyCollection(), anyInt(), anyInt());
+        assertTrue(root.isMoreChildren());
+    }
+
+    private static Object[] row(String masterKeyId, KeyType type, UUID parentId) {
+        return new Object[]{UUID.randomUUID(), masterKeyId, type.name(), MasterKey.KeyStatus.ACTIVE.name(), parentId, null};
+    }
+}
@@ -0,0 +1,135 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Heap allocation and latency of a key picker query against PostgreSQL: the MasterKey entity
+ * query versus the KeySummary projection with the same filter. Both run in a read-only
+ * transaction, so the entity path includes the persistence context and its loaded-state
+ * snapshots. Needs Docker; disabled by default. Run with:
+ *
+ *   mvn test -Dtest=KeyProjectionAllocationBenchmarkTest -Dhsm.benchmark=true
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "hsm.benchmark", matches = "true")
+class KeyProjectionAllocationBenchmarkTest {
+
+    private static final int[] ROW_COUNTS = {100, 1_000, 10_000};
+    private static final int ITERATIONS = 7;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @Autowired
+    private MasterKeyRepository masterKeyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareEntityAndProjectionQueries() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        System.out.println("=".repeat(80));
+        System.out.println("KEY PICKER QUERY: MasterKey entity vs KeySummary projection (PostgreSQL)");
+        System.out.println("=".repeat(80));
+
+        int seeded = 0;
+        for (int rows : ROW_COUNTS) {
+            seedActiveKeys(seeded, rows - seeded);
+            seeded = rows;
+            int expected = masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE).size();
+
+            Measurement entity = measure(threads, readOnly,
+                    () -> masterKeyRepository.findByStatus(MasterKey.KeyStatus.ACTIVE).size());
+            Measurement projection = measure(threads, readOnly,
+                    () -> masterKeyRepository.findSummariesByStatusAndKeyTypes(MasterKey.KeyStatus.ACTIVE,
+                            EnumSet.allOf(KeyType.class)).size());
+            assertEquals(expected, entity.rows());
+            assertEquals(expected, projection.rows());
+
+            System.out.printf("%,7d rows: entity %,12d B %7.2f ms | projection %,12d B %7.2f ms | %.1fx less heap%n",
+                    expected, entity.bytes(), entity.millis(), projection.bytes(), projection.millis(),
+                    (double) entity.bytes() / projection.bytes());
+            assertTrue(projection.bytes() < entity.bytes());
+        }
+    }
+
+    // Median allocation and latency over the iterations, after one warm-up run
+    private Measurement measure(com.sun.management.ThreadMXBean threads, TransactionTemplate readOnly,
+                                Supplier<Integer> query) {
+        readOnly.execute(status -> query.get());
+        long[] bytes = new long[ITERATIONS];
+        long[] nanos = new long[ITERATIONS];
+        int rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            rows = readOnly.execute(status -> {
+                int count = query.get();
+                // Measured while the persistence context still holds what the query loaded
+                entityManager.clear();
+                return count;
+            });
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        Arrays.sort(bytes);
+        Arrays.sort(nanos);
+        return new Measurement(rows, bytes[ITERATIONS / 2], nanos[ITERATIONS / 2] / 1_000_000.0);
+    }
+
+    private void seedActiveKeys(int from, int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            byte[] keyData = CryptoUtils.generateRandomKey(256);
+            String masterKeyId = String.format("TPK-BENCH-%06d", i);
+            rows.add(new Object[]{UUID.randomUUID(), masterKeyId, keyData, CryptoUtils.generateFingerprint(keyData),
+                    CryptoUtils.generateChecksum(keyData), masterKeyId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO master_keys (id, master_key_id, key_type, algorithm, key_size, key_data, " +
+                "key_fingerprint, key_checksum, kdf_salt, status) VALUES (?, ?, 'TPK', 'AES', 256, ?, ?, ?, ?, 'ACTIVE')",
+                rows);
+        jdbcTemplate.execute("ANALYZE master_keys");
+    }
+
+    private record Measurement(int rows, long bytes, double millis) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.RotationProgress;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.entity.Terminal;
+import com.artivisi.hsm.simulator.repository.BankRepository;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import com.artivisi.hsm.simulator.repository.TerminalRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A confirmation that loses the race to a concurrent delivery is retried from the status it
+ * lost to, and the last confirmation completes the rotation after it commits, as long as the
+ * database agrees that no participant is outstanding.
+ */
+public class KeyRotationServiceTest {
+
+    private static final RotationProgress ONE_OUTSTANDING = new RotationProgress(0, 1, 1, 0, 0);
+    private static final RotationProgress ALL_CONFIRMED = new RotationProgress(0, 0, 2, 0, 0);
+
+    private final MasterKeyRepository masterKeyRepository = mock(MasterKeyRepository.class);
+    private final KeyRotationHistoryRepository rotationHistoryRepository = mock(KeyRotationHistoryRepository.class);
+    private final RotationParticipantRepository participantRepository = mock(RotationParticipantRepository.class);
+    private final TerminalRepository terminalRepository = mock(TerminalRepository.class);
+    private final RotationProgressService rotationProgressService = mock(RotationProgressService.class);
+
+    private final KeyRotationService service = new KeyRotationService(masterKeyRepository, rotationHistoryRepository,
+            participantRepository, terminalRepository, mock(BankRepository.class), mock(KeyOperationService.class),
+            rotationProgressService, mock(TerminalKeyPushService.class), mock(RotationDeliveryCache.class),
+            mock(RotationExpiryService.class), mock(RotationKeyResolver.class), mock(RotationEventService.class),
+            mock(PlatformTransactionManager.class));
+
+    private final MasterKey oldKey = key("TPK-OLD");
+    private final KeyRotationHistory rotation = KeyRotationHistory.builder()
+            .id(UUID.randomUUID())
+            .oldKey(oldKey)
+            .newKey(key("TPK-NEW"))
+            .rotationStatus(KeyRotationHistory.RotationStatus.IN_PROGRESS)
+            .autoComplete(true)
+            .build();
+    private final Terminal terminal = Terminal.builder().id(UUID.randomUUID()).terminalId("TRM-ISS001-ATM-001").build();
+    private final RotationParticipant participant = RotationParticipant.builder()
+            .id(UUID.randomUUID())
+            .rotation(rotation)
+            .terminal(terminal)
+            .updateStatus(RotationParticipant.UpdateStatus.PENDING)
+            .build();
+
+    public KeyRotationServiceTest() {
+        when(rotationHistoryRepository.findById(rotation.getId())).thenReturn(Optional.of(rotation));
+        when(terminalRepository.findByTerminalId(terminal.getTerminalId())).thenReturn(Optional.of(terminal));
+        when(participantRepository.findFirstByRotation_IdAndTerminal_Id(rotation.getId(), terminal.getId()))
+                .thenReturn(Optional.of(participant));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void confirmationRetriesFromStatusSetByConcurrentDelivery() {
+        // Read as PENDING, but a delivery moved it to DELIVERED before the confirmation's UPDATE
+        when(participantRepository.markConfirmed(eq(participant.getId()), eq(RotationParticipant.UpdateStatus.PENDING),
+                any(), anyString(), any())).thenReturn(0);
+        when(participantRepository.findUpdateStatus(participant.getId()))
+                .thenReturn(Optional.of(RotationParticipant.UpdateStatus.DELIVERED));
+        when(participantRepository.markConfirmed(eq(participant.getId()), eq(RotationParticipant.UpdateStatus.DELIVERED),
+                any(), anyString(), any())).thenReturn(1);
+        when(rotationProgressService.getProgress(rotation.getId())).thenReturn(ONE_OUTSTANDING);
+
+        service.confirmKeyUpdate(rotation.getId(), terminal.getTerminalId(), "TERMINAL:TRM-ISS001-ATM-001");
+
+        verify(rotationProgressService, times(1)).transition(rotation.getId(),
+                RotationParticipant.UpdateStatus.DELIVERED, RotationParticipant.UpdateStatus.CONFIRMED);
+        verify(rotationProgressService, never()).transition(rotation.getId(),
+                RotationParticipant.UpdateStatus.PENDING, RotationParticipant.UpdateStatus.CONFIRMED);
+        verify(rotationHistoryRepository, never()).completeIfInProgress(any(), any(), any(), any());
+    }
+
+    @Test
+    public void lastConfirmationCompletesRotationAfterCommit() {
+        when(participantRepository.markConfirmed(eq(participant.getId()), eq(RotationParticipant.UpdateStatus.PENDING),
+                any(), anyString(), any())).thenReturn(1);
+        // Another confirmation is still uncommitted while this one runs; both have committed afterwards
+        when(rotationProgressService.getProgress(rotation.getId())).thenReturn(ONE_OUTSTANDING);
+        when(rotationHistoryRepository.completeIfInProgress(eq(rotation.getId()),
+                eq(KeyRotationHistory.RotationStatus.COMPLETED), any(), any())).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.confirmKeyUpdate(rotation.getId(), terminal.getTerminalId(), "TERMINAL:TRM-ISS001-ATM-001");
+        verify(rotationHistoryRepository, never()).completeIfInProgress(any(), any(), any(), any());
+
+        when(rotationProgressService.getProgress(rotation.getId())).thenReturn(ALL_CONFIRMED);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(rotationHistoryRepository, times(1)).completeIfInProgress(eq(rotation.getId()),
+                eq(KeyRotationHistory.RotationStatus.COMPLETED), any(), any());
+        assertEquals(MasterKey.KeyStatus.ROTATED, oldKey.getStatus());
+        verify(masterKeyRepository).save(oldKey);
+    }
+
+    @Test
+    public void oldKeyStaysActiveWhenDatabaseStillHasOutstandingParticipants() {
+        when(participantRepository.markConfirmed(eq(participant.getId()), eq(RotationParticipant.UpdateStatus.PENDING),
+                any(), anyString(), any())).thenReturn(1);
+        // The counters claim everyone confirmed, but the conditional UPDATE finds a participant outstanding
+        when(rotationProgressService.getProgress(rotation.getId())).thenReturn(ALL_CONFIRMED);
+        when(rotationHistoryRepository.completeIfInProgress(any(), any(), any(), any())).thenReturn(0);
+
+        service.confirmKeyUpdate(rotation.getId(), terminal.getTerminalId(), "TERMINAL:TRM-ISS001-ATM-001");
+
+        assertEquals(MasterKey.KeyStatus.ACTIVE, oldKey.getStatus());
+        verify(masterKeyRepository, never()).save(any(MasterKey.class));
+    }
+
+    private static MasterKey key(String masterKeyId) {
+        return MasterKey.builder()
+                .id(UUID.randomUUID())
+                .masterKeyId(masterKeyId)
+                .keyType(KeyType.TPK)
+                .status(MasterKey.KeyStatus.ACTIVE)
+                .build();
+    }
+}
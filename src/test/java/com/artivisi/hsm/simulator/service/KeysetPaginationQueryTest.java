@@ -0,0 +1,72 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.KeysetPage;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Keyset pages over master keys against PostgreSQL, with many keys sharing a generated_at:
+ * walking the cursors returns every key once, in (generated_at, id) descending order.
+ * Needs Docker; skipped without it.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class KeysetPaginationQueryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @Autowired
+    private KeysetPaginationService keysetPaginationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesThroughKeysWithTiedGenerationTimes() {
+        // 30 keys over three timestamps, so page boundaries fall inside runs of equal generated_at
+        LocalDateTime base = LocalDateTime.of(2026, 1, 15, 10, 0);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            byte[] keyData = CryptoUtils.generateRandomKey(256);
+            String masterKeyId = String.format("TPK-KEYSET-%03d", i);
+            rows.add(new Object[]{UUID.randomUUID(), masterKeyId, keyData, CryptoUtils.generateFingerprint(keyData),
+                    CryptoUtils.generateChecksum(keyData), masterKeyId, Timestamp.valueOf(base.plusMinutes(i % 3))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO master_keys (id, master_key_id, key_type, algorithm, key_size, key_data, " +
+                "key_fingerprint, key_checksum, kdf_salt, status, generated_at) " +
+                "VALUES (?, ?, 'TPK', 'AES', 256, ?, ?, ?, ?, 'ACTIVE', ?)", rows);
+        List<UUID> expected = jdbcTemplate.queryForList(
+                "SELECT id FROM master_keys ORDER BY generated_at DESC, id DESC", UUID.class);
+
+        List<UUID> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage<MasterKey> page = keysetPaginationService.findKeys(cursor, 7);
+            page.getContent().forEach(key -> walked.add(key.getId()));
+            cursor = page.getNextCursor();
+            assertFalse(++pages > expected.size(), "Cursor does not advance");
+        } while (cursor != null);
+
+        assertEquals(expected, walked);
+    }
+}
@@ -0,0 +1,183 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.RecoveryProgress;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Shares are decrypted in parallel with one progress event each; a share that fails
+ * authentication fails the whole recovery and is named in the error. Uploaded files are
+ * validated one by one, so a tampered or malformed file is reported without failing the others.
+ * Streamed recoveries beyond the configured limit are turned away instead of queued.
+ */
+public class OfflineRecoveryServiceTest {
+
+    private final KeyGenerationService keyGenerationService = new KeyGenerationService();
+    private final OfflineRecoveryService service =
+            new OfflineRecoveryService(keyGenerationService, mock(MasterKeyRepository.class));
+    private final byte[] masterKey = CryptoUtils.generateRandomKey(256);
+
+    public OfflineRecoveryServiceTest() {
+        ReflectionTestUtils.setField(service, "decryptParallelism", 4);
+        ReflectionTestUtils.setField(service, "maxShareFileBytes", 65536L);
+        service.startPool();
+    }
+
+    @AfterEach
+    void stopPool() {
+        service.stopPool();
+    }
+
+    @Test
+    public void sharesAreDecryptedInParallelWithProgress() throws Exception {
+        List<OfflineRecoveryService.ShareWithPassphrase> shares = shares(4, 3);
+        List<RecoveryProgress> events = new CopyOnWriteArrayList<>();
+
+        OfflineRecoveryService.OfflineRecoveryResult result = service.reconstructFromFiles(shares, events::add);
+
+        assertArrayEquals(masterKey, result.getReconstructedKey());
+        assertTrue(result.isVerified());
+        assertEquals(5, events.size());
+        assertEquals(List.of(1, 2, 3, 4, 4), events.stream().map(RecoveryProgress::getSharesDecrypted).toList());
+        assertTrue(events.get(4).isDone());
+    }
+
+    @Test
+    public void wrongPassphraseFailsTheRecovery() throws Exception {
+        List<OfflineRecoveryService.ShareWithPassphrase> shares = shares(3, 2);
+        shares.get(1).setPassphrase("not-the-passphrase");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.reconstructFromFiles(shares, progress -> { }));
+        assertTrue(e.getMessage().contains("SHR-2"));
+    }
+
+    @Test
+    public void streamedRecoveriesBeyondTheLimitAreRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Future<?> first = service.runInBackground(blocked);
+        Future<?> second = service.runInBackground(blocked);
+
+        assertThrows(OfflineRecoveryService.RecoveryUnavailableException.class, () -> service.runInBackground(blocked));
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void uploadedFilesAreValidatedIndividually() throws Exception {
+        List<OfflineRecoveryService.ShareWithPassphrase> shares = shares(3, 2);
+        byte[] share1 = shareFile(shares.get(0).getShare());
+        byte[] share2 = shareFile(shares.get(1).getShare());
+        String share3 = new String(shareFile(shares.get(2).getShare()), StandardCharsets.UTF_8);
+        // Flip one Base64 character of the share data
+        int data = share3.indexOf("BEGIN ENCRYPTED SHARE\n") + 22;
+        String tampered = share3.substring(0, data) + (share3.charAt(data) == 'A' ? 'B' : 'A') + share3.substring(data + 1);
+
+        List<OfflineRecoveryService.ShareValidation> results = service.validateShareFiles(List.of(
+                upload("share-1.txt", share1),
+                upload("share-2.txt", share2),
+                upload("tampered.txt", tampered.getBytes(StandardCharsets.UTF_8)),
+                upload("copy-of-1.txt", share1),
+                upload("bad-base64.txt", share3.replace("BEGIN ENCRYPTED SHARE\n", "BEGIN ENCRYPTED SHARE\n*")
+                        .getBytes(StandardCharsets.UTF_8)),
+                upload("truncated.txt", share3.substring(0, share3.indexOf("END ENCRYPTED SHARE"))
+                        .getBytes(StandardCharsets.UTF_8)),
+                upload("binary.bin", new byte[8192])));
+
+        assertEquals(List.of(true, true, false, false, false, false, false),
+                results.stream().map(OfflineRecoveryService.ShareValidation::isValid).toList());
+        assertTrue(results.get(0).getShare().isHashVerified());
+        assertTrue(results.get(2).getError().contains("verification hash mismatch"));
+        assertTrue(results.get(3).getError().contains("already uploaded in share-1.txt"));
+        assertTrue(results.get(4).getError().contains("invalid Base64 character"));
+        assertTrue(results.get(5).getError().contains("missing END ENCRYPTED SHARE"));
+        assertTrue(results.get(6).getError().contains("line longer than"));
+
+        // Parsed shares still reconstruct the key
+        shares.get(0).setShare(results.get(0).getShare());
+        shares.get(1).setShare(results.get(1).getShare());
+        assertArrayEquals(masterKey, service.reconstructFromFiles(shares.subList(0, 2)).getReconstructedKey());
+    }
+
+    private static byte[] shareFile(OfflineRecoveryService.ParsedShare share) {
+        String encoded = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII))
+                .encodeToString(share.getEncryptedShareData());
+        return ("CEREMONY INFORMATION\n" +
+                "Ceremony Name:     Recovery Test\n" +
+                "Ceremony ID:       CER-TEST\n\n" +
+                "Fingerprint:       " + share.getMasterKeyFingerprint() + "\n" +
+                "Email:             custodian@example.com\n" +
+                "Share ID:          " + share.getShareId() + "\n" +
+                "Share Index:       " + share.getShareIndex() + " of 3\n" +
+                "Threshold:         " + share.getThreshold() + " shares required for recovery\n" +
+                "Verification Hash: " + CryptoUtils.generateFullHash(share.getEncryptedShareData()) + "\n\n" +
+                "BEGIN ENCRYPTED SHARE\n" + encoded + "\nEND ENCRYPTED SHARE\n\nSECURITY NOTICE\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MockMultipartFile upload(String name, byte[] content) {
+        return new MockMultipartFile("files", name, "text/plain", content);
+    }
+
+    private List<OfflineRecoveryService.ShareWithPassphrase> shares(int n, int k) throws Exception {
+        List<KeyGenerationService.ShamirShare> shamirShares = keyGenerationService.createShamirShares(masterKey, n, k);
+        List<OfflineRecoveryService.ShareWithPassphrase> result = new ArrayList<>();
+        for (KeyGenerationService.ShamirShare shamirShare : shamirShares) {
+            String passphrase = "custodian-passphrase-" + shamirShare.getShareIndex();
+            byte[] salt = keyGenerationService.generateSalt();
+            byte[] encrypted = keyGenerationService.encryptShare(shamirShare, passphraseKey(passphrase, salt));
+            // Format: [32-byte salt][encrypted share data]
+            byte[] withSalt = new byte[salt.length + encrypted.length];
+            System.arraycopy(salt, 0, withSalt, 0, salt.length);
+            System.arraycopy(encrypted, 0, withSalt, salt.length, encrypted.length);
+
+            result.add(OfflineRecoveryService.ShareWithPassphrase.builder()
+                    .share(OfflineRecoveryService.ParsedShare.builder()
+                            .shareId("SHR-" + shamirShare.getShareIndex())
+                            .shareIndex(shamirShare.getShareIndex())
+                            .threshold(k)
+                            .encryptedShareData(withSalt)
+                            .masterKeyFingerprint(CryptoUtils.generateFullHash(masterKey))
+                            .fileName("share-" + shamirShare.getShareIndex() + ".txt")
+                            .build())
+                    .passphrase(passphrase)
+                    .build());
+        }
+        return result;
+    }
+
+    private static byte[] passphraseKey(String passphrase, byte[] salt) throws Exception {
+        PBEKeySpec spec = new PBEKeySpec(passphrase.toCharArray(), salt, 100000, 256);
+        return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+    }
+}
@@ -0,0 +1,141 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Expired monthly partitions are dropped whole, PIN partitions together with their rows in
+ * generated_pin_accounts, and only well-formed partition names reach the DDL. Months stuck
+ * in the DEFAULT partition are split out and expire like the rest; creation failures fail the run.
+ */
+public class PartitionRetentionServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final ListingCounterService listingCounterService = mock(ListingCounterService.class);
+    private final PartitionRetentionService service = new PartitionRetentionService(jdbcTemplate,
+            transactionTemplate, new ObjectMapper(), listingCounterService);
+
+    public PartitionRetentionServiceTest() {
+        ReflectionTestUtils.setField(service, "pinsRetentionMonths", 12);
+        ReflectionTestUtils.setField(service, "macsRetentionMonths", 6);
+        ReflectionTestUtils.setField(service, "premakeMonths", 3);
+        ReflectionTestUtils.setField(service, "archiveEnabled", false);
+
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        // Every upcoming partition exists already
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyString())).thenReturn(true);
+    }
+
+    @Test
+    public void expiredPartitionsAreDroppedAndPinAccountsReleased() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("generated_pins"))).thenReturn(List.of(
+                "generated_pins_default", "generated_pins_p2025_01", "generated_pins_p2025_02", "generated_pins_p2025_03"));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("generated_macs"))).thenReturn(List.of(
+                "generated_macs_default", "generated_macs_p2025_08", "generated_macs_p2025_09"));
+
+        PartitionRetentionService.RetentionResult result = service.runRetention(LocalDate.of(2026, 3, 15));
+
+        // Twelve months of PINs and six of MACs are kept, counting back from March 2026
+        assertEquals(List.of("generated_pins_p2025_01", "generated_pins_p2025_02", "generated_macs_p2025_08"),
+                result.getDropped());
+        assertEquals(List.of(), result.getCreated());
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update(
+                "DELETE FROM generated_pin_accounts a USING generated_pins_p2025_01 p "
+                        + "WHERE a.id_generated_pin = p.id AND a.account_number = p.account_number");
+        order.verify(jdbcTemplate).execute("ALTER TABLE generated_pins DETACH PARTITION generated_pins_p2025_01");
+        order.verify(jdbcTemplate).execute("DROP TABLE generated_pins_p2025_01");
+        verify(jdbcTemplate, never()).update(contains("generated_macs"));
+        verify(jdbcTemplate).execute("DROP TABLE generated_macs_p2025_08");
+        verify(jdbcTemplate, never()).execute(contains("generated_pins_p2025_03"));
+        verify(jdbcTemplate, never()).execute(contains("_default"));
+        verify(listingCounterService).reconcile();
+    }
+
+    @Test
+    public void missingUpcomingPartitionsAreCreated() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq("generated_pins_p2026_05"))).thenReturn(false);
+
+        List<String> created = service.ensureFuturePartitions("generated_pins", YearMonth.of(2026, 3));
+
+        assertEquals(List.of("generated_pins_p2026_05"), created);
+        verify(jdbcTemplate).queryForObject("SELECT create_monthly_partition(?, ?)", String.class,
+                "generated_pins", java.sql.Date.valueOf(LocalDate.of(2026, 5, 1)));
+    }
+
+    @Test
+    public void defaultPartitionMonthsAreSplitOutAndExpire() {
+        when(jdbcTemplate.queryForList(contains("FROM generated_pins_default"), eq(java.sql.Date.class)))
+                .thenReturn(List.of(java.sql.Date.valueOf("2024-11-01"), java.sql.Date.valueOf("2026-02-01")));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("generated_pins"))).thenReturn(List.of(
+                "generated_pins_default", "generated_pins_p2024_11", "generated_pins_p2026_02"));
+
+        PartitionRetentionService.RetentionResult result = service.runRetention(LocalDate.of(2026, 3, 15));
+
+        assertEquals(List.of("generated_pins_p2024_11", "generated_pins_p2026_02"), result.getCreated());
+        assertEquals(List.of("generated_pins_p2024_11"), result.getDropped());
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).queryForObject("SELECT create_monthly_partition(?, ?)", String.class,
+                "generated_pins", java.sql.Date.valueOf("2024-11-01"));
+        order.verify(jdbcTemplate).execute("DROP TABLE generated_pins_p2024_11");
+        verify(jdbcTemplate, never()).execute(contains("_default"));
+    }
+
+    @Test
+    public void partitionCreationFailureFailsTheRunAfterRetention() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq("generated_pins_p2026_04"))).thenReturn(false);
+        when(jdbcTemplate.queryForObject(eq("SELECT create_monthly_partition(?, ?)"), eq(String.class),
+                eq("generated_pins"), any())).thenThrow(new DataIntegrityViolationException("updated partition constraint"));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("generated_macs"))).thenReturn(List.of(
+                "generated_macs_default", "generated_macs_p2025_08"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.runRetention(LocalDate.of(2026, 3, 15)));
+
+        assertTrue(e.getMessage().contains("Could not create partition generated_pins_p2026_04"), e.getMessage());
+        verify(jdbcTemplate).execute("DROP TABLE generated_macs_p2025_08");
+    }
+
+    @Test
+    public void malformedPartitionNamesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.dropPartition("generated_pins", "generated_pins_default"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.dropPartition("generated_pins", "generated_pins_p1; DROP TABLE master_keys; --_p2025_01"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.dropPartition("generated_pins", "generated_macs_p2025_01"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.dropPartition("master_keys", "master_keys_p2025_01"));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
@@ -0,0 +1,95 @@
+package com.artivisi.hsm.simulator.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Argon2 work is admitted up to the memory budget plus the queue; beyond that callers are
+ * turned away at once, and a caller stuck in the queue gives up after the timeout.
+ */
+public class PassphraseServiceTest {
+
+    private final PassphraseService service = new PassphraseService();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    public PassphraseServiceTest() {
+        // One 64 MB hash at a time, one waiting
+        ReflectionTestUtils.setField(service, "memoryBudgetMb", 64);
+        ReflectionTestUtils.setField(service, "maxQueue", 1);
+        ReflectionTestUtils.setField(service, "timeoutMs", 30_000L);
+        service.startExecutor();
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        service.stopExecutor();
+    }
+
+    @Test
+    public void hashesAndVerifiesOnTheExecutor() {
+        String hash = service.hashPassphrase("correct horse battery staple");
+
+        assertTrue(service.verifyPassphrase("correct horse battery staple", hash));
+        assertEquals(2L, service.getHashingMetrics().get("completed"));
+        assertEquals(1, service.getHashingMetrics().get("maxConcurrent"));
+    }
+
+    @Test
+    public void saturatedExecutorRejectsAndQueuedCallerTimesOut() {
+        ReflectionTestUtils.setField(service, "timeoutMs", 200L);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "hashExecutor");
+        executor.execute(this::awaitRelease);
+
+        // Queued behind the running hash until the timeout
+        assertThrows(PassphraseService.HashingUnavailableException.class,
+                () -> service.hashPassphrase("correct horse battery staple"));
+        assertEquals(1L, service.getHashingMetrics().get("timedOut"));
+
+        executor.execute(this::awaitRelease);
+        // Worker busy and queue full
+        assertThrows(PassphraseService.HashingUnavailableException.class,
+                () -> service.hashPassphrase("correct horse battery staple"));
+        assertEquals(1L, service.getHashingMetrics().get("rejected"));
+    }
+
+    @Test
+    public void verificationBatchWaitsForAdmissionInsteadOfFailing() throws Exception {
+        String hash = service.hashPassphrase("correct horse battery staple");
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "hashExecutor");
+        // Other callers hold the worker and the queue slot for a moment
+        executor.execute(this::awaitRelease);
+        while (!executor.getQueue().isEmpty()) {
+            Thread.onSpinWait();
+        }
+        executor.execute(this::awaitRelease);
+        CompletableFuture.runAsync(release::countDown, CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS));
+
+        // Four verifications against one worker and one queue slot
+        List<String> passphrases = List.of("correct horse battery staple", "correct horse battery staple",
+                "wrong horse battery staple", "correct horse battery staple");
+        assertEquals(2, service.verifyPassphrases(passphrases, List.of(hash, hash, hash, hash)));
+        assertEquals(-1, service.verifyPassphrases(List.of(passphrases.get(0), passphrases.get(1), passphrases.get(3)),
+                List.of(hash, hash, hash)));
+        assertEquals(0L, service.getHashingMetrics().get("rejected"));
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
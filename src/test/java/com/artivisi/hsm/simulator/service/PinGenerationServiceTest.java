@@ -0,0 +1,163 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.config.CryptoConstants;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.repository.GeneratedPinRepository;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * PIN translation during a key rotation takes the key under which the block is a well-formed
+ * PIN block, not the first key whose decryption happens to contain digits; 4-12 digit PINs
+ * round-trip in every supported format.
+ */
+public class PinGenerationServiceTest {
+
+    private static final String PAN = "4111111111111111";
+
+    private final MasterKeyRepository masterKeyRepository = mock(MasterKeyRepository.class);
+    private final KeyGenerationService keyGenerationService = mock(KeyGenerationService.class);
+    private final KeyRotationHistoryRepository rotationHistoryRepository = mock(KeyRotationHistoryRepository.class);
+    private final RotationParticipantRepository participantRepository = mock(RotationParticipantRepository.class);
+    private final RotationKeyResolver resolver = new RotationKeyResolver(rotationHistoryRepository, participantRepository);
+    private final PinGenerationService service = new PinGenerationService(mock(GeneratedPinRepository.class),
+            masterKeyRepository, keyGenerationService, resolver);
+
+    private final UUID terminalId = UUID.randomUUID();
+    private final MasterKey oldKey = key("TPK-OLD", KeyType.TPK);
+    private final MasterKey newKey = key("TPK-NEW", KeyType.TPK);
+    private final MasterKey zpk = key("ZPK-01", KeyType.ZPK);
+    private final MasterKey plainTpk = key("TPK-PLAIN", KeyType.TPK);
+
+    public PinGenerationServiceTest() {
+        ReflectionTestUtils.setField(resolver, "enabled", true);
+        ReflectionTestUtils.setField(resolver, "cacheTtlMs", 60_000L);
+
+        // Operational PIN key is the first 16 bytes of the key data
+        when(keyGenerationService.buildKeyContext(anyString(), anyString(), anyString())).thenReturn("PIN");
+        when(keyGenerationService.deriveOperationalKey(any(), anyString(), anyInt()))
+                .thenAnswer(inv -> Arrays.copyOf(inv.<byte[]>getArgument(0), CryptoConstants.PIN_KEY_BYTES));
+
+        KeyRotationHistory rotation = KeyRotationHistory.builder()
+                .id(UUID.randomUUID())
+                .oldKey(oldKey)
+                .newKey(newKey)
+                .build();
+        when(rotationHistoryRepository.findInProgressByKeyWithKeys(eq(oldKey.getId()), any()))
+                .thenReturn(List.of(rotation));
+        when(rotationHistoryRepository.findInProgressByKeyWithKeys(eq(zpk.getId()), any())).thenReturn(List.of());
+        when(rotationHistoryRepository.findInProgressByKeyWithKeys(eq(plainTpk.getId()), any())).thenReturn(List.of());
+        // Terminal has not confirmed the new key, so the old key is tried first
+        when(participantRepository.findFirstByRotation_IdAndTerminal_Id(rotation.getId(), terminalId))
+                .thenReturn(Optional.of(RotationParticipant.builder()
+                        .updateStatus(RotationParticipant.UpdateStatus.DELIVERED)
+                        .build()));
+        when(masterKeyRepository.findById(oldKey.getId())).thenReturn(Optional.of(oldKey));
+        when(masterKeyRepository.findById(zpk.getId())).thenReturn(Optional.of(zpk));
+        when(masterKeyRepository.findById(plainTpk.getId())).thenReturn(Optional.of(plainTpk));
+    }
+
+    @Test
+    public void blockUnderNewKeyIsNotMistakenForDigitsUnderPreferredOldKey() throws Exception {
+        // A block from the new key whose decryption under the old key passes padding and reads as
+        // a 4-12 digit PIN: accepted under the old key when only the digits were checked
+        Random random = new Random(38);
+        String pin = null;
+        String encrypted = null;
+        for (int attempt = 0; attempt < 1_000_000 && encrypted == null; attempt++) {
+            String candidatePin = String.format("%04d", random.nextInt(10_000));
+            byte[] iv = new byte[CryptoConstants.CBC_IV_BYTES];
+            random.nextBytes(iv);
+            String clearPinBlock = ReflectionTestUtils.invokeMethod(service, "createPinBlock", candidatePin, PAN, "ISO-0");
+            byte[] ciphertext = cipher(Cipher.ENCRYPT_MODE, newKey, iv).doFinal(CryptoUtils.hexToBytes(clearPinBlock));
+            if (readsAsDigitsUnder(oldKey, iv, ciphertext)) {
+                pin = candidatePin;
+                encrypted = CryptoUtils.bytesToHex(iv) + CryptoUtils.bytesToHex(ciphertext);
+            }
+        }
+        assertNotNull(encrypted);
+
+        String underZpk = service.translateTpkToZpk(encrypted, PAN, "ISO-0", oldKey.getId(), zpk.getId());
+
+        String clearUnderZpk = ReflectionTestUtils.invokeMethod(service, "decryptPinBlock", underZpk, zpk);
+        assertEquals(pin, ReflectionTestUtils.invokeMethod(service, "extractPinFromPinBlock", clearUnderZpk, PAN, "ISO-0"));
+        assertEquals(1L, resolver.getUsage().get("PIN_TRANSLATE_TPK").get("NEW"));
+        assertEquals(1L, resolver.getUsage().get("PIN_TRANSLATE_TPK").get("FALLBACK"));
+    }
+
+    @Test
+    public void pinsOfFourTenAndTwelveDigitsSurviveTranslation() {
+        for (String format : List.of("ISO-0", "ISO-1", "ISO-3", "ISO-4")) {
+            for (String pin : List.of("1234", "9876543210", "123456789012")) {
+                String clearPinBlock = ReflectionTestUtils.invokeMethod(service, "createPinBlock", pin, PAN, format);
+                String underTpk = ReflectionTestUtils.invokeMethod(service, "encryptPinBlock", clearPinBlock, plainTpk);
+
+                String underZpk = service.translateTpkToZpk(underTpk, PAN, format, plainTpk.getId(), zpk.getId());
+
+                String clearUnderZpk = ReflectionTestUtils.invokeMethod(service, "decryptPinBlock", underZpk, zpk);
+                assertEquals(pin, ReflectionTestUtils.invokeMethod(service, "extractPinFromPinBlock",
+                        clearUnderZpk, PAN, format), format + " " + pin.length() + "-digit PIN");
+            }
+        }
+    }
+
+    private boolean readsAsDigitsUnder(MasterKey key, byte[] iv, byte[] ciphertext) throws Exception {
+        byte[] clear;
+        try {
+            clear = cipher(Cipher.DECRYPT_MODE, key, iv).doFinal(ciphertext);
+        } catch (BadPaddingException e) {
+            return false;
+        }
+        try {
+            String extracted = ReflectionTestUtils.invokeMethod(service, "extractPinFromPinBlock",
+                    CryptoUtils.bytesToHex(clear), PAN, "ISO-0");
+            return extracted != null && extracted.matches("\\d{4,12}");
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static Cipher cipher(int mode, MasterKey key, byte[] iv) throws Exception {
+        Cipher cipher = Cipher.getInstance(CryptoConstants.PIN_CIPHER);
+        cipher.init(mode, new SecretKeySpec(Arrays.copyOf(key.getKeyData(), CryptoConstants.PIN_KEY_BYTES),
+                CryptoConstants.MASTER_KEY_ALGORITHM), new IvParameterSpec(iv));
+        return cipher;
+    }
+
+    private MasterKey key(String masterKeyId, KeyType keyType) {
+        return MasterKey.builder()
+                .id(UUID.randomUUID())
+                .masterKeyId(masterKeyId)
+                .keyType(keyType)
+                .keyData(CryptoUtils.generateRandomKey(256))
+                .idTerminal(keyType == KeyType.TPK ? terminalId : null)
+                .status(MasterKey.KeyStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.KeyRotationResponse;
+import com.artivisi.hsm.simulator.dto.TerminalKeyUpdateRequest;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrency test for participant state transitions.
+ * Seeds one rotation with N terminal participants, then fires a delivery and two confirmations
+ * per terminal at once from a shared start latch. Every terminal must end CONFIRMED exactly once,
+ * the progress counters must match the table, and the rotation must complete with the old key
+ * retired exactly once. Needs Docker; disabled by default. Run with:
+ *
+ *   mvn test -Dtest=RotationConfirmationConcurrencyTest -Dhsm.benchmark=true -Dhsm.benchmark.confirmations=10000
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "hsm.benchmark", matches = "true")
+class RotationConfirmationConcurrencyTest {
+
+    private static final String PREFIX = "CC01";
+    private static final int THREADS = 64;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void simultaneousConfirmationsAreCountedExactlyOnce() throws Exception {
+        int participants = Integer.getInteger("hsm.benchmark.confirmations", 10_000);
+        UUID oldKeyId = UUID.randomUUID();
+        UUID rotationId = seedRotation(participants, oldKeyId);
+
+        // Delivery and duplicate confirmation per terminal, shuffled so they interleave
+        List<Runnable> calls = new ArrayList<>(participants * 3);
+        for (int i = 0; i < participants; i++) {
+            String terminalId = terminalId(i);
+            calls.add(() -> keyRotationService.getKeyUpdateForTerminal(TerminalKeyUpdateRequest.builder()
+                    .terminalId(terminalId)
+                    .rotationId(rotationId)
+                    .build()));
+            calls.add(() -> keyRotationService.confirmKeyUpdate(rotationId, terminalId, terminalId));
+            calls.add(() -> keyRotationService.confirmKeyUpdate(rotationId, terminalId, terminalId));
+        }
+        Collections.shuffle(calls);
+
+        AtomicInteger alreadyUpdated = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>(calls.size());
+        long begin = System.nanoTime();
+        for (Runnable call : calls) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    call.run();
+                } catch (IllegalStateException e) {
+                    // Delivery after the terminal already confirmed
+                    alreadyUpdated.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        System.out.printf("%,d participants, %,d concurrent calls in %.1f s (%,d deliveries after confirmation)%n",
+                participants, calls.size(), seconds, alreadyUpdated.get());
+
+        assertEquals(participants, countParticipants(rotationId, "CONFIRMED"));
+        assertEquals(0, countParticipants(rotationId, "PENDING") + countParticipants(rotationId, "DELIVERED"));
+
+        KeyRotationResponse status = keyRotationService.getRotationStatus(rotationId);
+        assertEquals(participants, status.getConfirmedParticipants());
+        assertEquals(0, status.getPendingParticipants());
+        assertEquals(KeyRotationHistory.RotationStatus.COMPLETED, status.getRotationStatus());
+
+        assertEquals("ROTATED", jdbcTemplate.queryForObject(
+                "SELECT status FROM master_keys WHERE id = ?", String.class, oldKeyId));
+        // Completed by exactly one transition
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT version FROM key_rotation_history WHERE id = ?", Long.class, rotationId));
+    }
+
+    private long countParticipants(UUID rotationId, String status) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM rotation_participants WHERE id_rotation = ? AND update_status = ?",
+                Long.class, rotationId, status);
+    }
+
+    private UUID seedRotation(int participants, UUID oldKeyId) {
+        UUID bankId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO banks (id, bank_code, bank_name, bank_type) VALUES (?, ?, ?, 'ISSUER')",
+                bankId, PREFIX, "Concurrency Test Bank");
+
+        insertKey(oldKeyId, PREFIX + "-OLD", bankId);
+        UUID newKeyId = UUID.randomUUID();
+        insertKey(newKeyId, PREFIX + "-NEW", bankId);
+
+        UUID rotationId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO key_rotation_history (id, rotation_id, id_old_key, id_new_key, rotation_type, " +
+                "rotation_reason, rotation_initiated_by, affected_terminals_count) " +
+                "VALUES (?, ?, ?, ?, 'SCHEDULED', 'Concurrency test', 'CONCURRENCYTEST', ?)",
+                rotationId, "ROT-" + PREFIX, oldKeyId, newKeyId, participants);
+
+        List<Object[]> terminals = new ArrayList<>(participants);
+        List<Object[]> rows = new ArrayList<>(participants);
+        for (int i = 0; i < participants; i++) {
+            UUID terminalId = UUID.randomUUID();
+            terminals.add(new Object[]{terminalId, terminalId(i), "Concurrency Terminal " + i, bankId});
+            rows.add(new Object[]{rotationId, terminalId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO terminals (id, terminal_id, terminal_name, id_bank, terminal_type) " +
+                "VALUES (?, ?, ?, ?, 'ATM')", terminals);
+        jdbcTemplate.batchUpdate("INSERT INTO rotation_participants (id_rotation, id_terminal, participant_type) " +
+                "VALUES (?, ?, 'TERMINAL')", rows);
+        return rotationId;
+    }
+
+    private void insertKey(UUID id, String masterKeyId, UUID bankId) {
+        byte[] keyData = CryptoUtils.generateRandomKey(256);
+        jdbcTemplate.update("INSERT INTO master_keys (id, master_key_id, id_bank, key_type, algorithm, key_size, " +
+                "key_data, key_fingerprint, key_checksum, kdf_salt, status) " +
+                "VALUES (?, ?, ?, 'TMK', 'AES', 256, ?, ?, ?, ?, 'ACTIVE')",
+                id, masterKeyId, bankId, keyData, CryptoUtils.generateFingerprint(keyData),
+                CryptoUtils.generateChecksum(keyData), masterKeyId);
+    }
+
+    private static String terminalId(int index) {
+        return String.format("TRM-%s-%06d", PREFIX, index);
+    }
+}
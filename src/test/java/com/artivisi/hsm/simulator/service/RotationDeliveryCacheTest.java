@@ -0,0 +1,123 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.config.CryptoConstants;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Delivery payloads are prepared once per terminal and decrypt to the new key under the
+ * KEK derived from the old key, as terminals expect. Confirmed terminals and least recently
+ * used rotations beyond the cap are dropped.
+ */
+public class RotationDeliveryCacheTest {
+
+    private final KeyRotationHistoryRepository repository = mock(KeyRotationHistoryRepository.class);
+    private final RotationDeliveryCache cache = new RotationDeliveryCache(repository);
+
+    private final byte[] oldKeyData = CryptoUtils.generateRandomKey(256);
+    private final byte[] newKeyData = CryptoUtils.generateRandomKey(256);
+    private final KeyRotationHistory rotation = KeyRotationHistory.builder()
+            .id(UUID.randomUUID())
+            .rotationId("ROT-TMK-1A2B3C4D")
+            .oldKey(MasterKey.builder().keyData(oldKeyData).build())
+            .newKey(MasterKey.builder().keyData(newKeyData).build())
+            .build();
+
+    public RotationDeliveryCacheTest() {
+        ReflectionTestUtils.setField(cache, "maxRotations", 2);
+    }
+
+    @Test
+    public void preparedPayloadsAreServedAndDecryptUnderDeliveryKek() throws Exception {
+        UUID terminalA = UUID.randomUUID();
+        UUID terminalB = UUID.randomUUID();
+        cache.prepare(rotation, List.of(terminalA, terminalB));
+
+        String payloadA = cache.payloadFor(rotation, terminalA);
+        assertEquals(payloadA, cache.payloadFor(rotation, terminalA));
+        assertNotEquals(payloadA, cache.payloadFor(rotation, terminalB));
+
+        assertArrayEquals(newKeyData, decrypt(payloadA));
+        assertArrayEquals(newKeyData, decrypt(cache.payloadFor(rotation, UUID.randomUUID())));
+    }
+
+    @Test
+    public void sweepDropsRotationsNoLongerInProgress() {
+        UUID terminal = UUID.randomUUID();
+        cache.prepare(rotation, List.of(terminal));
+        String before = cache.payloadFor(rotation, terminal);
+
+        when(repository.findInProgressIds(any())).thenReturn(List.of());
+        cache.sweep();
+
+        assertNotEquals(before, cache.payloadFor(rotation, terminal));
+    }
+
+    @Test
+    public void confirmedTerminalPayloadIsDropped() throws Exception {
+        UUID confirmed = UUID.randomUUID();
+        UUID outstanding = UUID.randomUUID();
+        cache.prepare(rotation, List.of(confirmed, outstanding));
+        String confirmedPayload = cache.payloadFor(rotation, confirmed);
+        String outstandingPayload = cache.payloadFor(rotation, outstanding);
+
+        cache.confirmed(rotation.getId(), confirmed);
+
+        assertEquals(outstandingPayload, cache.payloadFor(rotation, outstanding));
+        // Served again on request, freshly encrypted under the same KEK
+        String reissued = cache.payloadFor(rotation, confirmed);
+        assertNotEquals(confirmedPayload, reissued);
+        assertArrayEquals(newKeyData, decrypt(reissued));
+    }
+
+    @Test
+    public void leastRecentlyUsedRotationIsEvictedBeyondCap() {
+        UUID terminal = UUID.randomUUID();
+        KeyRotationHistory second = otherRotation();
+        KeyRotationHistory third = otherRotation();
+        String first = cache.payloadFor(rotation, terminal);
+        String secondPayload = cache.payloadFor(second, terminal);
+        // The first rotation is used again, so the second is the least recently used
+        cache.payloadFor(rotation, terminal);
+
+        cache.payloadFor(third, terminal);
+
+        assertEquals(first, cache.payloadFor(rotation, terminal));
+        assertNotEquals(secondPayload, cache.payloadFor(second, terminal));
+    }
+
+    private KeyRotationHistory otherRotation() {
+        return KeyRotationHistory.builder()
+                .id(UUID.randomUUID())
+                .oldKey(MasterKey.builder().keyData(CryptoUtils.generateRandomKey(256)).build())
+                .newKey(MasterKey.builder().keyData(CryptoUtils.generateRandomKey(256)).build())
+                .build();
+    }
+
+    private byte[] decrypt(String payloadHex) throws Exception {
+        byte[] payload = CryptoUtils.hexToBytes(payloadHex);
+        byte[] kek = CryptoUtils.deriveKeyFromParent(oldKeyData, "KEY_DELIVERY:ROTATION", 128);
+        Cipher cipher = Cipher.getInstance(CryptoConstants.PIN_CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(kek, CryptoConstants.MASTER_KEY_ALGORITHM),
+                new IvParameterSpec(Arrays.copyOfRange(payload, 0, CryptoConstants.CBC_IV_BYTES)));
+        return cipher.doFinal(Arrays.copyOfRange(payload, CryptoConstants.CBC_IV_BYTES, payload.length));
+    }
+}
@@ -0,0 +1,124 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.RotationEventPage;
+import com.artivisi.hsm.simulator.dto.RotationFeedEvent;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.RotationEvent;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The rotation event feed must not skip an event whose transaction commits after a later one.
+ * Transaction A writes an event and holds its commit while transaction B writes and commits.
+ * B stays invisible to the feed until A commits; then a consumer resuming from its cursor sees A, then B.
+ * Needs Docker; disabled by default. Run with:
+ *
+ *   mvn test -Dtest=RotationEventFeedTest -Dhsm.benchmark=true
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "hsm.benchmark", matches = "true")
+class RotationEventFeedTest {
+
+    private static final String PREFIX = "EF01";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @Autowired
+    private RotationEventService rotationEventService;
+
+    @Autowired
+    private KeyRotationHistoryRepository rotationHistoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lateCommitIsNotSkipped() throws Exception {
+        UUID rotationId = seedRotation();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        String start = rotationEventService.readAfter(null, 1000).getNextCursor();
+
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            record(rotationId, "TRM-SLOW");
+            written.countDown();
+            try {
+                assertTrue(release.await(30, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(written.await(30, TimeUnit.SECONDS));
+
+        tx.executeWithoutResult(status -> record(rotationId, "TRM-FAST"));
+
+        // The fast commit waits behind the open transaction
+        RotationEventPage whileOpen = rotationEventService.readAfter(start, 1000);
+        assertEquals(List.of(), whileOpen.getEvents());
+
+        release.countDown();
+        slow.get(30, TimeUnit.SECONDS);
+
+        RotationEventPage afterCommit = rotationEventService.readAfter(whileOpen.getNextCursor(), 1000);
+        assertEquals(List.of("TRM-SLOW", "TRM-FAST"),
+                afterCommit.getEvents().stream().map(RotationFeedEvent::getTerminalId).toList());
+        assertEquals(List.of(), rotationEventService.readAfter(afterCommit.getNextCursor(), 1000).getEvents());
+    }
+
+    private void record(UUID rotationId, String terminalId) {
+        KeyRotationHistory rotation = rotationHistoryRepository.findById(rotationId).orElseThrow();
+        rotationEventService.record(rotation, RotationEvent.EventType.DELIVERED, terminalId, "TERMINAL:" + terminalId, null);
+    }
+
+    private UUID seedRotation() {
+        UUID bankId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO banks (id, bank_code, bank_name, bank_type) VALUES (?, ?, ?, 'ISSUER')",
+                bankId, PREFIX, "Event Feed Test Bank");
+        UUID oldKeyId = UUID.randomUUID();
+        UUID newKeyId = UUID.randomUUID();
+        insertKey(oldKeyId, PREFIX + "-OLD", bankId);
+        insertKey(newKeyId, PREFIX + "-NEW", bankId);
+
+        UUID rotationId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO key_rotation_history (id, rotation_id, id_old_key, id_new_key, rotation_type, " +
+                "rotation_reason, rotation_initiated_by) VALUES (?, ?, ?, ?, 'SCHEDULED', 'Event feed test', 'EVENTFEEDTEST')",
+                rotationId, "ROT-" + PREFIX, oldKeyId, newKeyId);
+        return rotationId;
+    }
+
+    private void insertKey(UUID id, String masterKeyId, UUID bankId) {
+        byte[] keyData = CryptoUtils.generateRandomKey(256);
+        jdbcTemplate.update("INSERT INTO master_keys (id, master_key_id, id_bank, key_type, algorithm, key_size, " +
+                "key_data, key_fingerprint, key_checksum, kdf_salt, status) " +
+                "VALUES (?, ?, ?, 'TMK', 'AES', 256, ?, ?, ?, ?, 'ACTIVE')",
+                id, masterKeyId, bankId, keyData, CryptoUtils.generateFingerprint(keyData),
+                CryptoUtils.generateChecksum(keyData), masterKeyId);
+    }
+}
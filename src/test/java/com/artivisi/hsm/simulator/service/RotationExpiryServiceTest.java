@@ -0,0 +1,155 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Due grace period deadlines are applied with one batched update per batch; future ones stay queued.
+ */
+public class RotationExpiryServiceTest {
+
+    private final KeyRotationHistoryRepository rotationHistoryRepository = mock(KeyRotationHistoryRepository.class);
+    private final RotationParticipantRepository participantRepository = mock(RotationParticipantRepository.class);
+    private final MasterKeyRepository masterKeyRepository = mock(MasterKeyRepository.class);
+    private final RotationProgressService rotationProgressService = mock(RotationProgressService.class);
+    private final RotationDeliveryCache rotationDeliveryCache = mock(RotationDeliveryCache.class);
+    private final ListingCounterService listingCounterService = mock(ListingCounterService.class);
+    private final RotationExpiryService service = new RotationExpiryService(
+            rotationHistoryRepository, participantRepository, masterKeyRepository, rotationProgressService,
+            rotationDeliveryCache, listingCounterService, mock(RotationKeyResolver.class),
+            mock(RotationEventService.class),
+            new TransactionTemplate(new NoOpTransactionManager()));
+
+    public RotationExpiryServiceTest() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "horizonMinutes", 60L);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void dueRotationsAreExpiredInBatchesAndFutureOnesStayQueued() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> due = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        UUID future = UUID.randomUUID();
+        List<Object[]> deadlines = new ArrayList<>();
+        due.forEach(id -> deadlines.add(new Object[]{id, now.minusMinutes(1)}));
+        deadlines.add(new Object[]{future, now.plusMinutes(30)});
+        when(rotationHistoryRepository.findGracePeriodDeadlines(any())).thenReturn(deadlines);
+        when(masterKeyRepository.findActiveExpiryDeadlines(any())).thenReturn(List.of());
+        when(rotationHistoryRepository.findGracePeriodExpiredIds(anyCollection(), any()))
+                .thenAnswer(invocation -> List.copyOf((Collection<UUID>) invocation.getArgument(0)));
+
+        service.reload();
+        assertEquals(4, service.getQueuedCount());
+
+        service.tick();
+
+        ArgumentCaptor<Collection<UUID>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(participantRepository, times(2)).failOutstanding(batches.capture(),
+                eq(RotationParticipant.UpdateStatus.FAILED), eq(RotationExpiryService.EXPIRED_REASON), any());
+        assertEquals(List.of(2, 1), batches.getAllValues().stream().map(Collection::size).toList());
+        assertTrue(batches.getAllValues().stream().flatMap(Collection::stream).toList().containsAll(due));
+        verify(rotationHistoryRepository, times(2)).completeAutoCompleteRotations(anyCollection(),
+                eq(KeyRotationHistory.RotationStatus.COMPLETED), any(), eq(RotationExpiryService.SYSTEM_ACTOR));
+        verify(masterKeyRepository, never()).expireKeys(anyCollection(), any(), any());
+        due.forEach(id -> verify(rotationDeliveryCache).evict(id));
+        assertEquals(1, service.getQueuedCount());
+    }
+
+    @Test
+    public void rotationScheduledDuringReloadIsKeptOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        UUID loaded = UUID.randomUUID();
+        UUID started = UUID.randomUUID();
+        List<Object[]> deadlines = new ArrayList<>();
+        deadlines.add(new Object[]{loaded, now.plusMinutes(5)});
+        // The new rotation commits and is scheduled while the reload query runs, too late for its result
+        when(rotationHistoryRepository.findGracePeriodDeadlines(any())).thenAnswer(invocation -> {
+            service.scheduleRotation(started, now.plusMinutes(10));
+            return List.copyOf(deadlines);
+        });
+        when(masterKeyRepository.findActiveExpiryDeadlines(any())).thenReturn(List.of());
+
+        service.reload();
+        assertEquals(2, service.getQueuedCount());
+
+        // The next reload sees it in the database as well
+        deadlines.add(new Object[]{started, now.plusMinutes(10)});
+        when(rotationHistoryRepository.findGracePeriodDeadlines(any())).thenReturn(deadlines);
+        service.reload();
+        assertEquals(2, service.getQueuedCount());
+    }
+
+    @Test
+    public void keysAreExpiredAndRotationsFinishedElsewhereAreSkipped() {
+        LocalDateTime now = LocalDateTime.now();
+        UUID rotationId = UUID.randomUUID();
+        UUID keyId = UUID.randomUUID();
+        List<Object[]> rotationDeadlines = new ArrayList<>();
+        rotationDeadlines.add(new Object[]{rotationId, now.minusMinutes(5)});
+        List<Object[]> keyDeadlines = new ArrayList<>();
+        keyDeadlines.add(new Object[]{keyId, now.minusMinutes(5)});
+        when(rotationHistoryRepository.findGracePeriodDeadlines(any())).thenReturn(rotationDeadlines);
+        when(masterKeyRepository.findActiveExpiryDeadlines(any())).thenReturn(keyDeadlines);
+        // Completed by a participant confirmation after it was queued
+        when(rotationHistoryRepository.findGracePeriodExpiredIds(anyCollection(), any())).thenReturn(List.of());
+        when(masterKeyRepository.expireKeys(anyCollection(), eq(MasterKey.KeyStatus.EXPIRED), any())).thenReturn(1);
+
+        service.reload();
+        service.tick();
+
+        verify(participantRepository, never()).failOutstanding(anyCollection(), any(), any(), any());
+        verify(rotationProgressService, never()).invalidate(anyCollection());
+        verify(masterKeyRepository).expireKeys(eq(List.of(keyId)), eq(MasterKey.KeyStatus.EXPIRED), any());
+        verify(listingCounterService).reconcile();
+        assertEquals(0, service.getQueuedCount());
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
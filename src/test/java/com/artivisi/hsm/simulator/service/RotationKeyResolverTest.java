@@ -0,0 +1,112 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.repository.KeyRotationHistoryRepository;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Keys of an in-progress rotation are tried confirmed-key first, with fallback and usage recorded.
+ */
+public class RotationKeyResolverTest {
+
+    private final KeyRotationHistoryRepository rotationHistoryRepository = mock(KeyRotationHistoryRepository.class);
+    private final RotationParticipantRepository participantRepository = mock(RotationParticipantRepository.class);
+    private final RotationKeyResolver resolver = new RotationKeyResolver(rotationHistoryRepository, participantRepository);
+
+    private final UUID terminalId = UUID.randomUUID();
+    private final MasterKey oldKey = key("TPK-OLD");
+    private final MasterKey newKey = key("TPK-NEW");
+    private final KeyRotationHistory rotation = KeyRotationHistory.builder()
+            .id(UUID.randomUUID())
+            .oldKey(oldKey)
+            .newKey(newKey)
+            .build();
+
+    public RotationKeyResolverTest() {
+        ReflectionTestUtils.setField(resolver, "enabled", true);
+        ReflectionTestUtils.setField(resolver, "cacheTtlMs", 60_000L);
+        when(rotationHistoryRepository.findInProgressByKeyWithKeys(eq(oldKey.getId()), any()))
+                .thenReturn(List.of(rotation));
+    }
+
+    @Test
+    public void confirmedKeyIsTriedFirstAndFallbackIsRecorded() {
+        confirmed(true);
+
+        assertEquals(List.of(newKey, oldKey), resolver.candidates(oldKey));
+
+        // Terminal still sends under the old key
+        Optional<MasterKey> used = resolver.tryKeys("PIN_VERIFY", oldKey,
+                candidate -> candidate == oldKey ? Optional.of(candidate) : Optional.empty());
+
+        assertSame(oldKey, used.orElseThrow());
+        assertEquals(1L, resolver.getUsage().get("PIN_VERIFY").get("OLD"));
+        assertEquals(1L, resolver.getUsage().get("PIN_VERIFY").get("FALLBACK"));
+        assertEquals(1, resolver.getCachedWindowCount());
+        // Window served from cache on the second lookup
+        resolver.candidates(oldKey);
+        verify(rotationHistoryRepository, times(1)).findInProgressByKeyWithKeys(eq(oldKey.getId()), any());
+    }
+
+    @Test
+    public void firstFailureIsRethrownWhenNoKeyFits() {
+        confirmed(false);
+        IllegalArgumentException first = new IllegalArgumentException("bad block under old key");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () ->
+                resolver.tryKeys("PIN_TRANSLATE_TPK", oldKey, candidate -> {
+                    throw candidate == oldKey ? first : new IllegalArgumentException("bad block under new key");
+                }));
+
+        assertSame(first, thrown);
+        assertEquals(1L, resolver.getUsage().get("PIN_TRANSLATE_TPK").get("REJECTED"));
+    }
+
+    @Test
+    public void keysOutsideARotationAreUsedAlone() {
+        MasterKey plain = key("TPK-PLAIN");
+        when(rotationHistoryRepository.findInProgressByKeyWithKeys(eq(plain.getId()), any())).thenReturn(List.of());
+
+        assertEquals(List.of(plain), resolver.candidates(plain));
+        assertTrue(resolver.tryKeys("MAC_VERIFY", plain, Optional::of).isPresent());
+        assertEquals(1L, resolver.getUsage().get("MAC_VERIFY").get("ONLY"));
+    }
+
+    private void confirmed(boolean confirmed) {
+        RotationParticipant participant = RotationParticipant.builder()
+                .updateStatus(confirmed ? RotationParticipant.UpdateStatus.CONFIRMED : RotationParticipant.UpdateStatus.DELIVERED)
+                .build();
+        when(participantRepository.findFirstByRotation_IdAndTerminal_Id(rotation.getId(), terminalId))
+                .thenReturn(Optional.of(participant));
+    }
+
+    private MasterKey key(String masterKeyId) {
+        return MasterKey.builder()
+                .id(UUID.randomUUID())
+                .masterKeyId(masterKeyId)
+                .keyType(KeyType.TPK)
+                .idTerminal(terminalId)
+                .status(MasterKey.KeyStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.TerminalKeyUpdateRequest;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test for terminal key update lookups during a bank-wide rotation.
+ * Seeds one rotation per size with N terminal participants, then times getKeyUpdateForTerminal
+ * for a sample of terminals spread across the participant list. Latency should stay flat as N grows.
+ * The plan check runs whenever Docker is available; the latency run is disabled by default. Run with:
+ *
+ *   mvn test -Dtest=RotationParticipantLookupLoadTest -Dhsm.benchmark=true -Dhsm.benchmark.participants=1000,5000,20000
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class RotationParticipantLookupLoadTest {
+
+    private static final int SAMPLE_TERMINALS = 200;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void participantLookupUsesRotationTerminalIndex() {
+        UUID rotationId = seedRotation("PLAN", 5_000);
+        UUID terminalId = jdbcTemplate.queryForObject("SELECT id FROM terminals WHERE terminal_id = ?",
+                UUID.class, terminalId("PLAN", 2_500));
+
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN SELECT * FROM rotation_participants " +
+                "WHERE id_rotation = ? AND id_terminal = ? LIMIT 1", String.class, rotationId, terminalId);
+
+        assertTrue(plan.stream().anyMatch(line -> line.contains("idx_rotation_participant_rotation_terminal")),
+                "Participant lookup does not use the (rotation, terminal) index: " + plan);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "hsm.benchmark", matches = "true")
+    void terminalKeyUpdateLatencyStaysFlat() {
+        String sizes = System.getProperty("hsm.benchmark.participants", "1000,5000,20000");
+
+        System.out.println("=".repeat(80));
+        System.out.println("TERMINAL KEY UPDATE LOOKUP - LATENCY BY PARTICIPANT COUNT");
+        System.out.println("=".repeat(80));
+
+        List<Double> averages = new ArrayList<>();
+        int run = 0;
+        for (String size : sizes.split(",")) {
+            int participants = Integer.parseInt(size.trim());
+            String prefix = String.format("LT%02d", run++);
+            UUID rotationId = seedRotation(prefix, participants);
+
+            // Warm up connection pool and query plans
+            for (int i = 0; i < 20; i++) {
+                requestUpdate(rotationId, prefix, i);
+            }
+
+            long[] nanos = new long[SAMPLE_TERMINALS];
+            int step = Math.max(1, participants / SAMPLE_TERMINALS);
+            for (int i = 0; i < SAMPLE_TERMINALS; i++) {
+                int terminal = Math.min(participants - 1, 20 + i * step);
+                long start = System.nanoTime();
+                requestUpdate(rotationId, prefix, terminal);
+                nanos[i] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(nanos);
+            double avgMs = Arrays.stream(nanos).average().orElse(0) / 1_000_000.0;
+            double p95Ms = nanos[(int) (nanos.length * 0.95)] / 1_000_000.0;
+            averages.add(avgMs);
+            System.out.printf("%,7d participants: avg %7.3f ms, p95 %7.3f ms per terminal update%n",
+                    participants, avgMs, p95Ms);
+        }
+
+        // A scan over all participants grows linearly; an indexed lookup does not
+        assertTrue(averages.get(averages.size() - 1) < averages.get(0) * 5,
+                "Per-terminal latency grew with participant count: " + averages);
+    }
+
+    private void requestUpdate(UUID rotationId, String prefix, int terminal) {
+        assertNotNull(keyRotationService.getKeyUpdateForTerminal(TerminalKeyUpdateRequest.builder()
+                .terminalId(terminalId(prefix, terminal))
+                .rotationId(rotationId)
+                .build()).getEncryptedNewKey());
+    }
+
+    private UUID seedRotation(String prefix, int participants) {
+        UUID bankId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO banks (id, bank_code, bank_name, bank_type) VALUES (?, ?, ?, 'ISSUER')",
+                bankId, prefix, "Load Test Bank " + prefix);
+
+        UUID oldKeyId = insertKey(prefix + "-OLD", bankId, "ROTATED");
+        UUID newKeyId = insertKey(prefix + "-NEW", bankId, "ACTIVE");
+
+        UUID rotationId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO key_rotation_history (id, rotation_id, id_old_key, id_new_key, rotation_type, " +
+                "rotation_reason, rotation_initiated_by, affected_terminals_count) " +
+                "VALUES (?, ?, ?, ?, 'SCHEDULED', 'Load test', 'LOADTEST', ?)",
+                rotationId, "ROT-" + prefix, oldKeyId, newKeyId, participants);
+
+        List<Object[]> terminals = new ArrayList<>(participants);
+        List<Object[]> rows = new ArrayList<>(participants);
+        for (int i = 0; i < participants; i++) {
+            UUID terminalId = UUID.randomUUID();
+            terminals.add(new Object[]{terminalId, terminalId(prefix, i), "Load Terminal " + i, bankId});
+            rows.add(new Object[]{rotationId, terminalId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO terminals (id, terminal_id, terminal_name, id_bank, terminal_type) " +
+                "VALUES (?, ?, ?, ?, 'ATM')", terminals);
+        jdbcTemplate.batchUpdate("INSERT INTO rotation_participants (id_rotation, id_terminal, participant_type) " +
+                "VALUES (?, ?, 'TERMINAL')", rows);
+        jdbcTemplate.execute("ANALYZE rotation_participants");
+        return rotationId;
+    }
+
+    private UUID insertKey(String masterKeyId, UUID bankId, String status) {
+        UUID id = UUID.randomUUID();
+        byte[] keyData = CryptoUtils.generateRandomKey(256);
+        jdbcTemplate.update("INSERT INTO master_keys (id, master_key_id, id_bank, key_type, algorithm, key_size, " +
+                "key_data, key_fingerprint, key_checksum, kdf_salt, status) " +
+                "VALUES (?, ?, ?, 'TMK', 'AES', 256, ?, ?, ?, ?, ?)",
+                id, masterKeyId, bankId, keyData, CryptoUtils.generateFingerprint(keyData),
+                CryptoUtils.generateChecksum(keyData), masterKeyId, status);
+        return id;
+    }
+
+    private static String terminalId(String prefix, int index) {
+        return String.format("TRM-%s-%06d", prefix, index);
+    }
+}
@@ -0,0 +1,160 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.RotationProgress;
+import com.artivisi.hsm.simulator.entity.RotationParticipant.UpdateStatus;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rotation progress counters: one GROUP BY on first read, own-transaction deltas visible
+ * immediately, other readers see them only after commit. A load that overlaps a commit is
+ * not cached, so the commit is neither lost nor counted twice.
+ */
+public class RotationProgressServiceTest {
+
+    private final RotationParticipantRepository repository = mock(RotationParticipantRepository.class);
+    private final RotationProgressService service = new RotationProgressService(repository, new NoOpTransactionManager());
+    private final UUID rotationId = UUID.randomUUID();
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(service);
+    }
+
+    @Test
+    public void loadsOnceAndTracksTransitionsAcrossCommit() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{UpdateStatus.PENDING, 3L});
+        rows.add(new Object[]{UpdateStatus.DELIVERED, 1L});
+        when(repository.countGroupedByStatus(rotationId)).thenReturn(rows);
+
+        assertEquals(4, service.getProgress(rotationId).total());
+
+        // Confirmation inside a transaction
+        TransactionSynchronizationManager.initSynchronization();
+        service.transition(rotationId, UpdateStatus.DELIVERED, UpdateStatus.CONFIRMED);
+        RotationProgress inTransaction = service.getProgress(rotationId);
+        assertEquals(0, inTransaction.delivered());
+        assertEquals(1, inTransaction.confirmed());
+
+        // Not visible outside the transaction before commit
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.unbindResource(service);
+        assertEquals(1, service.getProgress(rotationId).delivered());
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        RotationProgress committed = service.getProgress(rotationId);
+        assertEquals(3, committed.pending());
+        assertEquals(0, committed.delivered());
+        assertEquals(1, committed.confirmed());
+        assertEquals(3, committed.outstanding());
+
+        verify(repository, times(1)).countGroupedByStatus(any());
+    }
+
+    @Test
+    public void rolledBackTransitionsAreDiscarded() {
+        when(repository.countGroupedByStatus(rotationId)).thenReturn(List.<Object[]>of(new Object[]{UpdateStatus.PENDING, 2L}));
+        service.getProgress(rotationId);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.transition(rotationId, UpdateStatus.PENDING, UpdateStatus.FAILED);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(2, service.getProgress(rotationId).pending());
+        assertEquals(0, service.getProgress(rotationId).failed());
+    }
+
+    @Test
+    public void loadDuringCommitIsNotCachedAndCommitIsNotCountedTwice() {
+        // The confirmation is committed in the database, its counters not yet applied
+        List<TransactionSynchronization> confirmation = transitionInOtherTransaction(UpdateStatus.DELIVERED, UpdateStatus.CONFIRMED);
+        confirmation.forEach(s -> s.beforeCommit(false));
+        when(repository.countGroupedByStatus(rotationId)).thenReturn(
+                List.of(new Object[]{UpdateStatus.PENDING, 3L}, new Object[]{UpdateStatus.CONFIRMED, 1L}));
+
+        assertEquals(1, service.getProgress(rotationId).confirmed());
+
+        confirmation.forEach(TransactionSynchronization::afterCommit);
+        confirmation.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(1, service.getProgress(rotationId).confirmed());
+        assertEquals(0, service.getProgress(rotationId).delivered());
+        verify(repository, times(2)).countGroupedByStatus(rotationId);
+    }
+
+    @Test
+    public void commitWhileLoadingIsNotLost() {
+        List<TransactionSynchronization> confirmation = transitionInOtherTransaction(UpdateStatus.DELIVERED, UpdateStatus.CONFIRMED);
+        AtomicInteger queries = new AtomicInteger();
+        when(repository.countGroupedByStatus(rotationId)).thenAnswer(inv -> {
+            if (queries.getAndIncrement() > 0) {
+                return List.of(new Object[]{UpdateStatus.PENDING, 3L}, new Object[]{UpdateStatus.CONFIRMED, 1L});
+            }
+            // The snapshot is taken, then the confirmation commits before the load finishes
+            confirmation.forEach(s -> s.beforeCommit(false));
+            confirmation.forEach(TransactionSynchronization::afterCommit);
+            confirmation.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            return List.of(new Object[]{UpdateStatus.PENDING, 3L}, new Object[]{UpdateStatus.DELIVERED, 1L});
+        });
+
+        assertEquals(1, service.getProgress(rotationId).delivered());
+        RotationProgress reloaded = service.getProgress(rotationId);
+        assertEquals(0, reloaded.delivered());
+        assertEquals(1, reloaded.confirmed());
+        assertEquals(1, service.getProgress(rotationId).confirmed());
+        verify(repository, times(2)).countGroupedByStatus(rotationId);
+    }
+
+    // Records a transition in a transaction of its own and returns its synchronizations, not yet completed
+    private List<TransactionSynchronization> transitionInOtherTransaction(UpdateStatus from, UpdateStatus to) {
+        TransactionSynchronizationManager.initSynchronization();
+        service.transition(rotationId, from, to);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.unbindResource(service);
+        return synchronizations;
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -147,7 +147,7 @@ public class SampleDataGeneratorTest {
      */
     private String createISO0PinBlock(String pin, String pan) {
         // PIN field: 0 + length + PIN + padding with F
-        String pinField = String.format("0%d%s", pin.length(), pin);
+        String pinField = String.format("0%X%s", pin.length(), pin);
         while (pinField.length() < 16) {
             pinField += "F";
         }
@@ -0,0 +1,71 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.service.KeyGenerationService.ShamirEngine;
+import com.artivisi.hsm.simulator.service.KeyGenerationService.ShamirShare;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Split and reconstruct time of a 256-bit master key, BigInteger prime field versus byte-wise GF(256),
+ * for n = 3..20 custodians with a majority threshold. Run with:
+ *
+ *   mvn test -Dtest=ShamirEngineBenchmarkTest -Dhsm.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "hsm.benchmark", matches = "true")
+public class ShamirEngineBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 5_000;
+
+    private final KeyGenerationService keyGenerationService = new KeyGenerationService();
+    private final byte[] secret = CryptoUtils.generateRandomKey(256);
+
+    // Keeps results reachable so the JIT cannot drop the work
+    private Object sink;
+
+    @Test
+    public void compareEngines() {
+        System.out.println("=".repeat(80));
+        System.out.println("SHAMIR SPLIT / RECONSTRUCT: PRIME_FIELD (BigInteger) vs GF256 (byte-wise), 32-byte secret");
+        System.out.println("=".repeat(80));
+
+        for (int n = 3; n <= 20; n++) {
+            int k = n / 2 + 1;
+            double primeSplit = measure(split(n, k, ShamirEngine.PRIME_FIELD));
+            double gfSplit = measure(split(n, k, ShamirEngine.GF256));
+            double primeCombine = measure(reconstruct(n, k, ShamirEngine.PRIME_FIELD));
+            double gfCombine = measure(reconstruct(n, k, ShamirEngine.GF256));
+
+            System.out.printf("n=%2d k=%2d | split %8.1f us vs %6.1f us (%4.1fx) | reconstruct %8.1f us vs %6.1f us (%4.1fx)%n",
+                    n, k, primeSplit, gfSplit, primeSplit / gfSplit, primeCombine, gfCombine, primeCombine / gfCombine);
+        }
+    }
+
+    private Supplier<Object> split(int n, int k, ShamirEngine engine) {
+        return () -> keyGenerationService.createShamirShares(secret, n, k, engine);
+    }
+
+    private Supplier<Object> reconstruct(int n, int k, ShamirEngine engine) {
+        List<ShamirShare> shares = keyGenerationService.createShamirShares(secret, n, k, engine).subList(n - k, n);
+        assertArrayEquals(secret, keyGenerationService.reconstructSecret(shares));
+        return () -> keyGenerationService.reconstructSecret(shares);
+    }
+
+    // Mean microseconds per call after warm-up
+    private double measure(Supplier<Object> work) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = work.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink = work.get();
+        }
+        return (System.nanoTime() - start) / 1_000.0 / MEASURED_ITERATIONS;
+    }
+}
@@ -0,0 +1,82 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.service.KeyGenerationService.ShamirEngine;
+import com.artivisi.hsm.simulator.service.KeyGenerationService.ShamirShare;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Both Shamir engines reconstruct from any threshold subset, through share encryption,
+ * and shares of the two engines are never mixed. A GF256 share whose header claims more
+ * bytes than it carries is rejected rather than zero-padded.
+ */
+public class ShamirEngineTest {
+
+    private final KeyGenerationService keyGenerationService = new KeyGenerationService();
+    private final byte[] encryptionKey = CryptoUtils.generateRandomKey(256);
+
+    @Test
+    public void gf256SplitsSecretsOfAnyLength() {
+        // Three AES-256 keys split at once
+        byte[] secret = CryptoUtils.generateRandomBytes(96);
+        List<ShamirShare> shares = keyGenerationService.createShamirShares(secret, 5, 3, ShamirEngine.GF256);
+
+        assertEquals(96, shares.get(0).getShareData().length);
+        assertArrayEquals(secret, keyGenerationService.reconstructSecret(List.of(shares.get(4), shares.get(0), shares.get(2))));
+        assertArrayEquals(secret, keyGenerationService.reconstructSecret(List.of(shares.get(1), shares.get(3), shares.get(4))));
+        assertArrayEquals(secret, keyGenerationService.reconstructSecret(shares));
+        // Fewer points than the threshold interpolate a different polynomial
+        ShamirShare first = shares.get(0);
+        first.setThreshold(2);
+        shares.get(1).setThreshold(2);
+        assertFalse(Arrays.equals(secret, keyGenerationService.reconstructSecret(List.of(first, shares.get(1)))));
+    }
+
+    @Test
+    public void sharesOfBothEnginesSurviveEncryption() {
+        byte[] secret = CryptoUtils.generateRandomKey(256);
+        for (ShamirEngine engine : ShamirEngine.values()) {
+            List<ShamirShare> shares = keyGenerationService.createShamirShares(secret, 3, 2, engine);
+
+            List<ShamirShare> decrypted = shares.subList(1, 3).stream()
+                    .map(share -> keyGenerationService.decryptShare(
+                            keyGenerationService.encryptShare(share, encryptionKey), encryptionKey))
+                    .toList();
+
+            assertEquals(engine, decrypted.get(0).getEngine());
+            assertArrayEquals(secret, keyGenerationService.reconstructSecret(decrypted));
+        }
+    }
+
+    @Test
+    public void mixedEngineSharesAreRejected() {
+        byte[] secret = CryptoUtils.generateRandomKey(256);
+        ShamirShare prime = keyGenerationService.createShamirShares(secret, 3, 2, ShamirEngine.PRIME_FIELD).get(0);
+        ShamirShare gf256 = keyGenerationService.createShamirShares(secret, 3, 2, ShamirEngine.GF256).get(1);
+
+        assertThrows(IllegalArgumentException.class, () -> keyGenerationService.reconstructSecret(List.of(prime, gf256)));
+    }
+
+    @Test
+    public void truncatedGf256ShareIsRejected() {
+        // "GF01" magic, index 1, threshold 2, declared length 64, but only 32 data bytes
+        ByteBuffer share = ByteBuffer.allocate(16 + 32).putInt(0x47463031).putInt(1).putInt(2).putInt(64);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ReflectionTestUtils.invokeMethod(keyGenerationService, "deserializeShare", share.array()));
+        assertEquals("GF256 share header declares 64 bytes but only 32 follow", e.getMessage());
+        share.putInt(12, -1);
+        assertThrows(IllegalArgumentException.class,
+                () -> ReflectionTestUtils.invokeMethod(keyGenerationService, "deserializeShare", share.array()));
+    }
+}
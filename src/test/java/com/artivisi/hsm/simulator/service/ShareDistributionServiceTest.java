@@ -0,0 +1,171 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.ShareArchiveEntry;
+import com.artivisi.hsm.simulator.dto.ShareArchiveManifest;
+import com.artivisi.hsm.simulator.entity.CeremonyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyCeremony;
+import com.artivisi.hsm.simulator.entity.KeyCustodian;
+import com.artivisi.hsm.simulator.entity.KeyShare;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.repository.CeremonyCustodianRepository;
+import com.artivisi.hsm.simulator.repository.KeyShareRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The ceremony share archive holds every share file plus a manifest whose SHA-256 values match
+ * the files, and each archived file still parses as a share for offline recovery.
+ */
+public class ShareDistributionServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final MasterKeyRepository masterKeyRepository = mock(MasterKeyRepository.class);
+    private final KeyShareRepository shareRepository = mock(KeyShareRepository.class);
+    private final ShareDistributionService service = new ShareDistributionService(shareRepository,
+            masterKeyRepository, mock(CeremonyCustodianRepository.class), mock(EmailOutboxService.class),
+            mock(CeremonyStatusService.class), mock(CeremonyStatisticsService.class),
+            mock(TemplateService.class), objectMapper);
+
+    private final KeyCeremony ceremony = KeyCeremony.builder()
+            .id(UUID.randomUUID())
+            .ceremonyId("CER-2026-001")
+            .ceremonyName("Archive Test Ceremony")
+            .numberOfCustodians(3)
+            .threshold(2)
+            .completedAt(LocalDateTime.now())
+            .build();
+    private final MasterKey masterKey = MasterKey.builder()
+            .id(UUID.randomUUID())
+            .masterKeyId("HSM-MK-ARCHIVE")
+            .keyFingerprint("ABCDEF0123456789")
+            .kdfSalt("CER-2026-001")
+            .keyCeremony(ceremony)
+            .status(MasterKey.KeyStatus.ACTIVE)
+            .build();
+    private final List<KeyShare> shares = new ArrayList<>();
+
+    public ShareDistributionServiceTest() {
+        for (int i = 1; i <= 3; i++) {
+            KeyCustodian custodian = KeyCustodian.builder()
+                    .fullName("Custodian " + i)
+                    .email("custodian" + i + "@example.com")
+                    .build();
+            CeremonyCustodian ceremonyCustodian = CeremonyCustodian.builder()
+                    .keyCeremony(ceremony)
+                    .keyCustodian(custodian)
+                    .custodianLabel("Custodian " + (char) ('A' + i - 1))
+                    .build();
+            byte[] shareData = randomBytes(200);
+            shares.add(KeyShare.builder()
+                    .id(UUID.randomUUID())
+                    .shareId("SHR-CER-2026-001-00" + i)
+                    .masterKey(masterKey)
+                    .ceremonyCustodian(ceremonyCustodian)
+                    .shareIndex(i)
+                    .shareDataEncrypted(shareData)
+                    .shareVerificationHash(CryptoUtils.generateFullHash(shareData))
+                    .polynomialDegree(1)
+                    .generatedAt(LocalDateTime.now())
+                    .build());
+        }
+        when(masterKeyRepository.findByKeyCeremonyId(ceremony.getId())).thenReturn(Optional.of(masterKey));
+        when(shareRepository.findByMasterKeyIdWithCustodians(masterKey.getId())).thenReturn(shares);
+    }
+
+    @Test
+    public void archiveManifestMatchesShareFiles() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportCeremonyShares(ceremony.getId(), out);
+        Map<String, byte[]> files = unzip(out.toByteArray());
+
+        assertEquals(List.of("key-share-SHR-CER-2026-001-001.txt", "key-share-SHR-CER-2026-001-002.txt",
+                "key-share-SHR-CER-2026-001-003.txt", ShareDistributionService.MANIFEST_FILE,
+                ShareDistributionService.CHECKSUMS_FILE), List.copyOf(files.keySet()));
+
+        ShareArchiveManifest manifest = objectMapper.readValue(
+                files.get(ShareDistributionService.MANIFEST_FILE), ShareArchiveManifest.class);
+        assertEquals("CER-2026-001", manifest.getCeremonyId());
+        assertEquals(2, manifest.getThreshold());
+        assertEquals(3, manifest.getShares().size());
+
+        String checksums = new String(files.get(ShareDistributionService.CHECKSUMS_FILE), StandardCharsets.UTF_8);
+        for (ShareArchiveEntry entry : manifest.getShares()) {
+            byte[] file = files.get(entry.getFile());
+            String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file));
+            assertEquals(sha256, entry.getSha256());
+            assertEquals(file.length, entry.getSize());
+            assertTrue(checksums.contains(sha256 + "  " + entry.getFile() + "\n"));
+        }
+    }
+
+    @Test
+    public void archivedShareParsesForOfflineRecovery() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportCeremonyShares(ceremony.getId(), out);
+        KeyShare share = shares.get(1);
+        byte[] file = unzip(out.toByteArray()).get("key-share-" + share.getShareId() + ".txt");
+
+        OfflineRecoveryService recovery = new OfflineRecoveryService(mock(KeyGenerationService.class), masterKeyRepository);
+        ReflectionTestUtils.setField(recovery, "maxShareFileBytes", 65536L);
+        OfflineRecoveryService.ParsedShare parsed = recovery.parseShareFile(
+                new MockMultipartFile("file", "share.txt", "text/plain", file));
+
+        assertEquals(share.getShareId(), parsed.getShareId());
+        assertEquals(2, parsed.getShareIndex());
+        assertEquals(2, parsed.getThreshold());
+        assertEquals("CER-2026-001", parsed.getCeremonyId());
+        assertEquals("custodian2@example.com", parsed.getCustodianEmail());
+        assertArrayEquals(share.getShareDataEncrypted(), parsed.getEncryptedShareData());
+        assertTrue(parsed.isHashVerified());
+
+        // Single download renders the same document
+        String single = new String(service.generateShareDownload(share), StandardCharsets.UTF_8);
+        String archived = new String(file, StandardCharsets.UTF_8);
+        assertEquals(single.substring(0, single.indexOf("Generated by")),
+                archived.substring(0, archived.indexOf("Generated by")));
+    }
+
+    // Long enough to wrap over several Base64 lines
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static Map<String, byte[]> unzip(byte[] archive) throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                files.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return files;
+    }
+}
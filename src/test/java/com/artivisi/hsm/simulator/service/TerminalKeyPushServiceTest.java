@@ -0,0 +1,145 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.TerminalKeyNotice;
+import com.artivisi.hsm.simulator.entity.KeyRotationHistory;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.RotationParticipant;
+import com.artivisi.hsm.simulator.entity.Terminal;
+import com.artivisi.hsm.simulator.repository.RotationParticipantRepository;
+import com.artivisi.hsm.simulator.repository.TerminalRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Long-poll subscribers get a rotation notice when the rotation commits, or on connect when one is already waiting.
+ */
+public class TerminalKeyPushServiceTest {
+
+    private static final String TERMINAL_ID = "TRM-ISS001-ATM-001";
+
+    private final TerminalRepository terminalRepository = mock(TerminalRepository.class);
+    private final RotationParticipantRepository participantRepository = mock(RotationParticipantRepository.class);
+    private final TerminalKeyPushService service = new TerminalKeyPushService(
+            terminalRepository, participantRepository, new NoOpTransactionManager());
+    private final Terminal terminal = Terminal.builder().id(UUID.randomUUID()).terminalId(TERMINAL_ID).build();
+
+    public TerminalKeyPushServiceTest() {
+        ReflectionTestUtils.setField(service, "longPollMaxMs", 60_000L);
+        when(terminalRepository.findByTerminalId(TERMINAL_ID)).thenReturn(Optional.of(terminal));
+    }
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void waitingPollReceivesNoticeOnlyAfterCommit() throws InterruptedException {
+        when(participantRepository.findInProgressRotationsForTerminal(eq(terminal.getId()), any(), any())).thenReturn(List.of());
+        DeferredResult<ResponseEntity<?>> waiter = service.poll(TERMINAL_ID, 30_000);
+        assertFalse(waiter.hasResult());
+        assertEquals(1, service.getSubscribedTerminalCount());
+
+        KeyRotationHistory rotation = rotation();
+        TransactionSynchronizationManager.initSynchronization();
+        service.rotationStarted(rotation, List.of(TERMINAL_ID, "TRM-ISS001-ATM-002"));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Thread.sleep(50);
+        assertFalse(waiter.hasResult(), "Notice must not be pushed before commit");
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        TerminalKeyNotice notice = awaitNotice(waiter);
+        assertEquals(rotation.getId(), notice.getRotationId());
+        assertEquals("TPK", notice.getKeyType());
+    }
+
+    @Test
+    public void pollReturnsImmediatelyWhenRotationIsAlreadyPending() {
+        KeyRotationHistory rotation = rotation();
+        when(participantRepository.findInProgressRotationsForTerminal(
+                eq(terminal.getId()), eq(List.of(RotationParticipant.UpdateStatus.PENDING)), any()))
+                .thenReturn(List.of(rotation));
+
+        DeferredResult<ResponseEntity<?>> waiter = service.poll(TERMINAL_ID, 30_000);
+
+        assertTrue(waiter.hasResult());
+        assertEquals(rotation.getRotationId(), ((TerminalKeyNotice) ((ResponseEntity<?>) waiter.getResult()).getBody())
+                .getRotationIdString());
+    }
+
+    @Test
+    public void pollWaitsWhenRotationWasAlreadyDelivered() {
+        // The terminal fetched the key but has not confirmed yet: the participation is DELIVERED
+        KeyRotationHistory rotation = rotation();
+        when(participantRepository.findInProgressRotationsForTerminal(eq(terminal.getId()), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<RotationParticipant.UpdateStatus>>getArgument(1)
+                        .contains(RotationParticipant.UpdateStatus.DELIVERED) ? List.of(rotation) : List.of());
+
+        DeferredResult<ResponseEntity<?>> waiter = service.poll(TERMINAL_ID, 30_000);
+
+        assertFalse(waiter.hasResult());
+    }
+
+    private TerminalKeyNotice awaitNotice(DeferredResult<ResponseEntity<?>> waiter) throws InterruptedException {
+        for (int i = 0; i < 100 && !waiter.hasResult(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(waiter.hasResult(), "Notice was not pushed");
+        return (TerminalKeyNotice) ((ResponseEntity<?>) waiter.getResult()).getBody();
+    }
+
+    private KeyRotationHistory rotation() {
+        return KeyRotationHistory.builder()
+                .id(UUID.randomUUID())
+                .rotationId("ROT-TPK-1A2B3C4D")
+                .newKey(MasterKey.builder().masterKeyId("TPK-TRMISS001ATM001-5E6F7A8B").keyType(KeyType.TPK).build())
+                .rotationStartedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.artivisi.hsm.simulator.service;
+
+import com.artivisi.hsm.simulator.dto.ZoneKeyBatchExportRequest;
+import com.artivisi.hsm.simulator.dto.ZoneKeyBundle;
+import com.artivisi.hsm.simulator.dto.ZoneKeyImportResponse;
+import com.artivisi.hsm.simulator.entity.Bank;
+import com.artivisi.hsm.simulator.entity.KeyType;
+import com.artivisi.hsm.simulator.entity.MasterKey;
+import com.artivisi.hsm.simulator.entity.ZoneKeyExchange;
+import com.artivisi.hsm.simulator.repository.BankRepository;
+import com.artivisi.hsm.simulator.repository.MasterKeyRepository;
+import com.artivisi.hsm.simulator.repository.ZoneKeyExchangeRepository;
+import com.artivisi.hsm.simulator.util.CryptoUtils;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A bundle exported by one instance imports on a partner instance sharing the ZMK, with one KEK
+ * derivation per side; an altered bundle is rejected before anything is stored.
+ */
+public class ZoneKeyExchangeServiceTest {
+
+    private final byte[] zmkData = CryptoUtils.generateRandomKey(256);
+    private final Bank issuer = bank("ISS001");
+    private final Bank acquirer = bank("ACQ001");
+    private final MasterKey issuerZpk = zoneKey(KeyType.ZPK, "ZPK-ISS001-A", issuer);
+    private final MasterKey issuerZsk = zoneKey(KeyType.ZSK, "ZSK-ISS001-B", issuer);
+
+    private final MasterKeyRepository issuerKeys = mock(MasterKeyRepository.class);
+    private final ZoneKeyExchangeRepository issuerExchanges = mock(ZoneKeyExchangeRepository.class);
+    private final KeyGenerationService issuerKdf = kdf();
+    private final ZoneKeyExchangeService issuerService = service(issuerKeys, issuerExchanges, issuerKdf);
+
+    private final MasterKeyRepository acquirerKeys = mock(MasterKeyRepository.class);
+    private final ZoneKeyExchangeRepository acquirerExchanges = mock(ZoneKeyExchangeRepository.class);
+    private final KeyGenerationService acquirerKdf = kdf();
+    private final ZoneKeyExchangeService acquirerService = service(acquirerKeys, acquirerExchanges, acquirerKdf);
+
+    public ZoneKeyExchangeServiceTest() {
+        MasterKey issuerZmk = zmk(issuer);
+        when(issuerKeys.findById(issuerZmk.getId())).thenReturn(Optional.of(issuerZmk));
+        when(issuerKeys.findAllById(any())).thenReturn(List.of(issuerZsk, issuerZpk));
+
+        MasterKey acquirerZmk = zmk(acquirer);
+        when(acquirerKeys.findByKeyTypeAndStatusAndKeyChecksum(KeyType.ZMK, MasterKey.KeyStatus.ACTIVE,
+                acquirerZmk.getKeyChecksum())).thenReturn(List.of(acquirerZmk));
+        when(acquirerKeys.findByKeyFingerprint(anyString())).thenReturn(Optional.empty());
+        when(acquirerKeys.findByMasterKeyId(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bundleRoundTripsWithOneDerivationPerSide() {
+        ZoneKeyBundle bundle = issuerService.exportBundle(request(), "alice");
+
+        assertEquals(List.of("ZPK-ISS001-A", "ZSK-ISS001-B"),
+                bundle.getKeys().stream().map(e -> e.getMasterKeyId()).toList());
+        ArgumentCaptor<List<ZoneKeyExchange>> sent = ArgumentCaptor.forClass(List.class);
+        verify(issuerExchanges).saveAll(sent.capture());
+        assertEquals(2, sent.getValue().size());
+        assertTrue(sent.getValue().stream().allMatch(x -> bundle.getBundleId().equals(x.getBundleId())
+                && x.getExchangeStatus() == ZoneKeyExchange.ExchangeStatus.IN_TRANSIT));
+
+        ZoneKeyImportResponse response = acquirerService.importBundle(bundle, "bob");
+
+        assertEquals(2, response.getImported());
+        assertEquals(0, response.getSkipped());
+        ArgumentCaptor<List<MasterKey>> stored = ArgumentCaptor.forClass(List.class);
+        verify(acquirerKeys).saveAll(stored.capture());
+        assertArrayEquals(issuerZpk.getKeyData(), stored.getValue().get(0).getKeyData());
+        assertArrayEquals(issuerZsk.getKeyData(), stored.getValue().get(1).getKeyData());
+        assertEquals(acquirer.getId(), stored.getValue().get(0).getIdBank());
+
+        verify(issuerKdf, times(1)).deriveOperationalKey(any(), anyString(), anyInt());
+        verify(acquirerKdf, times(1)).deriveOperationalKey(any(), anyString(), anyInt());
+    }
+
+    @Test
+    public void alteredBundleIsRejected() {
+        ZoneKeyBundle bundle = issuerService.exportBundle(request(), "alice");
+        bundle.getKeys().get(1).setKeyCheckValue("000000");
+
+        assertThrows(IllegalArgumentException.class, () -> acquirerService.importBundle(bundle, "bob"));
+        verify(acquirerKeys, never()).saveAll(any());
+        verify(acquirerExchanges, never()).saveAll(any());
+    }
+
+    private ZoneKeyBatchExportRequest request() {
+        return ZoneKeyBatchExportRequest.builder()
+                .zmkId(zmk(issuer).getId())
+                .destinationBankCode(acquirer.getBankCode())
+                .keyIds(List.of(issuerZpk.getId(), issuerZsk.getId(), issuerZpk.getId()))
+                .build();
+    }
+
+    private ZoneKeyExchangeService service(MasterKeyRepository keys, ZoneKeyExchangeRepository exchanges,
+                                           KeyGenerationService keyGenerationService) {
+        BankRepository banks = mock(BankRepository.class);
+        for (Bank bank : List.of(issuer, acquirer)) {
+            when(banks.findById(bank.getId())).thenReturn(Optional.of(bank));
+            when(banks.findByBankCode(bank.getBankCode())).thenReturn(Optional.of(bank));
+        }
+        ZoneKeyExchangeService service = new ZoneKeyExchangeService(keys, banks, exchanges, keyGenerationService);
+        ReflectionTestUtils.setField(service, "maxBundleKeys", 500);
+        return service;
+    }
+
+    private static KeyGenerationService kdf() {
+        KeyGenerationService keyGenerationService = mock(KeyGenerationService.class);
+        when(keyGenerationService.buildKeyContext(anyString(), anyString(), anyString()))
+                .thenAnswer(inv -> String.join(":", inv.getArgument(0, String.class),
+                        inv.getArgument(1, String.class), inv.getArgument(2, String.class)));
+        when(keyGenerationService.deriveOperationalKey(any(), anyString(), anyInt()))
+                .thenAnswer(inv -> CryptoUtils.deriveKeyFromParent(inv.getArgument(0),
+                        inv.getArgument(1), inv.getArgument(2, Integer.class) * 8));
+        return keyGenerationService;
+    }
+
+    // Same ZMK material on both instances, distinct IDs and banks
+    private MasterKey zmk(Bank bank) {
+        return MasterKey.builder()
+                .id(UUID.nameUUIDFromBytes(("ZMK-" + bank.getBankCode()).getBytes()))
+                .masterKeyId("ZMK-" + bank.getBankCode())
+                .idBank(bank.getId())
+                .keyType(KeyType.ZMK)
+                .keyData(zmkData)
+                .keyChecksum(CryptoUtils.generateChecksum(zmkData))
+                .status(MasterKey.KeyStatus.ACTIVE)
+                .build();
+    }
+
+    private static MasterKey zoneKey(KeyType type, String masterKeyId, Bank bank) {
+        byte[] keyData = CryptoUtils.generateRandomKey(256);
+        return MasterKey.builder()
+                .id(UUID.randomUUID())
+                .masterKeyId(masterKeyId)
+                .idBank(bank.getId())
+                .keyType(type)
+                .algorithm("AES")
+                .keySize(256)
+                .keyData(keyData)
+                .status(MasterKey.KeyStatus.ACTIVE)
+                .build();
+    }
+
+    private static Bank bank(String code) {
+        return Bank.builder().id(UUID.randomUUID()).bankCode(code).bankName(code).build();
+    }
+}